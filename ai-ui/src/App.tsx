@@ -4,7 +4,7 @@ import { Button } from './components/Button';
 import { Spinner } from './components/Spinner';
 import {
   useAskGeminiViaMcp,
-  useChatMutation,
+  useChatStreamMutation,
   useContextSnapshot,
   useFitnessSummaryMutation,
   useModels,
@@ -31,6 +31,7 @@ export default function App() {
   const messagesEndRef = useRef<HTMLDivElement>(null);
   const [messages, setMessages] = useState<Message[]>([]);
   const [prompt, setPrompt] = useState('');
+  const [sessionId, setSessionId] = useState('');
   const [includeContext, setIncludeContext] = useState(defaultIncludeContext);
   const { data: models, isLoading: loadingModels } = useModels();
   const initialModel = models?.[0]?.name;
@@ -39,7 +40,7 @@ export default function App() {
     if (!model && initialModel) setModel(initialModel);
   }, [initialModel, model, setModel]);
 
-  const chatMutation = useChatMutation();
+  const chatMutation = useChatStreamMutation();
   const { data: ctx, isLoading: loadingCtx, refetch: refetchCtx } = useContextSnapshot();
   const { data: tools } = useTools();
   const fitnessSummary = useFitnessSummaryMutation();
@@ -60,12 +61,27 @@ export default function App() {
     const userMsg: Message = { role: 'user', text: prompt };
     setMessages((prev) => [...prev, userMsg]);
     setPrompt('');
+    // Append an empty assistant message and grow it as chunks arrive.
+    let index = -1;
+    setMessages((prev) => {
+      index = prev.length;
+      return [...prev, { role: 'assistant', text: '', model }];
+    });
+    const update = (fn: (m: Message) => Message) =>
+      setMessages((prev) => prev.map((m, i) => (i === index ? fn(m) : m)));
     try {
-      const res = await chatMutation.mutateAsync({ prompt, model, includeContext });
-      setMessages((prev) => [...prev, { role: 'assistant', text: res.text || '(no text)', model: res.model }]);
+      const res = await chatMutation.mutateAsync({
+        prompt,
+        model,
+        includeContext,
+        sessionId,
+        onChunk: (text) => update((m) => ({ ...m, text: m.text + text })),
+      });
+      if (res.sessionId) setSessionId(res.sessionId);
+      update((m) => ({ ...m, text: res.text || m.text || '(no text)', model: res.model }));
     } catch (e) {
       handleError(e);
-      setMessages((prev) => [...prev, { role: 'error', text: 'Chat failed' }]);
+      update((m) => ({ ...m, role: 'error', text: m.text ? `${m.text}\n\n(Chat failed)` : 'Chat failed' }));
     }
   };
 
@@ -155,15 +171,17 @@ export default function App() {
 
           <div className="chat-box">
             <div className="messages">
-              {messages.map((m, i) => (
-                <div key={i} className={clsx('msg', m.role === 'error' && 'border-red-400')}>
-                  <div className="role">{m.role}{m.model ? ` · ${m.model}` : ''}</div>
-                  <div className="prose prose-invert prose-sm">
-                    <ReactMarkdown remarkPlugins={[remarkGfm]}>{m.text}</ReactMarkdown>
+              {messages.map((m, i) =>
+                m.role === 'assistant' && !m.text ? null : (
+                  <div key={i} className={clsx('msg', m.role === 'error' && 'border-red-400')}>
+                    <div className="role">{m.role}{m.model ? ` · ${m.model}` : ''}</div>
+                    <div className="prose prose-invert prose-sm">
+                      <ReactMarkdown remarkPlugins={[remarkGfm]}>{m.text}</ReactMarkdown>
+                    </div>
                   </div>
-                </div>
-              ))}
-              {(chatMutation.isPending || askMcp.isPending) && (
+                ),
+              )}
+              {(askMcp.isPending || (chatMutation.isPending && !messages[messages.length - 1]?.text)) && (
                 <div className="msg">
                   <div className="role">assistant</div>
                   <div className="row" style={{ gap: 6 }}>
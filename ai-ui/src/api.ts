@@ -16,12 +16,15 @@ async function json<T>(input: RequestInfo | URL, init?: RequestInit): Promise<T>
 }
 
 export type ChatMessageDto = { role: string; content: string };
-export type ChatResponseDto = { model: string; text: string; usedContext: boolean };
+export type ChatResponseDto = { model: string; text: string; usedContext: boolean; sessionId?: string | null };
 export type FitnessContextDto = {
   messages: string[];
   strava?: Record<string, unknown>;
   garmin?: Record<string, unknown>;
   recovery?: Record<string, unknown>;
+  trainingLoad?: Record<string, unknown>;
+  trends?: Record<string, unknown>;
+  distributions?: Record<string, unknown>[];
 };
 
 export type ModelOption = { name: string; displayName: string; fullName: string };
@@ -45,6 +48,63 @@ export async function sendChat(prompt: string, model: string, includeContext: bo
   });
 }
 
+/**
+ * Streams a chat answer from the server-sent events endpoint, calling onChunk for every text fragment.
+ * EventSource cannot POST a body, so the stream is read and split into events by hand.
+ * The server keeps the conversation history: pass the sessionId from the previous answer ('' starts a new one).
+ */
+export async function streamChat(
+  prompt: string,
+  model: string,
+  includeContext: boolean,
+  onChunk: (text: string) => void,
+  sessionId = '',
+  signal?: AbortSignal,
+): Promise<ChatResponseDto> {
+  const res = await fetch(`${base}/ai/chat/stream`, {
+    method: 'POST',
+    headers: { 'Content-Type': 'application/json', Accept: 'text/event-stream' },
+    body: JSON.stringify({
+      messages: [{ role: 'user', content: prompt } satisfies ChatMessageDto],
+      includeContext,
+      model,
+      sessionId,
+    }),
+    signal,
+  });
+  if (!res.ok || !res.body) {
+    const text = await res.text();
+    throw new Error(text || res.statusText);
+  }
+
+  const reader = res.body.pipeThrough(new TextDecoderStream()).getReader();
+  let buffer = '';
+  for (;;) {
+    const { value, done } = await reader.read();
+    if (done) break;
+    buffer += value.replace(/\r\n/g, '\n');
+    let boundary = buffer.indexOf('\n\n');
+    while (boundary >= 0) {
+      const frame = buffer.slice(0, boundary);
+      buffer = buffer.slice(boundary + 2);
+      boundary = buffer.indexOf('\n\n');
+
+      let event = 'message';
+      const data: string[] = [];
+      for (const line of frame.split('\n')) {
+        if (line.startsWith('event:')) event = line.slice(6).trim();
+        else if (line.startsWith('data:')) data.push(line.slice(5).replace(/^ /, ''));
+      }
+      if (!data.length) continue;
+      const payload = JSON.parse(data.join('\n'));
+      if (event === 'chunk') onChunk(payload.text ?? '');
+      else if (event === 'done') return payload as ChatResponseDto;
+      else if (event === 'error') throw new Error(payload.message || 'Chat failed');
+    }
+  }
+  throw new Error('Chat stream ended unexpectedly');
+}
+
 export type McpTool = { name: string; description: string };
 
 export async function fetchTools(): Promise<McpTool[]> {
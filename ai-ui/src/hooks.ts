@@ -1,5 +1,13 @@
 import { useMutation, useQuery, useQueryClient } from '@tanstack/react-query';
-import { askGeminiViaMcp, fetchContext, fetchFitnessSummary, fetchModels, fetchTools, sendChat } from './api';
+import {
+  askGeminiViaMcp,
+  fetchContext,
+  fetchFitnessSummary,
+  fetchModels,
+  fetchTools,
+  sendChat,
+  streamChat,
+} from './api';
 
 export function useModels() {
   return useQuery({
@@ -33,6 +41,22 @@ export function useChatMutation() {
   });
 }
 
+export function useChatStreamMutation() {
+  const qc = useQueryClient();
+  return useMutation({
+    mutationFn: (vars: {
+      prompt: string;
+      model: string;
+      includeContext: boolean;
+      sessionId?: string;
+      onChunk: (text: string) => void;
+    }) => streamChat(vars.prompt, vars.model, vars.includeContext, vars.onChunk, vars.sessionId),
+    onSuccess: () => {
+      qc.invalidateQueries({ queryKey: ['context'] });
+    },
+  });
+}
+
 export function useFitnessSummaryMutation() {
   return useMutation({
     mutationFn: fetchFitnessSummary,
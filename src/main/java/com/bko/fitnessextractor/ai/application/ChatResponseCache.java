@@ -0,0 +1,144 @@
+package com.bko.fitnessextractor.ai.application;
+
+import com.bko.fitnessextractor.ai.domain.ChatMessage;
+import com.bko.fitnessextractor.ai.domain.ChatPort;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers model answers for repeated prompts.
+ * <p>
+ * Entries are keyed by model, a hash of the normalized conversation and the version of the fitness
+ * context the answer was based on, so a sync that changes the data naturally misses the old answers.
+ * The cache holds at most {@code maxEntries} answers (least recently used go first) and each one
+ * expires after the TTL. Lookups are exported as {@code fitness.cache.requests} (cache
+ * {@code chat-responses}, result {@code hit} or {@code miss}).
+ */
+@Component
+public class ChatResponseCache {
+    /** Context version used for prompts sent without fitness context. */
+    public static final long NO_CONTEXT = -1;
+
+    private final Clock clock;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ChatResponseCache(Clock clock,
+                             @Value("${ai.response-cache.ttl:PT10M}") Duration ttl,
+                             @Value("${ai.response-cache.max-entries:200}") int maxEntries,
+                             MeterRegistry meterRegistry) {
+        this.clock = clock;
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        FunctionCounter.builder("fitness.cache.requests", hits, AtomicLong::get)
+                .tag("cache", "chat-responses").tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("fitness.cache.requests", misses, AtomicLong::get)
+                .tag("cache", "chat-responses").tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("fitness.cache.evictions", evictions, AtomicLong::get)
+                .tag("cache", "chat-responses").register(meterRegistry);
+        Gauge.builder("fitness.cache.size", this, cache -> cache.stats().size())
+                .tag("cache", "chat-responses").register(meterRegistry);
+    }
+
+    public static Key key(String model, List<ChatMessage> messages, long contextVersion) {
+        return new Key(model, hash(messages), contextVersion);
+    }
+
+    public Optional<ChatPort.ChatResult> get(Key key) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            if (!clock.instant().isBefore(entry.expiresAt())) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            hits.incrementAndGet();
+            return Optional.of(entry.result());
+        }
+    }
+
+    public void put(Key key, ChatPort.ChatResult result) {
+        if (!isEnabled() || result == null || result.text() == null || result.text().isBlank()) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, new Entry(result, clock.instant().plus(ttl)));
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public Stats stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+        double hitRate = lookups == 0 ? 0.0 : Math.round(hitCount * 1000.0 / lookups) / 1000.0;
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Stats(size, maxEntries, hitCount, missCount, evictions.get(), hitRate);
+    }
+
+    private boolean isEnabled() {
+        return maxEntries > 0 && !ttl.isZero() && !ttl.isNegative();
+    }
+
+    private static String hash(List<ChatMessage> messages) {
+        StringBuilder normalized = new StringBuilder();
+        for (ChatMessage message : messages) {
+            normalized.append(message.role().name()).append(':').append(normalize(message.content())).append('\n');
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalized.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String normalize(String content) {
+        // Case and spacing differences do not change what is being asked.
+        return content == null ? "" : content.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public record Key(String model, String promptHash, long contextVersion) {}
+
+    public record Stats(int size, int maxEntries, long hits, long misses, long evictions, double hitRate) {}
+
+    private record Entry(ChatPort.ChatResult result, Instant expiresAt) {}
+}
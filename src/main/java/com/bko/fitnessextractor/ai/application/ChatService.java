@@ -1,15 +1,25 @@
 package com.bko.fitnessextractor.ai.application;
 
+import com.bko.fitnessextractor.ai.domain.ActivityHit;
+import com.bko.fitnessextractor.ai.domain.ActivitySearchPort;
 import com.bko.fitnessextractor.ai.domain.ChatMessage;
 import com.bko.fitnessextractor.ai.domain.ChatPort;
 import com.bko.fitnessextractor.ai.domain.ChatRequest;
 import com.bko.fitnessextractor.ai.domain.ChatResponse;
+import com.bko.fitnessextractor.ai.domain.ChatSession;
 import com.bko.fitnessextractor.ai.domain.FitnessContext;
 import com.bko.fitnessextractor.ai.domain.FitnessContextPort;
 import com.bko.fitnessextractor.ai.infrastructure.gemini.GeminiProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,14 +27,117 @@ public class ChatService {
     private final ChatPort chatPort;
     private final FitnessContextPort fitnessContextPort;
     private final GeminiProperties properties;
+    private final PromptContextBuilder promptContextBuilder;
+    private final ActivitySearchPort activitySearchPort;
+    private final int retrievedActivities;
+    private final ChatResponseCache responseCache;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
 
-    public ChatService(ChatPort chatPort, FitnessContextPort fitnessContextPort, GeminiProperties properties) {
+    public ChatService(ChatPort chatPort,
+                       FitnessContextPort fitnessContextPort,
+                       GeminiProperties properties,
+                       PromptContextBuilder promptContextBuilder,
+                       ActivitySearchPort activitySearchPort,
+                       @Value("${ai.search.top-k:5}") int retrievedActivities,
+                       ChatResponseCache responseCache) {
         this.chatPort = chatPort;
         this.fitnessContextPort = fitnessContextPort;
         this.properties = properties;
+        this.promptContextBuilder = promptContextBuilder;
+        this.activitySearchPort = activitySearchPort;
+        this.retrievedActivities = retrievedActivities;
+        this.responseCache = responseCache;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
     }
 
     public ChatResponse chat(ChatRequest request) {
+        String model = resolveModel(request);
+        FitnessContext context = loadContext(request);
+        ChatResponseCache.Key cacheKey = cacheKey(request, model, context);
+        Optional<ChatPort.ChatResult> cached = lookup(cacheKey);
+        if (cached.isPresent()) {
+            return toResponse(cached.get(), context);
+        }
+        String prompt = buildPrompt(request.messages(), context);
+        ChatPort.ChatResult result = chatPort.chat(new ChatPort.ChatCommand(model, prompt));
+        store(cacheKey, result);
+        return toResponse(result, context);
+    }
+
+    /**
+     * Non-blocking variant of {@link #chat(ChatRequest)}: loading the fitness context (which may read the
+     * sheets), retrieval and prompt building run on a virtual thread, and the model call runs through
+     * {@link ChatPort#chatAsync(ChatPort.ChatCommand)}, so the caller's thread is free throughout.
+     */
+    public CompletableFuture<ChatResponse> chatAsync(ChatRequest request) {
+        String model = resolveModel(request);
+        return CompletableFuture.supplyAsync(() -> loadContext(request), executor)
+                .thenCompose(context -> {
+                    ChatResponseCache.Key cacheKey = cacheKey(request, model, context);
+                    Optional<ChatPort.ChatResult> cached = lookup(cacheKey);
+                    if (cached.isPresent()) {
+                        return CompletableFuture.completedFuture(toResponse(cached.get(), context));
+                    }
+                    String prompt = buildPrompt(request.messages(), context);
+                    return chatPort.chatAsync(new ChatPort.ChatCommand(model, prompt))
+                            .thenApply(result -> {
+                                store(cacheKey, result);
+                                return toResponse(result, context);
+                            });
+                });
+    }
+
+    /**
+     * Same as {@link #chat(ChatRequest)}, but hands every generated text fragment to {@code onText}
+     * as soon as the model produces it.
+     */
+    public ChatResponse chatStream(ChatRequest request, Consumer<String> onText) {
+        String model = resolveModel(request);
+        FitnessContext context = loadContext(request);
+        ChatResponseCache.Key cacheKey = cacheKey(request, model, context);
+        Optional<ChatPort.ChatResult> cached = lookup(cacheKey);
+        if (cached.isPresent()) {
+            onText.accept(cached.get().text());
+            return toResponse(cached.get(), context);
+        }
+        String prompt = buildPrompt(request.messages(), context);
+        ChatPort.ChatResult result = chatPort.chatStream(new ChatPort.ChatCommand(model, prompt), onText);
+        store(cacheKey, result);
+        return toResponse(result, context);
+    }
+
+    /**
+     * Runs {@code request} as the next turn of {@code session}: the stored history is sent ahead of the
+     * request's messages, and the turn is recorded once the model has answered.
+     */
+    public CompletableFuture<ChatResponse> chatAsync(ChatRequest request, ChatSession session) {
+        return chatAsync(withHistory(request, session))
+                .thenApply(response -> {
+                    session.record(request.messages(), response.text());
+                    return response;
+                });
+    }
+
+    /**
+     * Streaming variant of {@link #chatAsync(ChatRequest, ChatSession)}: the turn is recorded in
+     * {@code session} once the whole answer has been streamed.
+     */
+    public ChatResponse chatStream(ChatRequest request, ChatSession session, Consumer<String> onText) {
+        ChatResponse response = chatStream(withHistory(request, session), onText);
+        session.record(request.messages(), response.text());
+        return response;
+    }
+
+    private ChatRequest withHistory(ChatRequest request, ChatSession session) {
+        return new ChatRequest(session.conversationWith(request.messages()), request.includeFitnessContext(),
+                request.model(), request.skipCache());
+    }
+
+    private String resolveModel(ChatRequest request) {
         String model = (request.model() == null || request.model().isBlank())
                 ? properties.defaultModel()
                 : request.model();
@@ -36,21 +149,56 @@ public class ChatService {
         if (model.startsWith("models/")) {
             model = model.substring("models/".length());
         }
+        return model;
+    }
 
-        FitnessContext context = null;
-        if (request.includeFitnessContext()) {
-            context = fitnessContextPort.loadContext();
+    /**
+     * Returns {@code null} when the answer must not be cached: the caller opted out, or the context has no
+     * version to tell stale answers apart.
+     */
+    private ChatResponseCache.Key cacheKey(ChatRequest request, String model, FitnessContext context) {
+        if (request.skipCache()) {
+            return null;
+        }
+        long contextVersion = context == null ? ChatResponseCache.NO_CONTEXT : context.version();
+        if (context != null && contextVersion <= 0) {
+            return null;
         }
+        return ChatResponseCache.key(model, request.messages(), contextVersion);
+    }
 
-        String prompt = buildPrompt(request.messages(), context);
-        ChatPort.ChatResult result = chatPort.chat(new ChatPort.ChatCommand(model, prompt));
+    private Optional<ChatPort.ChatResult> lookup(ChatResponseCache.Key key) {
+        return key == null ? Optional.empty() : responseCache.get(key);
+    }
+
+    private void store(ChatResponseCache.Key key, ChatPort.ChatResult result) {
+        if (key != null) {
+            responseCache.put(key, result);
+        }
+    }
+
+    private ChatResponse toResponse(ChatPort.ChatResult result, FitnessContext context) {
         return new ChatResponse(result.model(), result.text(), context != null && context.hasData());
     }
 
+    private FitnessContext loadContext(ChatRequest request) {
+        return request.includeFitnessContext() ? fitnessContextPort.loadContext() : null;
+    }
+
     private String buildPrompt(List<ChatMessage> messages, FitnessContext context) {
         StringBuilder prompt = new StringBuilder();
         if (context != null && context.hasData()) {
-            prompt.append("User fitness context:\n").append(context.toPromptString()).append("\n\n");
+            String question = lastUserMessage(messages);
+            String contextBlock = promptContextBuilder.build(context, question);
+            if (!contextBlock.isEmpty()) {
+                prompt.append("User fitness context:\n").append(contextBlock).append("\n\n");
+            }
+            List<ActivityHit> hits = activitySearchPort.search(question, retrievedActivities);
+            if (!hits.isEmpty()) {
+                prompt.append("Activities matching the question:\n").append(ActivityHit.PROMPT_HEADER).append("\n");
+                hits.forEach(hit -> prompt.append(hit.toPromptRow()).append("\n"));
+                prompt.append("\n");
+            }
         }
         if (messages != null && !messages.isEmpty()) {
             String rendered = messages.stream()
@@ -62,4 +210,17 @@ public class ChatService {
         }
         return prompt.toString();
     }
+
+    private String lastUserMessage(List<ChatMessage> messages) {
+        if (messages == null) {
+            return "";
+        }
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            ChatMessage message = messages.get(i);
+            if (message.role() == ChatMessage.Role.USER) {
+                return message.content();
+            }
+        }
+        return "";
+    }
 }
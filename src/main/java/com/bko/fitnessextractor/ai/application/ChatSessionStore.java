@@ -0,0 +1,104 @@
+package com.bko.fitnessextractor.ai.application;
+
+import com.bko.fitnessextractor.ai.domain.ChatSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * In-memory chat sessions with idle expiry and a cap on how many are kept.
+ * <p>
+ * Sessions are ordered by last use; when the cap is reached the least recently used one is dropped,
+ * and a session that has been idle longer than the TTL is treated as gone.
+ */
+@Component
+public class ChatSessionStore {
+    private final Clock clock;
+    private final Duration ttl;
+    private final int maxSessions;
+    private final int maxHistoryChars;
+    private final int keepRecent;
+    private final Map<String, Entry> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+    public ChatSessionStore(Clock clock,
+                            @Value("${ai.sessions.ttl:PT2H}") Duration ttl,
+                            @Value("${ai.sessions.max-sessions:500}") int maxSessions,
+                            @Value("${ai.sessions.max-history-chars:8000}") int maxHistoryChars,
+                            @Value("${ai.sessions.keep-recent:6}") int keepRecent) {
+        this.clock = clock;
+        this.ttl = ttl;
+        this.maxSessions = maxSessions;
+        this.maxHistoryChars = maxHistoryChars;
+        this.keepRecent = keepRecent;
+    }
+
+    /**
+     * Returns the live session with this id, or a new session when the id is blank, unknown or expired.
+     */
+    public ChatSession open(String id) {
+        Instant now = clock.instant();
+        synchronized (sessions) {
+            if (id != null && !id.isBlank()) {
+                Entry entry = sessions.get(id);
+                if (entry != null && now.isBefore(entry.lastUsed().plus(ttl))) {
+                    sessions.put(id, new Entry(entry.session(), now));
+                    return entry.session();
+                }
+                sessions.remove(id);
+            }
+            ChatSession session = new ChatSession(UUID.randomUUID().toString(), maxHistoryChars, keepRecent);
+            sessions.put(session.id(), new Entry(session, now));
+            evict(now);
+            return session;
+        }
+    }
+
+    public Optional<ChatSession> find(String id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        Instant now = clock.instant();
+        synchronized (sessions) {
+            Entry entry = sessions.get(id);
+            if (entry == null || !now.isBefore(entry.lastUsed().plus(ttl))) {
+                return Optional.empty();
+            }
+            return Optional.of(entry.session());
+        }
+    }
+
+    public void delete(String id) {
+        synchronized (sessions) {
+            sessions.remove(id);
+        }
+    }
+
+    int size() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    private void evict(Instant now) {
+        Iterator<Entry> eldest = sessions.values().iterator();
+        while (eldest.hasNext()) {
+            Entry entry = eldest.next();
+            // Access order puts idle sessions first, so stop at the first one that is both live and within the cap.
+            if (sessions.size() > maxSessions || !now.isBefore(entry.lastUsed().plus(ttl))) {
+                eldest.remove();
+            } else {
+                break;
+            }
+        }
+    }
+
+    private record Entry(ChatSession session, Instant lastUsed) {}
+}
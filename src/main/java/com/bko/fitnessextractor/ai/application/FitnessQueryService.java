@@ -0,0 +1,147 @@
+package com.bko.fitnessextractor.ai.application;
+
+import com.bko.fitnessextractor.ai.domain.ActivityHit;
+import com.bko.fitnessextractor.ai.domain.ActivitySearchPort;
+import com.bko.fitnessextractor.ai.domain.DailyMetrics;
+import com.bko.fitnessextractor.ai.domain.GarminDataPort;
+import com.bko.fitnessextractor.ai.domain.ResultPage;
+import com.bko.fitnessextractor.ai.domain.StressSample;
+import com.bko.fitnessextractor.sync.PeriodTotals;
+import com.bko.fitnessextractor.sync.RollupQueryUseCase;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Parameterized lookups over the locally indexed fitness data, sized for agent tool calls.
+ * <p>
+ * Every result is paginated: {@code limit} is clamped to {@link #MAX_LIMIT} and the page tells the caller
+ * the offset of the next one.
+ */
+@Service
+public class FitnessQueryService {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+    public static final int DEFAULT_DAYS = 30;
+    public static final int MAX_WINDOW_MINUTES = 24 * 60;
+
+    private static final Map<String, Function<DailyMetrics, Object>> DAILY_FIELDS = dailyFields();
+
+    private final ActivitySearchPort activitySearchPort;
+    private final GarminDataPort garminDataPort;
+    private final RollupQueryUseCase rollupQuery;
+    private final Clock clock;
+
+    public FitnessQueryService(ActivitySearchPort activitySearchPort,
+                               GarminDataPort garminDataPort,
+                               RollupQueryUseCase rollupQuery,
+                               Clock clock) {
+        this.activitySearchPort = activitySearchPort;
+        this.garminDataPort = garminDataPort;
+        this.rollupQuery = rollupQuery;
+        this.clock = clock;
+    }
+
+    public ResultPage<ActivityHit> queryActivities(String type, LocalDate from, LocalDate to, Integer offset, Integer limit) {
+        return activitySearchPort.query(type, from, to, offset(offset), limit(limit));
+    }
+
+    /**
+     * Daily metrics, newest first. Without dates the last {@value #DEFAULT_DAYS} days are returned; with
+     * {@code fields} each row only carries the date and the named fields.
+     */
+    public ResultPage<Map<String, Object>> dailyMetrics(LocalDate from,
+                                                        LocalDate to,
+                                                        List<String> fields,
+                                                        Integer offset,
+                                                        Integer limit) {
+        LocalDate end = to != null ? to : LocalDate.now(clock);
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS - 1);
+        List<String> selected = fields == null || fields.isEmpty() ? List.copyOf(DAILY_FIELDS.keySet()) : fields;
+        for (String field : selected) {
+            if (!DAILY_FIELDS.containsKey(field)) {
+                throw new IllegalArgumentException("Unknown field '" + field + "'. Known fields: " + DAILY_FIELDS.keySet());
+            }
+        }
+        ResultPage<DailyMetrics> page = garminDataPort.dailyMetrics(start, end, offset(offset), limit(limit));
+        List<Map<String, Object>> rows = page.items().stream()
+                .map(day -> project(day, selected))
+                .toList();
+        return new ResultPage<>(rows, page.offset(), page.total(), page.nextOffset());
+    }
+
+    public ResultPage<StressSample> stressWindow(LocalDateTime start, Integer minutes, Integer offset, Integer limit) {
+        if (start == null) {
+            throw new IllegalArgumentException("start is required");
+        }
+        int window = minutes == null ? 60 : minutes;
+        if (window <= 0 || window > MAX_WINDOW_MINUTES) {
+            throw new IllegalArgumentException("minutes must be between 1 and " + MAX_WINDOW_MINUTES);
+        }
+        return garminDataPort.stressWindow(start, window, offset(offset), limit(limit));
+    }
+
+    /**
+     * The latest weekly or monthly totals from the rollup tabs, newest first.
+     *
+     * @param granularity {@code week} (the default) or {@code month}
+     */
+    public List<PeriodTotals> periodTotals(String granularity, Integer limit) {
+        try {
+            if (granularity == null || granularity.equalsIgnoreCase("week")) {
+                return rollupQuery.weeklyTotals(limit(limit));
+            }
+            if (granularity.equalsIgnoreCase("month")) {
+                return rollupQuery.monthlyTotals(limit(limit));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the rollup tabs: " + e.getMessage(), e);
+        }
+        throw new IllegalArgumentException("granularity must be week or month");
+    }
+
+    public static List<String> dailyFieldNames() {
+        return List.copyOf(DAILY_FIELDS.keySet());
+    }
+
+    private Map<String, Object> project(DailyMetrics day, List<String> fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("date", day.date().toString());
+        for (String field : fields) {
+            row.put(field, DAILY_FIELDS.get(field).apply(day));
+        }
+        return row;
+    }
+
+    private int offset(Integer offset) {
+        return offset == null ? 0 : Math.max(offset, 0);
+    }
+
+    private int limit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(Math.max(limit, 1), MAX_LIMIT);
+    }
+
+    private static Map<String, Function<DailyMetrics, Object>> dailyFields() {
+        Map<String, Function<DailyMetrics, Object>> fields = new LinkedHashMap<>();
+        fields.put("bodyBatteryMax", DailyMetrics::bodyBatteryMax);
+        fields.put("bodyBatteryMin", DailyMetrics::bodyBatteryMin);
+        fields.put("weightKg", DailyMetrics::weightKg);
+        fields.put("vo2Max", DailyMetrics::vo2Max);
+        fields.put("restingHeartRate", DailyMetrics::restingHeartRate);
+        fields.put("sleepScore", DailyMetrics::sleepScore);
+        fields.put("sleepHours", DailyMetrics::sleepHours);
+        fields.put("hrvMs", DailyMetrics::hrvMs);
+        return fields;
+    }
+}
@@ -0,0 +1,196 @@
+package com.bko.fitnessextractor.ai.application;
+
+import com.bko.fitnessextractor.ai.domain.ChatMessage;
+import com.bko.fitnessextractor.ai.domain.ChatRequest;
+import com.bko.fitnessextractor.ai.domain.FitnessContextPort;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The tools exposed to agents over MCP, shared by the REST endpoints and the JSON-RPC endpoint.
+ * <p>
+ * Arguments arrive as loosely typed JSON maps; anything that cannot be read as the expected type is
+ * rejected with an {@link IllegalArgumentException} naming the argument.
+ */
+@Service
+public class McpToolService {
+    private final FitnessContextPort fitnessContextPort;
+    private final ChatService chatService;
+    private final FitnessQueryService fitnessQueryService;
+    private final Map<String, Tool> tools;
+
+    public McpToolService(FitnessContextPort fitnessContextPort,
+                          ChatService chatService,
+                          FitnessQueryService fitnessQueryService) {
+        this.fitnessContextPort = fitnessContextPort;
+        this.chatService = chatService;
+        this.fitnessQueryService = fitnessQueryService;
+        this.tools = tools();
+    }
+
+    public List<ToolDefinition> definitions() {
+        return tools.values().stream().map(Tool::definition).toList();
+    }
+
+    public boolean hasTool(String name) {
+        return name != null && tools.containsKey(name);
+    }
+
+    /**
+     * Runs a tool and returns its JSON-serializable result.
+     *
+     * @throws IllegalArgumentException if the tool is unknown or an argument is invalid
+     */
+    public Object call(String name, Map<String, Object> arguments) {
+        Tool tool = name == null ? null : tools.get(name);
+        if (tool == null) {
+            throw new IllegalArgumentException("Unknown tool '" + name + "'");
+        }
+        return tool.handler().apply(arguments == null ? Map.of() : arguments);
+    }
+
+    private Object askGemini(Map<String, Object> args) {
+        String prompt = string(args, "prompt");
+        if (prompt == null) {
+            throw new IllegalArgumentException("prompt is required");
+        }
+        Boolean includeContext = bool(args, "includeContext");
+        Boolean noCache = bool(args, "noCache");
+        var response = chatService.chat(new ChatRequest(
+                List.of(new ChatMessage(ChatMessage.Role.USER, prompt)),
+                includeContext == null || includeContext,
+                string(args, "model"),
+                noCache != null && noCache
+        ));
+        return Map.of(
+                "model", response.model(),
+                "text", response.text(),
+                "usedContext", response.usedFitnessContext()
+        );
+    }
+
+    private Map<String, Tool> tools() {
+        Map<String, Object> paging = Map.of(
+                "offset", Map.of("type", "integer", "minimum", 0),
+                "limit", Map.of("type", "integer", "minimum", 1, "maximum", FitnessQueryService.MAX_LIMIT));
+        Map<String, Object> date = Map.of("type", "string", "format", "date");
+
+        Map<String, Tool> registry = new LinkedHashMap<>();
+        register(registry, "fitness_summary", "Return a compact summary of Strava + Garmin data",
+                schema(Map.of(), List.of()),
+                args -> fitnessContextPort.loadContext());
+        register(registry, "ask_gemini", "Send a prompt to Gemini with optional fitness context",
+                schema(Map.of(
+                        "prompt", Map.of("type", "string"),
+                        "includeContext", Map.of("type", "boolean", "default", true),
+                        "model", Map.of("type", "string"),
+                        "noCache", Map.of("type", "boolean", "default", false)), List.of("prompt")),
+                this::askGemini);
+        register(registry, "query_activities", "List Strava activities, newest first. Args: type, from, to (yyyy-MM-dd), offset, limit",
+                schema(merge(Map.of("type", Map.of("type", "string"), "from", date, "to", date), paging), List.of()),
+                args -> fitnessQueryService.queryActivities(
+                        string(args, "type"), date(args, "from"), date(args, "to"), integer(args, "offset"), integer(args, "limit")));
+        register(registry, "get_daily_metrics", "Garmin daily metrics, newest first. Args: from, to (yyyy-MM-dd), fields ("
+                        + String.join(",", FitnessQueryService.dailyFieldNames()) + "), offset, limit",
+                schema(merge(Map.of("from", date, "to", date, "fields", Map.of("type", "array",
+                        "items", Map.of("type", "string", "enum", FitnessQueryService.dailyFieldNames()))), paging), List.of()),
+                args -> fitnessQueryService.dailyMetrics(
+                        date(args, "from"), date(args, "to"), fields(args), integer(args, "offset"), integer(args, "limit")));
+        register(registry, "get_stress_window", "Garmin stress/HR samples in a time window. Args: start (yyyy-MM-ddTHH:mm), minutes, offset, limit",
+                schema(merge(Map.of("start", Map.of("type", "string", "description", "Local date-time like 2025-01-31T14:00"),
+                        "minutes", Map.of("type", "integer", "minimum", 1, "maximum", FitnessQueryService.MAX_WINDOW_MINUTES)),
+                        paging), List.of("start")),
+                args -> fitnessQueryService.stressWindow(
+                        dateTime(args, "start"), integer(args, "minutes"), integer(args, "offset"), integer(args, "limit")));
+        register(registry, "get_period_totals", "Weekly or monthly activity totals with resting HR and sleep averages, newest first. Args: granularity (week|month), limit",
+                schema(Map.of("granularity", Map.of("type", "string", "enum", List.of("week", "month"), "default", "week"),
+                        "limit", paging.get("limit")), List.of()),
+                args -> fitnessQueryService.periodTotals(string(args, "granularity"), integer(args, "limit")));
+        return registry;
+    }
+
+    private static void register(Map<String, Tool> registry,
+                                 String name,
+                                 String description,
+                                 Map<String, Object> inputSchema,
+                                 Function<Map<String, Object>, Object> handler) {
+        registry.put(name, new Tool(new ToolDefinition(name, description, inputSchema), handler));
+    }
+
+    private static Map<String, Object> schema(Map<String, Object> properties, List<String> required) {
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("type", "object");
+        schema.put("properties", properties);
+        if (!required.isEmpty()) {
+            schema.put("required", required);
+        }
+        return schema;
+    }
+
+    private static Map<String, Object> merge(Map<String, Object> first, Map<String, Object> second) {
+        Map<String, Object> merged = new LinkedHashMap<>(first);
+        merged.putAll(second);
+        return merged;
+    }
+
+    private static String string(Map<String, Object> args, String key) {
+        Object value = args.get(key);
+        return value == null || value.toString().isBlank() ? null : value.toString().trim();
+    }
+
+    private static Boolean bool(Map<String, Object> args, String key) {
+        String value = string(args, key);
+        return value == null ? null : Boolean.parseBoolean(value);
+    }
+
+    private static Integer integer(Map<String, Object> args, String key) {
+        String value = string(args, key);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return (int) Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a number");
+        }
+    }
+
+    private static LocalDate date(Map<String, Object> args, String key) {
+        String value = string(args, key);
+        try {
+            return value == null ? null : LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(key + " must be a date like 2025-01-31");
+        }
+    }
+
+    private static LocalDateTime dateTime(Map<String, Object> args, String key) {
+        String value = string(args, key);
+        try {
+            return value == null ? null : LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(key + " must be a local date-time like 2025-01-31T14:00");
+        }
+    }
+
+    private static List<String> fields(Map<String, Object> args) {
+        Object value = args.get("fields");
+        if (value instanceof List<?> list) {
+            return list.stream().map(Object::toString).map(String::trim).toList();
+        }
+        String text = string(args, "fields");
+        return text == null ? null : Arrays.stream(text.split(",")).map(String::trim).filter(f -> !f.isEmpty()).toList();
+    }
+
+    public record ToolDefinition(String name, String description, Map<String, Object> inputSchema) {}
+
+    private record Tool(ToolDefinition definition, Function<Map<String, Object>, Object> handler) {}
+}
@@ -3,42 +3,125 @@ package com.bko.fitnessextractor.ai.application;
 import com.bko.fitnessextractor.ai.infrastructure.gemini.GeminiProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Lists the Gemini models that support generateContent.
+ * <p>
+ * The catalog is kept in memory. Once it is older than the TTL, callers still get the cached list
+ * immediately while a background refresh fetches a new one. A failed refresh keeps the old list and
+ * is retried after a short delay. Only the very first load blocks the caller; if it fails, an empty
+ * catalog is served until the same delay has passed, so callers do not each hit the API again.
+ */
 @Service
 public class ModelCatalogService {
     private static final Logger logger = LoggerFactory.getLogger(ModelCatalogService.class);
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_PAGES = 20;
+    private static final Duration RETRY_AFTER_FAILURE = Duration.ofMinutes(1);
 
     private final WebClient webClient;
     private final GeminiProperties properties;
+    private final Clock clock;
+    private final Duration ttl;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final Object loadLock = new Object();
 
-    public ModelCatalogService(GeminiProperties properties) {
+    private volatile Catalog catalog;
+
+    public ModelCatalogService(GeminiProperties properties,
+                               Clock clock,
+                               @Value("${ai.models.cache-ttl:PT6H}") Duration ttl) {
         this.properties = properties;
+        this.clock = clock;
+        this.ttl = ttl;
         this.webClient = WebClient.builder()
                 .baseUrl(properties.baseUrl())
                 .build();
     }
 
     public List<ModelOption> listChatModels() {
-        List<ModelOption> names = new ArrayList<>();
         if (properties.apiKey() == null || properties.apiKey().isBlank()) {
             logger.warn("Gemini API key missing; cannot list models.");
-            return names;
+            return new ArrayList<>();
+        }
+        Catalog current = catalog;
+        if (current == null) {
+            return loadInitial();
+        }
+        if (!clock.instant().isBefore(current.refreshAt())) {
+            refreshInBackground();
+        }
+        return current.models();
+    }
+
+    private List<ModelOption> loadInitial() {
+        // Concurrent first callers wait for one fetch instead of each hitting the API.
+        synchronized (loadLock) {
+            Catalog current = catalog;
+            if (current != null) {
+                return current.models();
+            }
+            try {
+                List<ModelOption> models = fetchAll();
+                catalog = new Catalog(models, clock.instant().plus(ttl));
+                return models;
+            } catch (Exception e) {
+                catalog = new Catalog(List.of(), clock.instant().plus(RETRY_AFTER_FAILURE));
+                logger.warn("Failed to list Gemini models, retrying in {}: {}", RETRY_AFTER_FAILURE, e.getMessage());
+                return new ArrayList<>();
+            }
         }
-        try {
-            String url = "/models?key=" + properties.apiKey() + "&pageSize=200";
+    }
+
+    private void refreshInBackground() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("gemini-model-catalog-refresh").start(() -> {
+            try {
+                List<ModelOption> models = fetchAll();
+                catalog = new Catalog(models, clock.instant().plus(ttl));
+                logger.debug("Refreshed Gemini model catalog: {} models.", models.size());
+            } catch (Exception e) {
+                Catalog stale = catalog;
+                catalog = new Catalog(stale.models(), clock.instant().plus(RETRY_AFTER_FAILURE));
+                logger.warn("Failed to refresh Gemini models, serving cached list: {}", e.getMessage());
+            } finally {
+                refreshing.set(false);
+            }
+        });
+    }
+
+    private List<ModelOption> fetchAll() {
+        List<ModelOption> names = new ArrayList<>();
+        String pageToken = null;
+        for (int page = 0; page < MAX_PAGES; page++) {
+            // Expanded as URI variables so the key and the opaque page token get encoded.
+            String url = "/models?key={key}&pageSize={pageSize}" + (pageToken != null ? "&pageToken={pageToken}" : "");
+            Map<String, Object> variables = Map.of("key", properties.apiKey(), "pageSize", PAGE_SIZE,
+                    "pageToken", pageToken != null ? pageToken : "");
             ModelListResponse response = webClient.get()
-                    .uri(url)
+                    .uri(url, variables)
                     .accept(MediaType.APPLICATION_JSON)
                     .retrieve()
                     .bodyToMono(ModelListResponse.class)
                     .block();
-            if (response != null && response.models != null) {
+            if (response == null) {
+                break;
+            }
+            if (response.models != null) {
                 response.models.stream()
                         .filter(m -> m.supportedGenerationMethods != null && m.supportedGenerationMethods.contains("generateContent"))
                         .map(m -> new ModelOption(
@@ -47,10 +130,12 @@ public class ModelCatalogService {
                                 m.name))
                         .forEach(names::add);
             }
-        } catch (Exception e) {
-            logger.warn("Failed to list Gemini models: {}", e.getMessage());
+            pageToken = response.nextPageToken;
+            if (pageToken == null || pageToken.isBlank()) {
+                break;
+            }
         }
-        return names;
+        return List.copyOf(names);
     }
 
     private String stripPrefix(String fullName) {
@@ -59,6 +144,7 @@ public class ModelCatalogService {
     }
 
     public record ModelOption(String name, String displayName, String fullName) {}
+    private record Catalog(List<ModelOption> models, Instant refreshAt) {}
     private record ModelListResponse(List<ModelInfo> models, String nextPageToken) {}
     private record ModelInfo(String name, String displayName, List<String> supportedGenerationMethods) {}
 }
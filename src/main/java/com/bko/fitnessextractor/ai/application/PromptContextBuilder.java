@@ -0,0 +1,279 @@
+package com.bko.fitnessextractor.ai.application;
+
+import com.bko.fitnessextractor.ai.domain.FitnessContext;
+import com.bko.fitnessextractor.sync.PeriodTotals;
+import com.bko.fitnessextractor.visualization.app.DistributionSummary;
+import com.bko.fitnessextractor.visualization.app.GarminSummary;
+import com.bko.fitnessextractor.visualization.app.HistogramSummary;
+import com.bko.fitnessextractor.visualization.app.MetricTrend;
+import com.bko.fitnessextractor.visualization.app.RecoverySummary;
+import com.bko.fitnessextractor.visualization.app.RollupSummary;
+import com.bko.fitnessextractor.visualization.app.StravaSummary;
+import com.bko.fitnessextractor.visualization.app.TrainingLoadSummary;
+import com.bko.fitnessextractor.visualization.app.TrendSummary;
+import com.bko.fitnessextractor.visualization.app.WindowStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.stream.Collectors;
+
+/**
+ * Turns a {@link FitnessContext} into a compact prompt block that fits a token budget.
+ * <p>
+ * Each section is serialized once per context version as terse {@code key=value} lines or
+ * {@code |}-separated tables. For each question, the sections are ranked by keyword overlap with the
+ * question on top of a base priority, then added greedily until the budget is used up.
+ */
+@Component
+public class PromptContextBuilder {
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int RECENT_DAYS = 7;
+    private static final int RECENT_WEEKS = 4;
+    private static final int RECENT_MONTHS = 3;
+
+    private final int defaultTokenBudget;
+    private final Object lock = new Object();
+    private long memoizedVersion = -1;
+    private List<Section> memoizedSections = List.of();
+
+    public PromptContextBuilder(@Value("${ai.context.token-budget:600}") int defaultTokenBudget) {
+        this.defaultTokenBudget = defaultTokenBudget;
+    }
+
+    public String build(FitnessContext context, String question) {
+        return build(context, question, defaultTokenBudget);
+    }
+
+    public String build(FitnessContext context, String question, int tokenBudget) {
+        if (context == null || !context.hasData()) {
+            return "";
+        }
+        Set<String> terms = tokenize(question);
+        List<Section> ranked = new ArrayList<>(sections(context));
+        ranked.sort(Comparator.comparingDouble((Section section) -> section.score(terms)).reversed());
+
+        StringBuilder out = new StringBuilder();
+        int remaining = tokenBudget;
+        for (Section section : ranked) {
+            int cost = estimateTokens(section.text()) + 1;
+            if (cost <= remaining) {
+                out.append(section.text()).append('\n');
+                remaining -= cost;
+            }
+        }
+        return out.toString().trim();
+    }
+
+    static int estimateTokens(String text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    private List<Section> sections(FitnessContext context) {
+        // Contexts without a version (built ad hoc) are serialized on every call.
+        if (context.version() <= 0) {
+            return serialize(context);
+        }
+        synchronized (lock) {
+            if (memoizedVersion != context.version()) {
+                memoizedSections = serialize(context);
+                memoizedVersion = context.version();
+            }
+            return memoizedSections;
+        }
+    }
+
+    private List<Section> serialize(FitnessContext context) {
+        List<Section> sections = new ArrayList<>();
+        if (context.messages() != null && !context.messages().isEmpty()) {
+            sections.add(new Section(0.5, "notes=" + String.join("; ", context.messages()),
+                    "error", "missing", "sync", "data"));
+        }
+        if (context.strava() != null) {
+            sections.add(stravaSection(context.strava()));
+            Section recent = stravaRecentSection(context.strava());
+            if (recent != null) {
+                sections.add(recent);
+            }
+        }
+        if (context.garmin() != null) {
+            sections.add(garminSection(context.garmin()));
+            Section recent = garminRecentSection(context.garmin());
+            if (recent != null) {
+                sections.add(recent);
+            }
+        }
+        if (context.recovery() != null) {
+            sections.add(recoverySection(context.recovery()));
+        }
+        if (context.trainingLoad() != null) {
+            sections.add(trainingLoadSection(context.trainingLoad()));
+        }
+        if (context.trends() != null && !context.trends().metrics().isEmpty()) {
+            sections.add(trendsSection(context.trends()));
+        }
+        if (context.distributions() != null && !context.distributions().isEmpty()) {
+            sections.add(distributionsSection(context.distributions()));
+        }
+        if (context.rollups() != null) {
+            sections.add(rollupsSection(context.rollups()));
+        }
+        return List.copyOf(sections);
+    }
+
+    private Section stravaSection(StravaSummary strava) {
+        String text = "[strava] activities=" + strava.activityCount()
+                + " distance_km=" + strava.totalDistanceKm()
+                + " moving_h=" + strava.totalMovingHours()
+                + " avg_km=" + strava.averageDistanceKm()
+                + " latest=\"" + strava.latestActivityLabel() + "\""
+                + " types=" + inlineMap(strava.typeCounts());
+        return new Section(3, text, "strava", "activity", "activities", "workout", "workouts", "run", "runs",
+                "running", "ride", "rides", "cycling", "distance", "km", "volume", "training", "latest");
+    }
+
+    private Section stravaRecentSection(StravaSummary strava) {
+        List<String> labels = strava.chartLabels();
+        List<Double> distances = strava.chartDistancesKm();
+        if (labels == null || distances == null || labels.isEmpty()) {
+            return null;
+        }
+        StringJoiner rows = new StringJoiner("\n", "[strava_daily_km] date|km\n", "");
+        int from = Math.max(0, labels.size() - RECENT_DAYS);
+        for (int i = from; i < labels.size() && i < distances.size(); i++) {
+            rows.add(labels.get(i) + "|" + distances.get(i));
+        }
+        return new Section(1, rows.toString(), "week", "recent", "daily", "day", "days", "yesterday", "distance",
+                "km", "trend", "consistency");
+    }
+
+    private Section garminSection(GarminSummary garmin) {
+        String text = "[garmin] date=" + garmin.latestDate()
+                + " bb_max=" + garmin.bodyBatteryMax()
+                + " bb_min=" + garmin.bodyBatteryMin()
+                + " rhr=" + garmin.restingHeartRate()
+                + " vo2max=" + garmin.vo2Max()
+                + " weight_kg=" + garmin.weight()
+                + " sleep_score=" + garmin.sleepScore()
+                + " sleep_h=" + garmin.sleepDurationHours();
+        return new Section(3, text, "garmin", "sleep", "slept", "body", "battery", "energy", "rhr", "resting",
+                "heart", "vo2", "vo2max", "weight", "today", "tired", "rest");
+    }
+
+    private Section garminRecentSection(GarminSummary garmin) {
+        List<String> labels = garmin.chartLabels();
+        if (labels == null || labels.isEmpty()) {
+            return null;
+        }
+        StringJoiner rows = new StringJoiner("\n", "[garmin_daily] date|bb_max|sleep_score|rhr\n", "");
+        int from = Math.max(0, labels.size() - RECENT_DAYS);
+        for (int i = from; i < labels.size(); i++) {
+            rows.add(labels.get(i) + "|" + valueAt(garmin.bodyBatteryMaxSeries(), i) + "|"
+                    + valueAt(garmin.sleepScoreSeries(), i) + "|" + valueAt(garmin.restingHeartRateSeries(), i));
+        }
+        return new Section(1, rows.toString(), "week", "recent", "daily", "days", "sleep", "battery", "rhr",
+                "trend", "night", "nights");
+    }
+
+    private Section recoverySection(RecoverySummary recovery) {
+        String text = "[recovery] workout=\"" + recovery.workoutLabel() + "\""
+                + " ended=" + recovery.workoutEndTimestamp()
+                + " minutes_to_recover=" + recovery.minutesToRecovery()
+                + " status=" + recovery.status()
+                + " guidance=\"" + recovery.guidance() + "\"";
+        return new Section(2.5, text, "recovery", "recover", "recovered", "stress", "ready", "readiness", "rest",
+                "today", "train", "tomorrow");
+    }
+
+    private Section trainingLoadSection(TrainingLoadSummary load) {
+        String text = "[load] date=" + load.asOf() + " ctl=" + load.ctl() + " atl=" + load.atl()
+                + " tsb=" + load.tsb() + " form=" + load.status();
+        return new Section(2.5, text, "load", "fitness", "fatigue", "form", "ctl", "atl", "tsb", "overtraining",
+                "overreaching", "fresh", "taper", "race", "train", "training");
+    }
+
+    private Section trendsSection(TrendSummary trends) {
+        String shortLabel = trends.shortWindowDays() + "d";
+        String longLabel = trends.longWindowDays() + "d";
+        StringJoiner rows = new StringJoiner("\n",
+                "[trends] metric|" + shortLabel + "|" + longLabel + "|delta\n", "");
+        for (MetricTrend trend : trends.metrics()) {
+            WindowStats shortWindow = trend.windows().getFirst();
+            WindowStats longWindow = trend.windows().getLast();
+            rows.add(trend.metric() + "|" + shortWindow.mean() + "|" + longWindow.mean() + "|" + trend.delta());
+        }
+        return new Section(2, rows.toString(), "trend", "trends", "average", "compare", "compared", "week",
+                "month", "change", "improving", "hrv", "sleep", "rhr", "distance", "baseline");
+    }
+
+    private Section distributionsSection(List<DistributionSummary> distributions) {
+        StringJoiner rows = new StringJoiner("\n", "[hr_stress] range|metric|p50|p90|mean|zones\n", "");
+        for (DistributionSummary distribution : distributions) {
+            String range = distribution.from() + ".." + distribution.to();
+            rows.add(range + "|hr|" + histogramRow(distribution.heartRate()));
+            rows.add(range + "|stress|" + histogramRow(distribution.stress()));
+        }
+        return new Section(1.5, rows.toString(), "stress", "stressed", "heart", "hr", "zone", "zones",
+                "percentile", "distribution", "median", "anxiety", "calm");
+    }
+
+    private Section rollupsSection(RollupSummary rollups) {
+        StringJoiner rows = new StringJoiner("\n", "[totals] period|activities|km|moving_h|rhr|sleep_h\n", "");
+        rollups.weeks().stream().limit(RECENT_WEEKS).forEach(week -> rows.add(totalsRow(week)));
+        rollups.months().stream().limit(RECENT_MONTHS).forEach(month -> rows.add(totalsRow(month)));
+        return new Section(2, rows.toString(), "week", "weeks", "weekly", "month", "months", "monthly", "total",
+                "totals", "volume", "mileage", "km", "distance", "hours", "consistency", "compare");
+    }
+
+    private String totalsRow(PeriodTotals totals) {
+        return totals.period() + "|" + totals.activities() + "|" + Math.round(totals.distanceMeters() / 100.0) / 10.0
+                + "|" + Math.round(totals.movingTimeSeconds() / 360.0) / 10.0 + "|" + totals.averageRestingHeartRate()
+                + "|" + totals.averageSleepHours();
+    }
+
+    private String histogramRow(HistogramSummary histogram) {
+        StringJoiner zones = new StringJoiner(",");
+        histogram.zones().forEach(zone -> zones.add(zone.zone() + ":" + zone.percent() + "%"));
+        return histogram.p50() + "|" + histogram.p90() + "|" + histogram.mean() + "|" + zones;
+    }
+
+    private Object valueAt(List<?> values, int index) {
+        return values == null || index >= values.size() ? null : values.get(index);
+    }
+
+    private String inlineMap(Map<String, Integer> map) {
+        if (map == null || map.isEmpty()) {
+            return "{}";
+        }
+        StringJoiner joiner = new StringJoiner(",", "{", "}");
+        map.forEach((key, value) -> joiner.add(key + ":" + value));
+        return joiner.toString();
+    }
+
+    private static Set<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Set.of();
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^a-z0-9]+"))
+                .filter(term -> !term.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    private record Section(double priority, String text, Set<String> keywords) {
+        private Section(double priority, String text, String... keywords) {
+            this(priority, text, Set.of(keywords));
+        }
+
+        double score(Set<String> terms) {
+            long hits = terms.stream().filter(keywords::contains).count();
+            return priority + hits * 2.0;
+        }
+    }
+}
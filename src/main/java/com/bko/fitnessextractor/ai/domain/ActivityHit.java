@@ -0,0 +1,32 @@
+package com.bko.fitnessextractor.ai.domain;
+
+import java.time.LocalDate;
+
+/**
+ * A single activity returned by {@link ActivitySearchPort}, with the attributes the AI needs to reason about it.
+ */
+public record ActivityHit(
+        String id,
+        LocalDate date,
+        String type,
+        String name,
+        Double distanceKm,
+        Integer movingMinutes,
+        Double averageHeartRate,
+        Double elevationGainM,
+        double score
+) {
+    public static final String PROMPT_HEADER = "date|type|name|km|min|avg_hr|elev_m";
+
+    /**
+     * Renders the hit as one {@code |}-separated row matching {@link #PROMPT_HEADER}.
+     */
+    public String toPromptRow() {
+        return date + "|" + type + "|" + name + "|" + valueOrBlank(distanceKm) + "|" + valueOrBlank(movingMinutes)
+                + "|" + valueOrBlank(averageHeartRate) + "|" + valueOrBlank(elevationGainM);
+    }
+
+    private static String valueOrBlank(Object value) {
+        return value == null ? "" : value.toString();
+    }
+}
@@ -0,0 +1,17 @@
+package com.bko.fitnessextractor.ai.domain;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Finds individual activities relevant to a free-text question, or lists them by type and date.
+ */
+public interface ActivitySearchPort {
+    List<ActivityHit> search(String query, int limit);
+
+    /**
+     * Activities of the given type (any type when {@code null}) between {@code from} and {@code to}
+     * (both inclusive, open-ended when {@code null}), newest first. Hits carry a score of 0.
+     */
+    ResultPage<ActivityHit> query(String type, LocalDate from, LocalDate to, int offset, int limit);
+}
@@ -1,10 +1,34 @@
 package com.bko.fitnessextractor.ai.domain;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
 public interface ChatPort {
     ChatResult chat(ChatCommand command);
 
+    /**
+     * Streams the answer as it is generated, passing each text fragment to {@code onText}, and
+     * returns the complete result once the model is done. Adapters without native streaming emit
+     * the full answer as a single fragment.
+     */
+    default ChatResult chatStream(ChatCommand command, Consumer<String> onText) {
+        ChatResult result = chat(command);
+        if (result.text() != null && !result.text().isEmpty()) {
+            onText.accept(result.text());
+        }
+        return result;
+    }
+
+    /**
+     * Non-blocking variant of {@link #chat(ChatCommand)}. The default runs the blocking call on a
+     * virtual thread; implementations that limit or time out calls complete the future with
+     * {@link ChatRejectedException} or {@link ChatTimeoutException}.
+     */
+    default CompletableFuture<ChatResult> chatAsync(ChatCommand command) {
+        return CompletableFuture.supplyAsync(() -> chat(command), runnable -> Thread.ofVirtual().start(runnable));
+    }
+
     record ChatCommand(String model, String prompt) {}
 
     record ChatResult(String model, String text) {}
 }
-
@@ -0,0 +1,10 @@
+package com.bko.fitnessextractor.ai.domain;
+
+/**
+ * Thrown when a chat cannot be accepted because too many are already running or waiting.
+ */
+public class ChatRejectedException extends RuntimeException {
+    public ChatRejectedException(String message) {
+        super(message);
+    }
+}
@@ -2,13 +2,20 @@ package com.bko.fitnessextractor.ai.domain;
 
 import java.util.List;
 
+/**
+ * @param skipCache when true the model is always called, even if an identical prompt was answered recently
+ */
 public record ChatRequest(
         List<ChatMessage> messages,
         boolean includeFitnessContext,
-        String model
+        String model,
+        boolean skipCache
 ) {
     public ChatRequest {
         messages = messages == null ? List.of() : List.copyOf(messages);
     }
-}
 
+    public ChatRequest(List<ChatMessage> messages, boolean includeFitnessContext, String model) {
+        this(messages, includeFitnessContext, model, false);
+    }
+}
@@ -0,0 +1,100 @@
+package com.bko.fitnessextractor.ai.domain;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A conversation kept on the server between chat turns.
+ * <p>
+ * Recent messages are kept verbatim. Once they exceed {@code maxHistoryChars}, the oldest ones are
+ * folded into a running summary (one shortened line per message) until the rest fits again, always
+ * keeping at least {@code keepRecent} messages. The summary itself is capped, dropping its oldest lines,
+ * so the prompt for a turn stays bounded however long the conversation gets.
+ */
+public final class ChatSession {
+    private static final int SUMMARY_LINE_CHARS = 160;
+
+    private final String id;
+    private final int maxHistoryChars;
+    private final int keepRecent;
+    private final int maxSummaryChars;
+    private final Deque<ChatMessage> recent = new ArrayDeque<>();
+    private final Deque<String> summaryLines = new ArrayDeque<>();
+    private int recentChars;
+    private int summaryChars;
+
+    public ChatSession(String id, int maxHistoryChars, int keepRecent) {
+        this.id = id;
+        this.maxHistoryChars = maxHistoryChars;
+        this.keepRecent = keepRecent;
+        this.maxSummaryChars = Math.max(maxHistoryChars / 4, SUMMARY_LINE_CHARS);
+    }
+
+    public String id() {
+        return id;
+    }
+
+    /**
+     * The messages to send for the next turn: the running summary (if any), the recent history and then
+     * {@code newMessages}.
+     */
+    public synchronized List<ChatMessage> conversationWith(List<ChatMessage> newMessages) {
+        List<ChatMessage> conversation = new ArrayList<>(recent.size() + newMessages.size() + 1);
+        if (!summaryLines.isEmpty()) {
+            conversation.add(new ChatMessage(ChatMessage.Role.SYSTEM,
+                    "Summary of the earlier conversation:\n" + String.join("\n", summaryLines)));
+        }
+        conversation.addAll(recent);
+        conversation.addAll(newMessages);
+        return conversation;
+    }
+
+    /**
+     * Appends a completed turn and compacts the history if it grew past the limit.
+     */
+    public synchronized void record(List<ChatMessage> newMessages, String reply) {
+        newMessages.forEach(this::append);
+        if (reply != null && !reply.isBlank()) {
+            append(new ChatMessage(ChatMessage.Role.ASSISTANT, reply));
+        }
+        compact();
+    }
+
+    public synchronized List<ChatMessage> recentMessages() {
+        return List.copyOf(recent);
+    }
+
+    public synchronized List<String> summary() {
+        return List.copyOf(summaryLines);
+    }
+
+    private void append(ChatMessage message) {
+        recent.addLast(message);
+        recentChars += length(message);
+    }
+
+    private void compact() {
+        while (recentChars > maxHistoryChars && recent.size() > keepRecent) {
+            ChatMessage oldest = recent.removeFirst();
+            recentChars -= length(oldest);
+            String line = oldest.role().name().toLowerCase(Locale.ROOT) + ": " + abbreviate(oldest.content());
+            summaryLines.addLast(line);
+            summaryChars += line.length() + 1;
+        }
+        while (summaryChars > maxSummaryChars && summaryLines.size() > 1) {
+            summaryChars -= summaryLines.removeFirst().length() + 1;
+        }
+    }
+
+    private static int length(ChatMessage message) {
+        return message.content() == null ? 0 : message.content().length();
+    }
+
+    private static String abbreviate(String content) {
+        String flat = content == null ? "" : content.strip().replaceAll("\\s+", " ");
+        return flat.length() <= SUMMARY_LINE_CHARS ? flat : flat.substring(0, SUMMARY_LINE_CHARS - 3) + "...";
+    }
+}
@@ -0,0 +1,12 @@
+package com.bko.fitnessextractor.ai.domain;
+
+import java.time.Duration;
+
+/**
+ * Thrown when the model did not answer within the configured deadline.
+ */
+public class ChatTimeoutException extends RuntimeException {
+    public ChatTimeoutException(Duration deadline) {
+        super("The model did not answer within " + deadline.toSeconds() + " seconds.");
+    }
+}
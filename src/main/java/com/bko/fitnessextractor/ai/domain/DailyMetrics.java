@@ -0,0 +1,19 @@
+package com.bko.fitnessextractor.ai.domain;
+
+import java.time.LocalDate;
+
+/**
+ * One day of Garmin metrics as stored in the "Garmin Metrics" sheet.
+ */
+public record DailyMetrics(
+        LocalDate date,
+        Integer bodyBatteryMax,
+        Integer bodyBatteryMin,
+        Double weightKg,
+        Double vo2Max,
+        Integer restingHeartRate,
+        Integer sleepScore,
+        Double sleepHours,
+        Double hrvMs
+) {
+}
@@ -0,0 +1,22 @@
+package com.bko.fitnessextractor.ai.domain;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Range queries over locally indexed Garmin data.
+ * <p>
+ * When the data cannot be loaded, the queries throw an {@link IllegalStateException} rather than
+ * return an empty page.
+ */
+public interface GarminDataPort {
+    /**
+     * Days between {@code from} and {@code to} (both inclusive), newest first.
+     */
+    ResultPage<DailyMetrics> dailyMetrics(LocalDate from, LocalDate to, int offset, int limit);
+
+    /**
+     * Samples in {@code [start, start + minutes)}, oldest first.
+     */
+    ResultPage<StressSample> stressWindow(LocalDateTime start, int minutes, int offset, int limit);
+}
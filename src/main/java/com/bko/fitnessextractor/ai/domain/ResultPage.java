@@ -0,0 +1,21 @@
+package com.bko.fitnessextractor.ai.domain;
+
+import java.util.List;
+
+/**
+ * One page of a query result.
+ *
+ * @param total      number of matches across all pages
+ * @param nextOffset offset of the next page, or {@code null} when this is the last one
+ */
+public record ResultPage<T>(List<T> items, int offset, int total, Integer nextOffset) {
+    public ResultPage {
+        items = items == null ? List.of() : List.copyOf(items);
+    }
+
+    public static <T> ResultPage<T> of(List<T> matches, int offset, int limit) {
+        int from = Math.min(Math.max(offset, 0), matches.size());
+        int to = Math.min(from + Math.max(limit, 0), matches.size());
+        return new ResultPage<>(matches.subList(from, to), from, matches.size(), to < matches.size() ? to : null);
+    }
+}
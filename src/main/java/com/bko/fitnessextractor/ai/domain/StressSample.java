@@ -0,0 +1,9 @@
+package com.bko.fitnessextractor.ai.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * One stress/heart-rate bucket from the "Garmin Stress HR" sheet, in the athlete's local time.
+ */
+public record StressSample(LocalDateTime timestamp, Integer stress, Integer heartRate) {
+}
@@ -2,22 +2,159 @@ package com.bko.fitnessextractor.ai.infrastructure.context;
 
 import com.bko.fitnessextractor.ai.domain.FitnessContext;
 import com.bko.fitnessextractor.ai.domain.FitnessContextPort;
+import com.bko.fitnessextractor.sync.GarminMetricsSynced;
+import com.bko.fitnessextractor.sync.GarminWellnessSynced;
+import com.bko.fitnessextractor.sync.StravaActivitiesSynced;
 import com.bko.fitnessextractor.visualization.VisualizationService;
 import com.bko.fitnessextractor.visualization.app.VisualizationSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Builds the AI context from the dashboard snapshot and caches it for a short TTL.
+ * <p>
+ * Concurrent misses share a single snapshot load. Any sync that writes new data drops the
+ * cached context, so the next chat turn sees it. Lookups are counted as {@code fitness.cache.requests}
+ * (cache {@code fitness-context}); a load shared with a concurrent miss counts as a miss.
+ * <p>
+ * The context's version only moves when a sync drops the cache or a reload finds different data, so a TTL
+ * reload of unchanged data keeps the prompt prefix and the cached answers built on it.
+ */
 @Component
 public class SheetsFitnessContextProvider implements FitnessContextPort {
     private final VisualizationService visualizationService;
+    private final Clock clock;
+    private final Duration ttl;
+    private final Object lock = new Object();
+    private final Counter hits;
+    private final Counter misses;
+
+    private CachedContext cached;
+    private CompletableFuture<FitnessContext> inFlight;
+    private long generation;
+    private long version;
+    private VisualizationSnapshot versionedSnapshot;
+    private boolean versionCurrent;
 
-    public SheetsFitnessContextProvider(VisualizationService visualizationService) {
+    public SheetsFitnessContextProvider(VisualizationService visualizationService,
+                                        Clock clock,
+                                        @Value("${ai.context.cache-ttl:PT5M}") Duration ttl,
+                                        MeterRegistry meterRegistry) {
         this.visualizationService = visualizationService;
+        this.clock = clock;
+        this.ttl = ttl;
+        this.hits = Counter.builder("fitness.cache.requests")
+                .tag("cache", "fitness-context").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("fitness.cache.requests")
+                .tag("cache", "fitness-context").tag("result", "miss").register(meterRegistry);
     }
 
     @Override
     public FitnessContext loadContext() {
-        VisualizationSnapshot snapshot = visualizationService.loadVisualization();
-        return FitnessContext.fromSnapshot(snapshot);
+        CompletableFuture<FitnessContext> future;
+        long loadGeneration;
+        synchronized (lock) {
+            if (cached != null && clock.instant().isBefore(cached.expiresAt())) {
+                hits.increment();
+                return cached.context();
+            }
+            misses.increment();
+            if (inFlight != null) {
+                future = inFlight;
+                loadGeneration = -1;
+            } else {
+                future = new CompletableFuture<>();
+                inFlight = future;
+                loadGeneration = generation;
+            }
+        }
+        if (loadGeneration < 0) {
+            return await(future);
+        }
+
+        try {
+            VisualizationSnapshot snapshot = visualizationService.loadVisualization();
+            FitnessContext context = FitnessContext.fromSnapshot(snapshot, versionOf(snapshot));
+            synchronized (lock) {
+                // A sync that finished while we were loading makes this result stale; hand it out but do not keep it.
+                if (loadGeneration == generation && context.hasData()) {
+                    cached = new CachedContext(context, clock.instant().plus(ttl));
+                }
+            }
+            future.complete(context);
+            return context;
+        } catch (Throwable e) {
+            // Errors too, or callers sharing this load would wait on it forever.
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            synchronized (lock) {
+                if (inFlight == future) {
+                    inFlight = null;
+                }
+            }
+        }
+    }
+
+    public void invalidate() {
+        synchronized (lock) {
+            cached = null;
+            inFlight = null;
+            generation++;
+            versionCurrent = false;
+        }
+    }
+
+    @EventListener
+    public void onStravaActivitiesSynced(StravaActivitiesSynced event) {
+        invalidate();
+    }
+
+    @EventListener
+    public void onGarminMetricsSynced(GarminMetricsSynced event) {
+        invalidate();
+    }
+
+    @EventListener
+    public void onGarminWellnessSynced(GarminWellnessSynced event) {
+        invalidate();
+    }
+
+    private long versionOf(VisualizationSnapshot snapshot) {
+        synchronized (lock) {
+            if (!versionCurrent || !Objects.equals(snapshot, versionedSnapshot)) {
+                version++;
+                versionedSnapshot = snapshot;
+                versionCurrent = true;
+            }
+            return version;
+        }
     }
-}
 
+    private FitnessContext await(CompletableFuture<FitnessContext> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private record CachedContext(FitnessContext context, Instant expiresAt) {
+    }
+}
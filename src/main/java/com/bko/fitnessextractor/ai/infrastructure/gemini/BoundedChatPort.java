@@ -0,0 +1,128 @@
+package com.bko.fitnessextractor.ai.infrastructure.gemini;
+
+import com.bko.fitnessextractor.ai.domain.ChatPort;
+import com.bko.fitnessextractor.ai.domain.ChatRejectedException;
+import com.bko.fitnessextractor.ai.domain.ChatTimeoutException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs model calls off the request threads with a cap on how many run at once.
+ * <p>
+ * Up to {@code maxConcurrent} calls talk to the model; up to {@code maxQueued} more wait on virtual
+ * threads for a slot. Anything beyond that is rejected straight away with {@link ChatRejectedException}
+ * so a burst of chats cannot pile up behind a slow model. Every call, including its time in the queue,
+ * must finish within the deadline or it fails with {@link ChatTimeoutException} and is interrupted.
+ */
+@Primary
+@Component
+public class BoundedChatPort implements ChatPort {
+    private static final Logger logger = LoggerFactory.getLogger(BoundedChatPort.class);
+
+    private final ChatPort delegate;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Duration deadline;
+    private final Semaphore permits;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Autowired
+    public BoundedChatPort(GeminiChatAdapter delegate,
+                           @Value("${ai.chat.max-concurrent:4}") int maxConcurrent,
+                           @Value("${ai.chat.max-queued:16}") int maxQueued,
+                           @Value("${ai.chat.deadline:PT60S}") Duration deadline) {
+        this((ChatPort) delegate, maxConcurrent, maxQueued, deadline);
+    }
+
+    BoundedChatPort(ChatPort delegate, int maxConcurrent, int maxQueued, Duration deadline) {
+        this.delegate = delegate;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.deadline = deadline;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    @Override
+    public ChatResult chat(ChatCommand command) {
+        return await(chatAsync(command));
+    }
+
+    @Override
+    public ChatResult chatStream(ChatCommand command, Consumer<String> onText) {
+        return await(submit(() -> delegate.chatStream(command, onText)));
+    }
+
+    @Override
+    public CompletableFuture<ChatResult> chatAsync(ChatCommand command) {
+        return submit(() -> delegate.chat(command));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<ChatResult> submit(Supplier<ChatResult> call) {
+        if (pending.incrementAndGet() > maxConcurrent + maxQueued) {
+            pending.decrementAndGet();
+            logger.warn("Rejecting chat: {} running and {} queued.", maxConcurrent, maxQueued);
+            return CompletableFuture.failedFuture(
+                    new ChatRejectedException("Too many chats in progress, try again shortly."));
+        }
+        CompletableFuture<ChatResult> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> run(call, result));
+        CompletableFuture.delayedExecutor(deadline.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+            if (result.completeExceptionally(new ChatTimeoutException(deadline))) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private void run(Supplier<ChatResult> call, CompletableFuture<ChatResult> result) {
+        try {
+            permits.acquire();
+            try {
+                result.complete(call.get());
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(new ChatTimeoutException(deadline));
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+
+    private ChatResult await(CompletableFuture<ChatResult> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+}
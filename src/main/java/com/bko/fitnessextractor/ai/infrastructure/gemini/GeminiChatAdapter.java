@@ -2,9 +2,12 @@ package com.bko.fitnessextractor.ai.infrastructure.gemini;
 
 import com.bko.fitnessextractor.ai.domain.ChatPort;
 import com.google.genai.Client;
+import com.google.genai.ResponseStream;
 import com.google.genai.types.GenerateContentResponse;
 import org.springframework.stereotype.Component;
 
+import java.util.function.Consumer;
+
 @Component
 public class GeminiChatAdapter implements ChatPort {
     private final Client client;
@@ -20,4 +23,22 @@ public class GeminiChatAdapter implements ChatPort {
         String text = response != null ? response.text() : "";
         return new ChatResult(model, text);
     }
+
+    @Override
+    public ChatResult chatStream(ChatCommand command, Consumer<String> onText) {
+        String model = command.model();
+        StringBuilder text = new StringBuilder();
+        // Closing the stream releases the HTTP connection, also when the consumer aborts early.
+        try (ResponseStream<GenerateContentResponse> stream =
+                     client.models.generateContentStream(model, command.prompt(), null)) {
+            for (GenerateContentResponse chunk : stream) {
+                String fragment = chunk != null ? chunk.text() : null;
+                if (fragment != null && !fragment.isEmpty()) {
+                    text.append(fragment);
+                    onText.accept(fragment);
+                }
+            }
+        }
+        return new ChatResult(model, text.toString());
+    }
 }
@@ -0,0 +1,408 @@
+package com.bko.fitnessextractor.ai.infrastructure.search;
+
+import com.bko.fitnessextractor.ai.domain.ActivityHit;
+import com.bko.fitnessextractor.ai.domain.ActivitySearchPort;
+import com.bko.fitnessextractor.ai.domain.ResultPage;
+import com.bko.fitnessextractor.integrations.sheets.SpreadsheetPort;
+import com.bko.fitnessextractor.integrations.strava.StravaActivity;
+import com.bko.fitnessextractor.shared.AppSettings;
+import com.bko.fitnessextractor.sync.StravaActivitiesSynced;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory BM25 index over Strava activities.
+ * <p>
+ * Each activity is indexed by its name, description and type, plus derived terms for its date
+ * (year, month, weekday, season) and size ({@code long}, {@code short}, {@code hilly}). The index is
+ * seeded from the "Strava Activities" sheet on first use and then kept current from
+ * {@link StravaActivitiesSynced} events; an activity that is synced again replaces its old entry in place,
+ * so the index never holds more documents than there are activities.
+ * A date-ordered view of the same documents answers type/date-range listings.
+ * <p>
+ * Retrieval is best effort: if the sheet cannot be read, queries answer from what sync events have
+ * indexed, and the read is not tried again for {@link #RETRY_AFTER_FAILURE}.
+ */
+@Component
+public class Bm25ActivityIndex implements ActivitySearchPort {
+    private static final Logger logger = LoggerFactory.getLogger(Bm25ActivityIndex.class);
+    private static final String STRAVA_RANGE = "Strava Activities!A:P";
+    static final Duration RETRY_AFTER_FAILURE = Duration.ofMinutes(1);
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double LONG_KM = 15.0;
+    private static final int LONG_MINUTES = 90;
+    private static final int SHORT_MINUTES = 30;
+    private static final double HILLY_ELEVATION_M = 500.0;
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "did", "do", "does", "for", "from", "how", "i", "in",
+            "is", "it", "me", "my", "of", "on", "or", "the", "to", "vs", "was", "were", "what", "when", "which",
+            "with"
+    );
+
+    private final SpreadsheetPort spreadsheetPort;
+    private final AppSettings appSettings;
+    private final Clock clock;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<String, Integer> docIdsByActivityId = new HashMap<>();
+    private final Map<String, Map<Integer, Integer>> postings = new HashMap<>();
+    private final NavigableMap<LocalDate, Set<Integer>> docIdsByDate = new TreeMap<>();
+    private long totalLength;
+    private volatile boolean bootstrapped;
+    private volatile Instant retryAt = Instant.MIN;
+
+    public Bm25ActivityIndex(SpreadsheetPort spreadsheetPort, AppSettings appSettings, Clock clock) {
+        this.spreadsheetPort = spreadsheetPort;
+        this.appSettings = appSettings;
+        this.clock = clock;
+    }
+
+    @Override
+    public List<ActivityHit> search(String query, int limit) {
+        ensureBootstrapped();
+        List<String> terms = tokenize(query).stream().distinct().toList();
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty()) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / documents.size();
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<Integer, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documents.size() - posting.size() + 0.5) / (posting.size() + 0.5));
+                for (Map.Entry<Integer, Integer> entry : posting.entrySet()) {
+                    int length = documents.get(entry.getKey()).length();
+                    double tf = entry.getValue();
+                    double weight = idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+                    scores.merge(entry.getKey(), weight, Double::sum);
+                }
+            }
+            return topHits(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ResultPage<ActivityHit> query(String type, LocalDate from, LocalDate to, int offset, int limit) {
+        ensureBootstrapped();
+        lock.readLock().lock();
+        try {
+            NavigableMap<LocalDate, Set<Integer>> range = docIdsByDate;
+            if (from != null && to != null) {
+                range = from.isAfter(to) ? new TreeMap<>() : range.subMap(from, true, to, true);
+            } else if (from != null) {
+                range = range.tailMap(from, true);
+            } else if (to != null) {
+                range = range.headMap(to, true);
+            }
+            List<ActivityHit> matches = new ArrayList<>();
+            for (Set<Integer> docIds : range.descendingMap().values()) {
+                for (int docId : docIds) {
+                    Document document = documents.get(docId);
+                    if (type == null || type.isBlank() || document.type().equalsIgnoreCase(type.strip())) {
+                        matches.add(document.toHit(0));
+                    }
+                }
+            }
+            return ResultPage.of(matches, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onStravaActivitiesSynced(StravaActivitiesSynced event) {
+        lock.writeLock().lock();
+        try {
+            for (StravaActivity activity : event.activities()) {
+                Document document = fromActivity(activity);
+                if (document != null) {
+                    add(document);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureBootstrapped() {
+        if (bootstrapped || !appSettings.isGoogleConfigured() || clock.instant().isBefore(retryAt)) {
+            return;
+        }
+        List<List<Object>> rows;
+        try {
+            rows = spreadsheetPort.getExistingValues(STRAVA_RANGE);
+        } catch (Exception e) {
+            retryAt = clock.instant().plus(RETRY_AFTER_FAILURE);
+            logger.warn("Could not load Strava activities for the search index, retrying in {}: {}",
+                    RETRY_AFTER_FAILURE, e.getMessage());
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (bootstrapped) {
+                return;
+            }
+            for (List<Object> row : rows == null ? List.<List<Object>>of() : rows) {
+                Document document = fromRow(row);
+                // Activities indexed from sync events while the sheet was loading are newer; keep them.
+                if (document != null && !docIdsByActivityId.containsKey(document.activityId())) {
+                    add(document);
+                }
+            }
+            bootstrapped = true;
+            logger.info("Indexed {} Strava activities for chat retrieval.", documents.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Document document) {
+        Integer previous = docIdsByActivityId.get(document.activityId());
+        int docId;
+        if (previous != null) {
+            unlink(previous);
+            docId = previous;
+            documents.set(docId, document);
+        } else {
+            docId = documents.size();
+            documents.add(document);
+            docIdsByActivityId.put(document.activityId(), docId);
+        }
+        Map<String, Integer> termCounts = new HashMap<>();
+        document.terms().forEach(term -> termCounts.merge(term, 1, Integer::sum));
+        termCounts.forEach((term, count) -> postings.computeIfAbsent(term, key -> new HashMap<>()).put(docId, count));
+        if (document.date() != null) {
+            docIdsByDate.computeIfAbsent(document.date(), key -> new LinkedHashSet<>()).add(docId);
+        }
+        totalLength += document.length();
+    }
+
+    /**
+     * Drops the postings and date entry of a document whose slot is about to be reused.
+     */
+    private void unlink(int docId) {
+        Document document = documents.get(docId);
+        for (String term : Set.copyOf(document.terms())) {
+            Map<Integer, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(docId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        if (document.date() != null) {
+            Set<Integer> sameDay = docIdsByDate.get(document.date());
+            sameDay.remove(docId);
+            if (sameDay.isEmpty()) {
+                docIdsByDate.remove(document.date());
+            }
+        }
+        totalLength -= document.length();
+    }
+
+    private List<ActivityHit> topHits(Map<Integer, Double> scores, int limit) {
+        PriorityQueue<Map.Entry<Integer, Double>> best = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            best.offer(entry);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<ActivityHit> hits = new ArrayList<>(best.size());
+        for (Map.Entry<Integer, Double> entry : best) {
+            hits.add(documents.get(entry.getKey()).toHit(entry.getValue()));
+        }
+        // Best match first; on equal scores prefer the more recent activity.
+        hits.sort(Comparator.comparingDouble(ActivityHit::score).reversed()
+                .thenComparing(ActivityHit::date, Comparator.nullsLast(Comparator.reverseOrder())));
+        return hits;
+    }
+
+    private Document fromActivity(StravaActivity activity) {
+        if (activity.getId() == null) {
+            return null;
+        }
+        return document(String.valueOf(activity.getId()), activity.getName(), activity.getType(),
+                activity.getDescription(), parseDate(activity.getStartDate()), activity.getDistance(),
+                activity.getMovingTime() == null ? null : activity.getMovingTime().doubleValue(),
+                activity.getAverageHeartrate(), activity.getTotalElevationGain());
+    }
+
+    private Document fromRow(List<Object> row) {
+        String id = cell(row, 0);
+        if (id == null || id.equalsIgnoreCase("Activity ID")) {
+            return null;
+        }
+        return document(id, cell(row, 1), cell(row, 2), cell(row, 15), parseDate(cell(row, 6)),
+                parseDouble(cell(row, 3)), parseDouble(cell(row, 4)), parseDouble(cell(row, 10)),
+                parseDouble(cell(row, 9)));
+    }
+
+    private Document document(String id,
+                              String name,
+                              String type,
+                              String description,
+                              LocalDate date,
+                              Double distanceMeters,
+                              Double movingSeconds,
+                              Double averageHeartRate,
+                              Double elevationGain) {
+        Double distanceKm = distanceMeters == null ? null : Math.round(distanceMeters / 100.0) / 10.0;
+        Integer movingMinutes = movingSeconds == null ? null : (int) Math.round(movingSeconds / 60.0);
+
+        List<String> terms = new ArrayList<>();
+        terms.addAll(tokenize(name));
+        terms.addAll(tokenize(splitCamelCase(type)));
+        terms.addAll(tokenize(description));
+        if (date != null) {
+            terms.add(String.valueOf(date.getYear()));
+            terms.add(date.getMonth().getDisplayName(TextStyle.FULL, Locale.ENGLISH).toLowerCase(Locale.ROOT));
+            terms.add(date.getMonth().getDisplayName(TextStyle.SHORT, Locale.ENGLISH).toLowerCase(Locale.ROOT));
+            terms.add(date.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.ENGLISH).toLowerCase(Locale.ROOT));
+            terms.add(season(date));
+        }
+        if ((distanceKm != null && distanceKm >= LONG_KM) || (movingMinutes != null && movingMinutes >= LONG_MINUTES)) {
+            terms.add("long");
+        } else if (movingMinutes != null && movingMinutes < SHORT_MINUTES) {
+            terms.add("short");
+        }
+        if (elevationGain != null && elevationGain >= HILLY_ELEVATION_M) {
+            terms.add("hilly");
+        }
+        return new Document(id, date, type == null ? "" : type, name == null ? "" : name, distanceKm, movingMinutes,
+                averageHeartRate, elevationGain, List.copyOf(terms));
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String raw : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (raw.isEmpty() || STOP_WORDS.contains(raw)) {
+                continue;
+            }
+            tokens.add(stem(raw));
+        }
+        return tokens;
+    }
+
+    private static String stem(String token) {
+        // Plural folding is enough to match "runs" against "Run" without a full stemmer.
+        if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+
+    private static String splitCamelCase(String value) {
+        return value == null ? null : value.replaceAll("([a-z])([A-Z])", "$1 $2");
+    }
+
+    private static String season(LocalDate date) {
+        return switch (date.getMonth()) {
+            case DECEMBER, JANUARY, FEBRUARY -> "winter";
+            case MARCH, APRIL, MAY -> "spring";
+            case JUNE, JULY, AUGUST -> "summer";
+            default -> "autumn";
+        };
+    }
+
+    private static String cell(List<Object> row, int index) {
+        if (row == null || index >= row.size() || row.get(index) == null) {
+            return null;
+        }
+        String value = row.get(index).toString().trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Double parseDouble(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(value).toLocalDate();
+        } catch (Exception e) {
+            try {
+                return LocalDate.parse(value.length() >= 10 ? value.substring(0, 10) : value);
+            } catch (Exception ignored) {
+                return null;
+            }
+        }
+    }
+
+    private record Document(
+            String activityId,
+            LocalDate date,
+            String type,
+            String name,
+            Double distanceKm,
+            Integer movingMinutes,
+            Double averageHeartRate,
+            Double elevationGain,
+            List<String> terms
+    ) {
+        int length() {
+            return terms.size();
+        }
+
+        ActivityHit toHit(double score) {
+            return new ActivityHit(activityId, date, type, name, distanceKm, movingMinutes, averageHeartRate,
+                    elevationGain, score);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.bko.fitnessextractor.ai.infrastructure.search;
+
+import com.bko.fitnessextractor.ai.domain.DailyMetrics;
+import com.bko.fitnessextractor.ai.domain.GarminDataPort;
+import com.bko.fitnessextractor.ai.domain.ResultPage;
+import com.bko.fitnessextractor.ai.domain.StressSample;
+import com.bko.fitnessextractor.integrations.garmin.GarminMetrics;
+import com.bko.fitnessextractor.integrations.garmin.GarminWellnessSample;
+import com.bko.fitnessextractor.integrations.sheets.SpreadsheetPort;
+import com.bko.fitnessextractor.shared.AppSettings;
+import com.bko.fitnessextractor.sync.GarminMetricsSynced;
+import com.bko.fitnessextractor.sync.GarminWellnessSynced;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Date- and time-ordered in-memory copies of the Garmin sheets for range queries.
+ * <p>
+ * Each sheet is read once, on the first query that needs it. Afterwards the maps are kept current from
+ * {@link GarminMetricsSynced} (one entry per date) and {@link GarminWellnessSynced} (complete days of
+ * samples, which replace whatever was known for those days).
+ * <p>
+ * A failed read is thrown to the caller, so a tool call reports an error instead of an empty page that
+ * looks like "no data". The sheet is not read again for {@link #RETRY_AFTER_FAILURE}; queries in that
+ * window fail with the same message.
+ */
+@Component
+public class GarminDataIndex implements GarminDataPort {
+    private static final Logger logger = LoggerFactory.getLogger(GarminDataIndex.class);
+    private static final String METRICS_RANGE = "Garmin Metrics!A:I";
+    private static final String STRESS_RANGE = "Garmin Stress HR!A:D";
+    static final Duration RETRY_AFTER_FAILURE = Duration.ofMinutes(1);
+
+    private final SpreadsheetPort spreadsheetPort;
+    private final AppSettings appSettings;
+    private final Clock clock;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableMap<LocalDate, DailyMetrics> metricsByDate = new TreeMap<>();
+    private final NavigableMap<LocalDateTime, StressSample> samplesByTime = new TreeMap<>();
+    private final SheetLoad metricsLoad = new SheetLoad(METRICS_RANGE);
+    private final SheetLoad samplesLoad = new SheetLoad(STRESS_RANGE);
+
+    public GarminDataIndex(SpreadsheetPort spreadsheetPort, AppSettings appSettings, Clock clock) {
+        this.spreadsheetPort = spreadsheetPort;
+        this.appSettings = appSettings;
+        this.clock = clock;
+    }
+
+    @Override
+    public ResultPage<DailyMetrics> dailyMetrics(LocalDate from, LocalDate to, int offset, int limit) {
+        bootstrap(metricsLoad, this::loadMetricsRows);
+        lock.readLock().lock();
+        try {
+            if (from.isAfter(to)) {
+                return ResultPage.of(List.of(), offset, limit);
+            }
+            List<DailyMetrics> days = new ArrayList<>(metricsByDate.subMap(from, true, to, true).descendingMap().values());
+            return ResultPage.of(days, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ResultPage<StressSample> stressWindow(LocalDateTime start, int minutes, int offset, int limit) {
+        bootstrap(samplesLoad, this::loadStressRows);
+        lock.readLock().lock();
+        try {
+            List<StressSample> window = new ArrayList<>(
+                    samplesByTime.subMap(start, true, start.plusMinutes(Math.max(minutes, 0)), false).values());
+            return ResultPage.of(window, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onGarminMetricsSynced(GarminMetricsSynced event) {
+        lock.writeLock().lock();
+        try {
+            for (GarminMetrics metrics : event.metrics()) {
+                LocalDate date = parseDate(metrics.getDate());
+                if (date != null) {
+                    metricsByDate.put(date, new DailyMetrics(date, metrics.getBodyBatteryHighest(),
+                            metrics.getBodyBatteryLowest(), metrics.getWeight(), metrics.getVo2Max(),
+                            metrics.getRestingHeartRate(), metrics.getSleepScore(), metrics.getSleepDurationHours(),
+                            metrics.getHrv()));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onGarminWellnessSynced(GarminWellnessSynced event) {
+        lock.writeLock().lock();
+        try {
+            for (GarminWellnessSample sample : event.samples()) {
+                LocalDate date = parseDate(sample.getDate());
+                if (date != null) {
+                    samplesByTime.subMap(date.atStartOfDay(), true, date.plusDays(1).atStartOfDay(), false).clear();
+                }
+            }
+            for (GarminWellnessSample sample : event.samples()) {
+                LocalDateTime timestamp = parseDateTime(sample.getTimestamp());
+                if (timestamp != null) {
+                    samplesByTime.put(timestamp, new StressSample(timestamp, sample.getStress(), sample.getHeartRate()));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the sheet could not be read, now or within the back-off after a failure
+     */
+    private void bootstrap(SheetLoad load, Consumer<List<List<Object>>> loader) {
+        if (load.loaded || !appSettings.isGoogleConfigured()) {
+            return;
+        }
+        load.throwIfBackingOff(clock.instant());
+        List<List<Object>> rows;
+        try {
+            rows = spreadsheetPort.getExistingValues(load.range);
+        } catch (Exception e) {
+            String failure = "Could not read " + load.range + ": " + e.getMessage();
+            load.failed(failure, clock.instant().plus(RETRY_AFTER_FAILURE));
+            logger.warn("{}; retrying in {}", failure, RETRY_AFTER_FAILURE);
+            throw new IllegalStateException(failure, e);
+        }
+        lock.writeLock().lock();
+        try {
+            if (!load.loaded) {
+                loader.accept(rows == null ? List.of() : rows);
+                load.loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void loadMetricsRows(List<List<Object>> rows) {
+        for (List<Object> row : rows) {
+            LocalDate date = parseDate(cell(row, 0));
+            // Days already delivered by a sync event are newer than the sheet snapshot.
+            if (date == null || metricsByDate.containsKey(date)) {
+                continue;
+            }
+            metricsByDate.put(date, new DailyMetrics(date, parseInteger(cell(row, 1)), parseInteger(cell(row, 2)),
+                    parseDouble(cell(row, 3)), parseDouble(cell(row, 4)), parseInteger(cell(row, 5)),
+                    parseInteger(cell(row, 6)), parseDouble(cell(row, 7)), parseDouble(cell(row, 8))));
+        }
+    }
+
+    private void loadStressRows(List<List<Object>> rows) {
+        for (List<Object> row : rows) {
+            LocalDateTime timestamp = parseDateTime(cell(row, 1));
+            if (timestamp != null) {
+                samplesByTime.putIfAbsent(timestamp,
+                        new StressSample(timestamp, parseInteger(cell(row, 2)), parseInteger(cell(row, 3))));
+            }
+        }
+    }
+
+    /**
+     * Whether a sheet has been read into the index, and until when a failed read is not tried again.
+     */
+    private static final class SheetLoad {
+        private final String range;
+        private volatile boolean loaded;
+        private String failure;
+        private Instant retryAt;
+
+        private SheetLoad(String range) {
+            this.range = range;
+        }
+
+        synchronized void failed(String failure, Instant retryAt) {
+            this.failure = failure;
+            this.retryAt = retryAt;
+        }
+
+        synchronized void throwIfBackingOff(Instant now) {
+            if (failure != null && now.isBefore(retryAt)) {
+                throw new IllegalStateException(failure);
+            }
+        }
+    }
+
+    private static String cell(List<Object> row, int index) {
+        if (row == null || index >= row.size() || row.get(index) == null) {
+            return null;
+        }
+        String value = row.get(index).toString().trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Integer parseInteger(String value) {
+        Double parsed = parseDouble(value);
+        return parsed == null ? null : (int) Math.round(parsed);
+    }
+
+    private static Double parseDouble(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        if (value == null || value.length() < 10) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value.substring(0, 10));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static LocalDateTime parseDateTime(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
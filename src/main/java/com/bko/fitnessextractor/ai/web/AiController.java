@@ -1,49 +1,112 @@
 package com.bko.fitnessextractor.ai.web;
 
+import com.bko.fitnessextractor.ai.application.ChatResponseCache;
 import com.bko.fitnessextractor.ai.application.ChatService;
+import com.bko.fitnessextractor.ai.application.ChatSessionStore;
 import com.bko.fitnessextractor.ai.application.ModelCatalogService;
 import com.bko.fitnessextractor.ai.domain.ChatMessage;
 import com.bko.fitnessextractor.ai.domain.ChatRequest;
 import com.bko.fitnessextractor.ai.domain.ChatResponse;
+import com.bko.fitnessextractor.ai.domain.ChatSession;
 import com.bko.fitnessextractor.ai.domain.FitnessContext;
 import com.bko.fitnessextractor.ai.domain.FitnessContextPort;
+import com.bko.fitnessextractor.ai.web.dto.ChatChunkDto;
+import com.bko.fitnessextractor.ai.web.dto.ChatErrorDto;
 import com.bko.fitnessextractor.ai.web.dto.ChatMessageDto;
 import com.bko.fitnessextractor.ai.web.dto.ChatRequestDto;
 import com.bko.fitnessextractor.ai.web.dto.ChatResponseDto;
+import com.bko.fitnessextractor.ai.web.dto.ChatSessionDto;
 import com.bko.fitnessextractor.ai.web.dto.FitnessContextDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/ai")
 public class AiController {
+    private static final Logger logger = LoggerFactory.getLogger(AiController.class);
     private final ChatService chatService;
     private final FitnessContextPort fitnessContextPort;
     private final ModelCatalogService modelCatalogService;
+    private final ChatResponseCache responseCache;
+    private final ChatSessionStore sessionStore;
 
-    public AiController(ChatService chatService, FitnessContextPort fitnessContextPort, ModelCatalogService modelCatalogService) {
+    public AiController(ChatService chatService,
+                        FitnessContextPort fitnessContextPort,
+                        ModelCatalogService modelCatalogService,
+                        ChatResponseCache responseCache,
+                        ChatSessionStore sessionStore) {
         this.chatService = chatService;
         this.fitnessContextPort = fitnessContextPort;
         this.modelCatalogService = modelCatalogService;
+        this.responseCache = responseCache;
+        this.sessionStore = sessionStore;
     }
 
+    /**
+     * Stateless unless {@code sessionId} is set. An unknown or expired session id starts a new session;
+     * the id to use for the next turn is returned in the response.
+     */
     @PostMapping(value = "/chat", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ChatResponseDto chat(@RequestBody ChatRequestDto requestDto) {
-        ChatRequest request = new ChatRequest(
-                toMessages(requestDto.messages()),
-                requestDto.includeContext() != null && requestDto.includeContext(),
-                requestDto.model()
-        );
-        ChatResponse response = chatService.chat(request);
-        return new ChatResponseDto(response.model(), response.text(), response.usedFitnessContext());
+    public CompletableFuture<ChatResponseDto> chat(@RequestBody ChatRequestDto requestDto) {
+        ChatRequest request = toRequest(requestDto);
+        ChatSession session = openSession(requestDto);
+        CompletableFuture<ChatResponse> response = session == null
+                ? chatService.chatAsync(request)
+                : chatService.chatAsync(request, session);
+        return response.thenApply(result -> toDto(result, session));
+    }
+
+    /**
+     * Server-sent events: a "chunk" event per generated text fragment, then one "done" event with the
+     * full response, or an "error" event if generation fails.
+     */
+    @PostMapping(value = "/chat/stream", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> chatStream(@RequestBody ChatRequestDto requestDto) {
+        ChatRequest request = toRequest(requestDto);
+        ChatSession session = openSession(requestDto);
+        return Flux.<ServerSentEvent<Object>>create(sink -> {
+                    try {
+                        Consumer<String> onText = text -> {
+                            if (sink.isCancelled()) {
+                                throw new CancellationException("Client disconnected");
+                            }
+                            sink.next(ServerSentEvent.builder((Object) new ChatChunkDto(text)).event("chunk").build());
+                        };
+                        ChatResponse response = session == null
+                                ? chatService.chatStream(request, onText)
+                                : chatService.chatStream(request, session, onText);
+                        sink.next(ServerSentEvent.builder((Object) toDto(response, session)).event("done").build());
+                        sink.complete();
+                    } catch (CancellationException e) {
+                        sink.complete();
+                    } catch (Exception e) {
+                        logger.warn("Streaming chat failed", e);
+                        String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+                        sink.next(ServerSentEvent.builder((Object) new ChatErrorDto(message)).event("error").build());
+                        sink.complete();
+                    }
+                })
+                // The Gemini stream is a blocking iterator, so keep it off the request thread.
+                .subscribeOn(Schedulers.boundedElastic());
     }
 
     @GetMapping(value = "/context", produces = MediaType.APPLICATION_JSON_VALUE)
     public FitnessContextDto context() {
         FitnessContext context = fitnessContextPort.loadContext();
-        return new FitnessContextDto(context.messages(), context.strava(), context.garmin(), context.recovery());
+        return new FitnessContextDto(context.messages(), context.strava(), context.garmin(), context.recovery(), context.trainingLoad(), context.trends(),
+                context.distributions());
     }
 
     @GetMapping(value = "/models", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -51,6 +114,54 @@ public class AiController {
         return modelCatalogService.listChatModels();
     }
 
+    @PostMapping(value = "/sessions", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ChatSessionDto createSession() {
+        return toDto(sessionStore.open(null));
+    }
+
+    @GetMapping(value = "/sessions/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ChatSessionDto session(@PathVariable String id) {
+        return sessionStore.find(id)
+                .map(this::toDto)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown or expired session"));
+    }
+
+    @DeleteMapping("/sessions/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteSession(@PathVariable String id) {
+        sessionStore.delete(id);
+    }
+
+    @GetMapping(value = "/cache/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ChatResponseCache.Stats cacheStats() {
+        return responseCache.stats();
+    }
+
+    private ChatSession openSession(ChatRequestDto requestDto) {
+        return requestDto.sessionId() == null ? null : sessionStore.open(requestDto.sessionId());
+    }
+
+    private ChatResponseDto toDto(ChatResponse response, ChatSession session) {
+        return new ChatResponseDto(response.model(), response.text(), response.usedFitnessContext(),
+                session == null ? null : session.id());
+    }
+
+    private ChatSessionDto toDto(ChatSession session) {
+        List<ChatMessageDto> messages = session.recentMessages().stream()
+                .map(message -> new ChatMessageDto(message.role().name().toLowerCase(), message.content()))
+                .toList();
+        return new ChatSessionDto(session.id(), session.summary(), messages);
+    }
+
+    private ChatRequest toRequest(ChatRequestDto requestDto) {
+        return new ChatRequest(
+                toMessages(requestDto.messages()),
+                requestDto.includeContext() != null && requestDto.includeContext(),
+                requestDto.model(),
+                requestDto.noCache() != null && requestDto.noCache()
+        );
+    }
+
     private List<ChatMessage> toMessages(List<ChatMessageDto> dtos) {
         if (dtos == null) return List.of();
         return dtos.stream()
@@ -64,6 +175,7 @@ public class AiController {
         if (role == null) return ChatMessage.Role.USER;
         return switch (role.toLowerCase()) {
             case "system" -> ChatMessage.Role.SYSTEM;
+            case "assistant", "model" -> ChatMessage.Role.ASSISTANT;
             default -> ChatMessage.Role.USER;
         };
     }
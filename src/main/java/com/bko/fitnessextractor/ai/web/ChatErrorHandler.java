@@ -0,0 +1,31 @@
+package com.bko.fitnessextractor.ai.web;
+
+import com.bko.fitnessextractor.ai.domain.ChatRejectedException;
+import com.bko.fitnessextractor.ai.domain.ChatTimeoutException;
+import com.bko.fitnessextractor.ai.web.dto.ChatErrorDto;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Maps chat capacity and deadline failures to HTTP statuses clients can act on.
+ */
+@RestControllerAdvice(assignableTypes = {AiController.class, McpController.class})
+public class ChatErrorHandler {
+    private static final String RETRY_AFTER_SECONDS = "5";
+
+    @ExceptionHandler(ChatRejectedException.class)
+    public ResponseEntity<ChatErrorDto> rejected(ChatRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(new ChatErrorDto(e.getMessage()));
+    }
+
+    @ExceptionHandler(ChatTimeoutException.class)
+    public ResponseEntity<ChatErrorDto> timedOut(ChatTimeoutException e) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(new ChatErrorDto(e.getMessage()));
+    }
+}
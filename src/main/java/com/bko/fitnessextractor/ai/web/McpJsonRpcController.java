@@ -0,0 +1,137 @@
+package com.bko.fitnessextractor.ai.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * MCP server over the streamable HTTP transport: JSON-RPC messages are POSTed to {@code /mcp}, singly or
+ * as a batch.
+ * <p>
+ * The requests of a batch run concurrently. A client that accepts {@code text/event-stream} gets each
+ * response as its own SSE "message" event as soon as it is ready, so a slow {@code ask_gemini} does not hold
+ * back quick lookups; otherwise the responses come back together as one JSON body. Bodies with only
+ * notifications are acknowledged with 202. The server keeps no per-client state, so no
+ * {@code Mcp-Session-Id} is issued, and server-initiated streams (GET) are not offered.
+ */
+@RestController
+public class McpJsonRpcController {
+    private static final Logger logger = LoggerFactory.getLogger(McpJsonRpcController.class);
+
+    private final McpJsonRpcDispatcher dispatcher;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public McpJsonRpcController(McpJsonRpcDispatcher dispatcher, ObjectMapper objectMapper) {
+        this.dispatcher = dispatcher;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostMapping(value = "/mcp", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> handle(@RequestBody(required = false) String body,
+                                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        McpJsonRpcDispatcher.Messages parsed = dispatcher.parse(body);
+        if (parsed.error() != null) {
+            return json(CompletableFuture.completedFuture(List.of(parsed.error())), false);
+        }
+        List<CompletableFuture<ObjectNode>> responses = parsed.messages().stream()
+                .map(message -> CompletableFuture.supplyAsync(() -> dispatcher.handle(message), executor))
+                .toList();
+        long requests = parsed.messages().stream().filter(dispatcher::expectsResponse).count();
+        if (requests == 0) {
+            return ResponseEntity.accepted().build();
+        }
+        if (streams(accept, requests)) {
+            return sse(responses);
+        }
+        CompletableFuture<List<ObjectNode>> all = CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> responses.stream().map(CompletableFuture::join).filter(Objects::nonNull).toList());
+        return json(all, parsed.batch());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private ResponseEntity<ResponseBodyEmitter> sse(List<CompletableFuture<ObjectNode>> responses) {
+        SseEmitter emitter = new SseEmitter();
+        CompletableFuture<?>[] sent = responses.stream()
+                .map(response -> response.thenAccept(message -> {
+                    if (message == null) {
+                        return;
+                    }
+                    try {
+                        emitter.send(SseEmitter.event().name("message").data(message, MediaType.APPLICATION_JSON));
+                    } catch (IOException e) {
+                        logger.debug("MCP client went away before a response was sent: {}", e.getMessage());
+                    }
+                }))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(sent).whenComplete((ignored, e) -> emitter.complete());
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+    }
+
+    private ResponseEntity<ResponseBodyEmitter> json(CompletableFuture<List<ObjectNode>> responses, boolean batch) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        responses.whenComplete((messages, e) -> {
+            try {
+                if (e != null) {
+                    emitter.completeWithError(e);
+                    return;
+                }
+                JsonNode payload = batch ? arrayOf(messages) : messages.getFirst();
+                emitter.send(payload, MediaType.APPLICATION_JSON);
+                emitter.complete();
+            } catch (IOException io) {
+                emitter.completeWithError(io);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(emitter);
+    }
+
+    private ArrayNode arrayOf(List<ObjectNode> messages) {
+        ArrayNode array = objectMapper.createArrayNode();
+        messages.forEach(array::add);
+        return array;
+    }
+
+    /**
+     * Streams when the client accepts SSE and either prefers it (no JSON in Accept) or sent several requests.
+     */
+    static boolean streams(String accept, long requests) {
+        if (accept == null || accept.isBlank()) {
+            return false;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        boolean sse = accepted.stream().anyMatch(type -> type.isCompatibleWith(MediaType.TEXT_EVENT_STREAM) && !type.isWildcardType());
+        boolean json = accepted.stream().anyMatch(type -> type.isCompatibleWith(MediaType.APPLICATION_JSON));
+        return sse && (requests > 1 || !json);
+    }
+}
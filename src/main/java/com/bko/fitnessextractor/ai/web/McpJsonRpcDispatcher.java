@@ -0,0 +1,212 @@
+package com.bko.fitnessextractor.ai.web;
+
+import com.bko.fitnessextractor.ai.application.McpToolService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON-RPC 2.0 message handling for the MCP server: {@code initialize}, {@code ping}, {@code tools/list}
+ * and {@code tools/call}.
+ * <p>
+ * Transport concerns (batching, SSE) live in {@link McpJsonRpcController}; this class turns one message
+ * into its response, or {@code null} for notifications. Tool failures are reported inside the result with
+ * {@code isError}, as MCP asks, so the model can see them; protocol mistakes get JSON-RPC errors.
+ */
+@Component
+public class McpJsonRpcDispatcher {
+    static final String LATEST_PROTOCOL_VERSION = "2025-03-26";
+    static final int PARSE_ERROR = -32700;
+    static final int INVALID_REQUEST = -32600;
+    static final int METHOD_NOT_FOUND = -32601;
+    static final int INVALID_PARAMS = -32602;
+    static final int INTERNAL_ERROR = -32603;
+
+    private static final Logger logger = LoggerFactory.getLogger(McpJsonRpcDispatcher.class);
+    private static final List<String> SUPPORTED_PROTOCOL_VERSIONS = List.of(LATEST_PROTOCOL_VERSION, "2024-11-05");
+
+    private final McpToolService toolService;
+    private final ObjectMapper objectMapper;
+
+    public McpJsonRpcDispatcher(McpToolService toolService, ObjectMapper objectMapper) {
+        this.toolService = toolService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Splits a request body into its messages. A body that is not JSON, or an empty batch, yields a single
+     * error response instead.
+     */
+    public Messages parse(String body) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(body == null ? "" : body);
+        } catch (JsonProcessingException e) {
+            return Messages.failed(error(null, PARSE_ERROR, "Parse error"));
+        }
+        if (root == null || root.isMissingNode()) {
+            return Messages.failed(error(null, PARSE_ERROR, "Parse error"));
+        }
+        if (!root.isArray()) {
+            return new Messages(List.of(root), false, null);
+        }
+        if (root.isEmpty()) {
+            return Messages.failed(error(null, INVALID_REQUEST, "Empty batch"));
+        }
+        List<JsonNode> messages = new ArrayList<>(root.size());
+        root.forEach(messages::add);
+        return new Messages(messages, true, null);
+    }
+
+    /**
+     * Notifications and responses from the client are not answered; everything else, including malformed
+     * messages, is.
+     */
+    public boolean expectsResponse(JsonNode message) {
+        if (!message.isObject() || message.has("id")) {
+            return true;
+        }
+        return !message.has("method") && !message.has("result") && !message.has("error");
+    }
+
+    /**
+     * Handles one message. Never throws; returns {@code null} when the message needs no response.
+     */
+    public ObjectNode handle(JsonNode message) {
+        boolean respond = expectsResponse(message);
+        JsonNode id = message.isObject() ? message.get("id") : null;
+        if (!message.isObject() || !"2.0".equals(message.path("jsonrpc").asText())
+                || !message.path("method").isTextual() || (id != null && !id.isTextual() && !id.isNumber() && !id.isNull())) {
+            return respond ? error(id != null && (id.isTextual() || id.isNumber()) ? id : null, INVALID_REQUEST, "Invalid Request") : null;
+        }
+        try {
+            ObjectNode result = dispatch(message.get("method").asText(), message.path("params"));
+            return respond ? success(id, result) : null;
+        } catch (RpcException e) {
+            return respond ? error(id, e.code, e.getMessage()) : null;
+        } catch (RuntimeException e) {
+            logger.warn("MCP request {} failed", message.get("method").asText(), e);
+            return respond ? error(id, INTERNAL_ERROR, "Internal error") : null;
+        }
+    }
+
+    private ObjectNode dispatch(String method, JsonNode params) {
+        return switch (method) {
+            case "initialize" -> initialize(params);
+            case "ping" -> objectMapper.createObjectNode();
+            case "tools/list" -> listTools();
+            case "tools/call" -> callTool(params);
+            default -> {
+                if (method.startsWith("notifications/")) {
+                    yield objectMapper.createObjectNode();
+                }
+                throw new RpcException(METHOD_NOT_FOUND, "Method not found: " + method);
+            }
+        };
+    }
+
+    private ObjectNode initialize(JsonNode params) {
+        String requested = params.path("protocolVersion").asText("");
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("protocolVersion", SUPPORTED_PROTOCOL_VERSIONS.contains(requested) ? requested : LATEST_PROTOCOL_VERSION);
+        result.putObject("capabilities").putObject("tools").put("listChanged", false);
+        ObjectNode serverInfo = result.putObject("serverInfo");
+        serverInfo.put("name", "fitness-extractor");
+        serverInfo.put("version", "2.0.0");
+        return result;
+    }
+
+    private ObjectNode listTools() {
+        ObjectNode result = objectMapper.createObjectNode();
+        ArrayNode tools = result.putArray("tools");
+        toolService.definitions().forEach(tool -> {
+            ObjectNode node = tools.addObject();
+            node.put("name", tool.name());
+            node.put("description", tool.description());
+            node.set("inputSchema", objectMapper.valueToTree(tool.inputSchema()));
+        });
+        return result;
+    }
+
+    private ObjectNode callTool(JsonNode params) {
+        String name = params.path("name").asText(null);
+        if (!toolService.hasTool(name)) {
+            throw new RpcException(INVALID_PARAMS, "Unknown tool: " + name);
+        }
+        JsonNode arguments = params.path("arguments");
+        if (!arguments.isMissingNode() && !arguments.isNull() && !arguments.isObject()) {
+            throw new RpcException(INVALID_PARAMS, "arguments must be an object");
+        }
+        Map<String, Object> args = arguments.isObject()
+                ? objectMapper.convertValue(arguments, objectMapper.getTypeFactory().constructMapType(Map.class, String.class, Object.class))
+                : Map.of();
+        try {
+            JsonNode value = objectMapper.valueToTree(toolService.call(name, args));
+            ObjectNode result = toolResult(objectMapper.writeValueAsString(value), false);
+            if (value.isObject()) {
+                result.set("structuredContent", value);
+            }
+            return result;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        } catch (RuntimeException e) {
+            logger.debug("Tool {} failed", name, e);
+            String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            return toolResult(message, true);
+        }
+    }
+
+    private ObjectNode toolResult(String text, boolean isError) {
+        ObjectNode result = objectMapper.createObjectNode();
+        ObjectNode content = result.putArray("content").addObject();
+        content.put("type", "text");
+        content.put("text", text);
+        result.put("isError", isError);
+        return result;
+    }
+
+    private ObjectNode success(JsonNode id, ObjectNode result) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", id);
+        response.set("result", result);
+        return response;
+    }
+
+    private ObjectNode error(JsonNode id, int code, String message) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", id == null ? objectMapper.nullNode() : id);
+        ObjectNode error = response.putObject("error");
+        error.put("code", code);
+        error.put("message", message);
+        return response;
+    }
+
+    /**
+     * The messages of one POST body. {@code error} is set instead when the body could not be read at all.
+     */
+    public record Messages(List<JsonNode> messages, boolean batch, ObjectNode error) {
+        static Messages failed(ObjectNode error) {
+            return new Messages(List.of(), false, error);
+        }
+    }
+
+    private static final class RpcException extends RuntimeException {
+        private final int code;
+
+        private RpcException(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+}
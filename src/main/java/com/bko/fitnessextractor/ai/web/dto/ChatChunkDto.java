@@ -0,0 +1,5 @@
+package com.bko.fitnessextractor.ai.web.dto;
+
+public record ChatChunkDto(
+        String text
+) { }
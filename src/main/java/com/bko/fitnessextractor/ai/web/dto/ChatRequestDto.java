@@ -2,9 +2,13 @@ package com.bko.fitnessextractor.ai.web.dto;
 
 import java.util.List;
 
+/**
+ * @param sessionId when set, only the new messages are sent and the server supplies the earlier history
+ */
 public record ChatRequestDto(
         List<ChatMessageDto> messages,
         Boolean includeContext,
-        String model
+        String model,
+        Boolean noCache,
+        String sessionId
 ) { }
-
@@ -1,8 +1,11 @@
 package com.bko.fitnessextractor.ai.web.dto;
 
+/**
+ * @param sessionId the server-side session the turn was recorded in, or {@code null} for stateless chats
+ */
 public record ChatResponseDto(
         String model,
         String text,
-        boolean usedContext
+        boolean usedContext,
+        String sessionId
 ) { }
-
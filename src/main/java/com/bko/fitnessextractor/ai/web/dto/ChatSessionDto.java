@@ -0,0 +1,9 @@
+package com.bko.fitnessextractor.ai.web.dto;
+
+import java.util.List;
+
+public record ChatSessionDto(
+        String sessionId,
+        List<String> summary,
+        List<ChatMessageDto> messages
+) { }
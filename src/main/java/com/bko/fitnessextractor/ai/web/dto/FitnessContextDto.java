@@ -1,8 +1,11 @@
 package com.bko.fitnessextractor.ai.web.dto;
 
+import com.bko.fitnessextractor.visualization.app.DistributionSummary;
 import com.bko.fitnessextractor.visualization.app.GarminSummary;
 import com.bko.fitnessextractor.visualization.app.RecoverySummary;
 import com.bko.fitnessextractor.visualization.app.StravaSummary;
+import com.bko.fitnessextractor.visualization.app.TrainingLoadSummary;
+import com.bko.fitnessextractor.visualization.app.TrendSummary;
 
 import java.util.List;
 
@@ -10,6 +13,9 @@ public record FitnessContextDto(
         List<String> messages,
         StravaSummary strava,
         GarminSummary garmin,
-        RecoverySummary recovery
+        RecoverySummary recovery,
+        TrainingLoadSummary trainingLoad,
+        TrendSummary trends,
+        List<DistributionSummary> distributions
 ) { }
 
@@ -0,0 +1,37 @@
+package com.bko.fitnessextractor.integrations;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one HTTP call to Strava, Garmin or Google Sheets.
+ */
+@Name("fitnessextractor.UpstreamCall")
+@Label("Upstream Call")
+@Category({"FitnessExtractor", "Integrations"})
+@Description("An HTTP call to Strava, Garmin or Google Sheets")
+@StackTrace(false)
+class UpstreamCallEvent extends jdk.jfr.Event {
+    @Label("Upstream")
+    String upstream;
+
+    @Label("Host")
+    String host;
+
+    @Label("Path")
+    @Description("Path template, or the API method for Google Sheets")
+    String path;
+
+    @Label("Status")
+    @Description("HTTP status, 2xx where the client only reports success, IO_ERROR without a response")
+    String status;
+
+    @Label("Response Size")
+    @Description("-1 where the client does not expose it")
+    @DataAmount
+    long bytes;
+}
@@ -0,0 +1,76 @@
+package com.bko.fitnessextractor.integrations;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Times calls to one upstream API as {@code fitness.upstream.requests}, tagged with the upstream, the
+ * endpoint and the HTTP status: the code where the client exposes it, {@link #SUCCESS} where it only
+ * reports success, {@link #IO_ERROR} when no response came back. Each call is also a Flight Recorder
+ * {@code fitnessextractor.UpstreamCall} event, which costs next to nothing while no recording runs.
+ */
+public final class UpstreamMetrics {
+    public static final String SUCCESS = "2xx";
+    public static final String IO_ERROR = "IO_ERROR";
+    public static final long UNKNOWN_SIZE = -1;
+
+    private final MeterRegistry meterRegistry;
+    private final String upstream;
+
+    public UpstreamMetrics(MeterRegistry meterRegistry, String upstream) {
+        this.meterRegistry = meterRegistry;
+        this.upstream = upstream;
+    }
+
+    /**
+     * Starts timing a call; finish it with {@link Call#end(String, LongSupplier)}, also when it fails.
+     *
+     * @param endpoint path template such as {@code /activities/{id}}, without ids or dates
+     */
+    public Call start(String endpoint, String host) {
+        UpstreamCallEvent event = new UpstreamCallEvent();
+        event.begin();
+        return new Call(endpoint, host, System.nanoTime(), event);
+    }
+
+    public final class Call {
+        private final String endpoint;
+        private final String host;
+        private final long startNanos;
+        private final UpstreamCallEvent event;
+
+        private Call(String endpoint, String host, long startNanos, UpstreamCallEvent event) {
+            this.endpoint = endpoint;
+            this.host = host;
+            this.startNanos = startNanos;
+            this.event = event;
+        }
+
+        /**
+         * @param bytes response body size, or {@link #UNKNOWN_SIZE}; only asked for while a recording takes
+         *              the event, since measuring a body may mean copying it
+         */
+        public void end(String status, LongSupplier bytes) {
+            Timer.builder("fitness.upstream.requests")
+                    .description("Calls to Strava, Garmin and Google Sheets")
+                    .tag("upstream", upstream)
+                    .tag("endpoint", endpoint)
+                    .tag("status", status)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            event.end();
+            if (event.shouldCommit()) {
+                event.upstream = upstream;
+                event.host = host;
+                event.path = endpoint;
+                event.status = status;
+                event.bytes = bytes.getAsLong();
+                event.commit();
+            }
+        }
+    }
+}
@@ -1,10 +1,72 @@
 package com.bko.fitnessextractor.integrations.garmin;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 public interface GarminClientPort {
     void login() throws IOException;
-    List<GarminMetrics> getMetricsForLastDays(int days) throws IOException;
-    List<GarminWellnessSample> getWellnessSamplesForLastDays(int days) throws IOException;
+
+    default List<GarminMetrics> getMetricsForLastDays(int days) throws IOException {
+        return getMetricsForLastDays(days, fetched -> { });
+    }
+
+    /**
+     * Same as {@link #getMetricsForLastDays(int)}, calling {@code onDayFetched} with the number of days fetched so far.
+     */
+    default List<GarminMetrics> getMetricsForLastDays(int days, IntConsumer onDayFetched) throws IOException {
+        List<GarminMetrics> list = new ArrayList<>();
+        streamMetricsForLastDays(days, metrics -> {
+            list.add(metrics);
+            onDayFetched.accept(list.size());
+        });
+        return list;
+    }
+
+    /**
+     * Fetches the metrics of the last {@code days} days, newest first, handing each day over as soon as it
+     * is fetched.
+     */
+    default void streamMetricsForLastDays(int days, Consumer<GarminMetrics> onDay) throws IOException {
+        streamMetricsForDays(LocalDate.now(), days, onDay);
+    }
+
+    /**
+     * Fetches the metrics of {@code days} days from {@code newest} backwards, handing each day over as soon as
+     * it is fetched.
+     */
+    void streamMetricsForDays(LocalDate newest, int days, Consumer<GarminMetrics> onDay) throws IOException;
+
+    default List<GarminWellnessSample> getWellnessSamplesForLastDays(int days) throws IOException {
+        return getWellnessSamplesForLastDays(days, fetched -> { });
+    }
+
+    default List<GarminWellnessSample> getWellnessSamplesForLastDays(int days, IntConsumer onDayFetched) throws IOException {
+        List<GarminWellnessSample> list = new ArrayList<>();
+        int[] fetched = {0};
+        streamWellnessSamplesForLastDays(days, samples -> {
+            list.addAll(samples);
+            onDayFetched.accept(++fetched[0]);
+        });
+        return list;
+    }
+
+    /**
+     * Fetches the stress/HR samples of the last {@code days} days, newest day first, handing over each
+     * complete day as soon as it is fetched.
+     */
+    default void streamWellnessSamplesForLastDays(int days, Consumer<List<GarminWellnessSample>> onDay)
+            throws IOException {
+        streamWellnessSamplesForDays(LocalDate.now(), days, onDay);
+    }
+
+    /**
+     * Fetches the stress/HR samples of {@code days} days from {@code newest} backwards, handing over each
+     * complete day as soon as it is fetched.
+     */
+    void streamWellnessSamplesForDays(LocalDate newest, int days, Consumer<List<GarminWellnessSample>> onDay)
+            throws IOException;
 }
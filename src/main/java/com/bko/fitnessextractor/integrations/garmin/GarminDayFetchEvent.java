@@ -0,0 +1,24 @@
+package com.bko.fitnessextractor.integrations.garmin;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for fetching one day of Garmin data, spanning the upstream calls it takes.
+ */
+@Name("fitnessextractor.GarminDayFetch")
+@Label("Garmin Day Fetch")
+@Category({"FitnessExtractor", "Integrations"})
+@Description("All Garmin calls for one day of metrics or wellness samples")
+@StackTrace(false)
+class GarminDayFetchEvent extends jdk.jfr.Event {
+    @Label("Kind")
+    @Description("metrics or wellness")
+    String kind;
+
+    @Label("Date")
+    String date;
+}
@@ -1,9 +1,13 @@
 package com.bko.fitnessextractor.integrations.garmin;
 
+import com.bko.fitnessextractor.integrations.UpstreamMetrics;
 import com.bko.fitnessextractor.shared.AppSettings;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.HttpResponseException;
 import org.apache.hc.client5.http.cookie.BasicCookieStore;
+import org.apache.hc.client5.http.fluent.Content;
 import org.apache.hc.client5.http.fluent.Executor;
 import org.apache.hc.client5.http.fluent.Form;
 import org.apache.hc.client5.http.fluent.Request;
@@ -29,6 +33,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -38,6 +43,7 @@ public class GarminHttpClient implements GarminClientPort {
     private static final String SSO_URL = "https://sso.garmin.com/sso/signin";
     private static final String CONNECT_URL = "https://connect.garmin.com/modern";
     private static final String CONNECT_API_URL = "https://connectapi.garmin.com";
+    private static final String CONNECT_HOST = "connect.garmin.com";
     private static final int WELLNESS_BUCKET_MINUTES = 5;
 
     private final String username;
@@ -47,12 +53,13 @@ public class GarminHttpClient implements GarminClientPort {
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final BasicCookieStore cookieStore = new BasicCookieStore();
     private final Executor executor;
+    private final UpstreamMetrics metrics;
     private String displayName;
     private String oauth2Token;
     private String tokenScript;
     private String pythonPath;
 
-    public GarminHttpClient(AppSettings settings) {
+    public GarminHttpClient(AppSettings settings, MeterRegistry meterRegistry) {
         this.username = settings.garmin().username();
         this.password = settings.garmin().password();
         this.manualSessionCookie = settings.garmin().sessionCookie();
@@ -64,6 +71,7 @@ public class GarminHttpClient implements GarminClientPort {
                 .setUserAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/119.0.0.0 Safari/537.36")
                 .build();
         this.executor = Executor.newInstance(httpClient);
+        this.metrics = new UpstreamMetrics(meterRegistry, "garmin");
     }
 
     @Override
@@ -76,27 +84,22 @@ public class GarminHttpClient implements GarminClientPort {
     }
 
     @Override
-    public List<GarminMetrics> getMetricsForLastDays(int days) throws IOException {
-        List<GarminMetrics> list = new ArrayList<>();
-        LocalDate today = LocalDate.now();
+    public void streamMetricsForDays(LocalDate newest, int days, Consumer<GarminMetrics> onDay) throws IOException {
         for (int i = 0; i < days; i++) {
-            LocalDate date = today.minusDays(i);
+            LocalDate date = newest.minusDays(i);
             logger.info("Fetching Garmin metrics for {}...", date);
-            list.add(getMetricsForDate(date));
+            onDay.accept(fetchDay("metrics", date, this::getMetricsForDate));
         }
-        return list;
     }
 
     @Override
-    public List<GarminWellnessSample> getWellnessSamplesForLastDays(int days) throws IOException {
-        List<GarminWellnessSample> list = new ArrayList<>();
-        LocalDate today = LocalDate.now();
+    public void streamWellnessSamplesForDays(LocalDate newest, int days, Consumer<List<GarminWellnessSample>> onDay)
+            throws IOException {
         for (int i = 0; i < days; i++) {
-            LocalDate date = today.minusDays(i);
+            LocalDate date = newest.minusDays(i);
             logger.info("Fetching Garmin stress/HR samples for {}...", date);
-            list.addAll(getWellnessSamplesForDate(date));
+            onDay.accept(fetchDay("wellness", date, this::getWellnessSamplesForDate));
         }
-        return list;
     }
 
     private void loginInternal() throws IOException, URISyntaxException {
@@ -140,7 +143,7 @@ public class GarminHttpClient implements GarminClientPort {
             return;
         }
 
-        executor.execute(Request.get(CONNECT_URL)).returnContent();
+        send("/modern", CONNECT_HOST, Request.get(CONNECT_URL));
 
         URI ssoUri = new URIBuilder(SSO_URL)
                 .addParameter("service", CONNECT_URL)
@@ -171,9 +174,9 @@ public class GarminHttpClient implements GarminClientPort {
                 .addParameter("showPassword", "true")
                 .build();
 
-        executor.execute(Request.get(ssoUri)).returnContent();
+        send("/sso/signin", ssoUri.getHost(), Request.get(ssoUri));
 
-        String loginResponse = executor.execute(Request.post(ssoUri)
+        String loginResponse = send("/sso/signin", ssoUri.getHost(), Request.post(ssoUri)
                 .addHeader("Referer", ssoUri.toString())
                 .addHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/119.0.0.0 Safari/537.36")
                 .bodyForm(Form.form()
@@ -182,7 +185,6 @@ public class GarminHttpClient implements GarminClientPort {
                         .add("embed", "true")
                         .add("_eventId", "submit")
                         .build()))
-                .returnContent()
                 .asString();
 
         Pattern pattern = Pattern.compile("response_url\\s*=\\s*['\"]([^'\"]+ticket=([^'\"]+))['\"]");
@@ -201,19 +203,33 @@ public class GarminHttpClient implements GarminClientPort {
         logger.info("Login successful, ticket URL received.");
 
         logger.info("Exchanging ticket for session...");
-        executor.execute(Request.get(ticketUrl)
+        send("/modern?ticket={ticket}", URI.create(ticketUrl).getHost(), Request.get(ticketUrl)
                 .addHeader("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8")
                 .addHeader("Accept-Language", "en-US,en;q=0.9")
                 .addHeader("Referer", "https://sso.garmin.com/")
-                .addHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/119.0.0.0 Safari/537.36"))
-                .returnContent();
+                .addHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/119.0.0.0 Safari/537.36"));
 
-        executor.execute(Request.get(CONNECT_URL + "/")).returnContent();
+        send("/modern", CONNECT_HOST, Request.get(CONNECT_URL + "/"));
 
         logger.info("Garmin session established.");
         fetchDisplayName();
     }
 
+    private <T> T fetchDay(String kind, LocalDate date, DayFetch<T> fetch) throws IOException {
+        GarminDayFetchEvent event = new GarminDayFetchEvent();
+        event.begin();
+        try {
+            return fetch.apply(date);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.kind = kind;
+                event.date = date.toString();
+                event.commit();
+            }
+        }
+    }
+
     private GarminMetrics getMetricsForDate(LocalDate date) throws IOException {
         String dateStr = date.format(DateTimeFormatter.ISO_LOCAL_DATE);
         GarminMetrics metrics = new GarminMetrics();
@@ -838,8 +854,8 @@ public class GarminHttpClient implements GarminClientPort {
         }
 
         try {
-            return executor.execute(request).returnContent().asString();
-        } catch (org.apache.hc.client5.http.HttpResponseException e) {
+            return send(endpointOf(path), URI.create(url).getHost(), request).asString();
+        } catch (HttpResponseException e) {
             if (allowRetry && e.getStatusCode() == 401 && tokenScript != null) {
                 logger.info("Request to {} failed with 401, attempting token refresh...", url);
                 if (refreshGarthToken()) {
@@ -851,6 +867,48 @@ public class GarminHttpClient implements GarminClientPort {
         }
     }
 
+    private Content send(String endpoint, String host, Request request) throws IOException {
+        UpstreamMetrics.Call call = metrics.start(endpoint, host);
+        String status = UpstreamMetrics.IO_ERROR;
+        Content content = null;
+        try {
+            content = executor.execute(request).returnContent();
+            status = UpstreamMetrics.SUCCESS;
+            return content;
+        } catch (HttpResponseException e) {
+            status = String.valueOf(e.getStatusCode());
+            throw e;
+        } finally {
+            Content body = content;
+            call.end(status, () -> body == null ? UpstreamMetrics.UNKNOWN_SIZE : body.asBytes().length);
+        }
+    }
+
+    /**
+     * The service part of an API path, e.g. {@code /wellness-service/wellness/dailyStress}, without dates,
+     * ids or the display name so the endpoint tag stays bounded.
+     */
+    private String endpointOf(String path) {
+        String pathOnly = path.startsWith("http") ? URI.create(path).getPath() : path;
+        int query = pathOnly.indexOf('?');
+        if (query >= 0) {
+            pathOnly = pathOnly.substring(0, query);
+        }
+        StringBuilder endpoint = new StringBuilder();
+        int segments = 0;
+        for (String segment : pathOnly.split("/")) {
+            if (segment.isEmpty() || segment.equals("modern") || segment.equals("proxy")) {
+                continue;
+            }
+            if (segments == 3 || segment.matches(".*\\d.*") || segment.equals(displayName)) {
+                break;
+            }
+            endpoint.append('/').append(segment);
+            segments++;
+        }
+        return endpoint.isEmpty() ? "/" : endpoint.toString();
+    }
+
     private void fetchDisplayName() {
         try {
             String path = "/userprofile-service/socialProfile";
@@ -1062,4 +1120,9 @@ public class GarminHttpClient implements GarminClientPort {
         cookie.setPath("/");
         cookieStore.addCookie(cookie);
     }
+
+    @FunctionalInterface
+    private interface DayFetch<T> {
+        T apply(LocalDate date) throws IOException;
+    }
 }
@@ -1,12 +1,15 @@
 package com.bko.fitnessextractor.integrations.sheets;
 
+import com.bko.fitnessextractor.integrations.UpstreamMetrics;
 import com.bko.fitnessextractor.shared.AppSettings;
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.SheetsRequest;
 import com.google.api.services.sheets.v4.SheetsScopes;
 import com.google.api.services.sheets.v4.model.AddSheetRequest;
 import com.google.api.services.sheets.v4.model.AppendValuesResponse;
@@ -21,6 +24,8 @@ import com.google.api.services.sheets.v4.model.Spreadsheet;
 import com.google.api.services.sheets.v4.model.ValueRange;
 import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.auth.oauth2.GoogleCredentials;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -42,27 +47,34 @@ public class GoogleSheetsAdapter implements SpreadsheetPort {
     private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
     private static final List<String> SCOPES = Collections.singletonList(SheetsScopes.SPREADSHEETS);
     private static final String RAW = "RAW";
+    private static final String SHEETS_HOST = "sheets.googleapis.com";
     private static final String ROWS = "ROWS";
     private static final int START_INDEX = 1;
 
     private final AppSettings settings;
-    private Sheets sheetsService;
+    private final MeterRegistry meterRegistry;
+    private final UpstreamMetrics metrics;
+    private volatile Sheets sheetsService;
 
-    public GoogleSheetsAdapter(AppSettings settings) {
+    public GoogleSheetsAdapter(AppSettings settings, MeterRegistry meterRegistry) {
         this.settings = settings;
+        this.meterRegistry = meterRegistry;
+        this.metrics = new UpstreamMetrics(meterRegistry, "sheets");
     }
 
     @Override
     public List<List<Object>> getExistingValues(String range) throws IOException {
+        SheetOperationEvent event = begin();
         try {
-            ValueRange response = getSheetsService().spreadsheets().values()
-                    .get(getSpreadsheetId(), range)
-                    .execute();
+            ValueRange response = execute("values.get", getSheetsService().spreadsheets().values()
+                    .get(getSpreadsheetId(), range));
+            rows(event, range, "read", response.getValues() == null ? List.of() : response.getValues());
             return response.getValues();
         } catch (GoogleJsonResponseException e) {
             if (e.getStatusCode() == 400) {
                 logger.warn("Error 400: Range not found ({}). Check sheet name.", range);
-                Spreadsheet spreadsheet = getSheetsService().spreadsheets().get(getSpreadsheetId()).execute();
+                Spreadsheet spreadsheet = execute("spreadsheets.get",
+                        getSheetsService().spreadsheets().get(getSpreadsheetId()));
                 spreadsheet.getSheets().forEach(s -> logger.info("Available sheet: {}", s.getProperties().getTitle()));
             }
             throw e;
@@ -71,21 +83,23 @@ public class GoogleSheetsAdapter implements SpreadsheetPort {
 
     @Override
     public void appendValues(String range, List<List<Object>> values) throws IOException {
+        SheetOperationEvent event = begin();
         ValueRange body = new ValueRange().setValues(values);
-        AppendValuesResponse result = getSheetsService().spreadsheets().values()
+        AppendValuesResponse result = execute("values.append", getSheetsService().spreadsheets().values()
                 .append(getSpreadsheetId(), range, body)
-                .setValueInputOption(RAW)
-                .execute();
+                .setValueInputOption(RAW));
+        rows(event, range, "append", values);
         logger.info("Appended {} cells.", result.getUpdates().getUpdatedCells());
     }
 
     @Override
     public void updateRow(String range, List<Object> values) throws IOException {
+        SheetOperationEvent event = begin();
         ValueRange body = new ValueRange().setValues(Collections.singletonList(values));
-        getSheetsService().spreadsheets().values()
+        execute("values.update", getSheetsService().spreadsheets().values()
                 .update(getSpreadsheetId(), range, body)
-                .setValueInputOption(RAW)
-                .execute();
+                .setValueInputOption(RAW));
+        rows(event, range, "update", List.of(values));
     }
 
     @Override
@@ -94,7 +108,9 @@ public class GoogleSheetsAdapter implements SpreadsheetPort {
             return;
         }
 
+        SheetOperationEvent event = begin();
         List<ValueRange> data = new java.util.ArrayList<>();
+        List<List<Object>> written = new java.util.ArrayList<>();
         for (Map.Entry<Integer, List<Object>> entry : rows.entrySet()) {
             Integer rowIndex = entry.getKey();
             if (rowIndex == null || rowIndex < 1) {
@@ -106,6 +122,7 @@ public class GoogleSheetsAdapter implements SpreadsheetPort {
             }
             String range = sheetName + "!A" + rowIndex;
             data.add(new ValueRange().setRange(range).setValues(Collections.singletonList(values)));
+            written.add(values);
         }
 
         if (data.isEmpty()) {
@@ -116,9 +133,9 @@ public class GoogleSheetsAdapter implements SpreadsheetPort {
                 .setValueInputOption(RAW)
                 .setData(data);
 
-        BatchUpdateValuesResponse response = getSheetsService().spreadsheets().values()
-                .batchUpdate(getSpreadsheetId(), request)
-                .execute();
+        BatchUpdateValuesResponse response = execute("values.batchUpdate", getSheetsService().spreadsheets().values()
+                .batchUpdate(getSpreadsheetId(), request));
+        rows(event, sheetName, "update", written);
 
         if (response.getTotalUpdatedCells() != null) {
             logger.info("Batch updated {} cells.", response.getTotalUpdatedCells());
@@ -126,11 +143,12 @@ public class GoogleSheetsAdapter implements SpreadsheetPort {
     }
 
     @Override
-    public void insertRowsAtTop(String sheetName, List<List<Object>> values) throws IOException {
+    public void insertRows(String sheetName, int offset, List<List<Object>> values) throws IOException {
         if (values.isEmpty()) {
             return;
         }
 
+        SheetOperationEvent event = begin();
         Integer sheetId = getSheetId(sheetName);
         int numRows = values.size();
 
@@ -139,23 +157,24 @@ public class GoogleSheetsAdapter implements SpreadsheetPort {
                         .setRange(new DimensionRange()
                                 .setSheetId(sheetId)
                                 .setDimension(ROWS)
-                                .setStartIndex(START_INDEX)
-                                .setEndIndex(START_INDEX + numRows))
+                                .setStartIndex(START_INDEX + offset)
+                                .setEndIndex(START_INDEX + offset + numRows))
                         .setInheritFromBefore(false));
 
         BatchUpdateSpreadsheetRequest batchRequest =
                 new BatchUpdateSpreadsheetRequest()
                         .setRequests(Collections.singletonList(request));
 
-        getSheetsService().spreadsheets().batchUpdate(getSpreadsheetId(), batchRequest).execute();
+        execute("spreadsheets.batchUpdate",
+                getSheetsService().spreadsheets().batchUpdate(getSpreadsheetId(), batchRequest));
 
         ValueRange body = new ValueRange().setValues(values);
-        getSheetsService().spreadsheets().values()
-                .update(getSpreadsheetId(), sheetName + "!A2", body)
-                .setValueInputOption(RAW)
-                .execute();
+        execute("values.update", getSheetsService().spreadsheets().values()
+                .update(getSpreadsheetId(), sheetName + "!A" + (START_INDEX + offset + 1), body)
+                .setValueInputOption(RAW));
+        rows(event, sheetName, "insert", values);
 
-        logger.info("Inserted {} rows at the top of {}.", numRows, sheetName);
+        logger.info("Inserted {} rows into {} below row {}.", numRows, sheetName, START_INDEX + offset);
     }
 
     @Override
@@ -194,13 +213,13 @@ public class GoogleSheetsAdapter implements SpreadsheetPort {
                         new BatchUpdateSpreadsheetRequest()
                                 .setRequests(Collections.singletonList(request));
 
-                getSheetsService().spreadsheets().batchUpdate(getSpreadsheetId(), batchRequest).execute();
+                execute("spreadsheets.batchUpdate",
+                        getSheetsService().spreadsheets().batchUpdate(getSpreadsheetId(), batchRequest));
 
                 ValueRange body = new ValueRange().setValues(Collections.singletonList(headers));
-                getSheetsService().spreadsheets().values()
+                execute("values.update", getSheetsService().spreadsheets().values()
                         .update(getSpreadsheetId(), sheetName + "!1:1", body)
-                        .setValueInputOption(RAW)
-                        .execute();
+                        .setValueInputOption(RAW));
                 logger.info("Inserted headers at the top of the sheet: {}", sheetName);
             }
         } else {
@@ -223,10 +242,9 @@ public class GoogleSheetsAdapter implements SpreadsheetPort {
             if (mismatch) {
                 logger.info("Headers in {} seem outdated or mismatched. Updating headers...", sheetName);
                 ValueRange body = new ValueRange().setValues(Collections.singletonList(headers));
-                getSheetsService().spreadsheets().values()
+                execute("values.update", getSheetsService().spreadsheets().values()
                         .update(getSpreadsheetId(), sheetName + "!1:1", body)
-                        .setValueInputOption(RAW)
-                        .execute();
+                        .setValueInputOption(RAW));
             }
         }
     }
@@ -243,7 +261,8 @@ public class GoogleSheetsAdapter implements SpreadsheetPort {
                         .setRequests(Collections.singletonList(request));
 
         try {
-            getSheetsService().spreadsheets().batchUpdate(getSpreadsheetId(), batchRequest).execute();
+            execute("spreadsheets.batchUpdate",
+                    getSheetsService().spreadsheets().batchUpdate(getSpreadsheetId(), batchRequest));
             logger.info("Created new sheet: {}", sheetName);
         } catch (GoogleJsonResponseException e) {
             if (e.getStatusCode() != 400) {
@@ -253,7 +272,7 @@ public class GoogleSheetsAdapter implements SpreadsheetPort {
     }
 
     private Integer getSheetId(String sheetName) throws IOException {
-        Spreadsheet spreadsheet = getSheetsService().spreadsheets().get(getSpreadsheetId()).execute();
+        Spreadsheet spreadsheet = execute("spreadsheets.get", getSheetsService().spreadsheets().get(getSpreadsheetId()));
         for (com.google.api.services.sheets.v4.model.Sheet sheet : spreadsheet.getSheets()) {
             if (sheet.getProperties().getTitle().equals(sheetName)) {
                 return sheet.getProperties().getSheetId();
@@ -262,6 +281,52 @@ public class GoogleSheetsAdapter implements SpreadsheetPort {
         return 0;
     }
 
+    private <T> T execute(String endpoint, SheetsRequest<T> request) throws IOException {
+        UpstreamMetrics.Call call = metrics.start(endpoint, SHEETS_HOST);
+        String status = UpstreamMetrics.IO_ERROR;
+        try {
+            T result = request.execute();
+            status = UpstreamMetrics.SUCCESS;
+            return result;
+        } catch (HttpResponseException e) {
+            status = String.valueOf(e.getStatusCode());
+            throw e;
+        } finally {
+            call.end(status, () -> UpstreamMetrics.UNKNOWN_SIZE);
+        }
+    }
+
+    private static SheetOperationEvent begin() {
+        SheetOperationEvent event = new SheetOperationEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Counts rows moved per tab as {@code fitness.sheets.rows}; the count is calls, the total is rows.
+     * Also commits the operation's Flight Recorder event; cells are only counted while a recording wants it.
+     */
+    private void rows(SheetOperationEvent event, String range, String operation, List<? extends List<?>> rows) {
+        int bang = range.indexOf('!');
+        String sheet = bang < 0 ? range : range.substring(0, bang);
+        DistributionSummary.builder("fitness.sheets.rows")
+                .description("Rows read from and written to the spreadsheet")
+                .baseUnit("rows")
+                .tag("sheet", sheet)
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(rows.size());
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.sheet = sheet;
+            event.rows = rows.size();
+            event.cells = rows.stream().mapToLong(row -> row == null ? 0 : row.size()).sum();
+            event.commit();
+        }
+    }
+
     private String getSpreadsheetId() {
         if (!settings.isGoogleConfigured()) {
             throw new IllegalStateException("Missing Google configuration.");
@@ -270,14 +335,21 @@ public class GoogleSheetsAdapter implements SpreadsheetPort {
     }
 
     private Sheets getSheetsService() throws IOException {
-        if (sheetsService == null) {
-            try {
-                sheetsService = buildSheetsService();
-            } catch (GeneralSecurityException e) {
-                throw new IOException("Failed to initialize Sheets client", e);
+        Sheets service = sheetsService;
+        if (service != null) {
+            return service;
+        }
+        // Reads can arrive concurrently (e.g. the dashboard loads several ranges at once).
+        synchronized (this) {
+            if (sheetsService == null) {
+                try {
+                    sheetsService = buildSheetsService();
+                } catch (GeneralSecurityException e) {
+                    throw new IOException("Failed to initialize Sheets client", e);
+                }
             }
+            return sheetsService;
         }
-        return sheetsService;
     }
 
     private Sheets buildSheetsService() throws GeneralSecurityException, IOException {
@@ -0,0 +1,30 @@
+package com.bko.fitnessextractor.integrations.sheets;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one read or write of spreadsheet rows, spanning all the API calls it takes.
+ */
+@Name("fitnessextractor.SheetOperation")
+@Label("Sheet Operation")
+@Category({"FitnessExtractor", "Integrations"})
+@Description("Rows read from or written to the spreadsheet")
+@StackTrace(false)
+class SheetOperationEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    @Description("read, append, update or insert")
+    String operation;
+
+    @Label("Sheet")
+    String sheet;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Cells")
+    long cells;
+}
@@ -1,14 +1,34 @@
 package com.bko.fitnessextractor.integrations.sheets;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public interface SpreadsheetPort {
     List<List<Object>> getExistingValues(String range) throws IOException;
     void appendValues(String range, List<List<Object>> values) throws IOException;
     void updateRow(String range, List<Object> values) throws IOException;
-    void updateRows(String sheetName, java.util.Map<Integer, List<Object>> rows) throws IOException;
-    void insertRowsAtTop(String sheetName, List<List<Object>> values) throws IOException;
+    void updateRows(String sheetName, Map<Integer, List<Object>> rows) throws IOException;
+    default void insertRowsAtTop(String sheetName, List<List<Object>> values) throws IOException {
+        insertRows(sheetName, 0, values);
+    }
+
+    /**
+     * Inserts rows below the header row and the first {@code offset} data rows, moving later rows down.
+     */
+    void insertRows(String sheetName, int offset, List<List<Object>> values) throws IOException;
+
+    /**
+     * Overwrites the rows below the header row and the first {@code offset} data rows, moving nothing.
+     */
+    default void writeRows(String sheetName, int offset, List<List<Object>> values) throws IOException {
+        Map<Integer, List<Object>> rows = new LinkedHashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            rows.put(offset + 2 + i, values.get(i));
+        }
+        updateRows(sheetName, rows);
+    }
     void ensureHeaders(String sheetName, List<Object> headers) throws IOException;
     void createSheet(String sheetName) throws IOException;
 }
@@ -1,8 +1,10 @@
 package com.bko.fitnessextractor.integrations.strava;
 
+import com.bko.fitnessextractor.integrations.UpstreamMetrics;
 import com.bko.fitnessextractor.shared.AppSettings;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -29,11 +31,13 @@ public class StravaHttpClient implements StravaClientPort {
     private String accessToken;
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final UpstreamMetrics metrics;
 
-    public StravaHttpClient(AppSettings settings) {
+    public StravaHttpClient(AppSettings settings, MeterRegistry meterRegistry) {
         this.clientId = settings.strava().clientId();
         this.clientSecret = settings.strava().clientSecret();
         this.refreshToken = settings.strava().refreshToken();
+        this.metrics = new UpstreamMetrics(meterRegistry, "strava");
     }
 
     @Override
@@ -50,7 +54,7 @@ public class StravaHttpClient implements StravaClientPort {
 
         HttpResponse<String> response;
         try {
-            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            response = send("/athlete/activities", request);
         } catch (InterruptedException ie) {
             Thread.currentThread().interrupt();
             throw new IOException("Interrupted while calling Strava API", ie);
@@ -78,7 +82,7 @@ public class StravaHttpClient implements StravaClientPort {
 
         HttpResponse<String> response;
         try {
-            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            response = send("/activities/{id}", request);
         } catch (InterruptedException ie) {
             Thread.currentThread().interrupt();
             throw new IOException("Interrupted while calling Strava API", ie);
@@ -107,7 +111,7 @@ public class StravaHttpClient implements StravaClientPort {
 
         HttpResponse<String> response;
         try {
-            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            response = send("/oauth/token", request);
         } catch (InterruptedException ie) {
             Thread.currentThread().interrupt();
             throw new IOException("Interrupted while refreshing Strava token", ie);
@@ -132,6 +136,23 @@ public class StravaHttpClient implements StravaClientPort {
         }
     }
 
+    private HttpResponse<String> send(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        UpstreamMetrics.Call call = metrics.start(endpoint, request.uri().getHost());
+        String status = UpstreamMetrics.IO_ERROR;
+        HttpResponse<String> response = null;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            status = String.valueOf(response.statusCode());
+            return response;
+        } finally {
+            HttpResponse<String> sent = response;
+            // Without a Content-Length, count the UTF-8 bytes of the decoded body, not its UTF-16 chars.
+            call.end(status, () -> sent == null ? UpstreamMetrics.UNKNOWN_SIZE
+                    : sent.headers().firstValueAsLong("Content-Length")
+                            .orElseGet(() -> sent.body().getBytes(StandardCharsets.UTF_8).length));
+        }
+    }
+
     private String buildActivitiesUrl(int page, int perPage, Instant after, Instant before) {
         StringBuilder url = new StringBuilder(STRAVA_API_BASE)
                 .append("/athlete/activities?page=")
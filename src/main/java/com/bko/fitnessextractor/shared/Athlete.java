@@ -0,0 +1,26 @@
+package com.bko.fitnessextractor.shared;
+
+/**
+ * An athlete synced besides the one configured through the environment, with their own credentials and
+ * spreadsheet.
+ */
+public record Athlete(String id, String name, StravaSettings strava, GarminSettings garmin, GoogleSettings google) {
+    /**
+     * Settings for this athlete's own clients, with missing sections left unconfigured. The Garmin token
+     * script is left out: it writes refreshed tokens back to the shared {@code .env}, which belongs to the
+     * environment-configured athlete.
+     */
+    public AppSettings settings() {
+        return new AppSettings(
+                strava == null ? new StravaSettings(null, null, null) : strava,
+                garmin == null
+                        ? new GarminSettings(null, null, null, null, null, null)
+                        : new GarminSettings(garmin.username(), garmin.password(), garmin.sessionCookie(),
+                                garmin.garthToken(), null, null),
+                google == null ? new GoogleSettings(null, null) : google);
+    }
+
+    public String displayName() {
+        return name == null || name.isBlank() ? id : name;
+    }
+}
@@ -0,0 +1,100 @@
+package com.bko.fitnessextractor.shared;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The athletes listed in {@code athletes.json} in the data directory, or in {@code FITNESS_ATHLETES_FILE}:
+ * <pre>
+ * {"athletes": [{"id": "alice", "name": "Alice",
+ *                "strava": {"clientId": "...", "clientSecret": "...", "refreshToken": "..."},
+ *                "garmin": {"username": "...", "password": "..."},
+ *                "google": {"spreadsheetId": "...", "serviceAccountKeyPath": "..."}}]}
+ * </pre>
+ * The file is read again whenever it changes, so athletes can be added without a restart. Ids name the
+ * athlete's state directory and must be lowercase letters, digits, {@code -} or {@code _}.
+ */
+@Component
+public class AthleteRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(AthleteRegistry.class);
+    private static final Pattern ID = Pattern.compile("[a-z0-9][a-z0-9_-]{0,63}");
+
+    private final Path file;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private List<Athlete> athletes = List.of();
+    private FileTime loadedVersion;
+
+    @Autowired
+    public AthleteRegistry(EnvConfig envConfig, DataDirectory dataDirectory) {
+        this(resolveFile(envConfig.get("fitness.athletes_file"), dataDirectory));
+    }
+
+    public AthleteRegistry(Path file) {
+        this.file = file;
+    }
+
+    public synchronized List<Athlete> athletes() {
+        reloadIfChanged();
+        return athletes;
+    }
+
+    public Optional<Athlete> find(String id) {
+        return athletes().stream().filter(athlete -> athlete.id().equals(id)).findFirst();
+    }
+
+    private void reloadIfChanged() {
+        try {
+            if (!Files.exists(file)) {
+                athletes = List.of();
+                loadedVersion = null;
+                return;
+            }
+            FileTime version = Files.getLastModifiedTime(file);
+            if (version.equals(loadedVersion)) {
+                return;
+            }
+            Registry registry = objectMapper.readValue(file.toFile(), Registry.class);
+            List<Athlete> valid = new ArrayList<>();
+            Set<String> ids = new HashSet<>();
+            for (Athlete athlete : registry.athletes() == null ? List.<Athlete>of() : registry.athletes()) {
+                if (athlete == null || athlete.id() == null || !ID.matcher(athlete.id()).matches()) {
+                    logger.warn("Skipping athlete with invalid id {} in {}", athlete == null ? null : athlete.id(), file);
+                } else if (!ids.add(athlete.id())) {
+                    logger.warn("Skipping duplicate athlete {} in {}", athlete.id(), file);
+                } else {
+                    valid.add(athlete);
+                }
+            }
+            athletes = List.copyOf(valid);
+            loadedVersion = version;
+            logger.info("Loaded {} athletes from {}", athletes.size(), file);
+        } catch (IOException e) {
+            logger.warn("Could not read athletes from {}, keeping the previous list: {}", file, e.getMessage());
+        }
+    }
+
+    private static Path resolveFile(String configured, DataDirectory dataDirectory) {
+        return configured == null || configured.isBlank()
+                ? dataDirectory.root().resolve("athletes.json")
+                : Path.of(configured);
+    }
+
+    private record Registry(List<Athlete> athletes) {
+    }
+}
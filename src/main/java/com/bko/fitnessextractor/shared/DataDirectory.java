@@ -0,0 +1,15 @@
+package com.bko.fitnessextractor.shared;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Local directory for state that has to survive restarts (analytics state, sync bookkeeping).
+ */
+public record DataDirectory(Path root) {
+    public Path resolve(String fileName) throws IOException {
+        Files.createDirectories(root);
+        return root.resolve(fileName);
+    }
+}
@@ -2,6 +2,7 @@ package com.bko.fitnessextractor.shared;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
 import java.time.Clock;
 
 @Configuration
@@ -29,6 +30,12 @@ public class SettingsConfiguration {
         return new AppSettings(strava, garmin, google);
     }
 
+    @Bean
+    public DataDirectory dataDirectory(EnvConfig envConfig) {
+        String dataDir = envConfig.get("fitness.data_dir");
+        return new DataDirectory(Path.of(dataDir == null || dataDir.isBlank() ? "data" : dataDir));
+    }
+
     @Bean
     public Clock clock() {
         return Clock.systemDefaultZone();
@@ -0,0 +1,15 @@
+package com.bko.fitnessextractor.sync;
+
+import com.bko.fitnessextractor.integrations.garmin.GarminMetrics;
+
+import java.util.List;
+
+/**
+ * Published after Garmin daily metrics were inserted or refreshed in the spreadsheet.
+ * Each entry replaces whatever was previously known for its date.
+ */
+public record GarminMetricsSynced(List<GarminMetrics> metrics) {
+    public GarminMetricsSynced {
+        metrics = metrics == null ? List.of() : List.copyOf(metrics);
+    }
+}
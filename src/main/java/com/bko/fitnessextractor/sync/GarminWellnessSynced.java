@@ -0,0 +1,15 @@
+package com.bko.fitnessextractor.sync;
+
+import com.bko.fitnessextractor.integrations.garmin.GarminWellnessSample;
+
+import java.util.List;
+
+/**
+ * Published after Garmin stress/HR samples were written to the spreadsheet.
+ * Carries every sample fetched for the synced days, so each date in the event is complete.
+ */
+public record GarminWellnessSynced(List<GarminWellnessSample> samples) {
+    public GarminWellnessSynced {
+        samples = samples == null ? List.of() : List.copyOf(samples);
+    }
+}
@@ -0,0 +1,19 @@
+package com.bko.fitnessextractor.sync;
+
+import java.time.LocalDate;
+
+/**
+ * One week or month of a rollup tab: totals of the activities that started in it and averages over its
+ * Garmin days. An average is {@code null} when no day in the period had a value.
+ */
+public record PeriodTotals(
+        String period,
+        LocalDate start,
+        LocalDate end,
+        int activities,
+        double distanceMeters,
+        long movingTimeSeconds,
+        Double averageRestingHeartRate,
+        Double averageSleepHours
+) {
+}
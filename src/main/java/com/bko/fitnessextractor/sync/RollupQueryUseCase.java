@@ -0,0 +1,20 @@
+package com.bko.fitnessextractor.sync;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reads the weekly and monthly totals the sync keeps in the rollup tabs, so readers get them without
+ * scanning the raw activity and metrics sheets.
+ */
+public interface RollupQueryUseCase {
+    /**
+     * The latest {@code limit} weeks, newest first.
+     */
+    List<PeriodTotals> weeklyTotals(int limit) throws IOException;
+
+    /**
+     * The latest {@code limit} months, newest first.
+     */
+    List<PeriodTotals> monthlyTotals(int limit) throws IOException;
+}
@@ -0,0 +1,14 @@
+package com.bko.fitnessextractor.sync;
+
+import com.bko.fitnessextractor.integrations.strava.StravaActivity;
+
+import java.util.List;
+
+/**
+ * Published after new Strava activities were written to the spreadsheet.
+ */
+public record StravaActivitiesSynced(List<StravaActivity> activities) {
+    public StravaActivitiesSynced {
+        activities = activities == null ? List.of() : List.copyOf(activities);
+    }
+}
@@ -3,5 +3,9 @@ package com.bko.fitnessextractor.sync;
 import com.bko.fitnessextractor.sync.app.SyncReport;
 
 public interface SyncAllUseCase {
-    SyncReport syncAll();
+    default SyncReport syncAll() {
+        return syncAll(SyncProgressListener.NONE);
+    }
+
+    SyncReport syncAll(SyncProgressListener progressListener);
 }
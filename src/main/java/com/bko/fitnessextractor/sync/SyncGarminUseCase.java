@@ -3,5 +3,9 @@ package com.bko.fitnessextractor.sync;
 import com.bko.fitnessextractor.sync.app.SyncReport;
 
 public interface SyncGarminUseCase {
-    SyncReport syncGarmin();
+    default SyncReport syncGarmin() {
+        return syncGarmin(SyncProgressListener.NONE);
+    }
+
+    SyncReport syncGarmin(SyncProgressListener progressListener);
 }
@@ -0,0 +1,12 @@
+package com.bko.fitnessextractor.sync;
+
+/**
+ * A progress update from a running sync, e.g. {@code ("garmin", "days_fetched", 42)}.
+ *
+ * @param source "strava" or "garmin"
+ * @param step   what was counted: {@code pages_fetched}, {@code activities_fetched}, {@code days_fetched},
+ *               {@code sample_days_fetched}, {@code rows_written} or {@code samples_written}
+ * @param count  running total for this step within the current sync
+ */
+public record SyncProgress(String source, String step, int count) {
+}
@@ -0,0 +1,12 @@
+package com.bko.fitnessextractor.sync;
+
+/**
+ * Receives {@link SyncProgress} updates while a sync runs. Called from the sync's own threads, possibly
+ * from several sources at once.
+ */
+@FunctionalInterface
+public interface SyncProgressListener {
+    SyncProgressListener NONE = progress -> { };
+
+    void onProgress(SyncProgress progress);
+}
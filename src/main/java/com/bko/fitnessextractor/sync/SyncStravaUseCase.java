@@ -3,5 +3,9 @@ package com.bko.fitnessextractor.sync;
 import com.bko.fitnessextractor.sync.app.SyncReport;
 
 public interface SyncStravaUseCase {
-    SyncReport syncStrava();
+    default SyncReport syncStrava() {
+        return syncStrava(SyncProgressListener.NONE);
+    }
+
+    SyncReport syncStrava(SyncProgressListener progressListener);
 }
@@ -0,0 +1,212 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.shared.Athlete;
+import com.bko.fitnessextractor.shared.AthleteRegistry;
+import com.bko.fitnessextractor.sync.SyncProgressListener;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Syncs every athlete in the {@link AthleteRegistry} about once per {@code sync.athletes.interval}, on a
+ * pool of {@code sync.athletes.workers} threads.
+ * <p>
+ * Each athlete has a fixed slot within the interval, derived from their id, so syncs are spread over the
+ * interval instead of all starting together, and the spread survives restarts. A dispatcher hands due
+ * athletes to the pool in the order they became due; an athlete is queued or running at most once, so one
+ * slow athlete cannot crowd out the rest. How fast the workers actually go is bounded by the shared rate
+ * budgets in {@link AthleteSyncs}.
+ */
+@Component
+public class AthleteSyncScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(AthleteSyncScheduler.class);
+    private static final Duration TICK = Duration.ofSeconds(30);
+
+    private final AthleteRegistry athleteRegistry;
+    private final AthleteSyncs athleteSyncs;
+    private final Clock clock;
+    private final boolean enabled;
+    private final Duration interval;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("athlete-sync-dispatcher").daemon(true).factory());
+    private final Map<String, Slot> slots = new HashMap<>();
+
+    public AthleteSyncScheduler(AthleteRegistry athleteRegistry,
+                                AthleteSyncs athleteSyncs,
+                                Clock clock,
+                                @Value("${sync.athletes.enabled:false}") boolean enabled,
+                                @Value("${sync.athletes.workers:4}") int workers,
+                                @Value("${sync.athletes.interval:PT1H}") Duration interval) {
+        this.athleteRegistry = athleteRegistry;
+        this.athleteSyncs = athleteSyncs;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workers),
+                Thread.ofPlatform().name("athlete-sync-", 0).daemon(true).factory());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            dispatcher.scheduleWithFixedDelay(this::dispatchSafely, 0, TICK.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Queues a sync for athlete {@code id} now, unless one is already queued or running.
+     *
+     * @return false if no such athlete is registered
+     */
+    public boolean request(String id) {
+        Optional<Athlete> athlete = athleteRegistry.find(id);
+        if (athlete.isEmpty()) {
+            return false;
+        }
+        synchronized (this) {
+            Slot slot = slots.computeIfAbsent(id, key -> new Slot(nextSlot(key, clock.instant(), interval)));
+            if (slot.state == State.IDLE) {
+                enqueue(athlete.get(), slot);
+            }
+        }
+        return true;
+    }
+
+    public List<AthleteSyncStatus> statuses() {
+        List<Athlete> athletes = athleteRegistry.athletes();
+        synchronized (this) {
+            return athletes.stream()
+                    .map(athlete -> status(athlete, slots.get(athlete.id())))
+                    .toList();
+        }
+    }
+
+    /**
+     * Queues every athlete whose slot has come, most overdue first.
+     */
+    synchronized void dispatch() {
+        Instant now = clock.instant();
+        List<Athlete> athletes = athleteRegistry.athletes();
+        Set<String> ids = athletes.stream().map(Athlete::id).collect(Collectors.toSet());
+        slots.keySet().retainAll(ids);
+        athleteSyncs.retain(ids);
+        athletes.stream()
+                .filter(athlete -> {
+                    Slot slot = slots.computeIfAbsent(athlete.id(), id -> new Slot(nextSlot(id, now, interval)));
+                    return slot.state == State.IDLE && !now.isBefore(slot.nextRunAt);
+                })
+                .sorted(Comparator.comparing(athlete -> slots.get(athlete.id()).nextRunAt))
+                .forEach(athlete -> enqueue(athlete, slots.get(athlete.id())));
+    }
+
+    /**
+     * The first time at or after {@code after} that falls on {@code id}'s slot: a fixed offset into each
+     * interval, counted from the epoch.
+     */
+    static Instant nextSlot(String id, Instant after, Duration interval) {
+        long period = Math.max(1, interval.toMillis());
+        long offset = Math.floorMod(id.hashCode() * 0x9E3779B97F4A7C15L, period);
+        long millis = after.toEpochMilli();
+        long candidate = millis - Math.floorMod(millis, period) + offset;
+        return Instant.ofEpochMilli(candidate < millis ? candidate + period : candidate);
+    }
+
+    private void dispatchSafely() {
+        try {
+            dispatch();
+        } catch (RuntimeException e) {
+            logger.error("Could not dispatch athlete syncs", e);
+        }
+    }
+
+    private void enqueue(Athlete athlete, Slot slot) {
+        slot.state = State.QUEUED;
+        workers.execute(() -> run(athlete, slot));
+    }
+
+    private void run(Athlete athlete, Slot slot) {
+        synchronized (this) {
+            slot.state = State.RUNNING;
+            slot.lastStartedAt = clock.instant();
+        }
+        logger.info("Syncing athlete {}", athlete.id());
+        SyncReport report = null;
+        String error = null;
+        try {
+            report = athleteSyncs.sync(athlete, SyncProgressListener.NONE);
+        } catch (RuntimeException e) {
+            logger.error("Sync for athlete {} failed", athlete.id(), e);
+            error = e.getMessage();
+        }
+        boolean success = report != null && report.isSuccess();
+        Instant next;
+        synchronized (this) {
+            Instant finished = clock.instant();
+            next = nextSlot(athlete.id(), finished.plusMillis(1), interval);
+            slot.state = State.IDLE;
+            slot.lastFinishedAt = finished;
+            slot.lastSuccess = success;
+            slot.lastError = report == null ? error : lastError(report);
+            slot.nextRunAt = next;
+        }
+        logger.info("Athlete {} sync {}, next at {}", athlete.id(), success ? "succeeded" : "failed", next);
+    }
+
+    private static String lastError(SyncReport report) {
+        if (report.isSuccess()) {
+            return null;
+        }
+        List<String> messages = report.getMessages();
+        return messages.isEmpty() ? null : messages.getLast();
+    }
+
+    private static AthleteSyncStatus status(Athlete athlete, Slot slot) {
+        if (slot == null) {
+            return new AthleteSyncStatus(athlete.id(), athlete.displayName(), "idle", null, null, null, null, null);
+        }
+        return new AthleteSyncStatus(athlete.id(), athlete.displayName(), slot.state.name().toLowerCase(Locale.ROOT),
+                slot.nextRunAt, slot.lastStartedAt, slot.lastFinishedAt, slot.lastSuccess, slot.lastError);
+    }
+
+    private enum State { IDLE, QUEUED, RUNNING }
+
+    private static final class Slot {
+        private State state = State.IDLE;
+        private Instant nextRunAt;
+        private Instant lastStartedAt;
+        private Instant lastFinishedAt;
+        private Boolean lastSuccess;
+        private String lastError;
+
+        private Slot(Instant nextRunAt) {
+            this.nextRunAt = nextRunAt;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.bko.fitnessextractor.sync.app;
+
+import java.time.Instant;
+
+/**
+ * Where one registered athlete stands in the {@link AthleteSyncScheduler}.
+ *
+ * @param state       {@code idle}, {@code queued} or {@code running}
+ * @param lastSuccess whether the last finished sync succeeded, or null before the first one
+ */
+public record AthleteSyncStatus(String id,
+                                String name,
+                                String state,
+                                Instant nextRunAt,
+                                Instant lastStartedAt,
+                                Instant lastFinishedAt,
+                                Boolean lastSuccess,
+                                String lastError) {
+}
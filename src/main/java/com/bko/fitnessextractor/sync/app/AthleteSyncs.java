@@ -0,0 +1,106 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.integrations.garmin.GarminHttpClient;
+import com.bko.fitnessextractor.integrations.sheets.GoogleSheetsAdapter;
+import com.bko.fitnessextractor.integrations.sheets.SpreadsheetPort;
+import com.bko.fitnessextractor.integrations.strava.StravaHttpClient;
+import com.bko.fitnessextractor.shared.AppSettings;
+import com.bko.fitnessextractor.shared.Athlete;
+import com.bko.fitnessextractor.shared.DataDirectory;
+import com.bko.fitnessextractor.sync.SyncProgressListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sync services for the athletes in the {@link com.bko.fitnessextractor.shared.AthleteRegistry}.
+ * <p>
+ * Each athlete gets their own Strava, Garmin and Sheets clients (and so their own tokens and sessions) and
+ * their own sync state under {@code <data dir>/athletes/<id>}, built on first use and rebuilt when their
+ * entry in the registry changes. All clients draw on one {@link RateBudget} per upstream, so the limits
+ * the APIs enforce per application hold however many athletes are synced.
+ * <p>
+ * Athlete syncs do not publish sync events: the listeners (analytics, chat context) follow the
+ * environment-configured athlete only.
+ */
+@Component
+public class AthleteSyncs {
+    private static final Logger logger = LoggerFactory.getLogger(AthleteSyncs.class);
+    private static final ApplicationEventPublisher NO_EVENTS = event -> { };
+
+    private final DataDirectory dataDirectory;
+    private final Clock clock;
+    private final SyncPipeline syncPipeline;
+    private final SyncMetrics syncMetrics;
+    private final MeterRegistry meterRegistry;
+    private final Duration reconcileInterval;
+    private final RateBudget stravaBudget;
+    private final RateBudget garminBudget;
+    private final RateBudget sheetsBudget;
+    private final Map<String, Tenant> tenants = new ConcurrentHashMap<>();
+
+    public AthleteSyncs(DataDirectory dataDirectory,
+                        Clock clock,
+                        SyncPipeline syncPipeline,
+                        SyncMetrics syncMetrics,
+                        MeterRegistry meterRegistry,
+                        @Value("${sync.state.reconcile-interval:PT24H}") Duration reconcileInterval,
+                        @Value("${sync.athletes.budget.strava:100/PT15M}") String stravaBudget,
+                        @Value("${sync.athletes.budget.garmin:60/PT1M}") String garminBudget,
+                        @Value("${sync.athletes.budget.sheets:60/PT1M}") String sheetsBudget) {
+        this.dataDirectory = dataDirectory;
+        this.clock = clock;
+        this.syncPipeline = syncPipeline;
+        this.syncMetrics = syncMetrics;
+        this.meterRegistry = meterRegistry;
+        this.reconcileInterval = reconcileInterval;
+        this.stravaBudget = RateBudget.parse("Strava", stravaBudget);
+        this.garminBudget = RateBudget.parse("Garmin", garminBudget);
+        this.sheetsBudget = RateBudget.parse("Google Sheets", sheetsBudget);
+    }
+
+    /**
+     * Runs a full sync for {@code athlete}. Callers make sure one athlete is not synced twice at once.
+     */
+    public SyncReport sync(Athlete athlete, SyncProgressListener progressListener) {
+        Tenant tenant = tenants.compute(athlete.id(),
+                (id, existing) -> existing != null && existing.athlete().equals(athlete) ? existing : build(athlete));
+        return tenant.syncAll().syncAll(progressListener);
+    }
+
+    /**
+     * Drops the clients of athletes no longer in {@code ids}.
+     */
+    public void retain(Collection<String> ids) {
+        tenants.keySet().retainAll(ids);
+    }
+
+    private Tenant build(Athlete athlete) {
+        logger.info("Setting up sync clients for athlete {}", athlete.id());
+        AppSettings settings = athlete.settings();
+        DataDirectory athleteDirectory = new DataDirectory(dataDirectory.root().resolve("athletes").resolve(athlete.id()));
+        SpreadsheetPort sheets = new BudgetedSpreadsheetPort(new GoogleSheetsAdapter(settings, meterRegistry), sheetsBudget);
+        SyncStateStore stateStore = new SyncStateStore(athleteDirectory, clock, reconcileInterval);
+        SyncJournal journal = new SyncJournal(athleteDirectory, stateStore);
+        RollupService rollups = new RollupService(sheets);
+        SyncStravaService strava = new SyncStravaService(sheets,
+                new BudgetedStravaClient(new StravaHttpClient(settings, meterRegistry), stravaBudget),
+                settings, NO_EVENTS, rollups, stateStore, syncPipeline, journal, syncMetrics);
+        SyncGarminService garmin = new SyncGarminService(sheets,
+                new BudgetedGarminClient(new GarminHttpClient(settings, meterRegistry), garminBudget),
+                settings, clock, NO_EVENTS, rollups, stateStore, syncPipeline, journal, syncMetrics);
+        return new Tenant(athlete, new SyncAllService(strava, garmin));
+    }
+
+    private record Tenant(Athlete athlete, SyncAllService syncAll) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.bko.fitnessextractor.sync.app;
+
+/**
+ * The gap a sync left in a sheet when its fetch failed after some batches were written: newest rows
+ * first, so everything older than the last written row is missing. The next sync fetches the gap before
+ * anything else and inserts it below {@code anchor}.
+ *
+ * @param anchor     key of the oldest row the failed sync wrote; the gap goes below it
+ * @param resumeFrom where fetching picks up: the newest missing date for Garmin, the start time of the
+ *                   anchor activity for Strava
+ * @param until      the oldest date the failed fetch meant to reach, or {@code null} to go until rows
+ *                   already in the sheet come up
+ */
+record Backfill(String anchor, String resumeFrom, String until) {
+}
@@ -0,0 +1,65 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.integrations.garmin.GarminClientPort;
+import com.bko.fitnessextractor.integrations.garmin.GarminMetrics;
+import com.bko.fitnessextractor.integrations.garmin.GarminWellnessSample;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Charges Garmin usage to the shared Garmin {@link RateBudget}: one unit per login and per day fetched.
+ * The client fetches a day with several calls that cannot be told apart from outside, so the budget
+ * counts days and holds back the next day until it has room.
+ */
+final class BudgetedGarminClient implements GarminClientPort {
+    private final GarminClientPort delegate;
+    private final RateBudget budget;
+
+    BudgetedGarminClient(GarminClientPort delegate, RateBudget budget) {
+        this.delegate = delegate;
+        this.budget = budget;
+    }
+
+    @Override
+    public void login() throws IOException {
+        budget.spend();
+        delegate.login();
+    }
+
+    @Override
+    public void streamMetricsForDays(LocalDate newest, int days, Consumer<GarminMetrics> onDay) throws IOException {
+        try {
+            delegate.streamMetricsForDays(newest, days, metrics -> {
+                onDay.accept(metrics);
+                spendBeforeNextDay();
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void streamWellnessSamplesForDays(LocalDate newest, int days, Consumer<List<GarminWellnessSample>> onDay)
+            throws IOException {
+        try {
+            delegate.streamWellnessSamplesForDays(newest, days, samples -> {
+                onDay.accept(samples);
+                spendBeforeNextDay();
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void spendBeforeNextDay() {
+        try {
+            budget.spend();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
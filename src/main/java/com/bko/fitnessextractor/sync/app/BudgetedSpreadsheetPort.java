@@ -0,0 +1,62 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.integrations.sheets.SpreadsheetPort;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Charges every Google Sheets request to the shared Sheets {@link RateBudget}.
+ */
+final class BudgetedSpreadsheetPort implements SpreadsheetPort {
+    private final SpreadsheetPort delegate;
+    private final RateBudget budget;
+
+    BudgetedSpreadsheetPort(SpreadsheetPort delegate, RateBudget budget) {
+        this.delegate = delegate;
+        this.budget = budget;
+    }
+
+    @Override
+    public List<List<Object>> getExistingValues(String range) throws IOException {
+        budget.spend();
+        return delegate.getExistingValues(range);
+    }
+
+    @Override
+    public void appendValues(String range, List<List<Object>> values) throws IOException {
+        budget.spend();
+        delegate.appendValues(range, values);
+    }
+
+    @Override
+    public void updateRow(String range, List<Object> values) throws IOException {
+        budget.spend();
+        delegate.updateRow(range, values);
+    }
+
+    @Override
+    public void updateRows(String sheetName, Map<Integer, List<Object>> rows) throws IOException {
+        budget.spend();
+        delegate.updateRows(sheetName, rows);
+    }
+
+    @Override
+    public void insertRows(String sheetName, int offset, List<List<Object>> values) throws IOException {
+        budget.spend();
+        delegate.insertRows(sheetName, offset, values);
+    }
+
+    @Override
+    public void ensureHeaders(String sheetName, List<Object> headers) throws IOException {
+        budget.spend();
+        delegate.ensureHeaders(sheetName, headers);
+    }
+
+    @Override
+    public void createSheet(String sheetName) throws IOException {
+        budget.spend();
+        delegate.createSheet(sheetName);
+    }
+}
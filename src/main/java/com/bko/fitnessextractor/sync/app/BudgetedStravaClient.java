@@ -0,0 +1,33 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.integrations.strava.StravaActivity;
+import com.bko.fitnessextractor.integrations.strava.StravaClientPort;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Charges every Strava request to the shared Strava {@link RateBudget}.
+ */
+final class BudgetedStravaClient implements StravaClientPort {
+    private final StravaClientPort delegate;
+    private final RateBudget budget;
+
+    BudgetedStravaClient(StravaClientPort delegate, RateBudget budget) {
+        this.delegate = delegate;
+        this.budget = budget;
+    }
+
+    @Override
+    public List<StravaActivity> getActivities(int page, int perPage, Instant after, Instant before) throws IOException {
+        budget.spend();
+        return delegate.getActivities(page, perPage, after, before);
+    }
+
+    @Override
+    public StravaActivity getActivity(Long id) throws IOException {
+        budget.spend();
+        return delegate.getActivity(id);
+    }
+}
@@ -17,7 +17,9 @@ public class CsvExportService implements ExportCsvUseCase {
     private static final List<SheetExport> SHEETS = List.of(
             new SheetExport("Strava Activities", "strava_activities.csv"),
             new SheetExport("Garmin Metrics", "garmin_metrics.csv"),
-            new SheetExport("Garmin Stress HR", "garmin_stress_hr.csv")
+            new SheetExport("Garmin Stress HR", "garmin_stress_hr.csv"),
+            new SheetExport(RollupService.WEEKLY_SHEET_NAME, "weekly_rollup.csv"),
+            new SheetExport(RollupService.MONTHLY_SHEET_NAME, "monthly_rollup.csv")
     );
 
     private final SpreadsheetPort spreadsheetPort;
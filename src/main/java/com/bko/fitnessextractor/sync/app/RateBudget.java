@@ -0,0 +1,84 @@
+package com.bko.fitnessextractor.sync.app;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Calls to one upstream API shared by every athlete: up to {@code requests} per {@code period}, refilled
+ * continuously. A call over budget reserves its place and waits until the budget covers it, so waiting
+ * callers go in the order they arrived.
+ */
+final class RateBudget {
+    private static final Logger logger = LoggerFactory.getLogger(RateBudget.class);
+
+    @FunctionalInterface
+    interface Sleeper {
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    private final String name;
+    private final double capacity;
+    private final double refillPerNano;
+    private final LongSupplier nanoTime;
+    private final Sleeper sleeper;
+    private double available;
+    private long refilledAt;
+
+    RateBudget(String name, int requests, Duration period, LongSupplier nanoTime, Sleeper sleeper) {
+        if (requests < 1 || period.isZero() || period.isNegative()) {
+            throw new IllegalArgumentException("Rate budget for " + name + " needs at least 1 request per positive period");
+        }
+        this.name = name;
+        this.capacity = requests;
+        this.refillPerNano = requests / (double) period.toNanos();
+        this.nanoTime = nanoTime;
+        this.sleeper = sleeper;
+        this.available = requests;
+        this.refilledAt = nanoTime.getAsLong();
+    }
+
+    /**
+     * Parses {@code "<requests>/<ISO-8601 period>"}, e.g. {@code "100/PT15M"}.
+     */
+    static RateBudget parse(String name, String spec) {
+        String[] parts = spec.trim().split("/");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Rate budget for " + name + " must look like 100/PT15M");
+        }
+        return new RateBudget(name, Integer.parseInt(parts[0].trim()), Duration.parse(parts[1].trim()),
+                System::nanoTime, TimeUnit.NANOSECONDS::sleep);
+    }
+
+    void acquire() throws InterruptedException {
+        long wait;
+        synchronized (this) {
+            long now = nanoTime.getAsLong();
+            available = Math.min(capacity, available + (now - refilledAt) * refillPerNano);
+            refilledAt = now;
+            available -= 1;
+            if (available >= 0) {
+                return;
+            }
+            wait = (long) Math.ceil(-available / refillPerNano);
+        }
+        logger.debug("{} rate budget spent, waiting {} ms", name, TimeUnit.NANOSECONDS.toMillis(wait));
+        sleeper.sleep(wait);
+    }
+
+    /**
+     * {@link #acquire()} for callers that report interruption as an {@link java.io.IOException}.
+     */
+    void spend() throws InterruptedIOException {
+        try {
+            acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the " + name + " rate budget");
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.integrations.sheets.SpreadsheetPort;
+import com.bko.fitnessextractor.sync.PeriodTotals;
+import com.bko.fitnessextractor.sync.RollupQueryUseCase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Maintains the "Weekly Rollup" and "Monthly Rollup" tabs.
+ * <p>
+ * Only the periods touched by a sync are rewritten, each recomputed from the raw sheets rather
+ * than adjusted by a delta, so a refresh that failed or was interrupted is repaired by running it
+ * again. A rollup tab with no data rows is rebuilt once from the raw sheets. Tabs list periods newest first; a new
+ * period, including one older than the latest (a backfilled or late activity), goes in its place.
+ * <p>
+ * The same tabs are the read side for weekly and monthly totals: reading them costs one small range instead
+ * of a scan of the raw sheets.
+ */
+@Service
+public class RollupService implements RollupQueryUseCase {
+    static final String WEEKLY_SHEET_NAME = "Weekly Rollup";
+    static final String MONTHLY_SHEET_NAME = "Monthly Rollup";
+    private static final Logger logger = LoggerFactory.getLogger(RollupService.class);
+    private static final String STRAVA_RANGE = "Strava Activities!A:G";
+    private static final String GARMIN_RANGE = "Garmin Metrics!A:H";
+    private static final int FIRST_DATA_ROW = 2;
+    private static final List<Object> HEADERS = List.of(
+            "Period", "Start", "End", "Activities", "Distance (m)", "Moving Time (s)", "Avg Resting HR", "Avg Sleep (h)"
+    );
+
+    private final SpreadsheetPort spreadsheetPort;
+
+    public RollupService(SpreadsheetPort spreadsheetPort) {
+        this.spreadsheetPort = spreadsheetPort;
+    }
+
+    @Override
+    public List<PeriodTotals> weeklyTotals(int limit) throws IOException {
+        return totals(Granularity.WEEK, limit);
+    }
+
+    @Override
+    public List<PeriodTotals> monthlyTotals(int limit) throws IOException {
+        return totals(Granularity.MONTH, limit);
+    }
+
+    /**
+     * Recomputes every period containing one of {@code dates} from the raw sheets, after activities on
+     * those days were written to the Strava sheet.
+     *
+     * @return whether both tabs were brought up to date; if not, the same dates should be refreshed again
+     */
+    public synchronized boolean refreshActivities(Collection<LocalDate> dates, SyncReport report) {
+        return refresh(dates, report, (raw, granularity, start, stored) -> raw.periodRow(granularity, start));
+    }
+
+    /**
+     * Recomputes the Garmin averages of every period containing one of {@code dates}.
+     *
+     * @return whether both tabs were brought up to date; if not, the same dates should be refreshed again
+     */
+    public synchronized boolean refreshDailyMetrics(Collection<LocalDate> dates, SyncReport report) {
+        return refresh(dates, report, (raw, granularity, start, stored) -> stored == null
+                ? raw.periodRow(granularity, start)
+                : stored.withAverages(raw.garminAverages(granularity, start)));
+    }
+
+    /**
+     * Rewrites the touched periods with values derived from the raw sheets alone, never from what the tab
+     * held before, so a refresh that failed or was cut short can simply be repeated.
+     */
+    private boolean refresh(Collection<LocalDate> dates, SyncReport report, PeriodUpdate update) {
+        if (dates.isEmpty()) {
+            return true;
+        }
+        boolean refreshed = true;
+        RawData raw = new RawData();
+        for (Granularity granularity : Granularity.values()) {
+            try {
+                RollupTable table = loadTable(granularity);
+                if (table.isEmpty()) {
+                    rebuild(granularity, raw, report);
+                    continue;
+                }
+                TreeSet<LocalDate> starts = new TreeSet<>();
+                dates.forEach(date -> starts.add(granularity.start(date)));
+
+                Map<Integer, List<Object>> updates = new HashMap<>();
+                List<PeriodRow> inserts = new ArrayList<>();
+                for (LocalDate start : starts) {
+                    String period = granularity.label(start);
+                    Integer rowIndex = table.rowIndex(period);
+                    PeriodRow row = update.apply(raw, granularity, start, table.row(period));
+                    if (rowIndex != null) {
+                        updates.put(rowIndex, row.toRow());
+                    } else {
+                        inserts.add(row);
+                    }
+                }
+                write(granularity, table, updates, inserts);
+            } catch (Exception e) {
+                refreshed = false;
+                logger.warn("Could not update {}", granularity.sheetName, e);
+                report.warn("Could not update " + granularity.sheetName + ": " + e.getMessage());
+            }
+        }
+        return refreshed;
+    }
+
+    private void rebuild(Granularity granularity, RawData raw, SyncReport report) throws IOException {
+        TreeSet<LocalDate> starts = new TreeSet<>();
+        raw.stravaDays().keySet().forEach(date -> starts.add(granularity.start(date)));
+        raw.garminDays().keySet().forEach(date -> starts.add(granularity.start(date)));
+        List<PeriodRow> rows = new ArrayList<>();
+        for (LocalDate start : starts) {
+            rows.add(raw.periodRow(granularity, start));
+        }
+        if (!rows.isEmpty()) {
+            write(granularity, new RollupTable(), Map.of(), rows);
+            report.info("Rebuilt " + granularity.sheetName + " with " + rows.size() + " periods.");
+        }
+    }
+
+    private void write(Granularity granularity,
+                       RollupTable table,
+                       Map<Integer, List<Object>> updates,
+                       List<PeriodRow> inserts) throws IOException {
+        if (!updates.isEmpty()) {
+            // Update before inserting new rows so row indices remain valid.
+            spreadsheetPort.updateRows(granularity.sheetName, updates);
+        }
+        TreeMap<Integer, List<List<Object>>> rowsByOffset = new TreeMap<>();
+        inserts.stream()
+                .sorted(Comparator.comparing(PeriodRow::start).reversed())
+                .forEach(row -> rowsByOffset.computeIfAbsent(table.offsetFor(row.start()), key -> new ArrayList<>())
+                        .add(row.toRow()));
+        // Lowest block first, so inserting it does not move the rows the blocks above go next to.
+        for (Map.Entry<Integer, List<List<Object>>> block : rowsByOffset.descendingMap().entrySet()) {
+            if (block.getKey() == 0) {
+                spreadsheetPort.insertRowsAtTop(granularity.sheetName, block.getValue());
+            } else {
+                spreadsheetPort.insertRows(granularity.sheetName, block.getKey(), block.getValue());
+            }
+        }
+        if (!updates.isEmpty() || !inserts.isEmpty()) {
+            logger.info("{}: {} periods updated, {} added.", granularity.sheetName, updates.size(), inserts.size());
+        }
+    }
+
+    private List<PeriodTotals> totals(Granularity granularity, int limit) throws IOException {
+        List<List<Object>> rows = spreadsheetPort.getExistingValues(granularity.sheetName + "!A:H");
+        List<PeriodTotals> totals = new ArrayList<>();
+        if (rows == null) {
+            return totals;
+        }
+        for (List<Object> row : rows) {
+            if (totals.size() >= limit) {
+                break;
+            }
+            if (row.isEmpty() || HEADERS.get(0).equals(row.get(0).toString())) {
+                continue;
+            }
+            PeriodRow parsed = PeriodRow.fromRow(row);
+            if (parsed != null) {
+                totals.add(parsed.toTotals());
+            }
+        }
+        return totals;
+    }
+
+    private RollupTable loadTable(Granularity granularity) throws IOException {
+        spreadsheetPort.createSheet(granularity.sheetName);
+        spreadsheetPort.ensureHeaders(granularity.sheetName, HEADERS);
+        List<List<Object>> rows = spreadsheetPort.getExistingValues(granularity.sheetName + "!A:H");
+        RollupTable table = new RollupTable();
+        if (rows == null) {
+            return table;
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            List<Object> row = rows.get(i);
+            if (row.isEmpty() || HEADERS.get(0).equals(row.get(0).toString())) {
+                continue;
+            }
+            PeriodRow parsed = PeriodRow.fromRow(row);
+            if (parsed != null) {
+                table.put(parsed, i + 1);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * The day a sheet value such as a Strava start date or a Garmin date falls on, as the rollups count it.
+     */
+    static LocalDate parseDate(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        if (text.length() < 10) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(text.substring(0, 10));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static double parseNumber(List<Object> row, int index) {
+        Double value = parseNullableNumber(row, index);
+        return value == null ? 0.0 : value;
+    }
+
+    private static Double parseNullableNumber(List<Object> row, int index) {
+        if (index >= row.size() || row.get(index) == null) {
+            return null;
+        }
+        String text = row.get(index).toString().trim().replace(",", "");
+        if (text.isEmpty()) {
+            return null;
+        }
+        try {
+            return Double.valueOf(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Double round(Double value, double scale) {
+        return value == null ? null : Math.round(value * scale) / scale;
+    }
+
+    enum Granularity {
+        WEEK(WEEKLY_SHEET_NAME) {
+            @Override
+            LocalDate start(LocalDate date) {
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            }
+
+            @Override
+            LocalDate end(LocalDate start) {
+                return start.plusDays(6);
+            }
+
+            @Override
+            String label(LocalDate start) {
+                return String.format("%d-W%02d", start.get(IsoFields.WEEK_BASED_YEAR), start.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            }
+        },
+        MONTH(MONTHLY_SHEET_NAME) {
+            @Override
+            LocalDate start(LocalDate date) {
+                return date.withDayOfMonth(1);
+            }
+
+            @Override
+            LocalDate end(LocalDate start) {
+                return start.with(TemporalAdjusters.lastDayOfMonth());
+            }
+
+            @Override
+            String label(LocalDate start) {
+                return start.toString().substring(0, 7);
+            }
+        };
+
+        private final String sheetName;
+
+        Granularity(String sheetName) {
+            this.sheetName = sheetName;
+        }
+
+        abstract LocalDate start(LocalDate date);
+
+        abstract LocalDate end(LocalDate start);
+
+        abstract String label(LocalDate start);
+    }
+
+    /**
+     * Raw sheet contents, read at most once per rollup update and only when a period must be recomputed.
+     */
+    private final class RawData {
+        private NavigableMap<LocalDate, ActivityTotals> stravaDays;
+        private NavigableMap<LocalDate, double[]> garminDays;
+
+        NavigableMap<LocalDate, ActivityTotals> stravaDays() throws IOException {
+            if (stravaDays == null) {
+                stravaDays = new TreeMap<>();
+                List<List<Object>> rows = spreadsheetPort.getExistingValues(STRAVA_RANGE);
+                if (rows != null) {
+                    for (List<Object> row : rows) {
+                        LocalDate date = row.size() > 6 ? parseDate(row.get(6)) : null;
+                        if (date != null) {
+                            stravaDays.computeIfAbsent(date, key -> new ActivityTotals())
+                                    .add(parseNullableNumber(row, 3), parseNullableNumber(row, 4));
+                        }
+                    }
+                }
+            }
+            return stravaDays;
+        }
+
+        /**
+         * Resting HR and sleep duration per day; {@code NaN} marks a missing value.
+         */
+        NavigableMap<LocalDate, double[]> garminDays() throws IOException {
+            if (garminDays == null) {
+                garminDays = new TreeMap<>();
+                List<List<Object>> rows = spreadsheetPort.getExistingValues(GARMIN_RANGE);
+                if (rows != null) {
+                    for (List<Object> row : rows) {
+                        LocalDate date = row.isEmpty() ? null : parseDate(row.get(0));
+                        if (date != null) {
+                            Double restingHr = parseNullableNumber(row, 5);
+                            Double sleep = parseNullableNumber(row, 7);
+                            garminDays.putIfAbsent(date, new double[] {
+                                    restingHr == null || restingHr <= 0 ? Double.NaN : restingHr,
+                                    sleep == null || sleep <= 0 ? Double.NaN : sleep
+                            });
+                        }
+                    }
+                }
+            }
+            return garminDays;
+        }
+
+        DailyAverages garminAverages(Granularity granularity, LocalDate start) throws IOException {
+            double restingSum = 0;
+            int restingDays = 0;
+            double sleepSum = 0;
+            int sleepDays = 0;
+            Map<LocalDate, double[]> days = garminDays().subMap(start, true, granularity.end(start), true);
+            for (double[] values : days.values()) {
+                if (!Double.isNaN(values[0])) {
+                    restingSum += values[0];
+                    restingDays++;
+                }
+                if (!Double.isNaN(values[1])) {
+                    sleepSum += values[1];
+                    sleepDays++;
+                }
+            }
+            return new DailyAverages(
+                    restingDays == 0 ? null : restingSum / restingDays,
+                    sleepDays == 0 ? null : sleepSum / sleepDays
+            );
+        }
+
+        PeriodRow periodRow(Granularity granularity, LocalDate start) throws IOException {
+            ActivityTotals totals = new ActivityTotals();
+            stravaDays().subMap(start, true, granularity.end(start), true).values().forEach(totals::add);
+            return new PeriodRow(granularity.label(start), start, granularity.end(start),
+                    totals.count, totals.distance, totals.movingTime, null, null)
+                    .withAverages(garminAverages(granularity, start));
+        }
+    }
+
+    private static final class ActivityTotals {
+        private int count;
+        private double distance;
+        private double movingTime;
+
+        void add(Double distanceMeters, Number movingTimeSeconds) {
+            count++;
+            distance += distanceMeters == null ? 0.0 : distanceMeters;
+            movingTime += movingTimeSeconds == null ? 0.0 : movingTimeSeconds.doubleValue();
+        }
+
+        void add(ActivityTotals other) {
+            count += other.count;
+            distance += other.distance;
+            movingTime += other.movingTime;
+        }
+    }
+
+    @FunctionalInterface
+    private interface PeriodUpdate {
+        PeriodRow apply(RawData raw, Granularity granularity, LocalDate start, PeriodRow stored) throws IOException;
+    }
+
+    private record DailyAverages(Double restingHeartRate, Double sleepHours) {
+    }
+
+    private static final class RollupTable {
+        private final Map<String, PeriodRow> rows = new HashMap<>();
+        private final Map<String, Integer> rowIndexes = new HashMap<>();
+        private int lastRowIndex = FIRST_DATA_ROW - 1;
+
+        void put(PeriodRow row, int rowIndex) {
+            if (rowIndexes.putIfAbsent(row.period(), rowIndex) == null) {
+                rows.put(row.period(), row);
+            }
+            lastRowIndex = Math.max(lastRowIndex, rowIndex);
+        }
+
+        /**
+         * Data rows above where a period starting on {@code start} belongs: right above the first older
+         * period, or below all of them.
+         */
+        int offsetFor(LocalDate start) {
+            int rowIndex = lastRowIndex + 1;
+            for (PeriodRow row : rows.values()) {
+                int existing = rowIndexes.get(row.period());
+                if (row.start().isBefore(start) && existing < rowIndex) {
+                    rowIndex = existing;
+                }
+            }
+            return rowIndex - FIRST_DATA_ROW;
+        }
+
+        boolean isEmpty() {
+            return rows.isEmpty();
+        }
+
+        Integer rowIndex(String period) {
+            return rowIndexes.get(period);
+        }
+
+        PeriodRow row(String period) {
+            return rows.get(period);
+        }
+    }
+
+    private record PeriodRow(String period,
+                             LocalDate start,
+                             LocalDate end,
+                             int activities,
+                             double distanceMeters,
+                             double movingTimeSeconds,
+                             Double averageRestingHeartRate,
+                             Double averageSleepHours) {
+
+        static PeriodRow fromRow(List<Object> row) {
+            LocalDate start = row.size() > 1 ? parseDate(row.get(1)) : null;
+            LocalDate end = row.size() > 2 ? parseDate(row.get(2)) : null;
+            if (start == null || end == null) {
+                return null;
+            }
+            return new PeriodRow(row.get(0).toString(), start, end,
+                    (int) parseNumber(row, 3), parseNumber(row, 4), parseNumber(row, 5),
+                    parseNullableNumber(row, 6), parseNullableNumber(row, 7));
+        }
+
+        PeriodRow withAverages(DailyAverages averages) {
+            return new PeriodRow(period, start, end, activities, distanceMeters, movingTimeSeconds,
+                    averages.restingHeartRate(), averages.sleepHours());
+        }
+
+        PeriodTotals toTotals() {
+            return new PeriodTotals(period, start, end, activities, round(distanceMeters, 10.0),
+                    Math.round(movingTimeSeconds), round(averageRestingHeartRate, 10.0), round(averageSleepHours, 100.0));
+        }
+
+        List<Object> toRow() {
+            Double restingHr = round(averageRestingHeartRate, 10.0);
+            Double sleep = round(averageSleepHours, 100.0);
+            return List.of(
+                    period,
+                    start.toString(),
+                    end.toString(),
+                    activities,
+                    round(distanceMeters, 10.0),
+                    Math.round(movingTimeSeconds),
+                    restingHr == null ? "" : restingHr,
+                    sleep == null ? "" : sleep
+            );
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.bko.fitnessextractor.sync.app;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a sync remembers about one sheet: the row of every known key and the latest synced value
+ * (a date, for the Garmin sheets). Kept in step with the writes the sync makes, so a steady-state sync
+ * does not need to read the sheet back.
+ */
+final class SheetIndex {
+    private static final int FIRST_DATA_ROW = 2;
+
+    private final Instant reconciledAt;
+    private final Map<String, Integer> rows;
+    private String highWaterMark;
+
+    SheetIndex(Instant reconciledAt, Map<String, Integer> rows, String highWaterMark) {
+        this.reconciledAt = reconciledAt;
+        this.rows = new LinkedHashMap<>(rows);
+        this.highWaterMark = highWaterMark;
+    }
+
+    /**
+     * Builds the index from the sheet's rows as read from column A onwards; row numbers are 1-based.
+     * Blank keys and the header are skipped.
+     */
+    static SheetIndex fromRows(List<List<Object>> values, int keyColumn, String header, Instant reconciledAt) {
+        Map<String, Integer> rows = new LinkedHashMap<>();
+        if (values != null) {
+            for (int i = 0; i < values.size(); i++) {
+                List<Object> row = values.get(i);
+                if (row.size() <= keyColumn) {
+                    continue;
+                }
+                String key = row.get(keyColumn).toString();
+                if (!key.isBlank() && !key.equalsIgnoreCase(header)) {
+                    rows.putIfAbsent(key, i + 1);
+                }
+            }
+        }
+        return new SheetIndex(reconciledAt, rows, null);
+    }
+
+    /**
+     * Whether the {@code count} data rows from {@code offset} are empty in rows read from column A onwards,
+     * as an insert leaves them when it dies before their values are written. Blank rows at the end of the
+     * sheet are not reported back, so only a blank block with data below it counts.
+     */
+    static boolean blankRows(List<List<Object>> values, int offset, int count) {
+        int end = FIRST_DATA_ROW - 1 + offset + count;
+        if (count == 0 || values == null || values.size() <= end) {
+            return false;
+        }
+        for (int i = FIRST_DATA_ROW - 1 + offset; i < end; i++) {
+            if (values.get(i).stream().anyMatch(cell -> cell != null && !cell.toString().isBlank())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean contains(String key) {
+        return rows.containsKey(key);
+    }
+
+    Integer rowOf(String key) {
+        return rows.get(key);
+    }
+
+    int size() {
+        return rows.size();
+    }
+
+    Instant reconciledAt() {
+        return reconciledAt;
+    }
+
+    Map<String, Integer> rows() {
+        return rows;
+    }
+
+    String highWaterMark() {
+        return highWaterMark;
+    }
+
+    void highWaterMark(String highWaterMark) {
+        this.highWaterMark = highWaterMark;
+    }
+
+    /**
+     * Records rows inserted below the header, in the order given; every existing data row moves down.
+     */
+    void insertedAtTop(List<String> keys) {
+        inserted(0, keys);
+    }
+
+    /**
+     * Records rows inserted below the header and the first {@code offset} data rows, in the order given.
+     */
+    void inserted(int offset, List<String> keys) {
+        int count = keys.size();
+        int firstRow = FIRST_DATA_ROW + offset;
+        rows.replaceAll((key, row) -> row >= firstRow ? row + count : row);
+        for (int i = 0; i < count; i++) {
+            rows.put(keys.get(i), firstRow + i);
+        }
+    }
+
+    /**
+     * Records keys written into existing rows from {@code offset} on; nothing moves.
+     */
+    void filled(int offset, List<String> keys) {
+        for (int i = 0; i < keys.size(); i++) {
+            rows.put(keys.get(i), FIRST_DATA_ROW + offset + i);
+        }
+    }
+
+    /**
+     * The offset at which rows go right below the row of {@code key}, or {@code null} if the key is unknown.
+     */
+    Integer offsetBelow(String key) {
+        Integer row = rows.get(key);
+        return row == null ? null : row - FIRST_DATA_ROW + 1;
+    }
+
+    /**
+     * Forgets keys that sort before {@code minKey}; they can no longer collide with fetched data.
+     */
+    void retainFrom(String minKey) {
+        rows.keySet().removeIf(key -> key.compareTo(minKey) < 0);
+    }
+
+    SheetIndex copy() {
+        return new SheetIndex(reconciledAt, rows, highWaterMark);
+    }
+}
@@ -0,0 +1,45 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.sync.SyncGarminUseCase;
+import com.bko.fitnessextractor.sync.SyncProgressListener;
+import com.bko.fitnessextractor.sync.SyncStravaUseCase;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * The Strava and Garmin syncs as everything else sees them: each source runs at most once at a time,
+ * with overlapping requests sharing a run (see {@link SyncSingleFlight}). Without this, two overlapping
+ * syncs would both insert the same new rows at the top of the sheet.
+ */
+@Primary
+@Service
+public class SingleFlightSyncService implements SyncStravaUseCase, SyncGarminUseCase {
+    private final SyncStravaService syncStravaService;
+    private final SyncGarminService syncGarminService;
+    private final SyncSingleFlight strava;
+    private final SyncSingleFlight garmin;
+
+    public SingleFlightSyncService(SyncStravaService syncStravaService,
+                                   SyncGarminService syncGarminService,
+                                   Clock clock,
+                                   @Value("${sync.single-flight.join-window:PT15S}") Duration joinWindow) {
+        this.syncStravaService = syncStravaService;
+        this.syncGarminService = syncGarminService;
+        this.strava = new SyncSingleFlight("Strava", clock, joinWindow);
+        this.garmin = new SyncSingleFlight("Garmin", clock, joinWindow);
+    }
+
+    @Override
+    public SyncReport syncStrava(SyncProgressListener progressListener) {
+        return strava.run(progressListener, syncStravaService::syncStrava);
+    }
+
+    @Override
+    public SyncReport syncGarmin(SyncProgressListener progressListener) {
+        return garmin.run(progressListener, syncGarminService::syncGarmin);
+    }
+}
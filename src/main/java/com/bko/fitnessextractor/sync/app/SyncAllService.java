@@ -2,11 +2,28 @@ package com.bko.fitnessextractor.sync.app;
 
 import com.bko.fitnessextractor.sync.SyncAllUseCase;
 import com.bko.fitnessextractor.sync.SyncGarminUseCase;
+import com.bko.fitnessextractor.sync.SyncProgressListener;
 import com.bko.fitnessextractor.sync.SyncStravaUseCase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the Strava and Garmin syncs side by side on virtual threads. They call different APIs and write
+ * different tabs, so a full sync takes as long as the slower source rather than both added up.
+ * <p>
+ * Each source keeps its own failure handling; an unexpected exception from one is recorded as an error
+ * and does not stop the other. Reports are merged in a fixed order (Strava, then Garmin).
+ */
 @Service
 public class SyncAllService implements SyncAllUseCase {
+    private static final Logger logger = LoggerFactory.getLogger(SyncAllService.class);
+
     private final SyncStravaUseCase syncStravaUseCase;
     private final SyncGarminUseCase syncGarminUseCase;
 
@@ -16,10 +33,33 @@ public class SyncAllService implements SyncAllUseCase {
     }
 
     @Override
-    public SyncReport syncAll() {
+    public SyncReport syncAll(SyncProgressListener progressListener) {
+        SyncReport report = new SyncReport();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<SyncReport> strava = executor.submit(() -> syncStravaUseCase.syncStrava(progressListener));
+            Future<SyncReport> garmin = executor.submit(() -> syncGarminUseCase.syncGarmin(progressListener));
+            report.merge(await("Strava", strava));
+            report.merge(await("Garmin", garmin));
+        }
+        return report;
+    }
+
+    private SyncReport await(String source, Future<SyncReport> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return failed(source, "interrupted");
+        } catch (ExecutionException e) {
+            logger.error("{} sync failed", source, e.getCause());
+            return failed(source, e.getCause().getMessage());
+        }
+    }
+
+    private static SyncReport failed(String source, String reason) {
         SyncReport report = new SyncReport();
-        report.merge(syncStravaUseCase.syncStrava());
-        report.merge(syncGarminUseCase.syncGarmin());
+        report.error(source + " sync failed: " + reason);
         return report;
     }
 }
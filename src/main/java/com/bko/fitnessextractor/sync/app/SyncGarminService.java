@@ -5,18 +5,27 @@ import com.bko.fitnessextractor.integrations.garmin.GarminMetrics;
 import com.bko.fitnessextractor.integrations.garmin.GarminWellnessSample;
 import com.bko.fitnessextractor.integrations.sheets.SpreadsheetPort;
 import com.bko.fitnessextractor.shared.AppSettings;
+import com.bko.fitnessextractor.sync.GarminMetricsSynced;
+import com.bko.fitnessextractor.sync.GarminWellnessSynced;
 import com.bko.fitnessextractor.sync.SyncGarminUseCase;
+import com.bko.fitnessextractor.sync.SyncProgressListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.time.Clock;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.time.temporal.ChronoUnit.DAYS;
 
@@ -26,25 +35,44 @@ public class SyncGarminService implements SyncGarminUseCase {
     private static final String SHEET_NAME = "Garmin Metrics";
     private static final String WELLNESS_SHEET_NAME = "Garmin Stress HR";
     private static final int WELLNESS_DEFAULT_DAYS = 30;
+    private static final String SOURCE = "garmin";
 
     private final SpreadsheetPort spreadsheetPort;
     private final GarminClientPort garminClientPort;
     private final AppSettings appSettings;
     private final Clock clock;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RollupService rollupService;
+    private final SyncStateStore syncStateStore;
+    private final SyncPipeline syncPipeline;
+    private final SyncJournal syncJournal;
+    private final SyncMetrics syncMetrics;
 
     public SyncGarminService(SpreadsheetPort spreadsheetPort,
                              GarminClientPort garminClientPort,
                              AppSettings appSettings,
-                             Clock clock) {
+                             Clock clock,
+                             ApplicationEventPublisher eventPublisher,
+                             RollupService rollupService,
+                             SyncStateStore syncStateStore,
+                             SyncPipeline syncPipeline,
+                             SyncJournal syncJournal,
+                             SyncMetrics syncMetrics) {
         this.spreadsheetPort = spreadsheetPort;
         this.garminClientPort = garminClientPort;
         this.appSettings = appSettings;
         this.clock = clock;
+        this.eventPublisher = eventPublisher;
+        this.rollupService = rollupService;
+        this.syncStateStore = syncStateStore;
+        this.syncPipeline = syncPipeline;
+        this.syncJournal = syncJournal;
+        this.syncMetrics = syncMetrics;
     }
 
     @Override
-    public SyncReport syncGarmin() {
-        SyncReport report = new SyncReport();
+    public SyncReport syncGarmin(SyncProgressListener progressListener) {
+        SyncReport report = new SyncReport(progressListener);
         report.setGarminAttempted(true);
 
         if (!appSettings.isGoogleConfigured()) {
@@ -56,11 +84,12 @@ public class SyncGarminService implements SyncGarminUseCase {
             return report;
         }
 
+        SyncMetrics.Span total = syncMetrics.start(SOURCE, SyncMetrics.TOTAL);
         try {
             logger.info("Starting Garmin sync...");
             report.info("Starting Garmin sync...");
 
-            garminClientPort.login();
+            syncMetrics.run(SOURCE, "login", garminClientPort::login);
 
             LocalDate today = LocalDate.now(clock);
             syncGarminMetrics(report, today);
@@ -76,37 +105,75 @@ public class SyncGarminService implements SyncGarminUseCase {
             logger.error("Garmin sync failed", e);
             report.error("Garmin sync failed: " + e.getMessage());
         }
+        total.end(report.isSuccess());
 
         return report;
     }
 
-    private void syncGarminMetrics(SyncReport report, LocalDate today) throws Exception {
-        spreadsheetPort.createSheet(SHEET_NAME);
-        spreadsheetPort.ensureHeaders(SHEET_NAME, GarminMetrics.getHeaders());
+    /**
+     * Writes the batches a crashed or failed sync journaled but did not finish, skipping rows that made it
+     * into the sheets.
+     */
+    int recoverJournal(SyncReport report) throws Exception {
+        return recoverMetricsJournal(report) + recoverWellnessJournal(report);
+    }
 
-        List<List<Object>> existingData = null;
-        try {
-            existingData = spreadsheetPort.getExistingValues(SHEET_NAME + "!A:I");
-        } catch (Exception e) {
-            logger.warn("Could not fetch existing Garmin data: {}", e.getMessage());
+    private int recoverMetricsJournal(SyncReport report) throws Exception {
+        int replayed = syncJournal.recover(SHEET_NAME, MetricsBatch.class, batch -> {
+            List<List<Object>> values = spreadsheetPort.getExistingValues(SHEET_NAME + "!A:I");
+            SheetIndex index = syncStateStore.reconcile(values, 0, GarminMetrics.getHeaders().getFirst().toString());
+            long missing = batch.metrics().stream().filter(metrics -> !index.contains(metrics.getDate())).count();
+            writeMetrics(batch.metrics(), index, batch.today(), new AtomicInteger(batch.offset()),
+                    SheetIndex.blankRows(values, batch.offset(), (int) missing), report);
+        });
+        if (replayed > 0) {
+            report.info("Replayed " + replayed + " unfinished Garmin metrics batches from the sync journal.");
         }
+        return replayed;
+    }
 
-        LocalDate latestDate = null;
-        Map<String, Integer> dateToRowIndex = new HashMap<>();
+    private int recoverWellnessJournal(SyncReport report) throws Exception {
+        int replayed = syncJournal.recover(WELLNESS_SHEET_NAME, WellnessBatch.class, batch -> {
+            List<List<Object>> values = spreadsheetPort.getExistingValues(WELLNESS_SHEET_NAME + "!A:D");
+            SheetIndex index = syncStateStore.reconcile(values, 1, GarminWellnessSample.getHeaders().get(1).toString());
+            long missing = batch.days().stream()
+                    .flatMap(List::stream)
+                    .map(GarminWellnessSample::getTimestamp)
+                    .filter(timestamp -> timestamp != null && !timestamp.isBlank() && !index.contains(timestamp))
+                    .count();
+            WellnessTotals totals = new WellnessTotals();
+            totals.offset = batch.offset();
+            writeWellnessSamples(batch.days(), index, batch.today(), totals,
+                    SheetIndex.blankRows(values, batch.offset(), (int) missing), report);
+        });
+        if (replayed > 0) {
+            report.info("Replayed " + replayed + " unfinished Garmin stress/HR batches from the sync journal.");
+        }
+        return replayed;
+    }
 
-        if (existingData != null) {
-            for (int i = 0; i < existingData.size(); i++) {
-                List<Object> row = existingData.get(i);
-                if (!row.isEmpty()) {
-                    String dateStr = row.get(0).toString();
-                    dateToRowIndex.putIfAbsent(dateStr, i + 1);
-                    LocalDate parsed = tryParseDate(dateStr);
-                    if (parsed != null && (latestDate == null || parsed.isAfter(latestDate))) {
-                        latestDate = parsed;
-                    }
-                }
+    private void syncGarminMetrics(SyncReport report, LocalDate today) throws Exception {
+        syncMetrics.call(SOURCE, "recover", () -> recoverMetricsJournal(report));
+        SheetIndex index = syncStateStore.find(SHEET_NAME);
+        syncMetrics.indexLookup(index != null);
+        boolean indexTrusted = true;
+        if (index == null) {
+            SyncMetrics.Span reconcile = syncMetrics.start(SOURCE, "metrics.reconcile");
+            spreadsheetPort.createSheet(SHEET_NAME);
+            spreadsheetPort.ensureHeaders(SHEET_NAME, GarminMetrics.getHeaders());
+
+            List<List<Object>> existingData = null;
+            try {
+                existingData = spreadsheetPort.getExistingValues(SHEET_NAME + "!A:I");
+            } catch (Exception e) {
+                logger.warn("Could not fetch existing Garmin data: {}", e.getMessage());
+                indexTrusted = false;
             }
+            index = syncStateStore.reconcile(existingData, 0, GarminMetrics.getHeaders().getFirst().toString());
+            index.highWaterMark(latestDate(index.rows().keySet(), null));
+            reconcile.end(indexTrusted);
         }
+        LocalDate latestDate = tryParseDate(index.highWaterMark());
 
         int daysToFetch;
         if (latestDate != null) {
@@ -121,59 +188,161 @@ public class SyncGarminService implements SyncGarminUseCase {
             report.info("No existing data found. Fetching last " + daysToFetch + " days.");
         }
 
-        List<GarminMetrics> allMetrics = garminClientPort.getMetricsForLastDays(daysToFetch);
-        List<List<Object>> newMetrics = new ArrayList<>();
+        String todayKey = today.toString();
+        AtomicInteger fetched = new AtomicInteger();
+        try {
+            Backfill backfill = syncStateStore.backfill(SHEET_NAME);
+            if (backfill != null) {
+                LocalDate from = LocalDate.parse(backfill.resumeFrom());
+                LocalDate until = LocalDate.parse(backfill.until());
+                report.info("Resuming Garmin metrics backfill from " + from + " back to " + until + ".");
+                fetchMetrics(from, until, offsetBelow(index, backfill), index, todayKey, fetched, report);
+                syncStateStore.backfill(SHEET_NAME, null);
+            }
+            fetchMetrics(today, today.minusDays(daysToFetch - 1), 0, index, todayKey, fetched, report);
+        } catch (Exception e) {
+            syncStateStore.invalidate(SHEET_NAME);
+            syncJournal.release(SHEET_NAME);
+            throw e;
+        } finally {
+            // Also picks up days whose rollups an earlier sync could not update.
+            refreshRollups(report);
+        }
+        saveIndex(SHEET_NAME, index, indexTrusted);
+        syncJournal.finish(SHEET_NAME);
+    }
+
+    /**
+     * Fetches the days from {@code newest} back to {@code oldest} and inserts the new ones from {@code offset}
+     * down. If the fetch fails, the days it did not get to are left as the sheet's {@link Backfill}.
+     */
+    private void fetchMetrics(LocalDate newest,
+                              LocalDate oldest,
+                              int offset,
+                              SheetIndex index,
+                              String today,
+                              AtomicInteger fetched,
+                              SyncReport report) throws Exception {
+        int days = (int) DAYS.between(oldest, newest) + 1;
+        AtomicInteger inserted = new AtomicInteger(offset);
+        AtomicInteger journaledDays = new AtomicInteger();
+        AtomicReference<Backfill> reached = new AtomicReference<>();
+        try {
+            syncPipeline.<GarminMetrics>run(
+                    sink -> syncMetrics.run(SOURCE, "metrics.fetch",
+                            () -> garminClientPort.streamMetricsForDays(newest, days, metrics -> {
+                                sink.accept(metrics);
+                                report.progress(SOURCE, "days_fetched", fetched.incrementAndGet());
+                            })),
+                    batch -> syncJournal.write(SHEET_NAME, new MetricsBatch(inserted.get(), today, batch), () -> {
+                        // Journaled batches get written, by this sync or by the next one's replay.
+                        reached.set(new Backfill(batch.getLast().getDate(),
+                                newest.minusDays(journaledDays.addAndGet(batch.size())).toString(),
+                                oldest.toString()));
+                        writeMetrics(batch, index, today, inserted, false, report);
+                    }));
+        } catch (Exception e) {
+            leaveBackfill(SHEET_NAME, reached.get());
+            throw e;
+        }
+    }
 
-        for (GarminMetrics metrics : allMetrics) {
+    private void writeMetrics(List<GarminMetrics> batch,
+                              SheetIndex index,
+                              String today,
+                              AtomicInteger inserted,
+                              boolean fill,
+                              SyncReport report) throws IOException {
+        List<List<Object>> newMetrics = new ArrayList<>();
+        List<String> newDates = new ArrayList<>();
+        List<GarminMetrics> written = new ArrayList<>();
+
+        List<LocalDate> days = new ArrayList<>();
+        for (GarminMetrics metrics : batch) {
+            LocalDate date = tryParseDate(metrics.getDate());
+            if (date != null && (!index.contains(metrics.getDate()) || metrics.getDate().equals(today))) {
+                days.add(date);
+            }
+        }
+        syncStateStore.markRollupsStale(SHEET_NAME, days);
+        for (GarminMetrics metrics : batch) {
             String date = metrics.getDate();
-            if (dateToRowIndex.containsKey(date)) {
-                if (date.equals(today.toString())) {
-                    int rowIndex = dateToRowIndex.get(date);
-                    spreadsheetPort.updateRow(SHEET_NAME + "!A" + rowIndex, metrics.toRow());
+            Integer rowIndex = index.rowOf(date);
+            if (rowIndex != null) {
+                if (date.equals(today)) {
+                    syncMetrics.run(SOURCE, "metrics.write",
+                            () -> spreadsheetPort.updateRow(SHEET_NAME + "!A" + rowIndex, metrics.toRow()));
                     report.addGarminUpdated(1);
+                    written.add(metrics);
                 }
             } else {
                 newMetrics.add(metrics.toRow());
+                newDates.add(date);
+                written.add(metrics);
             }
         }
 
         if (!newMetrics.isEmpty()) {
-            spreadsheetPort.insertRowsAtTop(SHEET_NAME, newMetrics);
+            // Days arrive newest first, so each batch goes below the rows this sync already inserted.
+            if (fill) {
+                syncMetrics.run(SOURCE, "metrics.write", () -> spreadsheetPort.writeRows(SHEET_NAME, inserted.get(), newMetrics));
+                index.filled(inserted.get(), newDates);
+            } else {
+                syncMetrics.run(SOURCE, "metrics.write", () -> spreadsheetPort.insertRows(SHEET_NAME, inserted.get(), newMetrics));
+                index.inserted(inserted.get(), newDates);
+            }
+            index.highWaterMark(latestDate(newDates, index.highWaterMark()));
+            inserted.addAndGet(newMetrics.size());
             report.addGarminInserted(newMetrics.size());
         }
+        if (!written.isEmpty()) {
+            report.progress(SOURCE, "rows_written", report.getGarminInserted() + report.getGarminUpdated());
+            eventPublisher.publishEvent(new GarminMetricsSynced(written));
+        }
     }
 
-    private void syncGarminWellnessSamples(SyncReport report, LocalDate today) throws Exception {
-        spreadsheetPort.createSheet(WELLNESS_SHEET_NAME);
-        spreadsheetPort.ensureHeaders(WELLNESS_SHEET_NAME, GarminWellnessSample.getHeaders());
-
-        List<List<Object>> existingData = null;
-        try {
-            existingData = spreadsheetPort.getExistingValues(WELLNESS_SHEET_NAME + "!A:D");
-        } catch (Exception e) {
-            logger.warn("Could not fetch existing Garmin stress/HR data: {}", e.getMessage());
+    /**
+     * Refreshes the rollup periods of the days this sync wrote, and of days an earlier sync wrote but could
+     * not roll up. Runs once after the pipeline drains, so a backfill reads the raw sheets once, not per batch.
+     */
+    private void refreshRollups(SyncReport report) {
+        Set<LocalDate> days = syncStateStore.staleRollups(SHEET_NAME);
+        if (!days.isEmpty()
+                && syncMetrics.call(SOURCE, "rollups", () -> rollupService.refreshDailyMetrics(days, report))) {
+            syncStateStore.rollupsRefreshed(SHEET_NAME, days);
         }
+    }
 
-        LocalDate latestDate = null;
-        Map<String, Integer> timestampToRowIndex = new HashMap<>();
-
-        if (existingData != null) {
-            for (int i = 0; i < existingData.size(); i++) {
-                List<Object> row = existingData.get(i);
-                if (row.isEmpty()) {
-                    continue;
-                }
-                String dateStr = row.size() > 0 ? row.get(0).toString() : "";
-                LocalDate parsed = tryParseDate(dateStr);
-                if (parsed != null && (latestDate == null || parsed.isAfter(latestDate))) {
-                    latestDate = parsed;
-                }
-                String timestamp = row.size() > 1 ? row.get(1).toString() : "";
-                if (!timestamp.isBlank()) {
-                    timestampToRowIndex.putIfAbsent(timestamp, i + 1);
+    private void syncGarminWellnessSamples(SyncReport report, LocalDate today) throws Exception {
+        syncMetrics.call(SOURCE, "recover", () -> recoverWellnessJournal(report));
+        SheetIndex index = syncStateStore.find(WELLNESS_SHEET_NAME);
+        syncMetrics.indexLookup(index != null);
+        boolean indexTrusted = true;
+        if (index == null) {
+            SyncMetrics.Span reconcile = syncMetrics.start(SOURCE, "wellness.reconcile");
+            spreadsheetPort.createSheet(WELLNESS_SHEET_NAME);
+            spreadsheetPort.ensureHeaders(WELLNESS_SHEET_NAME, GarminWellnessSample.getHeaders());
+
+            List<List<Object>> existingData = null;
+            try {
+                existingData = spreadsheetPort.getExistingValues(WELLNESS_SHEET_NAME + "!A:D");
+            } catch (Exception e) {
+                logger.warn("Could not fetch existing Garmin stress/HR data: {}", e.getMessage());
+                indexTrusted = false;
+            }
+            index = syncStateStore.reconcile(existingData, 1, GarminWellnessSample.getHeaders().get(1).toString());
+            List<String> dates = new ArrayList<>();
+            if (existingData != null) {
+                for (List<Object> row : existingData) {
+                    if (!row.isEmpty()) {
+                        dates.add(row.get(0).toString());
+                    }
                 }
             }
+            index.highWaterMark(latestDate(dates, null));
+            reconcile.end(indexTrusted);
         }
+        LocalDate latestDate = tryParseDate(index.highWaterMark());
 
         int daysToFetch;
         if (latestDate != null) {
@@ -188,45 +357,221 @@ public class SyncGarminService implements SyncGarminUseCase {
             report.info("No stress/HR data found. Fetching last " + daysToFetch + " days.");
         }
 
-        List<GarminWellnessSample> samples = garminClientPort.getWellnessSamplesForLastDays(daysToFetch);
-        if (samples == null || samples.isEmpty()) {
+        String todayKey = today.toString();
+        AtomicInteger fetchedDays = new AtomicInteger();
+        WellnessTotals totals = new WellnessTotals();
+        try {
+            Backfill backfill = syncStateStore.backfill(WELLNESS_SHEET_NAME);
+            if (backfill != null) {
+                LocalDate from = LocalDate.parse(backfill.resumeFrom());
+                LocalDate until = LocalDate.parse(backfill.until());
+                report.info("Resuming Garmin stress/HR backfill from " + from + " back to " + until + ".");
+                totals.offset = offsetBelow(index, backfill);
+                fetchWellnessSamples(from, until, index, todayKey, totals, fetchedDays, report);
+                syncStateStore.backfill(WELLNESS_SHEET_NAME, null);
+            }
+            totals.offset = 0;
+            fetchWellnessSamples(today, today.minusDays(daysToFetch - 1), index, todayKey, totals, fetchedDays, report);
+        } catch (Exception e) {
+            syncStateStore.invalidate(WELLNESS_SHEET_NAME);
+            syncJournal.release(WELLNESS_SHEET_NAME);
+            throw e;
+        }
+        if (index.highWaterMark() != null) {
+            // Later syncs fetch from the latest date on, so older timestamps can never be seen again.
+            index.retainFrom(LocalDate.parse(index.highWaterMark()).minusDays(1).toString());
+        }
+        saveIndex(WELLNESS_SHEET_NAME, index, indexTrusted);
+        syncJournal.finish(WELLNESS_SHEET_NAME);
+
+        if (totals.fetched == 0) {
             report.info("No Garmin stress/HR samples returned.");
             return;
         }
+        if (totals.updated > 0) {
+            report.info("Updated " + totals.updated + " stress/HR samples.");
+        }
+        if (totals.inserted > 0) {
+            report.info("Inserted " + totals.inserted + " stress/HR samples.");
+        }
+    }
 
-        List<GarminWellnessSample> newSamples = new ArrayList<>();
-        Map<Integer, List<Object>> updatedRows = new HashMap<>();
+    /**
+     * Fetches the days from {@code newest} back to {@code oldest} and inserts their new samples from
+     * {@code totals.offset} down. If the fetch fails, the days it did not get to are left as the sheet's
+     * {@link Backfill}.
+     */
+    private void fetchWellnessSamples(LocalDate newest,
+                                      LocalDate oldest,
+                                      SheetIndex index,
+                                      String today,
+                                      WellnessTotals totals,
+                                      AtomicInteger fetchedDays,
+                                      SyncReport report) throws Exception {
+        int days = (int) DAYS.between(oldest, newest) + 1;
+        AtomicInteger journaledDays = new AtomicInteger();
+        AtomicReference<Backfill> reached = new AtomicReference<>();
+        try {
+            syncPipeline.<List<GarminWellnessSample>>run(
+                    sink -> syncMetrics.run(SOURCE, "wellness.fetch",
+                            () -> garminClientPort.streamWellnessSamplesForDays(newest, days, samples -> {
+                                List<GarminWellnessSample> day = new ArrayList<>(samples == null ? List.of() : samples);
+                                day.sort(Comparator.comparing(GarminWellnessSample::getTimestamp,
+                                        Comparator.nullsLast(Comparator.<String>reverseOrder())));
+                                sink.accept(day);
+                                report.progress(SOURCE, "sample_days_fetched", fetchedDays.incrementAndGet());
+                            })),
+                    List::size,
+                    batch -> syncJournal.write(WELLNESS_SHEET_NAME, new WellnessBatch(totals.offset, today, batch), () -> {
+                        // Journaled batches get written, by this sync or by the next one's replay. Days without
+                        // samples leave nothing to anchor to, so the gap stays below the last sample written.
+                        String anchor = lastTimestamp(batch);
+                        if (anchor == null && reached.get() != null) {
+                            anchor = reached.get().anchor();
+                        }
+                        int journaled = journaledDays.addAndGet(batch.size());
+                        if (anchor != null) {
+                            reached.set(new Backfill(anchor, newest.minusDays(journaled).toString(), oldest.toString()));
+                        }
+                        writeWellnessSamples(batch, index, today, totals, false, report);
+                    }));
+        } catch (Exception e) {
+            leaveBackfill(WELLNESS_SHEET_NAME, reached.get());
+            throw e;
+        }
+    }
 
-        for (GarminWellnessSample sample : samples) {
-            String timestamp = sample.getTimestamp();
-            if (timestamp == null || timestamp.isBlank()) {
-                continue;
+    private static String lastTimestamp(List<List<GarminWellnessSample>> days) {
+        for (int i = days.size() - 1; i >= 0; i--) {
+            List<GarminWellnessSample> day = days.get(i);
+            for (int j = day.size() - 1; j >= 0; j--) {
+                String timestamp = day.get(j).getTimestamp();
+                if (timestamp != null && !timestamp.isBlank()) {
+                    return timestamp;
+                }
             }
-            Integer rowIndex = timestampToRowIndex.get(timestamp);
-            if (rowIndex != null) {
-                if (today.toString().equals(sample.getDate())) {
-                    updatedRows.put(rowIndex, sample.toRow());
+        }
+        return null;
+    }
+
+    /**
+     * Writes complete days of samples, newest first, from {@code totals.offset} down, into the blank rows
+     * there if {@code fill}.
+     */
+    private void writeWellnessSamples(List<List<GarminWellnessSample>> days,
+                                      SheetIndex index,
+                                      String today,
+                                      WellnessTotals totals,
+                                      boolean fill,
+                                      SyncReport report) throws IOException {
+        List<GarminWellnessSample> samples = new ArrayList<>();
+        List<List<Object>> newRows = new ArrayList<>();
+        List<String> newTimestamps = new ArrayList<>();
+        List<String> newDates = new ArrayList<>();
+        Map<Integer, List<Object>> updatedRows = new HashMap<>();
+
+        for (List<GarminWellnessSample> day : days) {
+            samples.addAll(day);
+            for (GarminWellnessSample sample : day) {
+                String timestamp = sample.getTimestamp();
+                if (timestamp == null || timestamp.isBlank()) {
+                    continue;
+                }
+                Integer rowIndex = index.rowOf(timestamp);
+                if (rowIndex != null) {
+                    if (today.equals(sample.getDate())) {
+                        updatedRows.put(rowIndex, sample.toRow());
+                    }
+                } else {
+                    newRows.add(sample.toRow());
+                    newTimestamps.add(timestamp);
+                    newDates.add(sample.getDate());
                 }
-            } else {
-                newSamples.add(sample);
             }
         }
+        if (samples.isEmpty()) {
+            return;
+        }
 
         if (!updatedRows.isEmpty()) {
             // Update before inserting new rows so row indices remain valid.
-            spreadsheetPort.updateRows(WELLNESS_SHEET_NAME, updatedRows);
-            report.info("Updated " + updatedRows.size() + " stress/HR samples.");
+            syncMetrics.run(SOURCE, "wellness.write", () -> spreadsheetPort.updateRows(WELLNESS_SHEET_NAME, updatedRows));
+        }
+        if (!newRows.isEmpty()) {
+            if (fill) {
+                syncMetrics.run(SOURCE, "wellness.write",
+                        () -> spreadsheetPort.writeRows(WELLNESS_SHEET_NAME, totals.offset, newRows));
+                index.filled(totals.offset, newTimestamps);
+            } else {
+                syncMetrics.run(SOURCE, "wellness.write",
+                        () -> spreadsheetPort.insertRows(WELLNESS_SHEET_NAME, totals.offset, newRows));
+                index.inserted(totals.offset, newTimestamps);
+            }
+            index.highWaterMark(latestDate(newDates, index.highWaterMark()));
+        }
+        totals.fetched += samples.size();
+        totals.updated += updatedRows.size();
+        totals.inserted += newRows.size();
+        totals.offset += newRows.size();
+        report.progress(SOURCE, "samples_written", totals.updated + totals.inserted);
+        eventPublisher.publishEvent(new GarminWellnessSynced(samples));
+    }
+
+    /**
+     * Where a backfill goes: right below its anchor row, or at the top if that row is gone from the sheet.
+     */
+    private static int offsetBelow(SheetIndex index, Backfill backfill) {
+        Integer offset = index.offsetBelow(backfill.anchor());
+        if (offset == null) {
+            logger.warn("Backfill anchor {} is no longer in the sheet; inserting the backfilled rows at the top.",
+                    backfill.anchor());
+            return 0;
         }
+        return offset;
+    }
 
-        if (!newSamples.isEmpty()) {
-            newSamples.sort(Comparator.comparing(GarminWellnessSample::getTimestamp).reversed());
-            List<List<Object>> rows = new ArrayList<>();
-            for (GarminWellnessSample sample : newSamples) {
-                rows.add(sample.toRow());
+    /**
+     * Records the gap a failed fetch leaves, if it wrote anything and did not get to the end of its range.
+     * A fetch that wrote nothing leaves the sheet as it was, so the next sync fetches the same range again.
+     */
+    private void leaveBackfill(String sheetName, Backfill reached) {
+        if (reached == null) {
+            return;
+        }
+        boolean complete = LocalDate.parse(reached.resumeFrom()).isBefore(LocalDate.parse(reached.until()));
+        syncStateStore.backfill(sheetName, complete ? null : reached);
+    }
+
+    private void saveIndex(String sheetName, SheetIndex index, boolean trusted) {
+        if (trusted) {
+            syncStateStore.save(sheetName, index);
+        } else {
+            syncStateStore.invalidate(sheetName);
+        }
+    }
+
+    private String latestDate(Collection<String> values, String current) {
+        LocalDate latest = tryParseDate(current);
+        for (String value : values) {
+            LocalDate parsed = tryParseDate(value);
+            if (parsed != null && (latest == null || parsed.isAfter(latest))) {
+                latest = parsed;
             }
-            spreadsheetPort.insertRowsAtTop(WELLNESS_SHEET_NAME, rows);
-            report.info("Inserted " + newSamples.size() + " stress/HR samples.");
         }
+        return latest == null ? null : latest.toString();
+    }
+
+    private record MetricsBatch(int offset, String today, List<GarminMetrics> metrics) {
+    }
+
+    private record WellnessBatch(int offset, String today, List<List<GarminWellnessSample>> days) {
+    }
+
+    private static final class WellnessTotals {
+        private int fetched;
+        private int updated;
+        private int inserted;
+        private int offset;
     }
 
     private LocalDate tryParseDate(String value) {
@@ -0,0 +1,180 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.sync.SyncProgress;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * A sync running (or finished) in the background, with the progress it has reported so far.
+ * <p>
+ * Subscribers first receive the progress already recorded and then live updates, in order; a subscriber
+ * that joins after the job finished gets the history and the finish notification straight away. Updates
+ * are handed to each subscriber on a virtual thread of its own, so a slow one (a stalled browser at the
+ * other end of an event stream) holds up neither the sync nor anyone reading the job.
+ */
+public final class SyncJob {
+    private static final Logger logger = LoggerFactory.getLogger(SyncJob.class);
+    private static final int MAX_PROGRESS_EVENTS = 500;
+
+    public enum Source { ALL, STRAVA, GARMIN }
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    /**
+     * Receives a job's updates, one at a time and in order, off the job's worker thread.
+     */
+    public interface Listener {
+        void onProgress(SyncProgress progress);
+
+        void onFinished(SyncJob job);
+    }
+
+    private final String id;
+    private final Source source;
+    private final Instant submittedAt;
+    private final List<SyncProgress> progress = new ArrayList<>();
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private Status status = Status.QUEUED;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private SyncReport report;
+
+    SyncJob(String id, Source source, Instant submittedAt) {
+        this.id = id;
+        this.source = source;
+        this.submittedAt = submittedAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    public synchronized Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public synchronized Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public synchronized boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    /**
+     * The final report, or {@code null} while the job is still queued or running.
+     */
+    public synchronized SyncReport getReport() {
+        return report;
+    }
+
+    public synchronized List<SyncProgress> getProgress() {
+        return List.copyOf(progress);
+    }
+
+    /**
+     * Registers {@code listener} and replays what happened so far. Returns a handle that unsubscribes it.
+     */
+    public synchronized Runnable subscribe(Listener listener) {
+        Subscription subscription = new Subscription(listener);
+        progress.forEach(update -> subscription.offer(() -> listener.onProgress(update)));
+        if (isFinished()) {
+            subscription.offer(() -> listener.onFinished(this));
+            return () -> { };
+        }
+        subscriptions.add(subscription);
+        return () -> unsubscribe(subscription);
+    }
+
+    synchronized void started(Instant now) {
+        status = Status.RUNNING;
+        startedAt = now;
+    }
+
+    synchronized void progressed(SyncProgress update) {
+        if (progress.size() == MAX_PROGRESS_EVENTS) {
+            progress.removeFirst();
+        }
+        progress.add(update);
+        subscriptions.forEach(subscription -> subscription.offer(() -> subscription.listener.onProgress(update)));
+    }
+
+    synchronized void finished(SyncReport finalReport, boolean failed, Instant now) {
+        report = finalReport;
+        status = failed ? Status.FAILED : Status.COMPLETED;
+        finishedAt = now;
+        subscriptions.forEach(subscription -> subscription.offer(() -> subscription.listener.onFinished(this)));
+        subscriptions.clear();
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+        subscription.cancelled = true;
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * Queues a listener's updates and delivers them one after the other; a delivery thread runs only while
+     * there is something queued.
+     */
+    private final class Subscription {
+        private final Listener listener;
+        private final Queue<Runnable> pending = new ArrayDeque<>();
+        private boolean delivering;
+        private volatile boolean cancelled;
+
+        private Subscription(Listener listener) {
+            this.listener = listener;
+        }
+
+        void offer(Runnable update) {
+            synchronized (this) {
+                pending.add(update);
+                if (delivering) {
+                    return;
+                }
+                delivering = true;
+            }
+            Thread.ofVirtual().name("sync-job-" + id + "-listener").start(this::deliver);
+        }
+
+        private void deliver() {
+            while (true) {
+                Runnable next;
+                synchronized (this) {
+                    next = pending.poll();
+                    if (next == null) {
+                        delivering = false;
+                        return;
+                    }
+                }
+                if (cancelled) {
+                    continue;
+                }
+                try {
+                    next.run();
+                } catch (RuntimeException e) {
+                    logger.warn("Sync job {} listener failed: {}", id, e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.sync.SyncAllUseCase;
+import com.bko.fitnessextractor.sync.SyncGarminUseCase;
+import com.bko.fitnessextractor.sync.SyncProgressListener;
+import com.bko.fitnessextractor.sync.SyncStravaUseCase;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs syncs as background jobs so requests return immediately.
+ * <p>
+ * Jobs run on a small dedicated pool, never on request threads. Finished jobs, with their reports, stay
+ * queryable for {@code sync.jobs.retention}; at most {@code sync.jobs.max-retained} finished jobs are kept.
+ */
+@Service
+public class SyncJobService {
+    private static final Logger logger = LoggerFactory.getLogger(SyncJobService.class);
+
+    private final SyncAllUseCase syncAllUseCase;
+    private final SyncStravaUseCase syncStravaUseCase;
+    private final SyncGarminUseCase syncGarminUseCase;
+    private final Clock clock;
+    private final Duration retention;
+    private final int maxRetained;
+    private final ExecutorService executor;
+    private final Map<String, SyncJob> jobs = new LinkedHashMap<>();
+
+    public SyncJobService(SyncAllUseCase syncAllUseCase,
+                          SyncStravaUseCase syncStravaUseCase,
+                          SyncGarminUseCase syncGarminUseCase,
+                          Clock clock,
+                          @Value("${sync.jobs.threads:2}") int threads,
+                          @Value("${sync.jobs.retention:PT1H}") Duration retention,
+                          @Value("${sync.jobs.max-retained:50}") int maxRetained) {
+        this.syncAllUseCase = syncAllUseCase;
+        this.syncStravaUseCase = syncStravaUseCase;
+        this.syncGarminUseCase = syncGarminUseCase;
+        this.clock = clock;
+        this.retention = retention;
+        this.maxRetained = maxRetained;
+        this.executor = Executors.newFixedThreadPool(Math.max(threads, 1),
+                Thread.ofPlatform().name("sync-job-", 1).daemon(true).factory());
+    }
+
+    public SyncJob start(SyncJob.Source source) {
+        Instant now = clock.instant();
+        SyncJob job = new SyncJob(UUID.randomUUID().toString(), source, now);
+        synchronized (jobs) {
+            evict(now);
+            jobs.put(job.getId(), job);
+        }
+        executor.execute(() -> run(job));
+        return job;
+    }
+
+    public Optional<SyncJob> find(String id) {
+        synchronized (jobs) {
+            evict(clock.instant());
+            return Optional.ofNullable(jobs.get(id));
+        }
+    }
+
+    /**
+     * Known jobs, newest first.
+     */
+    public List<SyncJob> list() {
+        synchronized (jobs) {
+            evict(clock.instant());
+            return new ArrayList<>(jobs.values()).reversed();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(SyncJob job) {
+        job.started(clock.instant());
+        SyncProgressListener listener = job::progressed;
+        try {
+            SyncReport report = switch (job.getSource()) {
+                case ALL -> syncAllUseCase.syncAll(listener);
+                case STRAVA -> syncStravaUseCase.syncStrava(listener);
+                case GARMIN -> syncGarminUseCase.syncGarmin(listener);
+            };
+            job.finished(report, false, clock.instant());
+        } catch (Throwable e) {
+            // Errors too, or the job would stay RUNNING and its subscribers would never hear it end.
+            logger.error("Sync job {} failed", job.getId(), e);
+            SyncReport report = new SyncReport();
+            report.error("Sync failed: " + e.getMessage());
+            job.finished(report, true, clock.instant());
+            if (e instanceof Error error) {
+                throw error;
+            }
+        }
+    }
+
+    private void evict(Instant now) {
+        int finished = 0;
+        for (SyncJob job : jobs.values()) {
+            if (job.isFinished()) {
+                finished++;
+            }
+        }
+        Iterator<SyncJob> oldest = jobs.values().iterator();
+        while (oldest.hasNext()) {
+            SyncJob job = oldest.next();
+            if (!job.isFinished()) {
+                continue;
+            }
+            if (finished > maxRetained || !now.isBefore(job.getFinishedAt().plus(retention))) {
+                oldest.remove();
+                finished--;
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.shared.DataDirectory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Write-ahead journal of the batches a sync writes to a sheet.
+ * <p>
+ * Before a batch is written, its fetched records and where they go are appended to a per-sheet file and
+ * flushed to disk; once the write went through, the batch is marked done, and the file is removed when the
+ * sync completes. A file left behind means a sync died or failed half-way: {@link #recover} replays the
+ * batches that never completed from their recorded records, without going back to Strava or Garmin, and
+ * drops the stored index of the sheet because it no longer matches the sheet. Replays skip rows that are
+ * already in the sheet and fill rows an interrupted insert left blank, so replaying a batch twice is harmless.
+ * <p>
+ * The journal's lock only guards its files and the set of sheets being written; replays run outside it so
+ * one source's recovery does not hold up another source's writes.
+ */
+@Component
+public class SyncJournal {
+    private static final Logger logger = LoggerFactory.getLogger(SyncJournal.class);
+    private static final String DIRECTORY = "sync-journal";
+    private static final String PENDING = "PENDING";
+    private static final String DONE = "DONE";
+
+    private final DataDirectory dataDirectory;
+    private final SyncStateStore syncStateStore;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Set<String> activeSheets = new HashSet<>();
+
+    public SyncJournal(DataDirectory dataDirectory, SyncStateStore syncStateStore) {
+        this.dataDirectory = dataDirectory;
+        this.syncStateStore = syncStateStore;
+    }
+
+    @FunctionalInterface
+    interface Mutation {
+        void apply() throws Exception;
+    }
+
+    @FunctionalInterface
+    interface Replay<T> {
+        void replay(T payload) throws Exception;
+    }
+
+    /**
+     * Journals {@code payload}, applies the mutation it describes, and marks it done.
+     */
+    void write(String sheetName, Object payload, Mutation mutation) throws Exception {
+        String id = UUID.randomUUID().toString();
+        synchronized (this) {
+            activeSheets.add(sheetName);
+            append(sheetName, new Entry(id, PENDING, objectMapper.valueToTree(payload)), true);
+        }
+        mutation.apply();
+        synchronized (this) {
+            append(sheetName, new Entry(id, DONE, null), false);
+        }
+    }
+
+    /**
+     * The sync of this sheet completed and its index was saved; nothing is left to replay.
+     */
+    synchronized void finish(String sheetName) {
+        activeSheets.remove(sheetName);
+        try {
+            Files.deleteIfExists(file(sheetName));
+        } catch (IOException e) {
+            logger.warn("Could not remove sync journal of {}: {}", sheetName, e.getMessage());
+        }
+    }
+
+    /**
+     * The sync of this sheet failed; its unfinished batches are replayed by the next {@link #recover}.
+     */
+    synchronized void release(String sheetName) {
+        activeSheets.remove(sheetName);
+    }
+
+    /**
+     * Replays the batches of an earlier sync of this sheet that never completed, oldest first.
+     *
+     * @return the number of replayed batches
+     */
+    <T> int recover(String sheetName, Class<T> payloadType, Replay<T> replay) throws Exception {
+        Path file;
+        synchronized (this) {
+            file = file(sheetName);
+            if (activeSheets.contains(sheetName) || !Files.exists(file)) {
+                return 0;
+            }
+            activeSheets.add(sheetName);
+        }
+        try {
+            return replay(sheetName, file, payloadType, replay);
+        } finally {
+            synchronized (this) {
+                activeSheets.remove(sheetName);
+            }
+        }
+    }
+
+    private <T> int replay(String sheetName, Path file, Class<T> payloadType, Replay<T> replay) throws Exception {
+        syncStateStore.invalidate(sheetName);
+        Map<String, JsonNode> pending = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            Entry entry;
+            try {
+                entry = objectMapper.readValue(line, Entry.class);
+            } catch (IOException e) {
+                // A torn last line from a crash mid-append; its batch was never written.
+                logger.warn("Skipping unreadable sync journal entry of {}: {}", sheetName, e.getMessage());
+                continue;
+            }
+            if (PENDING.equals(entry.status())) {
+                pending.put(entry.id(), entry.payload());
+            } else {
+                pending.remove(entry.id());
+            }
+        }
+        for (JsonNode payload : pending.values()) {
+            replay.replay(objectMapper.treeToValue(payload, payloadType));
+        }
+        Files.deleteIfExists(file);
+        if (!pending.isEmpty()) {
+            logger.info("Replayed {} unfinished sync batches of {}", pending.size(), sheetName);
+        }
+        return pending.size();
+    }
+
+    private void append(String sheetName, Entry entry, boolean force) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(file(sheetName),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (force) {
+                channel.force(false);
+            }
+        }
+    }
+
+    private Path file(String sheetName) throws IOException {
+        Path directory = dataDirectory.resolve(DIRECTORY);
+        Files.createDirectories(directory);
+        String slug = sheetName.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-");
+        return directory.resolve(slug + ".jsonl");
+    }
+
+    private record Entry(String id, String status, JsonNode payload) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.shared.AppSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Replays sync batches left unfinished by the previous run of the application before anything else syncs.
+ * Syncs also recover on their own when they start, so a failure here only delays the replay.
+ */
+@Component
+public class SyncJournalRecovery implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(SyncJournalRecovery.class);
+
+    private final SyncStravaService syncStravaService;
+    private final SyncGarminService syncGarminService;
+    private final AppSettings appSettings;
+
+    public SyncJournalRecovery(SyncStravaService syncStravaService,
+                               SyncGarminService syncGarminService,
+                               AppSettings appSettings) {
+        this.syncStravaService = syncStravaService;
+        this.syncGarminService = syncGarminService;
+        this.appSettings = appSettings;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!appSettings.isGoogleConfigured()) {
+            return;
+        }
+        recover("Strava", () -> syncStravaService.recoverJournal(new SyncReport()));
+        recover("Garmin", () -> syncGarminService.recoverJournal(new SyncReport()));
+    }
+
+    private void recover(String source, SyncJournal.Mutation recovery) {
+        try {
+            recovery.apply();
+        } catch (Exception e) {
+            logger.warn("Could not replay the {} sync journal; the next {} sync retries: {}", source, source,
+                    e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.bko.fitnessextractor.sync.app;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the phases of a sync as {@code fitness.sync.phase}, tagged with the source, the phase and whether
+ * it succeeded. A whole run is the {@code total} phase. Upstream calls are timed separately by the
+ * clients, so the difference between a phase and its calls is our own work.
+ * <p>
+ * Lookups of the stored sheet indexes count as {@code fitness.cache.requests} (cache {@code sync-index}).
+ * Every phase is also a Flight Recorder {@code fitnessextractor.SyncPhase} event.
+ */
+@Component
+public class SyncMetrics {
+    static final String TOTAL = "total";
+
+    private final MeterRegistry meterRegistry;
+    private final Counter indexHits;
+    private final Counter indexMisses;
+
+    public SyncMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.indexHits = Counter.builder("fitness.cache.requests")
+                .tag("cache", "sync-index").tag("result", "hit").register(meterRegistry);
+        this.indexMisses = Counter.builder("fitness.cache.requests")
+                .tag("cache", "sync-index").tag("result", "miss").register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    interface Step<E extends Exception> {
+        void run() throws E;
+    }
+
+    @FunctionalInterface
+    interface Phase<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    <E extends Exception> void run(String source, String phase, Step<E> step) throws E {
+        Span span = start(source, phase);
+        boolean success = false;
+        try {
+            step.run();
+            success = true;
+        } finally {
+            span.end(success);
+        }
+    }
+
+    <T, E extends Exception> T call(String source, String phase, Phase<T, E> body) throws E {
+        Span span = start(source, phase);
+        boolean success = false;
+        try {
+            T result = body.call();
+            success = true;
+            return result;
+        } finally {
+            span.end(success);
+        }
+    }
+
+    /**
+     * Starts a phase whose outcome is not just whether it threw; finish it with {@link Span#end(boolean)}.
+     */
+    Span start(String source, String phase) {
+        SyncPhaseEvent event = new SyncPhaseEvent();
+        event.begin();
+        return new Span(source, phase, System.nanoTime(), event);
+    }
+
+    /**
+     * Counts a {@link SyncStateStore#find(String)} that returned an index ({@code hit}) or not.
+     */
+    void indexLookup(boolean hit) {
+        (hit ? indexHits : indexMisses).increment();
+    }
+
+    final class Span {
+        private final String source;
+        private final String phase;
+        private final long startNanos;
+        private final SyncPhaseEvent event;
+
+        private Span(String source, String phase, long startNanos, SyncPhaseEvent event) {
+            this.source = source;
+            this.phase = phase;
+            this.startNanos = startNanos;
+            this.event = event;
+        }
+
+        void end(boolean success) {
+            Timer.builder("fitness.sync.phase")
+                    .description("Time spent in each phase of a Strava or Garmin sync")
+                    .tag("source", source)
+                    .tag("phase", phase)
+                    .tag("outcome", success ? "success" : "error")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            event.end();
+            if (event.shouldCommit()) {
+                event.source = source;
+                event.phase = phase;
+                event.success = success;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.bko.fitnessextractor.sync.app;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one phase of a sync, the same phases {@link SyncMetrics} times.
+ */
+@Name("fitnessextractor.SyncPhase")
+@Label("Sync Phase")
+@Category({"FitnessExtractor", "Sync"})
+@Description("A phase of a Strava or Garmin sync")
+@StackTrace(false)
+class SyncPhaseEvent extends jdk.jfr.Event {
+    @Label("Source")
+    String source;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Success")
+    boolean success;
+}
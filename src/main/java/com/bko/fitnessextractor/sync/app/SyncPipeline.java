@@ -0,0 +1,128 @@
+package com.bko.fitnessextractor.sync.app;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Streams fetched records into the sheet while fetching continues.
+ * <p>
+ * The fetcher runs on its own virtual thread and hands records to a queue of at most
+ * {@code sync.pipeline.buffer} entries, blocking when the writer falls behind. The calling thread writes
+ * them in batches of {@code sync.pipeline.batch-size} rows, or whatever has arrived once the oldest
+ * unwritten record waited {@code sync.pipeline.max-wait}, so rows show up while a long backfill is still
+ * fetching. When fetching fails, everything fetched before the failure is still written; when writing
+ * fails, fetching stops.
+ */
+@Component
+public class SyncPipeline {
+    private static final Object END = new Object();
+
+    private final int batchSize;
+    private final int buffer;
+    private final Duration maxWait;
+
+    public SyncPipeline(@Value("${sync.pipeline.batch-size:100}") int batchSize,
+                        @Value("${sync.pipeline.buffer:500}") int buffer,
+                        @Value("${sync.pipeline.max-wait:PT10S}") Duration maxWait) {
+        this.batchSize = Math.max(1, batchSize);
+        this.buffer = Math.max(1, buffer);
+        this.maxWait = maxWait;
+    }
+
+    @FunctionalInterface
+    interface Fetcher<T> {
+        void fetch(Consumer<T> sink) throws Exception;
+    }
+
+    @FunctionalInterface
+    interface Writer<T> {
+        void write(List<T> batch) throws Exception;
+    }
+
+    <T> void run(Fetcher<T> fetcher, Writer<T> writer) throws Exception {
+        run(fetcher, record -> 1, writer);
+    }
+
+    /**
+     * @param rows how many sheet rows a record becomes, for sizing batches
+     */
+    @SuppressWarnings("unchecked")
+    <T> void run(Fetcher<T> fetcher, ToIntFunction<T> rows, Writer<T> writer) throws Exception {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(buffer);
+        AtomicReference<Throwable> fetchFailure = new AtomicReference<>();
+        Thread fetchThread = Thread.ofVirtual().name("sync-fetch").start(() -> {
+            try {
+                fetcher.fetch(record -> {
+                    try {
+                        queue.put(record);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CancellationException("Sync writer stopped");
+                    }
+                });
+            } catch (Throwable e) {
+                fetchFailure.set(e);
+            } finally {
+                try {
+                    queue.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        try {
+            List<T> batch = new ArrayList<>();
+            int batchRows = 0;
+            long deadline = 0;
+            while (true) {
+                Object next = batch.isEmpty()
+                        ? queue.take()
+                        : queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (next == END) {
+                    break;
+                }
+                if (next != null) {
+                    if (batch.isEmpty()) {
+                        deadline = System.nanoTime() + maxWait.toNanos();
+                    }
+                    T record = (T) next;
+                    batch.add(record);
+                    batchRows += rows.applyAsInt(record);
+                }
+                if (batchRows >= batchSize || (!batch.isEmpty() && System.nanoTime() >= deadline)) {
+                    writer.write(batch);
+                    batch = new ArrayList<>();
+                    batchRows = 0;
+                }
+            }
+            if (!batch.isEmpty()) {
+                writer.write(batch);
+            }
+        } catch (Exception | Error e) {
+            fetchThread.interrupt();
+            fetchThread.join();
+            throw e;
+        }
+        fetchThread.join();
+
+        Throwable failure = fetchFailure.get();
+        if (failure instanceof Exception exception) {
+            throw exception;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+    }
+}
@@ -1,10 +1,21 @@
 package com.bko.fitnessextractor.sync.app;
 
+import com.bko.fitnessextractor.sync.SyncProgress;
+import com.bko.fitnessextractor.sync.SyncProgressListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
+/**
+ * Outcome of a sync run. Safe to share between threads: sources running concurrently may report into
+ * and merge into the same instance.
+ */
 public class SyncReport {
+    private static final Logger logger = LoggerFactory.getLogger(SyncReport.class);
+
+    private final SyncProgressListener progressListener;
     private final List<String> messages = new ArrayList<>();
     private boolean success = true;
     private boolean stravaAttempted;
@@ -13,77 +24,115 @@ public class SyncReport {
     private int garminInserted;
     private int garminUpdated;
 
-    public void info(String message) {
+    public SyncReport() {
+        this(SyncProgressListener.NONE);
+    }
+
+    /**
+     * A report that also forwards {@link #progress} updates to {@code progressListener}.
+     */
+    public SyncReport(SyncProgressListener progressListener) {
+        this.progressListener = progressListener == null ? SyncProgressListener.NONE : progressListener;
+    }
+
+    public synchronized void info(String message) {
         messages.add(message);
     }
 
-    public void warn(String message) {
+    public synchronized void warn(String message) {
         messages.add("WARN: " + message);
     }
 
-    public void error(String message) {
+    public synchronized void error(String message) {
         messages.add("ERROR: " + message);
         success = false;
     }
 
+    /**
+     * Publishes a progress update. Progress is not kept in the report, and a failing listener never fails the sync.
+     */
+    public void progress(String source, String step, int count) {
+        try {
+            progressListener.onProgress(new SyncProgress(source, step, count));
+        } catch (RuntimeException e) {
+            logger.debug("Sync progress listener failed: {}", e.getMessage());
+        }
+    }
+
     public void merge(SyncReport other) {
-        if (other == null) {
+        if (other == null || other == this) {
             return;
         }
-        messages.addAll(other.messages);
-        success = success && other.success;
-        stravaAttempted = stravaAttempted || other.stravaAttempted;
-        garminAttempted = garminAttempted || other.garminAttempted;
-        stravaAdded += other.stravaAdded;
-        garminInserted += other.garminInserted;
-        garminUpdated += other.garminUpdated;
+        // Read the other report under its own lock first so two reports never hold each other's locks.
+        SyncReport copy = other.copy();
+        synchronized (this) {
+            messages.addAll(copy.messages);
+            success = success && copy.success;
+            stravaAttempted = stravaAttempted || copy.stravaAttempted;
+            garminAttempted = garminAttempted || copy.garminAttempted;
+            stravaAdded += copy.stravaAdded;
+            garminInserted += copy.garminInserted;
+            garminUpdated += copy.garminUpdated;
+        }
     }
 
-    public List<String> getMessages() {
-        return Collections.unmodifiableList(messages);
+    public synchronized List<String> getMessages() {
+        return List.copyOf(messages);
     }
 
-    public boolean isSuccess() {
+    public synchronized boolean isSuccess() {
         return success;
     }
 
-    public boolean isStravaAttempted() {
+    public synchronized boolean isStravaAttempted() {
         return stravaAttempted;
     }
 
-    public void setStravaAttempted(boolean stravaAttempted) {
+    public synchronized void setStravaAttempted(boolean stravaAttempted) {
         this.stravaAttempted = stravaAttempted;
     }
 
-    public boolean isGarminAttempted() {
+    public synchronized boolean isGarminAttempted() {
         return garminAttempted;
     }
 
-    public void setGarminAttempted(boolean garminAttempted) {
+    public synchronized void setGarminAttempted(boolean garminAttempted) {
         this.garminAttempted = garminAttempted;
     }
 
-    public int getStravaAdded() {
+    public synchronized int getStravaAdded() {
         return stravaAdded;
     }
 
-    public void addStravaAdded(int count) {
+    public synchronized void addStravaAdded(int count) {
         this.stravaAdded += count;
     }
 
-    public int getGarminInserted() {
+    public synchronized int getGarminInserted() {
         return garminInserted;
     }
 
-    public void addGarminInserted(int count) {
+    public synchronized void addGarminInserted(int count) {
         this.garminInserted += count;
     }
 
-    public int getGarminUpdated() {
+    public synchronized int getGarminUpdated() {
         return garminUpdated;
     }
 
-    public void addGarminUpdated(int count) {
+    public synchronized void addGarminUpdated(int count) {
         this.garminUpdated += count;
     }
+
+    private synchronized SyncReport copy() {
+        SyncReport copy = new SyncReport();
+        copy.messages.addAll(messages);
+        copy.success = success;
+        copy.stravaAttempted = stravaAttempted;
+        copy.garminAttempted = garminAttempted;
+        copy.stravaAdded = stravaAdded;
+        copy.garminInserted = garminInserted;
+        copy.garminUpdated = garminUpdated;
+        return copy;
+    }
 }
@@ -0,0 +1,106 @@
+package com.bko.fitnessextractor.sync.app;
+
+import org.springframework.scheduling.support.CronExpression;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Decides when the next scheduled sync runs.
+ * <p>
+ * With a cron expression the next run is simply the next cron time plus up to {@code jitter}. Otherwise the
+ * interval adapts: {@code minInterval} right after a sync that brought new data, {@code interval} doubled for
+ * every sync in a row that found nothing (capped at {@code maxInterval}), randomly moved by up to
+ * {@code jitter} either way, and pushed past the quiet hours when it would land inside them.
+ */
+final class SyncSchedulePolicy {
+    private static final Duration FLOOR = Duration.ofMinutes(1);
+
+    private final CronExpression cron;
+    private final Duration interval;
+    private final Duration minInterval;
+    private final Duration maxInterval;
+    private final Duration jitter;
+    private final int quietStartHour;
+    private final int quietEndHour;
+    private final DoubleSupplier random;
+
+    /**
+     * @param cron       Spring cron expression, or blank for adaptive intervals
+     * @param quietHours {@code "start-end"} in whole local hours, e.g. {@code "23-6"}, or blank for none
+     * @param random     source of values in {@code [0, 1)}
+     */
+    SyncSchedulePolicy(String cron,
+                       Duration interval,
+                       Duration minInterval,
+                       Duration maxInterval,
+                       Duration jitter,
+                       String quietHours,
+                       DoubleSupplier random) {
+        this.cron = cron == null || cron.isBlank() ? null : CronExpression.parse(cron.trim());
+        this.interval = interval;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.jitter = jitter;
+        this.random = random;
+        if (quietHours == null || quietHours.isBlank()) {
+            quietStartHour = -1;
+            quietEndHour = -1;
+        } else {
+            String[] bounds = quietHours.trim().split("-");
+            if (bounds.length != 2) {
+                throw new IllegalArgumentException("sync.schedule.quiet-hours must look like 23-6");
+            }
+            quietStartHour = Integer.parseInt(bounds[0].trim());
+            quietEndHour = Integer.parseInt(bounds[1].trim());
+        }
+    }
+
+    /**
+     * @param newData  whether the last sync brought new rows
+     * @param idleRuns syncs in a row (including the last) that brought nothing new
+     */
+    ZonedDateTime next(ZonedDateTime now, boolean newData, int idleRuns) {
+        if (cron != null) {
+            ZonedDateTime scheduled = cron.next(now);
+            return scheduled == null ? null : scheduled.plus(forwardJitter());
+        }
+        Duration delay = newData ? minInterval : backedOff(idleRuns);
+        long jitterMillis = Math.round((random.getAsDouble() * 2 - 1) * jitter.toMillis());
+        delay = delay.plusMillis(jitterMillis);
+        if (delay.compareTo(FLOOR) < 0) {
+            delay = FLOOR;
+        }
+        ZonedDateTime next = now.plus(delay);
+        return isQuiet(next.toLocalTime()) ? endOfQuietHours(next).plus(forwardJitter()) : next;
+    }
+
+    private Duration backedOff(int idleRuns) {
+        Duration delay = interval;
+        for (int i = 0; i < idleRuns && delay.compareTo(maxInterval) < 0; i++) {
+            delay = delay.multipliedBy(2);
+        }
+        return delay.compareTo(maxInterval) > 0 ? maxInterval : delay;
+    }
+
+    private Duration forwardJitter() {
+        return Duration.ofMillis(Math.round(random.getAsDouble() * jitter.toMillis()));
+    }
+
+    private boolean isQuiet(LocalTime time) {
+        if (quietStartHour < 0 || quietStartHour == quietEndHour) {
+            return false;
+        }
+        int hour = time.getHour();
+        return quietStartHour < quietEndHour
+                ? hour >= quietStartHour && hour < quietEndHour
+                : hour >= quietStartHour || hour < quietEndHour;
+    }
+
+    private ZonedDateTime endOfQuietHours(ZonedDateTime time) {
+        ZonedDateTime end = time.toLocalDate().atTime(quietEndHour, 0).atZone(time.getZone());
+        return end.isAfter(time) ? end : end.plusDays(1);
+    }
+}
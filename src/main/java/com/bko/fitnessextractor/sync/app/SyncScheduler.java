@@ -0,0 +1,109 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.sync.SyncProgress;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs "sync all" jobs in the background when {@code sync.schedule.enabled} is set.
+ * <p>
+ * Each run goes through {@link SyncJobService}, so it shows up with the other jobs and shares a run with
+ * any manual sync that overlaps it. The next run is planned when the previous one finishes, using
+ * {@link SyncSchedulePolicy}: soon after new data, backing off while nothing changes, never during the
+ * quiet hours.
+ */
+@Component
+public class SyncScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(SyncScheduler.class);
+
+    private final SyncJobService syncJobService;
+    private final Clock clock;
+    private final boolean enabled;
+    private final SyncSchedulePolicy policy;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("sync-scheduler").daemon(true).factory());
+    private int idleRuns;
+
+    public SyncScheduler(SyncJobService syncJobService,
+                         Clock clock,
+                         @Value("${sync.schedule.enabled:false}") boolean enabled,
+                         @Value("${sync.schedule.cron:}") String cron,
+                         @Value("${sync.schedule.interval:PT1H}") Duration interval,
+                         @Value("${sync.schedule.min-interval:PT20M}") Duration minInterval,
+                         @Value("${sync.schedule.max-interval:PT6H}") Duration maxInterval,
+                         @Value("${sync.schedule.jitter:PT5M}") Duration jitter,
+                         @Value("${sync.schedule.quiet-hours:23-6}") String quietHours) {
+        this.syncJobService = syncJobService;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.policy = new SyncSchedulePolicy(cron, interval, minInterval, maxInterval, jitter, quietHours,
+                () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            scheduleNext(false);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void scheduleNext(boolean newData) {
+        ZonedDateTime now = ZonedDateTime.now(clock);
+        ZonedDateTime next = policy.next(now, newData, idleRuns);
+        if (next == null) {
+            logger.warn("Sync schedule has no future run; scheduled syncs stop here.");
+            return;
+        }
+        logger.info("Next scheduled sync at {}", next);
+        executor.schedule(this::runScheduled, Duration.between(now, next).toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void runScheduled() {
+        try {
+            SyncJob job = syncJobService.start(SyncJob.Source.ALL);
+            logger.info("Started scheduled sync job {}", job.getId());
+            job.subscribe(new SyncJob.Listener() {
+                @Override
+                public void onProgress(SyncProgress progress) {
+                }
+
+                @Override
+                public void onFinished(SyncJob finished) {
+                    finishedRun(finished.getReport());
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.error("Could not start scheduled sync", e);
+            finishedRun(null);
+        }
+    }
+
+    private synchronized void finishedRun(SyncReport report) {
+        boolean newData = report != null && report.isSuccess()
+                && (report.getStravaAdded() > 0 || report.getGarminInserted() > 0);
+        idleRuns = newData ? 0 : idleRuns + 1;
+        try {
+            scheduleNext(newData);
+        } catch (RuntimeException e) {
+            logger.error("Could not schedule the next sync", e);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.sync.SyncProgress;
+import com.bko.fitnessextractor.sync.SyncProgressListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Makes sure at most one sync of a source runs at a time.
+ * <p>
+ * A request arriving within {@code joinWindow} of the in-flight run starting attaches to it and gets its
+ * report. A later request could miss data that run already fetched, so it queues a follow-up run instead;
+ * every request arriving while that follow-up waits attaches to it, so any number of overlapping requests
+ * cost at most one extra run. Attached callers also receive the shared run's progress from then on.
+ */
+class SyncSingleFlight {
+    private static final Logger logger = LoggerFactory.getLogger(SyncSingleFlight.class);
+
+    private final String source;
+    private final Clock clock;
+    private final Duration joinWindow;
+    private Run current;
+    private Run queued;
+
+    SyncSingleFlight(String source, Clock clock, Duration joinWindow) {
+        this.source = source;
+        this.clock = clock;
+        this.joinWindow = joinWindow;
+    }
+
+    SyncReport run(SyncProgressListener listener, Function<SyncProgressListener, SyncReport> sync) {
+        Run run;
+        Run previous = null;
+        boolean leader = false;
+        synchronized (this) {
+            Instant now = clock.instant();
+            if (queued != null) {
+                run = queued;
+            } else if (current == null) {
+                run = current = new Run(now);
+                leader = true;
+            } else if (now.isBefore(current.startedAt.plus(joinWindow))) {
+                run = current;
+            } else {
+                run = queued = new Run(null);
+                previous = current;
+                leader = true;
+            }
+            run.listeners.add(listener == null ? SyncProgressListener.NONE : listener);
+        }
+        if (!leader) {
+            logger.info("Joining {} {} sync", run.startedAt == null ? "the queued" : "the running", source);
+            return await(run);
+        }
+        if (previous != null) {
+            previous.result.exceptionally(e -> null).join();
+            synchronized (this) {
+                run.startedAt = clock.instant();
+                current = run;
+                queued = null;
+            }
+        }
+        return execute(run, sync);
+    }
+
+    private SyncReport execute(Run run, Function<SyncProgressListener, SyncReport> sync) {
+        try {
+            SyncReport report = sync.apply(run::progress);
+            run.result.complete(report);
+            return report;
+        } catch (Throwable e) {
+            // Errors too, or the callers attached to this run would wait forever.
+            run.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            finish(run);
+        }
+    }
+
+    private synchronized void finish(Run run) {
+        if (current == run) {
+            current = null;
+        }
+    }
+
+    private SyncReport await(Run run) {
+        try {
+            return run.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            SyncReport report = new SyncReport();
+            report.error("Interrupted while waiting for the " + source + " sync already running.");
+            return report;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * Callers attached to the running and the queued run; only tests ask, to know when a caller has attached.
+     */
+    synchronized int callers() {
+        return (current == null ? 0 : current.listeners.size()) + (queued == null ? 0 : queued.listeners.size());
+    }
+
+    private static final class Run {
+        private final CompletableFuture<SyncReport> result = new CompletableFuture<>();
+        private final List<SyncProgressListener> listeners = new CopyOnWriteArrayList<>();
+        private volatile Instant startedAt;
+
+        private Run(Instant startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        private void progress(SyncProgress progress) {
+            for (SyncProgressListener listener : listeners) {
+                try {
+                    listener.onProgress(progress);
+                } catch (RuntimeException e) {
+                    logger.debug("Sync progress listener failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.shared.DataDirectory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Durable sync bookkeeping per sheet, so syncs stop reading whole sheet columns to find out what is
+ * already there.
+ * <p>
+ * An index is trusted for {@code sync.state.reconcile-interval} after it was last rebuilt from the sheet;
+ * after that, or when the state file is missing, the sync reads the sheet again. Edits made in the sheet by
+ * hand are picked up at the next reconciliation. A sync whose writes fail drops the index instead of saving
+ * it, since the sheet may be half-written.
+ * <p>
+ * A sync whose fetch failed half-way also leaves a {@link Backfill} behind. It outlives the index, because
+ * the sheet then looks up to date while older rows are missing.
+ * <p>
+ * Days written to a sheet are marked as having stale rollups before the write, and unmarked once the
+ * rollup tabs were refreshed, so a rollup update lost to a failure or a crash is redone by a later sync.
+ */
+@Component
+public class SyncStateStore {
+    private static final Logger logger = LoggerFactory.getLogger(SyncStateStore.class);
+    private static final String STATE_FILE = "sync-state.json";
+
+    private final DataDirectory dataDirectory;
+    private final Clock clock;
+    private final Duration reconcileInterval;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, SheetIndex> sheets = new LinkedHashMap<>();
+    private final Map<String, Backfill> backfills = new LinkedHashMap<>();
+    private final Map<String, TreeSet<LocalDate>> staleRollups = new LinkedHashMap<>();
+    private boolean loaded;
+
+    public SyncStateStore(DataDirectory dataDirectory,
+                          Clock clock,
+                          @Value("${sync.state.reconcile-interval:PT24H}") Duration reconcileInterval) {
+        this.dataDirectory = dataDirectory;
+        this.clock = clock;
+        this.reconcileInterval = reconcileInterval;
+    }
+
+    /**
+     * The stored index of a sheet, or {@code null} when there is none or it is due for reconciliation.
+     * The caller gets its own copy to update while syncing.
+     */
+    synchronized SheetIndex find(String sheetName) {
+        ensureLoaded();
+        SheetIndex index = sheets.get(sheetName);
+        if (index == null || reconcileInterval.isZero() || reconcileInterval.isNegative()
+                || !clock.instant().isBefore(index.reconciledAt().plus(reconcileInterval))) {
+            return null;
+        }
+        return index.copy();
+    }
+
+    /**
+     * A fresh index built from rows just read from the sheet.
+     */
+    SheetIndex reconcile(List<List<Object>> values, int keyColumn, String header) {
+        return SheetIndex.fromRows(values, keyColumn, header, clock.instant());
+    }
+
+    synchronized void save(String sheetName, SheetIndex index) {
+        ensureLoaded();
+        sheets.put(sheetName, index.copy());
+        persist();
+    }
+
+    synchronized void invalidate(String sheetName) {
+        ensureLoaded();
+        if (sheets.remove(sheetName) != null) {
+            persist();
+        }
+    }
+
+    /**
+     * The gap a failed sync left in the sheet, or {@code null}.
+     */
+    synchronized Backfill backfill(String sheetName) {
+        ensureLoaded();
+        return backfills.get(sheetName);
+    }
+
+    /**
+     * Records the gap left in the sheet; {@code null} records that there is none.
+     */
+    synchronized void backfill(String sheetName, Backfill backfill) {
+        ensureLoaded();
+        Backfill previous = backfill == null ? backfills.remove(sheetName) : backfills.put(sheetName, backfill);
+        if (!Objects.equals(previous, backfill)) {
+            persist();
+        }
+    }
+
+    /**
+     * The days of a sheet whose rollup periods still have to be refreshed.
+     */
+    synchronized Set<LocalDate> staleRollups(String sheetName) {
+        ensureLoaded();
+        return new TreeSet<>(staleRollups.getOrDefault(sheetName, new TreeSet<>()));
+    }
+
+    synchronized void markRollupsStale(String sheetName, Collection<LocalDate> dates) {
+        ensureLoaded();
+        if (staleRollups.computeIfAbsent(sheetName, key -> new TreeSet<>()).addAll(dates)) {
+            persist();
+        }
+    }
+
+    synchronized void rollupsRefreshed(String sheetName, Collection<LocalDate> dates) {
+        ensureLoaded();
+        TreeSet<LocalDate> stale = staleRollups.get(sheetName);
+        if (stale != null && stale.removeAll(dates)) {
+            if (stale.isEmpty()) {
+                staleRollups.remove(sheetName);
+            }
+            persist();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try {
+            Path file = dataDirectory.resolve(STATE_FILE);
+            if (!Files.exists(file)) {
+                return;
+            }
+            PersistedState state = objectMapper.readValue(file.toFile(), PersistedState.class);
+            if (state.sheets() != null) {
+                state.sheets().forEach((name, sheet) -> sheets.put(name, new SheetIndex(
+                        Instant.parse(sheet.reconciledAt()),
+                        sheet.rows() == null ? Map.of() : sheet.rows(),
+                        sheet.highWaterMark())));
+            }
+            if (state.backfills() != null) {
+                backfills.putAll(state.backfills());
+            }
+            if (state.staleRollups() != null) {
+                state.staleRollups().forEach((name, dates) -> {
+                    TreeSet<LocalDate> stale = new TreeSet<>();
+                    dates.forEach(date -> stale.add(LocalDate.parse(date)));
+                    staleRollups.put(name, stale);
+                });
+            }
+        } catch (Exception e) {
+            logger.warn("Could not read sync state, reconciling with the sheets: {}", e.getMessage());
+            sheets.clear();
+            backfills.clear();
+            staleRollups.clear();
+        }
+    }
+
+    private void persist() {
+        Map<String, PersistedSheet> persisted = new LinkedHashMap<>();
+        sheets.forEach((name, index) -> persisted.put(name, new PersistedSheet(
+                index.reconciledAt().toString(), index.highWaterMark(), index.rows())));
+        Map<String, List<String>> persistedRollups = new LinkedHashMap<>();
+        staleRollups.forEach((name, dates) -> persistedRollups.put(name,
+                dates.stream().map(LocalDate::toString).toList()));
+        try {
+            Path file = dataDirectory.resolve(STATE_FILE);
+            Path temp = file.resolveSibling(STATE_FILE + ".tmp");
+            objectMapper.writeValue(temp.toFile(), new PersistedState(persisted, backfills, persistedRollups));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not persist sync state: {}", e.getMessage());
+        }
+    }
+
+    private record PersistedState(Map<String, PersistedSheet> sheets,
+                                  Map<String, Backfill> backfills,
+                                  Map<String, List<String>> staleRollups) {
+    }
+
+    private record PersistedSheet(String reconciledAt, String highWaterMark, Map<String, Integer> rows) {
+    }
+}
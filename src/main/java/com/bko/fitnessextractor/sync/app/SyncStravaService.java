@@ -4,35 +4,71 @@ import com.bko.fitnessextractor.integrations.sheets.SpreadsheetPort;
 import com.bko.fitnessextractor.integrations.strava.StravaActivity;
 import com.bko.fitnessextractor.integrations.strava.StravaClientPort;
 import com.bko.fitnessextractor.shared.AppSettings;
+import com.bko.fitnessextractor.sync.StravaActivitiesSynced;
+import com.bko.fitnessextractor.sync.SyncProgressListener;
 import com.bko.fitnessextractor.sync.SyncStravaUseCase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 @Service
 public class SyncStravaService implements SyncStravaUseCase {
     private static final Logger logger = LoggerFactory.getLogger(SyncStravaService.class);
     private static final String SHEET_NAME = "Strava Activities";
+    private static final String SOURCE = "strava";
+    private static final List<Object> HEADERS = List.of(
+            "Activity ID", "Name", "Type", "Distance (m)", "Moving Time (s)", "Elapsed Time (s)",
+            "Start Date", "Avg Speed (m/s)", "Max Speed (m/s)", "Elevation Gain (m)",
+            "Avg Heart Rate", "Max Heart Rate", "Avg Watts", "Kilojoules", "Suffer Score", "Description"
+    );
 
     private final SpreadsheetPort spreadsheetPort;
     private final StravaClientPort stravaClientPort;
     private final AppSettings appSettings;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RollupService rollupService;
+    private final SyncStateStore syncStateStore;
+    private final SyncPipeline syncPipeline;
+    private final SyncJournal syncJournal;
+    private final SyncMetrics syncMetrics;
 
-    public SyncStravaService(SpreadsheetPort spreadsheetPort, StravaClientPort stravaClientPort, AppSettings appSettings) {
+    public SyncStravaService(SpreadsheetPort spreadsheetPort,
+                             StravaClientPort stravaClientPort,
+                             AppSettings appSettings,
+                             ApplicationEventPublisher eventPublisher,
+                             RollupService rollupService,
+                             SyncStateStore syncStateStore,
+                             SyncPipeline syncPipeline,
+                             SyncJournal syncJournal,
+                             SyncMetrics syncMetrics) {
         this.spreadsheetPort = spreadsheetPort;
         this.stravaClientPort = stravaClientPort;
         this.appSettings = appSettings;
+        this.eventPublisher = eventPublisher;
+        this.rollupService = rollupService;
+        this.syncStateStore = syncStateStore;
+        this.syncPipeline = syncPipeline;
+        this.syncJournal = syncJournal;
+        this.syncMetrics = syncMetrics;
     }
 
     @Override
-    public SyncReport syncStrava() {
-        SyncReport report = new SyncReport();
+    public SyncReport syncStrava(SyncProgressListener progressListener) {
+        SyncReport report = new SyncReport(progressListener);
         report.setStravaAttempted(true);
 
         if (!appSettings.isGoogleConfigured()) {
@@ -44,111 +80,264 @@ public class SyncStravaService implements SyncStravaUseCase {
             return report;
         }
 
+        SyncMetrics.Span total = syncMetrics.start(SOURCE, SyncMetrics.TOTAL);
         try {
             logger.info("Starting Strava sync...");
             report.info("Starting Strava sync...");
-            spreadsheetPort.createSheet(SHEET_NAME);
+            syncMetrics.call(SOURCE, "recover", () -> recoverJournal(report));
+            SheetIndex index = syncStateStore.find(SHEET_NAME);
+            syncMetrics.indexLookup(index != null);
+            boolean indexTrusted = true;
+            if (index == null) {
+                SyncMetrics.Span reconcile = syncMetrics.start(SOURCE, "reconcile");
+                spreadsheetPort.createSheet(SHEET_NAME);
 
-            List<List<Object>> existingData = null;
+                List<List<Object>> existingData = null;
+                try {
+                    existingData = spreadsheetPort.getExistingValues(SHEET_NAME + "!A:A");
+                } catch (Exception e) {
+                    logger.debug("No existing Strava data found or sheet new: {}", e.getMessage());
+                    indexTrusted = false;
+                }
+                spreadsheetPort.ensureHeaders(SHEET_NAME, HEADERS);
+                index = syncStateStore.reconcile(existingData, 0, HEADERS.getFirst().toString());
+                reconcile.end(indexTrusted);
+            }
+
+            Set<String> knownIds = new HashSet<>(index.rows().keySet());
+            int addedBefore = report.getStravaAdded();
             try {
-                existingData = spreadsheetPort.getExistingValues(SHEET_NAME + "!A:A");
+                Backfill backfill = syncStateStore.backfill(SHEET_NAME);
+                if (backfill != null) {
+                    report.info("Resuming Strava backfill below activity " + backfill.anchor() + ".");
+                    fetchActivities(Instant.parse(backfill.resumeFrom()), offsetBelow(index, backfill), knownIds, index,
+                            report);
+                    syncStateStore.backfill(SHEET_NAME, null);
+                }
+                fetchActivities(null, 0, knownIds, index, report);
             } catch (Exception e) {
-                logger.debug("No existing Strava data found or sheet new: {}", e.getMessage());
+                syncStateStore.invalidate(SHEET_NAME);
+                syncJournal.release(SHEET_NAME);
+                throw e;
+            } finally {
+                // Also picks up days whose rollups an earlier sync could not update.
+                refreshRollups(report);
             }
+            saveIndex(index, indexTrusted);
+            syncJournal.finish(SHEET_NAME);
 
-            List<Object> headers = List.of(
-                    "Activity ID", "Name", "Type", "Distance (m)", "Moving Time (s)", "Elapsed Time (s)",
-                    "Start Date", "Avg Speed (m/s)", "Max Speed (m/s)", "Elevation Gain (m)",
-                    "Avg Heart Rate", "Max Heart Rate", "Avg Watts", "Kilojoules", "Suffer Score", "Description"
-            );
-            spreadsheetPort.ensureHeaders(SHEET_NAME, headers);
-
-            Set<String> existingIds = new HashSet<>();
-            if (existingData != null) {
-                for (List<Object> row : existingData) {
-                    if (!row.isEmpty()) {
-                        String id = row.get(0).toString();
-                        if (!id.equalsIgnoreCase("Activity ID")) {
-                            existingIds.add(id);
-                        }
-                    }
-                }
+            int added = report.getStravaAdded() - addedBefore;
+            if (added == 0) {
+                report.info("No new Strava activities to sync.");
+            } else {
+                report.info("Strava sync complete. Added " + added + " activities.");
             }
+        } catch (Exception e) {
+            logger.error("Strava sync failed", e);
+            report.error("Strava sync failed: " + e.getMessage());
+        }
+        total.end(report.isSuccess());
 
-            List<StravaActivity> newActivities = new ArrayList<>();
-            int page = 1;
-            while (true) {
-                List<StravaActivity> pageActivities = stravaClientPort.getActivities(page, 100);
-                if (pageActivities.isEmpty()) {
-                    break;
-                }
+        return report;
+    }
 
-                int addedInPage = 0;
-                for (StravaActivity activity : pageActivities) {
-                    if (!existingIds.contains(String.valueOf(activity.getId()))) {
-                        try {
-                            StravaActivity detailed = stravaClientPort.getActivity(activity.getId());
-                            newActivities.add(detailed);
-                        } catch (IOException e) {
-                            logger.warn("Could not fetch details for activity {}: {}", activity.getId(), e.getMessage());
-                            newActivities.add(activity);
+    /**
+     * Writes the batches a crashed or failed sync journaled but did not finish, skipping activities that
+     * made it into the sheet. Rows a crash left blank between inserting them and writing their values are
+     * filled in rather than inserted again.
+     */
+    int recoverJournal(SyncReport report) throws Exception {
+        int replayed = syncJournal.recover(SHEET_NAME, ActivityBatch.class, batch -> {
+            List<List<Object>> values = spreadsheetPort.getExistingValues(SHEET_NAME + "!A:A");
+            SheetIndex index = syncStateStore.reconcile(values, 0, HEADERS.getFirst().toString());
+            List<StravaActivity> missing = batch.activities().stream()
+                    .filter(activity -> !index.contains(String.valueOf(activity.getId())))
+                    .toList();
+            if (!missing.isEmpty()) {
+                writeActivities(missing, index, new AtomicInteger(batch.offset()),
+                        SheetIndex.blankRows(values, batch.offset(), missing.size()), report);
+            }
+        });
+        if (replayed > 0) {
+            report.info("Replayed " + replayed + " unfinished Strava batches from the sync journal.");
+        }
+        return replayed;
+    }
+
+    /**
+     * Fetches the activities started before {@code before} (all of them if {@code null}) that are not in the
+     * sheet yet and inserts them from {@code offset} down. If the fetch fails, the activities older than the
+     * last one written are left as the sheet's {@link Backfill}.
+     */
+    private void fetchActivities(Instant before,
+                                 int offset,
+                                 Set<String> knownIds,
+                                 SheetIndex index,
+                                 SyncReport report) throws Exception {
+        AtomicInteger written = new AtomicInteger(offset);
+        AtomicReference<Backfill> reached = new AtomicReference<>();
+        try {
+            syncPipeline.<StravaActivity>run(
+                    sink -> syncMetrics.run(SOURCE, "fetch", () -> fetchNewActivities(before, knownIds, report, sink)),
+                    batch -> syncJournal.write(SHEET_NAME, new ActivityBatch(written.get(), batch), () -> {
+                        // Journaled batches get written, by this sync or by the next one's replay.
+                        StravaActivity last = batch.getLast();
+                        Instant startedAt = parseInstant(last.getStartDate());
+                        if (startedAt != null) {
+                            reached.set(new Backfill(String.valueOf(last.getId()), startedAt.toString(), null));
                         }
-                        addedInPage++;
-                    }
-                }
+                        writeActivities(batch, index, written, false, report);
+                    }));
+        } catch (Exception e) {
+            if (reached.get() != null) {
+                syncStateStore.backfill(SHEET_NAME, reached.get());
+            }
+            throw e;
+        }
+    }
 
-                logger.info("Found {} new activities on page {}", addedInPage, page);
-                if (addedInPage == 0 && !existingIds.isEmpty()) {
-                    break;
-                }
-                if (pageActivities.size() < 100) {
-                    break;
-                }
-                page++;
-                if (page > 50) {
-                    break;
-                }
+    private void fetchNewActivities(Instant before, Set<String> knownIds, SyncReport report,
+                                    Consumer<StravaActivity> sink) throws IOException {
+        boolean sheetHasActivities = !knownIds.isEmpty();
+        int fetched = 0;
+        int page = 1;
+        while (true) {
+            List<StravaActivity> pageActivities = before == null
+                    ? stravaClientPort.getActivities(page, 100)
+                    : stravaClientPort.getActivities(page, 100, null, before);
+            report.progress(SOURCE, "pages_fetched", page);
+            if (pageActivities.isEmpty()) {
+                break;
             }
 
-            if (newActivities.isEmpty()) {
-                report.info("No new Strava activities to sync.");
-                return report;
+            int addedInPage = 0;
+            for (StravaActivity activity : pageActivities) {
+                if (knownIds.add(String.valueOf(activity.getId()))) {
+                    try {
+                        sink.accept(stravaClientPort.getActivity(activity.getId()));
+                    } catch (IOException e) {
+                        logger.warn("Could not fetch details for activity {}: {}", activity.getId(), e.getMessage());
+                        sink.accept(activity);
+                    }
+                    addedInPage++;
+                }
             }
 
-            List<List<Object>> valuesToAppend = new ArrayList<>();
-            for (StravaActivity activity : newActivities) {
-                List<Object> row = new ArrayList<>();
-                row.add(normalize(activity.getId()));
-                row.add(normalize(activity.getName()));
-                row.add(normalize(activity.getType()));
-                row.add(normalize(activity.getDistance()));
-                row.add(normalize(activity.getMovingTime()));
-                row.add(normalize(activity.getElapsedTime()));
-                row.add(normalize(activity.getStartDate()));
-                row.add(normalize(activity.getAverageSpeed()));
-                row.add(normalize(activity.getMaxSpeed()));
-                row.add(normalize(activity.getTotalElevationGain()));
-                row.add(normalize(activity.getAverageHeartrate()));
-                row.add(normalize(activity.getMaxHeartrate()));
-                row.add(normalize(activity.getAverageWatts()));
-                row.add(normalize(activity.getKilojoules()));
-                row.add(normalize(activity.getSufferScore()));
-                row.add(normalize(activity.getDescription()));
-                valuesToAppend.add(row);
+            fetched += addedInPage;
+            logger.info("Found {} new activities on page {}", addedInPage, page);
+            report.progress(SOURCE, "activities_fetched", fetched);
+            if (addedInPage == 0 && sheetHasActivities) {
+                break;
+            }
+            if (pageActivities.size() < 100) {
+                break;
             }
+            page++;
+            if (page > 50) {
+                break;
+            }
+        }
+    }
 
-            spreadsheetPort.insertRowsAtTop(SHEET_NAME, valuesToAppend);
-            report.addStravaAdded(newActivities.size());
-            report.info("Strava sync complete. Added " + newActivities.size() + " activities.");
-        } catch (Exception e) {
-            logger.error("Strava sync failed", e);
-            report.error("Strava sync failed: " + e.getMessage());
+    /**
+     * Inserts the activities at {@code offset}, or writes them into the blank rows there if {@code fill},
+     * and moves it below them.
+     */
+    private void writeActivities(List<StravaActivity> activities,
+                                 SheetIndex index,
+                                 AtomicInteger offset,
+                                 boolean fill,
+                                 SyncReport report) throws IOException {
+        List<List<Object>> rows = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (StravaActivity activity : activities) {
+            ids.add(String.valueOf(activity.getId()));
+            List<Object> row = new ArrayList<>();
+            row.add(normalize(activity.getId()));
+            row.add(normalize(activity.getName()));
+            row.add(normalize(activity.getType()));
+            row.add(normalize(activity.getDistance()));
+            row.add(normalize(activity.getMovingTime()));
+            row.add(normalize(activity.getElapsedTime()));
+            row.add(normalize(activity.getStartDate()));
+            row.add(normalize(activity.getAverageSpeed()));
+            row.add(normalize(activity.getMaxSpeed()));
+            row.add(normalize(activity.getTotalElevationGain()));
+            row.add(normalize(activity.getAverageHeartrate()));
+            row.add(normalize(activity.getMaxHeartrate()));
+            row.add(normalize(activity.getAverageWatts()));
+            row.add(normalize(activity.getKilojoules()));
+            row.add(normalize(activity.getSufferScore()));
+            row.add(normalize(activity.getDescription()));
+            rows.add(row);
         }
 
-        return report;
+        List<LocalDate> days = activities.stream()
+                .map(activity -> RollupService.parseDate(activity.getStartDate()))
+                .filter(Objects::nonNull)
+                .toList();
+        syncStateStore.markRollupsStale(SHEET_NAME, days);
+        // Fetching goes newest first, so each batch goes below the ones already written.
+        if (fill) {
+            syncMetrics.run(SOURCE, "write", () -> spreadsheetPort.writeRows(SHEET_NAME, offset.get(), rows));
+            index.filled(offset.getAndAdd(rows.size()), ids);
+        } else {
+            syncMetrics.run(SOURCE, "write", () -> spreadsheetPort.insertRows(SHEET_NAME, offset.get(), rows));
+            index.inserted(offset.getAndAdd(rows.size()), ids);
+        }
+        report.addStravaAdded(activities.size());
+        report.progress(SOURCE, "rows_written", report.getStravaAdded());
+        eventPublisher.publishEvent(new StravaActivitiesSynced(activities));
+    }
+
+    /**
+     * Refreshes the rollup periods of the days this sync wrote, and of days an earlier sync wrote but could
+     * not roll up. Runs once after the pipeline drains, so a backfill reads the raw sheets once, not per batch.
+     */
+    private void refreshRollups(SyncReport report) {
+        Set<LocalDate> days = syncStateStore.staleRollups(SHEET_NAME);
+        if (!days.isEmpty()
+                && syncMetrics.call(SOURCE, "rollups", () -> rollupService.refreshActivities(days, report))) {
+            syncStateStore.rollupsRefreshed(SHEET_NAME, days);
+        }
+    }
+
+    /**
+     * Where a backfill goes: right below its anchor row, or at the top if that row is gone from the sheet.
+     */
+    private static int offsetBelow(SheetIndex index, Backfill backfill) {
+        Integer offset = index.offsetBelow(backfill.anchor());
+        if (offset == null) {
+            logger.warn("Backfill anchor {} is no longer in the sheet; inserting the backfilled rows at the top.",
+                    backfill.anchor());
+            return 0;
+        }
+        return offset;
+    }
+
+    private static Instant parseInstant(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private void saveIndex(SheetIndex index, boolean trusted) {
+        if (trusted) {
+            syncStateStore.save(SHEET_NAME, index);
+        } else {
+            syncStateStore.invalidate(SHEET_NAME);
+        }
     }
 
     private Object normalize(Object value) {
         return value == null ? "" : value;
     }
+
+    private record ActivityBatch(int offset, List<StravaActivity> activities) {
+    }
 }
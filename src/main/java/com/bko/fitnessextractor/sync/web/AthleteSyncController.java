@@ -0,0 +1,44 @@
+package com.bko.fitnessextractor.sync.web;
+
+import com.bko.fitnessextractor.sync.app.AthleteSyncScheduler;
+import com.bko.fitnessextractor.sync.app.AthleteSyncStatus;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * JSON API for the syncs of registered athletes.
+ */
+@RestController
+@RequestMapping("/sync/athletes")
+public class AthleteSyncController {
+    private final AthleteSyncScheduler athleteSyncScheduler;
+
+    public AthleteSyncController(AthleteSyncScheduler athleteSyncScheduler) {
+        this.athleteSyncScheduler = athleteSyncScheduler;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<AthleteSyncStatus> list() {
+        return athleteSyncScheduler.statuses();
+    }
+
+    /**
+     * Queues a sync for athlete {@code id} and returns 202; a sync already queued or running is kept.
+     */
+    @PostMapping("/{id}")
+    public ResponseEntity<Void> sync(@PathVariable String id) {
+        if (!athleteSyncScheduler.request(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown athlete");
+        }
+        return ResponseEntity.accepted().build();
+    }
+}
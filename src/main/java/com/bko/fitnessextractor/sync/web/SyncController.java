@@ -3,10 +3,8 @@ package com.bko.fitnessextractor.sync.web;
 import com.bko.fitnessextractor.shared.AppSettings;
 import com.bko.fitnessextractor.shared.ConfigStatus;
 import com.bko.fitnessextractor.sync.ExportCsvUseCase;
-import com.bko.fitnessextractor.sync.SyncAllUseCase;
-import com.bko.fitnessextractor.sync.SyncGarminUseCase;
-import com.bko.fitnessextractor.sync.SyncStravaUseCase;
-import com.bko.fitnessextractor.sync.app.SyncReport;
+import com.bko.fitnessextractor.sync.app.SyncJob;
+import com.bko.fitnessextractor.sync.app.SyncJobService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
@@ -17,6 +15,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -28,52 +27,48 @@ public class SyncController {
     private static final Logger logger = LoggerFactory.getLogger(SyncController.class);
     private static final DateTimeFormatter EXPORT_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
 
-    private final SyncAllUseCase syncAllUseCase;
-    private final SyncStravaUseCase syncStravaUseCase;
-    private final SyncGarminUseCase syncGarminUseCase;
+    private final SyncJobService syncJobService;
     private final ExportCsvUseCase exportCsvUseCase;
     private final AppSettings settings;
 
-    public SyncController(SyncAllUseCase syncAllUseCase,
-                          SyncStravaUseCase syncStravaUseCase,
-                          SyncGarminUseCase syncGarminUseCase,
+    public SyncController(SyncJobService syncJobService,
                           ExportCsvUseCase exportCsvUseCase,
                           AppSettings settings) {
-        this.syncAllUseCase = syncAllUseCase;
-        this.syncStravaUseCase = syncStravaUseCase;
-        this.syncGarminUseCase = syncGarminUseCase;
+        this.syncJobService = syncJobService;
         this.exportCsvUseCase = exportCsvUseCase;
         this.settings = settings;
     }
 
+    /**
+     * The console. With {@code job}, shows that sync job: its report once finished, live progress before.
+     */
     @GetMapping("/")
-    public String index(Model model) {
+    public String index(@RequestParam(value = "job", required = false) String jobId, Model model) {
         populateConfig(model);
+        if (jobId != null) {
+            syncJobService.find(jobId).ifPresent(job -> {
+                model.addAttribute("job", job);
+                if (job.isFinished()) {
+                    model.addAttribute("report", job.getReport());
+                }
+            });
+        }
         return "index";
     }
 
     @PostMapping("/sync/all")
-    public String syncAll(Model model) {
-        SyncReport report = syncAllUseCase.syncAll();
-        populateConfig(model);
-        model.addAttribute("report", report);
-        return "index";
+    public String syncAll() {
+        return redirectTo(syncJobService.start(SyncJob.Source.ALL));
     }
 
     @PostMapping("/sync/strava")
-    public String syncStrava(Model model) {
-        SyncReport report = syncStravaUseCase.syncStrava();
-        populateConfig(model);
-        model.addAttribute("report", report);
-        return "index";
+    public String syncStrava() {
+        return redirectTo(syncJobService.start(SyncJob.Source.STRAVA));
     }
 
     @PostMapping("/sync/garmin")
-    public String syncGarmin(Model model) {
-        SyncReport report = syncGarminUseCase.syncGarmin();
-        populateConfig(model);
-        model.addAttribute("report", report);
-        return "index";
+    public String syncGarmin() {
+        return redirectTo(syncJobService.start(SyncJob.Source.GARMIN));
     }
 
     @GetMapping("/sync/export")
@@ -99,6 +94,10 @@ public class SyncController {
         }
     }
 
+    private String redirectTo(SyncJob job) {
+        return "redirect:/?job=" + job.getId();
+    }
+
     private void populateConfig(Model model) {
         model.addAttribute("config", ConfigStatus.from(settings));
     }
@@ -0,0 +1,110 @@
+package com.bko.fitnessextractor.sync.web;
+
+import com.bko.fitnessextractor.sync.SyncProgress;
+import com.bko.fitnessextractor.sync.app.SyncJob;
+import com.bko.fitnessextractor.sync.app.SyncJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * JSON API for background sync jobs.
+ */
+@RestController
+@RequestMapping("/sync/jobs")
+public class SyncJobController {
+    private static final Logger logger = LoggerFactory.getLogger(SyncJobController.class);
+    // Longer than the MVC async default: a first Garmin backfill can take several minutes.
+    private static final Duration STREAM_TIMEOUT = Duration.ofMinutes(30);
+
+    private final SyncJobService syncJobService;
+
+    public SyncJobController(SyncJobService syncJobService) {
+        this.syncJobService = syncJobService;
+    }
+
+    /**
+     * Starts a job for {@code source} ({@code all}, {@code strava} or {@code garmin}) and returns it
+     * with 202 right away.
+     */
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SyncJob> start(@RequestParam(value = "source", defaultValue = "all") String source) {
+        SyncJob.Source parsed;
+        try {
+            parsed = SyncJob.Source.valueOf(source.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "source must be all, strava or garmin");
+        }
+        SyncJob job = syncJobService.start(parsed);
+        return ResponseEntity.accepted().location(URI.create("/sync/jobs/" + job.getId())).body(job);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<SyncJob> list() {
+        return syncJobService.list();
+    }
+
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public SyncJob job(@PathVariable String id) {
+        return find(id);
+    }
+
+    /**
+     * Server-sent events: a "progress" event per {@link SyncProgress} (earlier ones are replayed first),
+     * then one "done" event with the finished job.
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable String id) {
+        SyncJob job = find(id);
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT.toMillis());
+        AtomicReference<Runnable> unsubscribe = new AtomicReference<>(() -> { });
+        Runnable cancel = () -> unsubscribe.get().run();
+        emitter.onCompletion(cancel);
+        emitter.onTimeout(cancel);
+        emitter.onError(e -> cancel.run());
+        unsubscribe.set(job.subscribe(new SyncJob.Listener() {
+            @Override
+            public void onProgress(SyncProgress progress) {
+                send(emitter, "progress", progress);
+            }
+
+            @Override
+            public void onFinished(SyncJob finished) {
+                send(emitter, "done", finished);
+                emitter.complete();
+            }
+        }));
+        return emitter;
+    }
+
+    private SyncJob find(String id) {
+        return syncJobService.find(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown or expired sync job"));
+    }
+
+    private void send(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // The client went away; the job carries on and its report stays queryable.
+            logger.debug("Could not send sync job event: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.bko.fitnessextractor.visualization.analytics;
+
+import java.time.LocalDate;
+
+/**
+ * The subset of a Strava activity that the analytics engines consume.
+ *
+ * @param id the Strava activity ID, which lets the engines skip an activity they already counted
+ */
+public record ActivitySample(
+        String id,
+        LocalDate date,
+        Double distanceMeters,
+        Integer movingTimeSeconds,
+        Double averageHeartrate,
+        Double maxHeartrate,
+        Double kilojoules,
+        Integer sufferScore
+) {
+}
@@ -0,0 +1,110 @@
+package com.bko.fitnessextractor.visualization.analytics;
+
+import com.bko.fitnessextractor.integrations.garmin.GarminMetrics;
+import com.bko.fitnessextractor.integrations.strava.StravaActivity;
+import com.bko.fitnessextractor.sync.GarminMetricsSynced;
+import com.bko.fitnessextractor.sync.GarminWellnessSynced;
+import com.bko.fitnessextractor.sync.StravaActivitiesSynced;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Feeds freshly synced data into the incremental analytics so the dashboard never has to replay history.
+ */
+@Component
+public class AnalyticsSyncListener {
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsSyncListener.class);
+
+    private final TrainingLoadEngine trainingLoadEngine;
+    private final RollingStatistics rollingStatistics;
+    private final DailyHistograms dailyHistograms;
+
+    public AnalyticsSyncListener(TrainingLoadEngine trainingLoadEngine,
+                                 RollingStatistics rollingStatistics,
+                                 DailyHistograms dailyHistograms) {
+        this.trainingLoadEngine = trainingLoadEngine;
+        this.rollingStatistics = rollingStatistics;
+        this.dailyHistograms = dailyHistograms;
+    }
+
+    @EventListener
+    public void onStravaActivitiesSynced(StravaActivitiesSynced event) {
+        try {
+            List<ActivitySample> samples = event.activities().stream()
+                    .map(this::toSample)
+                    .toList();
+            trainingLoadEngine.recordActivities(samples);
+            rollingStatistics.recordActivities(samples);
+        } catch (Exception e) {
+            logger.warn("Could not update analytics with synced Strava activities", e);
+        }
+    }
+
+    @EventListener
+    public void onGarminMetricsSynced(GarminMetricsSynced event) {
+        try {
+            Map<LocalDate, Integer> restingHr = new HashMap<>();
+            List<DailyMetricsSample> days = new ArrayList<>();
+            for (GarminMetrics metrics : event.metrics()) {
+                LocalDate date = parseDate(metrics.getDate());
+                if (date == null) {
+                    continue;
+                }
+                if (metrics.getRestingHeartRate() != null) {
+                    restingHr.put(date, metrics.getRestingHeartRate());
+                }
+                days.add(new DailyMetricsSample(date, metrics.getRestingHeartRate(),
+                        metrics.getSleepDurationHours(), metrics.getHrv()));
+            }
+            trainingLoadEngine.recordRestingHeartRates(restingHr);
+            rollingStatistics.recordDailyMetrics(days);
+        } catch (Exception e) {
+            logger.warn("Could not update analytics with synced Garmin metrics", e);
+        }
+    }
+
+    @EventListener
+    public void onGarminWellnessSynced(GarminWellnessSynced event) {
+        try {
+            List<WellnessSample> samples = event.samples().stream()
+                    .map(sample -> new WellnessSample(parseDate(sample.getDate()), sample.getStress(), sample.getHeartRate()))
+                    .toList();
+            dailyHistograms.recordDays(samples);
+        } catch (Exception e) {
+            logger.warn("Could not update analytics with synced Garmin stress/HR samples", e);
+        }
+    }
+
+    private ActivitySample toSample(StravaActivity activity) {
+        return new ActivitySample(
+                activity.getId() == null ? null : activity.getId().toString(),
+                parseDate(activity.getStartDate()),
+                activity.getDistance(),
+                activity.getMovingTime(),
+                activity.getAverageHeartrate(),
+                activity.getMaxHeartrate(),
+                activity.getKilojoules(),
+                activity.getSufferScore()
+        );
+    }
+
+    private LocalDate parseDate(String value) {
+        if (value == null || value.length() < 10) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value.substring(0, 10));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
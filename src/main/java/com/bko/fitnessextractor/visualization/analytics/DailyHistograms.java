@@ -0,0 +1,158 @@
+package com.bko.fitnessextractor.visualization.analytics;
+
+import com.bko.fitnessextractor.visualization.app.DistributionSummary;
+import com.bko.fitnessextractor.visualization.app.HistogramSummary;
+import com.bko.fitnessextractor.visualization.app.ZoneShare;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Per-day heart rate (0-255 bpm) and stress (0-100) histograms built from the Garmin stress/HR samples.
+ * <p>
+ * Range queries merge one histogram per day instead of scanning the raw samples, so percentiles and
+ * time-in-zone over weeks or months cost O(days).
+ */
+@Component
+public class DailyHistograms {
+    static final int MAX_HEART_RATE = 255;
+    static final int MAX_STRESS = 100;
+    private static final int RETENTION_DAYS = 400;
+    private static final int[] STRESS_ZONE_BOUNDS = {26, 51, 76};
+    private static final String[] STRESS_ZONE_NAMES = {"Rest", "Low", "Medium", "High"};
+
+    private final Clock clock;
+    private final int[] heartRateZoneBounds;
+    private final TreeMap<LocalDate, Day> days = new TreeMap<>();
+    private boolean initialized;
+
+    public DailyHistograms(Clock clock, @Value("${analytics.heart-rate.zones:60,80,100,120}") int[] heartRateZoneBounds) {
+        this.clock = clock;
+        this.heartRateZoneBounds = Arrays.stream(heartRateZoneBounds)
+                .filter(bound -> bound > 0 && bound <= MAX_HEART_RATE)
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    public synchronized boolean isInitialized() {
+        return initialized;
+    }
+
+    public synchronized void bootstrap(Collection<WellnessSample> samples) {
+        if (initialized) {
+            return;
+        }
+        days.clear();
+        replaceDays(samples);
+        initialized = true;
+    }
+
+    /**
+     * Replaces the histograms of every date present in {@code samples}; the caller passes complete days.
+     */
+    public synchronized void recordDays(Collection<WellnessSample> samples) {
+        if (!initialized) {
+            return;
+        }
+        replaceDays(samples);
+    }
+
+    /**
+     * Distributions for the last week and the last 30 days, ending today.
+     */
+    public synchronized List<DistributionSummary> summaries() {
+        if (!initialized || days.isEmpty()) {
+            return null;
+        }
+        LocalDate today = LocalDate.now(clock);
+        return List.of(
+                summarize("Last 7 days", today.minusDays(6), today),
+                summarize("Last 30 days", today.minusDays(29), today)
+        );
+    }
+
+    public synchronized DistributionSummary summarize(String label, LocalDate from, LocalDate to) {
+        Histogram heartRate = new Histogram(MAX_HEART_RATE);
+        Histogram stress = new Histogram(MAX_STRESS);
+        Map<LocalDate, Day> range = days.subMap(from, true, to, true);
+        for (Day day : range.values()) {
+            heartRate.merge(day.heartRate);
+            stress.merge(day.stress);
+        }
+        return new DistributionSummary(
+                label,
+                from.toString(),
+                to.toString(),
+                range.size(),
+                describe(heartRate, heartRateZoneBounds, heartRateZoneNames()),
+                describe(stress, STRESS_ZONE_BOUNDS, STRESS_ZONE_NAMES)
+        );
+    }
+
+    private void replaceDays(Collection<WellnessSample> samples) {
+        Map<LocalDate, List<WellnessSample>> byDate = samples.stream()
+                .filter(sample -> sample.date() != null)
+                .collect(Collectors.groupingBy(WellnessSample::date));
+        byDate.forEach((date, daySamples) -> {
+            Day day = new Day();
+            for (WellnessSample sample : daySamples) {
+                if (sample.heartRate() != null && sample.heartRate() > 0) {
+                    day.heartRate.record(sample.heartRate());
+                }
+                // Garmin reports negative stress for unmeasurable periods.
+                if (sample.stress() != null && sample.stress() >= 0) {
+                    day.stress.record(sample.stress());
+                }
+            }
+            days.put(date, day);
+        });
+        LocalDate cutoff = LocalDate.now(clock).minusDays(RETENTION_DAYS);
+        days.headMap(cutoff).clear();
+    }
+
+    private HistogramSummary describe(Histogram histogram, int[] bounds, String[] names) {
+        List<ZoneShare> zones = new ArrayList<>(names.length);
+        int lower = 0;
+        for (int i = 0; i < names.length; i++) {
+            int upper = i < bounds.length ? bounds[i] : histogram.maxValue() + 1;
+            long samples = histogram.countBetween(lower, upper);
+            double percent = histogram.count() == 0 ? 0.0 : Math.round(samples * 1000.0 / histogram.count()) / 10.0;
+            zones.add(new ZoneShare(names[i], samples, percent));
+            lower = upper;
+        }
+        Double mean = histogram.mean();
+        return new HistogramSummary(
+                histogram.count(),
+                mean == null ? null : Math.round(mean * 10.0) / 10.0,
+                histogram.percentile(50),
+                histogram.percentile(90),
+                List.copyOf(zones)
+        );
+    }
+
+    private String[] heartRateZoneNames() {
+        String[] names = new String[heartRateZoneBounds.length + 1];
+        int lower = 0;
+        for (int i = 0; i < heartRateZoneBounds.length; i++) {
+            names[i] = lower == 0 ? "<" + heartRateZoneBounds[i] : lower + "-" + (heartRateZoneBounds[i] - 1);
+            lower = heartRateZoneBounds[i];
+        }
+        names[heartRateZoneBounds.length] = lower == 0 ? "All" : lower + "+";
+        return names;
+    }
+
+    private static final class Day {
+        private final Histogram heartRate = new Histogram(MAX_HEART_RATE);
+        private final Histogram stress = new Histogram(MAX_STRESS);
+    }
+}
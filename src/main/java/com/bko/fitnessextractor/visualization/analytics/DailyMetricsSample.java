@@ -0,0 +1,14 @@
+package com.bko.fitnessextractor.visualization.analytics;
+
+import java.time.LocalDate;
+
+/**
+ * The subset of a Garmin daily metrics row that the analytics engines consume.
+ */
+public record DailyMetricsSample(
+        LocalDate date,
+        Integer restingHeartRate,
+        Double sleepDurationHours,
+        Double hrv
+) {
+}
@@ -0,0 +1,81 @@
+package com.bko.fitnessextractor.visualization.analytics;
+
+/**
+ * Fixed-bucket histogram of integer samples in {@code [0, maxValue]}, one bucket per value.
+ * <p>
+ * Two histograms over the same range merge by adding their buckets, so a multi-day distribution
+ * costs O(days × buckets) to build regardless of how many samples each day holds.
+ */
+final class Histogram {
+    private final int[] buckets;
+    private long count;
+    private long total;
+
+    Histogram(int maxValue) {
+        this.buckets = new int[maxValue + 1];
+    }
+
+    int maxValue() {
+        return buckets.length - 1;
+    }
+
+    long count() {
+        return count;
+    }
+
+    void record(int value) {
+        if (value < 0) {
+            return;
+        }
+        int bucket = Math.min(value, buckets.length - 1);
+        buckets[bucket]++;
+        count++;
+        total += bucket;
+    }
+
+    void merge(Histogram other) {
+        if (other.buckets.length != buckets.length) {
+            throw new IllegalArgumentException("Cannot merge histograms with different ranges");
+        }
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] += other.buckets[i];
+        }
+        count += other.count;
+        total += other.total;
+    }
+
+    Double mean() {
+        return count == 0 ? null : (double) total / count;
+    }
+
+    /**
+     * Smallest value at or below which {@code percentile} percent of the samples fall.
+     */
+    Integer percentile(double percentile) {
+        if (count == 0) {
+            return null;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return i;
+            }
+        }
+        return buckets.length - 1;
+    }
+
+    /**
+     * Number of samples in {@code [fromInclusive, toExclusive)}.
+     */
+    long countBetween(int fromInclusive, int toExclusive) {
+        int from = Math.max(0, fromInclusive);
+        int to = Math.min(buckets.length, toExclusive);
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += buckets[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,180 @@
+package com.bko.fitnessextractor.visualization.analytics;
+
+import com.bko.fitnessextractor.visualization.app.MetricTrend;
+import com.bko.fitnessextractor.visualization.app.TrendSummary;
+import com.bko.fitnessextractor.visualization.app.WindowStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rolling 7/28-day style statistics for sleep, resting HR, HRV and distance.
+ * <p>
+ * Each metric keeps one {@link RollingWindow} per configured window length, so reads are constant
+ * time and new days are appended as they are synced. The buffers are rebuilt from the sheet rows the
+ * dashboard already loads the first time it runs after a restart. Activities are remembered by ID, so
+ * one the bootstrap read from the sheet is not added again when its sync event arrives.
+ */
+@Component
+public class RollingStatistics {
+    private final int[] windowDays;
+    private final Clock clock;
+    private final Map<Metric, RollingWindow[]> windows = new EnumMap<>(Metric.class);
+    private final Set<String> activityIds = new HashSet<>();
+    private boolean initialized;
+
+    public RollingStatistics(@Value("${analytics.rolling.windows:7,28}") int[] windowDays, Clock clock) {
+        int[] sorted = Arrays.stream(windowDays).filter(days -> days > 0).distinct().sorted().toArray();
+        this.windowDays = sorted.length == 0 ? new int[] {7, 28} : sorted;
+        this.clock = clock;
+        reset();
+    }
+
+    public synchronized boolean isInitialized() {
+        return initialized;
+    }
+
+    public synchronized void bootstrap(Collection<ActivitySample> activities, Collection<DailyMetricsSample> days) {
+        if (initialized) {
+            return;
+        }
+        reset();
+        LocalDate oldest = LocalDate.now(clock).minusDays(windowDays[windowDays.length - 1]);
+        // Start the distance windows at the oldest day so idle days before the first activity count as zero.
+        for (RollingWindow window : windows.get(Metric.DISTANCE_KM)) {
+            window.add(oldest.plusDays(1).toEpochDay(), 0.0);
+        }
+        // Feed in date order so every write is an O(1) append.
+        days.stream()
+                .filter(day -> day.date() != null && day.date().isAfter(oldest))
+                .sorted(Comparator.comparing(DailyMetricsSample::date))
+                .forEach(this::putDailyMetrics);
+        activities.stream()
+                .filter(activity -> activity.date() != null && activity.date().isAfter(oldest))
+                .filter(this::firstSeen)
+                .sorted(Comparator.comparing(ActivitySample::date))
+                .forEach(this::addActivity);
+        initialized = true;
+    }
+
+    public synchronized void recordActivities(Collection<ActivitySample> activities) {
+        if (!initialized) {
+            return;
+        }
+        activities.stream()
+                .filter(activity -> activity.date() != null)
+                .filter(this::firstSeen)
+                .sorted(Comparator.comparing(ActivitySample::date))
+                .forEach(this::addActivity);
+    }
+
+    public synchronized void recordDailyMetrics(Collection<DailyMetricsSample> days) {
+        if (!initialized) {
+            return;
+        }
+        days.stream()
+                .filter(day -> day.date() != null)
+                .sorted(Comparator.comparing(DailyMetricsSample::date))
+                .forEach(this::putDailyMetrics);
+    }
+
+    public synchronized TrendSummary summary() {
+        if (!initialized) {
+            return null;
+        }
+        LocalDate today = LocalDate.now(clock);
+        long day = today.toEpochDay();
+        List<MetricTrend> trends = new ArrayList<>();
+        for (Metric metric : Metric.values()) {
+            List<WindowStats> stats = new ArrayList<>();
+            for (RollingWindow window : windows.get(metric)) {
+                stats.add(round(window.stats(day)));
+            }
+            Double shortMean = stats.get(0).mean();
+            Double longMean = stats.get(stats.size() - 1).mean();
+            Double delta = shortMean != null && longMean != null ? round(shortMean - longMean) : null;
+            trends.add(new MetricTrend(metric.label, List.copyOf(stats), delta));
+        }
+        return new TrendSummary(today.toString(), windowDays[0], windowDays[windowDays.length - 1], List.copyOf(trends));
+    }
+
+    private void putDailyMetrics(DailyMetricsSample sample) {
+        long day = sample.date().toEpochDay();
+        if (sample.restingHeartRate() != null && sample.restingHeartRate() > 0) {
+            put(Metric.RESTING_HR, day, sample.restingHeartRate());
+        }
+        if (sample.sleepDurationHours() != null && sample.sleepDurationHours() > 0) {
+            put(Metric.SLEEP_HOURS, day, sample.sleepDurationHours());
+        }
+        if (sample.hrv() != null && sample.hrv() > 0) {
+            put(Metric.HRV, day, sample.hrv());
+        }
+    }
+
+    private void addActivity(ActivitySample activity) {
+        if (activity.distanceMeters() == null || activity.distanceMeters() <= 0) {
+            return;
+        }
+        long day = activity.date().toEpochDay();
+        for (RollingWindow window : windows.get(Metric.DISTANCE_KM)) {
+            window.add(day, activity.distanceMeters() / 1000.0);
+        }
+    }
+
+    private boolean firstSeen(ActivitySample activity) {
+        return activity.id() == null || activityIds.add(activity.id());
+    }
+
+    private void put(Metric metric, long day, double value) {
+        for (RollingWindow window : windows.get(metric)) {
+            window.put(day, value);
+        }
+    }
+
+    private void reset() {
+        activityIds.clear();
+        for (Metric metric : Metric.values()) {
+            RollingWindow[] metricWindows = new RollingWindow[windowDays.length];
+            for (int i = 0; i < windowDays.length; i++) {
+                metricWindows[i] = new RollingWindow(windowDays[i], metric.fill);
+            }
+            windows.put(metric, metricWindows);
+        }
+    }
+
+    private WindowStats round(WindowStats stats) {
+        return new WindowStats(stats.days(), stats.samples(), round(stats.sum()), round(stats.mean()),
+                round(stats.min()), round(stats.max()), round(stats.stdDev()));
+    }
+
+    private Double round(Double value) {
+        return value == null ? null : Math.round(value * 10.0) / 10.0;
+    }
+
+    private enum Metric {
+        SLEEP_HOURS("Sleep (h)", Double.NaN),
+        RESTING_HR("Resting HR", Double.NaN),
+        HRV("HRV (ms)", Double.NaN),
+        // Days without an activity count as zero distance rather than missing data.
+        DISTANCE_KM("Distance (km/day)", 0.0);
+
+        private final String label;
+        private final double fill;
+
+        Metric(String label, double fill) {
+            this.label = label;
+            this.fill = fill;
+        }
+    }
+}
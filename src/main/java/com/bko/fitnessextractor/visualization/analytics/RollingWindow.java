@@ -0,0 +1,200 @@
+package com.bko.fitnessextractor.visualization.analytics;
+
+import com.bko.fitnessextractor.visualization.app.WindowStats;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size ring buffer of one value per day with running aggregates.
+ * <p>
+ * Appending a new day is O(1) (amortized for min/max, which use monotonic deques). Rewriting a day
+ * that is already inside the window is rare (today's Garmin refresh, a second activity on the same
+ * day) and rebuilds the deques in O(window).
+ */
+final class RollingWindow {
+    private final int capacity;
+    private final double fill;
+    private final double[] values;
+    private final long[] maxDeque;
+    private final long[] minDeque;
+    private int maxHead;
+    private int maxSize;
+    private int minHead;
+    private int minSize;
+    private long headDay = Long.MIN_VALUE;
+    private int count;
+    private double sum;
+    private double sumOfSquares;
+
+    /**
+     * @param capacity window length in days
+     * @param fill     value recorded for days without data; {@code NaN} leaves them out of the statistics
+     */
+    RollingWindow(int capacity, double fill) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Window must hold at least one day");
+        }
+        this.capacity = capacity;
+        this.fill = fill;
+        this.values = new double[capacity];
+        this.maxDeque = new long[capacity];
+        this.minDeque = new long[capacity];
+        Arrays.fill(values, Double.NaN);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    void put(long day, double value) {
+        write(day, value, false);
+    }
+
+    void add(long day, double delta) {
+        write(day, delta, true);
+    }
+
+    WindowStats stats(long today) {
+        advanceTo(today);
+        if (count == 0) {
+            return new WindowStats(capacity, 0, null, null, null, null, null);
+        }
+        double mean = sum / count;
+        double variance = Math.max(0.0, sumOfSquares / count - mean * mean);
+        return new WindowStats(
+                capacity,
+                count,
+                sum,
+                mean,
+                minSize > 0 ? valueOf(minDeque[minHead]) : null,
+                maxSize > 0 ? valueOf(maxDeque[maxHead]) : null,
+                Math.sqrt(variance)
+        );
+    }
+
+    private void write(long day, double value, boolean additive) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (headDay == Long.MIN_VALUE) {
+            headDay = day - 1;
+        }
+        if (day > headDay) {
+            advanceTo(day - 1);
+            double base = additive && !Double.isNaN(fill) ? fill : 0.0;
+            append(day, additive ? base + value : value);
+            return;
+        }
+        if (day <= headDay - capacity) {
+            return;
+        }
+        int slot = slot(day);
+        double previous = values[slot];
+        double updated = additive && !Double.isNaN(previous) ? previous + value : value;
+        exclude(previous);
+        values[slot] = updated;
+        include(updated);
+        rebuildDeques();
+    }
+
+    private void advanceTo(long day) {
+        if (headDay == Long.MIN_VALUE || day <= headDay) {
+            return;
+        }
+        if (day - headDay >= capacity) {
+            Arrays.fill(values, fill);
+            headDay = day;
+            recomputeTotals();
+            rebuildDeques();
+            return;
+        }
+        while (headDay < day) {
+            append(headDay + 1, fill);
+        }
+    }
+
+    private void append(long day, double value) {
+        headDay = day;
+        int slot = slot(day);
+        exclude(values[slot]);
+        values[slot] = value;
+        include(value);
+
+        long oldest = headDay - capacity;
+        while (maxSize > 0 && maxDeque[maxHead] <= oldest) {
+            maxHead = (maxHead + 1) % capacity;
+            maxSize--;
+        }
+        while (minSize > 0 && minDeque[minHead] <= oldest) {
+            minHead = (minHead + 1) % capacity;
+            minSize--;
+        }
+        if (Double.isNaN(value)) {
+            return;
+        }
+        while (maxSize > 0 && valueOf(maxDeque[(maxHead + maxSize - 1) % capacity]) <= value) {
+            maxSize--;
+        }
+        maxDeque[(maxHead + maxSize) % capacity] = day;
+        maxSize++;
+        while (minSize > 0 && valueOf(minDeque[(minHead + minSize - 1) % capacity]) >= value) {
+            minSize--;
+        }
+        minDeque[(minHead + minSize) % capacity] = day;
+        minSize++;
+    }
+
+    private void rebuildDeques() {
+        maxHead = 0;
+        maxSize = 0;
+        minHead = 0;
+        minSize = 0;
+        for (long day = headDay - capacity + 1; day <= headDay; day++) {
+            double value = valueOf(day);
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            while (maxSize > 0 && valueOf(maxDeque[maxSize - 1]) <= value) {
+                maxSize--;
+            }
+            maxDeque[maxSize++] = day;
+            while (minSize > 0 && valueOf(minDeque[minSize - 1]) >= value) {
+                minSize--;
+            }
+            minDeque[minSize++] = day;
+        }
+    }
+
+    private void recomputeTotals() {
+        count = 0;
+        sum = 0;
+        sumOfSquares = 0;
+        for (double value : values) {
+            include(value);
+        }
+    }
+
+    private void include(double value) {
+        if (!Double.isNaN(value)) {
+            count++;
+            sum += value;
+            sumOfSquares += value * value;
+        }
+    }
+
+    private void exclude(double value) {
+        if (!Double.isNaN(value)) {
+            count--;
+            sum -= value;
+            sumOfSquares -= value * value;
+        }
+    }
+
+    private double valueOf(long day) {
+        return values[slot(day)];
+    }
+
+    private int slot(long day) {
+        return (int) Math.floorMod(day, (long) capacity);
+    }
+}
@@ -0,0 +1,387 @@
+package com.bko.fitnessextractor.visualization.analytics;
+
+import com.bko.fitnessextractor.shared.DataDirectory;
+import com.bko.fitnessextractor.visualization.app.TrainingLoadSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+
+/**
+ * Maintains fitness (CTL), fatigue (ATL) and form (TSB) as exponentially weighted daily loads.
+ * <p>
+ * The state only moves forward: closing a new day is O(1), and an activity that arrives for a day
+ * that was already closed is folded in with its decayed weight instead of replaying history.
+ * The full history is replayed exactly once, when no persisted state exists yet.
+ * <p>
+ * The IDs of the activities folded in are persisted with the state. The dashboard may bootstrap from
+ * rows a sync has just written, before that sync publishes them, and the event must not count them again.
+ */
+@Component
+public class TrainingLoadEngine {
+    private static final Logger logger = LoggerFactory.getLogger(TrainingLoadEngine.class);
+    private static final String STATE_FILE = "training-load.json";
+    private static final double CTL_FACTOR = 1.0 / 42;
+    private static final double ATL_FACTOR = 1.0 / 7;
+    private static final int HISTORY_DAYS = 90;
+    private static final int RESTING_HR_DAYS = 120;
+    private static final int DEFAULT_MAX_HEART_RATE = 190;
+    private static final double KILOJOULE_LOAD_FACTOR = 0.1;
+
+    private final DataDirectory dataDirectory;
+    private final Clock clock;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final TreeMap<LocalDate, Double> pendingLoads = new TreeMap<>();
+    private final ArrayDeque<DayPoint> history = new ArrayDeque<>();
+    private final TreeMap<LocalDate, Integer> restingHeartRates = new TreeMap<>();
+    private final Set<String> activityIds = new HashSet<>();
+    private boolean loaded;
+    private LocalDate asOf;
+    private double ctl;
+    private double atl;
+    private int maxHeartRate;
+
+    public TrainingLoadEngine(DataDirectory dataDirectory, Clock clock) {
+        this.dataDirectory = dataDirectory;
+        this.clock = clock;
+    }
+
+    public synchronized boolean isInitialized() {
+        ensureLoaded();
+        return asOf != null;
+    }
+
+    /**
+     * Seeds the engine from the full activity history. Ignored once the engine holds state.
+     */
+    public synchronized void bootstrap(Collection<ActivitySample> activities, Map<LocalDate, Integer> restingHr) {
+        ensureLoaded();
+        if (asOf != null) {
+            return;
+        }
+        putRestingHeartRates(restingHr);
+        observeMaxHeartRate(activities);
+
+        LocalDate today = LocalDate.now(clock);
+        LocalDate start = activities.stream()
+                .map(ActivitySample::date)
+                .filter(date -> date != null)
+                .min(LocalDate::compareTo)
+                .orElse(today);
+        asOf = start.minusDays(1);
+        ctl = 0;
+        atl = 0;
+        pendingLoads.clear();
+        history.clear();
+        activityIds.clear();
+        for (ActivitySample activity : activities) {
+            if (firstSeen(activity)) {
+                addLoad(activity);
+            }
+        }
+        advanceTo(today);
+        save();
+        logger.info("Training load bootstrapped from {} activities starting {}.", activities.size(), start);
+    }
+
+    /**
+     * Adds newly synced activities. Events that arrive before the engine was bootstrapped are
+     * dropped because the bootstrap will read them from the sheet anyway, and activities already
+     * folded in are skipped.
+     */
+    public synchronized void recordActivities(Collection<ActivitySample> activities) {
+        ensureLoaded();
+        if (asOf == null) {
+            return;
+        }
+        List<ActivitySample> fresh = activities.stream().filter(this::firstSeen).toList();
+        if (fresh.isEmpty()) {
+            return;
+        }
+        observeMaxHeartRate(fresh);
+        for (ActivitySample activity : fresh) {
+            addLoad(activity);
+        }
+        save();
+    }
+
+    public synchronized void recordRestingHeartRates(Map<LocalDate, Integer> restingHr) {
+        ensureLoaded();
+        if (asOf == null || restingHr.isEmpty()) {
+            return;
+        }
+        putRestingHeartRates(restingHr);
+        save();
+    }
+
+    public synchronized TrainingLoadSummary summary() {
+        ensureLoaded();
+        if (asOf == null) {
+            return null;
+        }
+        if (advanceTo(LocalDate.now(clock))) {
+            save();
+        }
+
+        List<String> labels = new ArrayList<>(history.size());
+        List<Double> ctlSeries = new ArrayList<>(history.size());
+        List<Double> atlSeries = new ArrayList<>(history.size());
+        List<Double> tsbSeries = new ArrayList<>(history.size());
+        DayPoint previous = null;
+        for (DayPoint point : history) {
+            DayPoint formBase = previous != null ? previous : point;
+            labels.add(point.date.toString());
+            ctlSeries.add(round(point.ctl));
+            atlSeries.add(round(point.atl));
+            tsbSeries.add(round(formBase.ctl - formBase.atl));
+            previous = point;
+        }
+        double tsb = tsbSeries.isEmpty() ? 0.0 : tsbSeries.get(tsbSeries.size() - 1);
+        return new TrainingLoadSummary(
+                asOf.toString(),
+                round(ctl),
+                round(atl),
+                tsb,
+                describeForm(tsb),
+                Collections.unmodifiableList(labels),
+                Collections.unmodifiableList(ctlSeries),
+                Collections.unmodifiableList(atlSeries),
+                Collections.unmodifiableList(tsbSeries)
+        );
+    }
+
+    private boolean advanceTo(LocalDate today) {
+        boolean changed = false;
+        while (asOf.isBefore(today)) {
+            asOf = asOf.plusDays(1);
+            Double pending = pendingLoads.remove(asOf);
+            double load = pending == null ? 0.0 : pending;
+            ctl += (load - ctl) * CTL_FACTOR;
+            atl += (load - atl) * ATL_FACTOR;
+            history.addLast(new DayPoint(asOf, ctl, atl));
+            if (history.size() > HISTORY_DAYS) {
+                history.removeFirst();
+            }
+            changed = true;
+        }
+        return changed;
+    }
+
+    private void addLoad(ActivitySample activity) {
+        if (activity.date() == null) {
+            return;
+        }
+        double load = loadOf(activity);
+        if (load <= 0) {
+            return;
+        }
+        LocalDate date = activity.date();
+        if (date.isAfter(asOf)) {
+            pendingLoads.merge(date, load, Double::sum);
+            return;
+        }
+        // The recurrence is linear, so a late load contributes k * load * (1 - k)^n to day date + n.
+        long age = DAYS.between(date, asOf);
+        ctl += decayedContribution(load, CTL_FACTOR, age);
+        atl += decayedContribution(load, ATL_FACTOR, age);
+        for (DayPoint point : history) {
+            if (!point.date.isBefore(date)) {
+                long n = DAYS.between(date, point.date);
+                point.ctl += decayedContribution(load, CTL_FACTOR, n);
+                point.atl += decayedContribution(load, ATL_FACTOR, n);
+            }
+        }
+    }
+
+    /**
+     * Claims the activity's ID; samples without one cannot be matched and always count.
+     */
+    private boolean firstSeen(ActivitySample activity) {
+        return activity.id() == null || activityIds.add(activity.id());
+    }
+
+    private double decayedContribution(double load, double factor, long days) {
+        return factor * load * Math.pow(1 - factor, days);
+    }
+
+    private double loadOf(ActivitySample activity) {
+        if (activity.sufferScore() != null && activity.sufferScore() > 0) {
+            return activity.sufferScore();
+        }
+        Double trimp = heartRateLoad(activity);
+        if (trimp != null) {
+            return trimp;
+        }
+        if (activity.kilojoules() != null && activity.kilojoules() > 0) {
+            return activity.kilojoules() * KILOJOULE_LOAD_FACTOR;
+        }
+        return 0.0;
+    }
+
+    /**
+     * Banister TRIMP using the Garmin resting heart rate closest before the activity.
+     */
+    private Double heartRateLoad(ActivitySample activity) {
+        if (activity.averageHeartrate() == null || activity.movingTimeSeconds() == null || activity.movingTimeSeconds() <= 0) {
+            return null;
+        }
+        Map.Entry<LocalDate, Integer> resting = restingHeartRates.floorEntry(activity.date());
+        if (resting == null) {
+            resting = restingHeartRates.ceilingEntry(activity.date());
+        }
+        if (resting == null) {
+            return null;
+        }
+        int max = maxHeartRate > 0 ? maxHeartRate : DEFAULT_MAX_HEART_RATE;
+        if (max <= resting.getValue()) {
+            return null;
+        }
+        double reserve = (activity.averageHeartrate() - resting.getValue()) / (max - resting.getValue());
+        if (reserve <= 0) {
+            return null;
+        }
+        reserve = Math.min(reserve, 1.0);
+        double minutes = activity.movingTimeSeconds() / 60.0;
+        return minutes * reserve * 0.64 * Math.exp(1.92 * reserve);
+    }
+
+    private void observeMaxHeartRate(Collection<ActivitySample> activities) {
+        for (ActivitySample activity : activities) {
+            if (activity.maxHeartrate() != null && activity.maxHeartrate() > maxHeartRate) {
+                maxHeartRate = (int) Math.round(activity.maxHeartrate());
+            }
+        }
+    }
+
+    private void putRestingHeartRates(Map<LocalDate, Integer> restingHr) {
+        if (restingHr == null) {
+            return;
+        }
+        restingHr.forEach((date, value) -> {
+            if (date != null && value != null && value > 0) {
+                restingHeartRates.put(date, value);
+            }
+        });
+        while (restingHeartRates.size() > RESTING_HR_DAYS) {
+            restingHeartRates.pollFirstEntry();
+        }
+    }
+
+    private String describeForm(double tsb) {
+        if (tsb > 5) {
+            return "Fresh";
+        }
+        if (tsb >= -10) {
+            return "Neutral";
+        }
+        if (tsb >= -30) {
+            return "Productive";
+        }
+        return "Overreaching";
+    }
+
+    private double round(double value) {
+        return Math.round(value * 10.0) / 10.0;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try {
+            Path file = dataDirectory.resolve(STATE_FILE);
+            if (!Files.exists(file)) {
+                return;
+            }
+            PersistedState state = objectMapper.readValue(file.toFile(), PersistedState.class);
+            asOf = state.asOf() == null ? null : LocalDate.parse(state.asOf());
+            ctl = state.ctl();
+            atl = state.atl();
+            maxHeartRate = state.maxHeartRate();
+            if (state.pendingLoads() != null) {
+                state.pendingLoads().forEach((date, load) -> pendingLoads.put(LocalDate.parse(date), load));
+            }
+            if (state.history() != null) {
+                state.history().forEach(point -> history.addLast(new DayPoint(LocalDate.parse(point.date()), point.ctl(), point.atl())));
+            }
+            if (state.restingHeartRates() != null) {
+                state.restingHeartRates().forEach((date, value) -> restingHeartRates.put(LocalDate.parse(date), value));
+            }
+            if (state.activityIds() != null) {
+                activityIds.addAll(state.activityIds());
+            }
+        } catch (Exception e) {
+            logger.warn("Could not read training load state, starting fresh: {}", e.getMessage());
+            asOf = null;
+            pendingLoads.clear();
+            history.clear();
+            restingHeartRates.clear();
+            activityIds.clear();
+        }
+    }
+
+    private void save() {
+        Map<String, Double> pending = new LinkedHashMap<>();
+        pendingLoads.forEach((date, load) -> pending.put(date.toString(), load));
+        List<PersistedPoint> points = new ArrayList<>(history.size());
+        history.forEach(point -> points.add(new PersistedPoint(point.date.toString(), point.ctl, point.atl)));
+        Map<String, Integer> resting = new LinkedHashMap<>();
+        restingHeartRates.forEach((date, value) -> resting.put(date.toString(), value));
+        PersistedState state = new PersistedState(asOf.toString(), ctl, atl, pending, points, resting, maxHeartRate,
+                List.copyOf(activityIds));
+        try {
+            Path file = dataDirectory.resolve(STATE_FILE);
+            Path temp = file.resolveSibling(STATE_FILE + ".tmp");
+            objectMapper.writeValue(temp.toFile(), state);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not persist training load state: {}", e.getMessage());
+        }
+    }
+
+    private static final class DayPoint {
+        private final LocalDate date;
+        private double ctl;
+        private double atl;
+
+        private DayPoint(LocalDate date, double ctl, double atl) {
+            this.date = date;
+            this.ctl = ctl;
+            this.atl = atl;
+        }
+    }
+
+    private record PersistedState(String asOf,
+                                  double ctl,
+                                  double atl,
+                                  Map<String, Double> pendingLoads,
+                                  List<PersistedPoint> history,
+                                  Map<String, Integer> restingHeartRates,
+                                  int maxHeartRate,
+                                  List<String> activityIds) {
+    }
+
+    private record PersistedPoint(String date, double ctl, double atl) {
+    }
+}
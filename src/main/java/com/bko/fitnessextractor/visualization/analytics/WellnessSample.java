@@ -0,0 +1,6 @@
+package com.bko.fitnessextractor.visualization.analytics;
+
+import java.time.LocalDate;
+
+public record WellnessSample(LocalDate date, Integer stress, Integer heartRate) {
+}
@@ -0,0 +1,11 @@
+package com.bko.fitnessextractor.visualization.app;
+
+public record DistributionSummary(
+        String label,
+        String from,
+        String to,
+        int days,
+        HistogramSummary heartRate,
+        HistogramSummary stress
+) {
+}
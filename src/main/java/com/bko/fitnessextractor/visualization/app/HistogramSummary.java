@@ -0,0 +1,12 @@
+package com.bko.fitnessextractor.visualization.app;
+
+import java.util.List;
+
+public record HistogramSummary(
+        long samples,
+        Double mean,
+        Integer p50,
+        Integer p90,
+        List<ZoneShare> zones
+) {
+}
@@ -0,0 +1,10 @@
+package com.bko.fitnessextractor.visualization.app;
+
+import java.util.List;
+
+public record MetricTrend(
+        String metric,
+        List<WindowStats> windows,
+        Double delta
+) {
+}
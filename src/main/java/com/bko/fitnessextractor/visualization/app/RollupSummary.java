@@ -0,0 +1,14 @@
+package com.bko.fitnessextractor.visualization.app;
+
+import com.bko.fitnessextractor.sync.PeriodTotals;
+
+import java.util.List;
+
+/**
+ * The latest weeks and months from the rollup tabs, newest first.
+ */
+public record RollupSummary(
+        List<PeriodTotals> weeks,
+        List<PeriodTotals> months
+) {
+}
@@ -0,0 +1,16 @@
+package com.bko.fitnessextractor.visualization.app;
+
+import java.util.List;
+
+public record TrainingLoadSummary(
+        String asOf,
+        double ctl,
+        double atl,
+        double tsb,
+        String status,
+        List<String> chartLabels,
+        List<Double> ctlSeries,
+        List<Double> atlSeries,
+        List<Double> tsbSeries
+) {
+}
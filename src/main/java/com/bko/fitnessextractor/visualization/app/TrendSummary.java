@@ -0,0 +1,11 @@
+package com.bko.fitnessextractor.visualization.app;
+
+import java.util.List;
+
+public record TrendSummary(
+        String asOf,
+        int shortWindowDays,
+        int longWindowDays,
+        List<MetricTrend> metrics
+) {
+}
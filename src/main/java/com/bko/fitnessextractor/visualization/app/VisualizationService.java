@@ -2,6 +2,15 @@ package com.bko.fitnessextractor.visualization.app;
 
 import com.bko.fitnessextractor.integrations.sheets.SpreadsheetPort;
 import com.bko.fitnessextractor.shared.AppSettings;
+import com.bko.fitnessextractor.sync.RollupQueryUseCase;
+import com.bko.fitnessextractor.visualization.analytics.ActivitySample;
+import com.bko.fitnessextractor.visualization.analytics.DailyHistograms;
+import com.bko.fitnessextractor.visualization.analytics.DailyMetricsSample;
+import com.bko.fitnessextractor.visualization.analytics.RollingStatistics;
+import com.bko.fitnessextractor.visualization.analytics.TrainingLoadEngine;
+import com.bko.fitnessextractor.visualization.analytics.WellnessSample;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -23,6 +32,10 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 @Service
 public class VisualizationService implements com.bko.fitnessextractor.visualization.VisualizationService {
@@ -35,66 +48,278 @@ public class VisualizationService implements com.bko.fitnessextractor.visualizat
     private static final int RECOVERY_STRESS_THRESHOLD = 25;
     private static final int OVERTRAINING_MINUTES = 120;
     private static final int STILL_STRESSED_MINUTES = 240;
+    private static final int ROLLUP_WEEKS = 8;
+    private static final int ROLLUP_MONTHS = 6;
 
     private final SpreadsheetPort spreadsheetPort;
     private final AppSettings settings;
-
-    public VisualizationService(SpreadsheetPort spreadsheetPort, AppSettings settings) {
+    private final TrainingLoadEngine trainingLoadEngine;
+    private final RollingStatistics rollingStatistics;
+    private final DailyHistograms dailyHistograms;
+    private final RollupQueryUseCase rollupQuery;
+    private final Timer buildTimer;
+
+    public VisualizationService(SpreadsheetPort spreadsheetPort,
+                                AppSettings settings,
+                                TrainingLoadEngine trainingLoadEngine,
+                                RollingStatistics rollingStatistics,
+                                DailyHistograms dailyHistograms,
+                                RollupQueryUseCase rollupQuery,
+                                MeterRegistry meterRegistry) {
         this.spreadsheetPort = spreadsheetPort;
         this.settings = settings;
+        this.trainingLoadEngine = trainingLoadEngine;
+        this.rollingStatistics = rollingStatistics;
+        this.dailyHistograms = dailyHistograms;
+        this.rollupQuery = rollupQuery;
+        this.buildTimer = Timer.builder("fitness.visualization.build")
+                .description("Time to read the sheets and build the dashboard snapshot")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     @Override
     public VisualizationSnapshot loadVisualization() {
-        List<String> messages = new ArrayList<>();
-        StravaSummary strava = null;
-        GarminSummary garmin = null;
-        RecoverySummary recovery = null;
-        List<List<Object>> stravaRows = null;
-        List<List<Object>> stressRows = null;
-
         if (!settings.isGoogleConfigured()) {
-            messages.add("Missing Google configuration. Check GOOGLE_SPREADSHEET_ID and GOOGLE_SERVICE_ACCOUNT_KEY_PATH.");
-            return new VisualizationSnapshot(List.copyOf(messages), null, null, null);
+            return new VisualizationSnapshot(
+                    List.of("Missing Google configuration. Check GOOGLE_SPREADSHEET_ID and GOOGLE_SERVICE_ACCOUNT_KEY_PATH."),
+                    null, null, null, null, null, null, null);
+        }
+
+        return buildTimer.record(this::buildSnapshot);
+    }
+
+    private VisualizationSnapshot buildSnapshot() {
+        // The ranges are independent, so fetch them concurrently and build each summary
+        // as soon as its rows arrive. Latency becomes the slowest read instead of the sum.
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<SourceResult<StravaSummary>> stravaFuture = CompletableFuture.supplyAsync(
+                    () -> loadSource(STRAVA_SHEET + "!A:P", "Strava data", this::buildStravaSummary,
+                            "No Strava data found in the spreadsheet."), executor);
+            CompletableFuture<SourceResult<GarminSummary>> garminFuture = CompletableFuture.supplyAsync(
+                    () -> loadSource(GARMIN_SHEET + "!A:I", "Garmin data", this::buildGarminSummary,
+                            "No Garmin data found in the spreadsheet."), executor);
+            CompletableFuture<SourceResult<Void>> stressFuture = CompletableFuture.supplyAsync(
+                    () -> loadSource(GARMIN_STRESS_SHEET + "!A:D", "Garmin stress data", rows -> null, null), executor);
+            // Period totals come from the rollup tabs the sync maintains, not from another pass over the raw rows.
+            CompletableFuture<SourceResult<RollupSummary>> rollupsFuture = CompletableFuture.supplyAsync(
+                    this::loadRollups, executor);
+            CompletableFuture<SourceResult<RecoverySummary>> recoveryFuture = stravaFuture.thenCombine(stressFuture,
+                    (stravaResult, stressResult) -> buildRecovery(stravaResult.rows(), stressResult.rows()));
+            CompletableFuture<SourceResult<TrainingLoadSummary>> trainingLoadFuture = stravaFuture.thenCombine(garminFuture,
+                    (stravaResult, garminResult) -> buildTrainingLoad(stravaResult.rows(), garminResult.rows()));
+            CompletableFuture<SourceResult<TrendSummary>> trendsFuture = stravaFuture.thenCombine(garminFuture,
+                    (stravaResult, garminResult) -> buildTrends(stravaResult.rows(), garminResult.rows()));
+            CompletableFuture<SourceResult<List<DistributionSummary>>> distributionsFuture = stressFuture.thenApply(
+                    stressResult -> buildDistributions(stressResult.rows()));
+
+            SourceResult<StravaSummary> strava = stravaFuture.join();
+            SourceResult<GarminSummary> garmin = garminFuture.join();
+            SourceResult<Void> stress = stressFuture.join();
+            SourceResult<RecoverySummary> recovery = recoveryFuture.join();
+            SourceResult<TrainingLoadSummary> trainingLoad = trainingLoadFuture.join();
+            SourceResult<TrendSummary> trends = trendsFuture.join();
+            SourceResult<List<DistributionSummary>> distributions = distributionsFuture.join();
+            SourceResult<RollupSummary> rollups = rollupsFuture.join();
+
+            // Keep the message order stable regardless of which read finished first.
+            List<String> messages = new ArrayList<>();
+            strava.addMessageTo(messages);
+            garmin.addMessageTo(messages);
+            stress.addMessageTo(messages);
+            recovery.addMessageTo(messages);
+            trainingLoad.addMessageTo(messages);
+            trends.addMessageTo(messages);
+            distributions.addMessageTo(messages);
+            rollups.addMessageTo(messages);
+
+            return new VisualizationSnapshot(List.copyOf(messages), strava.summary(), garmin.summary(),
+                    recovery.summary(), trainingLoad.summary(), trends.summary(), distributions.summary(),
+                    rollups.summary());
         }
+    }
 
+    private <T> SourceResult<T> loadSource(String range,
+                                           String label,
+                                           Function<List<List<Object>>, T> builder,
+                                           String emptyMessage) {
+        List<List<Object>> rows;
         try {
-            stravaRows = spreadsheetPort.getExistingValues(STRAVA_SHEET + "!A:P");
-            strava = buildStravaSummary(stravaRows);
-            if (strava == null) {
-                messages.add("No Strava data found in the spreadsheet.");
-            }
+            rows = spreadsheetPort.getExistingValues(range);
+        } catch (Exception e) {
+            logger.warn("Failed to load {}", label, e);
+            return new SourceResult<>(null, null, "Could not load " + label + ": " + e.getMessage());
+        }
+        try {
+            T summary = builder.apply(rows);
+            String message = summary == null ? emptyMessage : null;
+            return new SourceResult<>(rows, summary, message);
         } catch (Exception e) {
-            logger.warn("Failed to load Strava data", e);
-            messages.add("Could not load Strava data: " + e.getMessage());
+            logger.warn("Failed to load {}", label, e);
+            return new SourceResult<>(rows, null, "Could not load " + label + ": " + e.getMessage());
         }
+    }
+
+    private SourceResult<RollupSummary> loadRollups() {
+        try {
+            RollupSummary summary = new RollupSummary(
+                    rollupQuery.weeklyTotals(ROLLUP_WEEKS), rollupQuery.monthlyTotals(ROLLUP_MONTHS));
+            return new SourceResult<>(null, summary.weeks().isEmpty() && summary.months().isEmpty() ? null : summary, null);
+        } catch (Exception e) {
+            logger.warn("Failed to load weekly and monthly totals", e);
+            return new SourceResult<>(null, null, "Could not load weekly and monthly totals: " + e.getMessage());
+        }
+    }
+
+    private SourceResult<RecoverySummary> buildRecovery(List<List<Object>> stravaRows, List<List<Object>> stressRows) {
+        try {
+            return new SourceResult<>(null, buildRecoverySummary(stravaRows, stressRows), null);
+        } catch (Exception e) {
+            logger.warn("Failed to calculate recovery summary", e);
+            return new SourceResult<>(null, null, "Could not calculate recovery summary: " + e.getMessage());
+        }
+    }
 
+    private SourceResult<TrainingLoadSummary> buildTrainingLoad(List<List<Object>> stravaRows, List<List<Object>> garminRows) {
         try {
-            List<List<Object>> garminRows = spreadsheetPort.getExistingValues(GARMIN_SHEET + "!A:I");
-            garmin = buildGarminSummary(garminRows);
-            if (garmin == null) {
-                messages.add("No Garmin data found in the spreadsheet.");
+            // History is replayed once; afterwards the engine is fed by sync events and its persisted state.
+            if (stravaRows != null && !trainingLoadEngine.isInitialized()) {
+                trainingLoadEngine.bootstrap(parseActivitySamples(stravaRows), parseRestingHeartRates(garminRows));
             }
+            return new SourceResult<>(null, trainingLoadEngine.summary(), null);
         } catch (Exception e) {
-            logger.warn("Failed to load Garmin data", e);
-            messages.add("Could not load Garmin data: " + e.getMessage());
+            logger.warn("Failed to calculate training load", e);
+            return new SourceResult<>(null, null, "Could not calculate training load: " + e.getMessage());
         }
+    }
 
+    private SourceResult<TrendSummary> buildTrends(List<List<Object>> stravaRows, List<List<Object>> garminRows) {
         try {
-            stressRows = spreadsheetPort.getExistingValues(GARMIN_STRESS_SHEET + "!A:D");
+            // Ring buffers are filled once per process; sync events keep them current afterwards.
+            if (stravaRows != null && garminRows != null && !rollingStatistics.isInitialized()) {
+                rollingStatistics.bootstrap(parseActivitySamples(stravaRows), parseDailyMetricsSamples(garminRows));
+            }
+            return new SourceResult<>(null, rollingStatistics.summary(), null);
         } catch (Exception e) {
-            logger.warn("Failed to load Garmin stress data", e);
-            messages.add("Could not load Garmin stress data: " + e.getMessage());
+            logger.warn("Failed to calculate rolling trends", e);
+            return new SourceResult<>(null, null, "Could not calculate rolling trends: " + e.getMessage());
         }
+    }
 
+    private SourceResult<List<DistributionSummary>> buildDistributions(List<List<Object>> stressRows) {
         try {
-            recovery = buildRecoverySummary(stravaRows, stressRows);
+            // The raw samples are walked once per process; sync events replace individual days afterwards.
+            if (stressRows != null && !dailyHistograms.isInitialized()) {
+                dailyHistograms.bootstrap(parseWellnessSamples(stressRows));
+            }
+            return new SourceResult<>(null, dailyHistograms.summaries(), null);
         } catch (Exception e) {
-            logger.warn("Failed to calculate recovery summary", e);
-            messages.add("Could not calculate recovery summary: " + e.getMessage());
+            logger.warn("Failed to calculate heart rate and stress distributions", e);
+            return new SourceResult<>(null, null, "Could not calculate heart rate and stress distributions: " + e.getMessage());
+        }
+    }
+
+    private List<WellnessSample> parseWellnessSamples(List<List<Object>> rows) {
+        if (rows.size() < 2) {
+            return List.of();
+        }
+        Map<String, Integer> headerIndex = toHeaderIndex(rows.get(0));
+        int dateIndex = getIndex(headerIndex, "Date", 0);
+        int stressIndex = getIndex(headerIndex, "Stress", 2);
+        int heartRateIndex = getIndex(headerIndex, "Heart Rate", 3);
+
+        List<WellnessSample> samples = new ArrayList<>(rows.size() - 1);
+        for (int i = 1; i < rows.size(); i++) {
+            List<Object> row = rows.get(i);
+            LocalDate date = parseDate(getCell(row, dateIndex));
+            if (date == null) {
+                continue;
+            }
+            samples.add(new WellnessSample(date, parseInteger(getCell(row, stressIndex)), parseInteger(getCell(row, heartRateIndex))));
+        }
+        return samples;
+    }
+
+    private List<DailyMetricsSample> parseDailyMetricsSamples(List<List<Object>> rows) {
+        if (rows.size() < 2) {
+            return List.of();
         }
+        Map<String, Integer> headerIndex = toHeaderIndex(rows.get(0));
+        int dateIndex = getIndex(headerIndex, "Date", 0);
+        int restingHrIndex = getIndex(headerIndex, "Resting HR", 5);
+        int sleepDurationIndex = getIndex(headerIndex, "Sleep Duration (h)", 7);
+        int hrvIndex = getIndex(headerIndex, "HRV (ms)", 8);
 
-        return new VisualizationSnapshot(List.copyOf(messages), strava, garmin, recovery);
+        List<DailyMetricsSample> samples = new ArrayList<>();
+        for (int i = 1; i < rows.size(); i++) {
+            List<Object> row = rows.get(i);
+            LocalDate date = parseDate(getCell(row, dateIndex));
+            if (date == null) {
+                continue;
+            }
+            samples.add(new DailyMetricsSample(
+                    date,
+                    parseInteger(getCell(row, restingHrIndex)),
+                    parseDouble(getCell(row, sleepDurationIndex)),
+                    parseDouble(getCell(row, hrvIndex))
+            ));
+        }
+        return samples;
+    }
+
+    private List<ActivitySample> parseActivitySamples(List<List<Object>> rows) {
+        if (rows.size() < 2) {
+            return List.of();
+        }
+        Map<String, Integer> headerIndex = toHeaderIndex(rows.get(0));
+        int idIndex = getIndex(headerIndex, "Activity ID", 0);
+        int distanceIndex = getIndex(headerIndex, "Distance (m)", 3);
+        int movingTimeIndex = getIndex(headerIndex, "Moving Time (s)", 4);
+        int dateIndex = getIndex(headerIndex, "Start Date", 6);
+        int averageHrIndex = getIndex(headerIndex, "Avg Heart Rate", 10);
+        int maxHrIndex = getIndex(headerIndex, "Max Heart Rate", 11);
+        int kilojoulesIndex = getIndex(headerIndex, "Kilojoules", 13);
+        int sufferScoreIndex = getIndex(headerIndex, "Suffer Score", 14);
+
+        List<ActivitySample> samples = new ArrayList<>();
+        for (int i = 1; i < rows.size(); i++) {
+            List<Object> row = rows.get(i);
+            LocalDate date = parseDate(getCell(row, dateIndex));
+            if (date == null) {
+                continue;
+            }
+            String id = parseString(getCell(row, idIndex));
+            samples.add(new ActivitySample(
+                    id.isEmpty() ? null : id,
+                    date,
+                    parseDouble(getCell(row, distanceIndex)),
+                    parseInteger(getCell(row, movingTimeIndex)),
+                    parseDouble(getCell(row, averageHrIndex)),
+                    parseDouble(getCell(row, maxHrIndex)),
+                    parseDouble(getCell(row, kilojoulesIndex)),
+                    parseInteger(getCell(row, sufferScoreIndex))
+            ));
+        }
+        return samples;
+    }
+
+    private Map<LocalDate, Integer> parseRestingHeartRates(List<List<Object>> rows) {
+        Map<LocalDate, Integer> restingHr = new HashMap<>();
+        if (rows == null || rows.size() < 2) {
+            return restingHr;
+        }
+        Map<String, Integer> headerIndex = toHeaderIndex(rows.get(0));
+        int dateIndex = getIndex(headerIndex, "Date", 0);
+        int restingHrIndex = getIndex(headerIndex, "Resting HR", 5);
+        for (int i = 1; i < rows.size(); i++) {
+            List<Object> row = rows.get(i);
+            LocalDate date = parseDate(getCell(row, dateIndex));
+            Integer value = parseInteger(getCell(row, restingHrIndex));
+            if (date != null && value != null) {
+                restingHr.put(date, value);
+            }
+        }
+        return restingHr;
     }
 
     private StravaSummary buildStravaSummary(List<List<Object>> rows) {
@@ -538,6 +763,14 @@ public class VisualizationService implements com.bko.fitnessextractor.visualizat
         return new ArrayList<>(source.subList(source.size() - limit, source.size()));
     }
 
+    private record SourceResult<T>(List<List<Object>> rows, T summary, String message) {
+        void addMessageTo(List<String> messages) {
+            if (message != null) {
+                messages.add(message);
+            }
+        }
+    }
+
     private record StravaRow(LocalDate date, String name, String type, Double distanceMeters, Integer movingTimeSeconds) {
     }
 
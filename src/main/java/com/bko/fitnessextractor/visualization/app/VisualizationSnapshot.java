@@ -6,7 +6,11 @@ public record VisualizationSnapshot(
         List<String> messages,
         StravaSummary strava,
         GarminSummary garmin,
-        RecoverySummary recovery
+        RecoverySummary recovery,
+        TrainingLoadSummary trainingLoad,
+        TrendSummary trends,
+        List<DistributionSummary> distributions,
+        RollupSummary rollups
 ) {
     public boolean hasMessages() {
         return messages != null && !messages.isEmpty();
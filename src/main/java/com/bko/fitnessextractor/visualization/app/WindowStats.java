@@ -0,0 +1,12 @@
+package com.bko.fitnessextractor.visualization.app;
+
+public record WindowStats(
+        int days,
+        int samples,
+        Double sum,
+        Double mean,
+        Double min,
+        Double max,
+        Double stdDev
+) {
+}
@@ -0,0 +1,4 @@
+package com.bko.fitnessextractor.visualization.app;
+
+public record ZoneShare(String zone, long samples, double percent) {
+}
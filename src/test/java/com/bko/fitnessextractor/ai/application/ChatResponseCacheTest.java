@@ -0,0 +1,74 @@
+package com.bko.fitnessextractor.ai.application;
+
+import com.bko.fitnessextractor.ai.domain.ChatMessage;
+import com.bko.fitnessextractor.ai.domain.ChatPort;
+import com.bko.fitnessextractor.shared.MutableClock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatResponseCacheTest {
+
+    @Test
+    void keyIgnoresCaseAndWhitespaceButNotContextVersion() {
+        ChatResponseCache.Key key = ChatResponseCache.key("gemini", List.of(user("Summarize my recovery")), 3);
+
+        assertEquals(key, ChatResponseCache.key("gemini", List.of(user("  summarize   my\nRECOVERY ")), 3));
+        assertNotEquals(key, ChatResponseCache.key("gemini", List.of(user("Summarize my recovery")), 4));
+        assertNotEquals(key, ChatResponseCache.key("other", List.of(user("Summarize my recovery")), 3));
+    }
+
+    @Test
+    void entriesExpireAfterTtlAndStatsTrackHitRate() {
+        MutableClock clock = new MutableClock(Instant.parse("2025-01-13T12:00:00Z"));
+        ChatResponseCache cache = new ChatResponseCache(clock, Duration.ofMinutes(10), 10, new SimpleMeterRegistry());
+        ChatResponseCache.Key key = ChatResponseCache.key("gemini", List.of(user("hi")), 1);
+
+        assertTrue(cache.get(key).isEmpty());
+        cache.put(key, new ChatPort.ChatResult("gemini", "hello"));
+        assertEquals("hello", cache.get(key).orElseThrow().text());
+        assertEquals("hello", cache.get(key).orElseThrow().text());
+
+        clock.advance(Duration.ofMinutes(11));
+        assertTrue(cache.get(key).isEmpty());
+
+        ChatResponseCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(0.5, stats.hitRate());
+        assertEquals(1, stats.evictions());
+        assertEquals(0, stats.size());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedWhenFull() {
+        ChatResponseCache cache = new ChatResponseCache(
+                Clock.fixed(Instant.parse("2025-01-13T12:00:00Z"), ZoneOffset.UTC), Duration.ofMinutes(10), 2, new SimpleMeterRegistry());
+        ChatResponseCache.Key first = ChatResponseCache.key("gemini", List.of(user("one")), 1);
+        ChatResponseCache.Key second = ChatResponseCache.key("gemini", List.of(user("two")), 1);
+        ChatResponseCache.Key third = ChatResponseCache.key("gemini", List.of(user("three")), 1);
+
+        cache.put(first, new ChatPort.ChatResult("gemini", "1"));
+        cache.put(second, new ChatPort.ChatResult("gemini", "2"));
+        cache.get(first);
+        cache.put(third, new ChatPort.ChatResult("gemini", "3"));
+
+        assertTrue(cache.get(first).isPresent());
+        assertTrue(cache.get(second).isEmpty());
+        assertTrue(cache.get(third).isPresent());
+        assertEquals(2, cache.stats().size());
+    }
+
+    private static ChatMessage user(String content) {
+        return new ChatMessage(ChatMessage.Role.USER, content);
+    }
+}
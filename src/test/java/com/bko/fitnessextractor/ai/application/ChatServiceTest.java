@@ -0,0 +1,56 @@
+package com.bko.fitnessextractor.ai.application;
+
+import com.bko.fitnessextractor.ai.domain.ActivitySearchPort;
+import com.bko.fitnessextractor.ai.domain.ChatMessage;
+import com.bko.fitnessextractor.ai.domain.ChatPort;
+import com.bko.fitnessextractor.ai.domain.ChatRequest;
+import com.bko.fitnessextractor.ai.domain.ChatResponse;
+import com.bko.fitnessextractor.ai.domain.FitnessContext;
+import com.bko.fitnessextractor.ai.domain.FitnessContextPort;
+import com.bko.fitnessextractor.ai.infrastructure.gemini.GeminiProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatServiceTest {
+
+    @Test
+    void chatAsyncLoadsTheContextOffTheCallersThread() throws Exception {
+        CountDownLatch sheetsAnswer = new CountDownLatch(1);
+        FitnessContextPort fitnessContextPort = () -> {
+            try {
+                sheetsAnswer.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return FitnessContext.fromSnapshot(null);
+        };
+        ChatPort chatPort = mock(ChatPort.class);
+        when(chatPort.chatAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(new ChatPort.ChatResult("gemini-test", "Rest today.")));
+        ChatService service = new ChatService(chatPort, fitnessContextPort,
+                new GeminiProperties("key", "gemini-test", null), new PromptContextBuilder(600),
+                mock(ActivitySearchPort.class), 5,
+                new ChatResponseCache(Clock.systemUTC(), Duration.ofMinutes(10), 10, new SimpleMeterRegistry()));
+
+        CompletableFuture<ChatResponse> response = service.chatAsync(new ChatRequest(
+                List.of(new ChatMessage(ChatMessage.Role.USER, "Should I rest?")), true, null));
+
+        assertFalse(response.isDone());
+        sheetsAnswer.countDown();
+        assertEquals("Rest today.", response.get(5, TimeUnit.SECONDS).text());
+        service.shutdown();
+    }
+}
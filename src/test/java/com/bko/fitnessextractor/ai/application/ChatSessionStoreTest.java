@@ -0,0 +1,45 @@
+package com.bko.fitnessextractor.ai.application;
+
+import com.bko.fitnessextractor.ai.domain.ChatSession;
+import com.bko.fitnessextractor.shared.MutableClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatSessionStoreTest {
+
+    @Test
+    void reusesLiveSessionsAndReplacesExpiredOnes() {
+        MutableClock clock = new MutableClock(Instant.parse("2025-01-13T12:00:00Z"));
+        ChatSessionStore store = new ChatSessionStore(clock, Duration.ofMinutes(30), 10, 1000, 4);
+
+        ChatSession session = store.open("");
+        clock.advance(Duration.ofMinutes(20));
+        assertSame(session, store.open(session.id()));
+
+        clock.advance(Duration.ofMinutes(31));
+        assertTrue(store.find(session.id()).isEmpty());
+        assertNotEquals(session.id(), store.open(session.id()).id());
+    }
+
+    @Test
+    void leastRecentlyUsedSessionIsEvictedAtCapacity() {
+        MutableClock clock = new MutableClock(Instant.parse("2025-01-13T12:00:00Z"));
+        ChatSessionStore store = new ChatSessionStore(clock, Duration.ofHours(2), 2, 1000, 4);
+
+        ChatSession first = store.open(null);
+        ChatSession second = store.open(null);
+        store.open(first.id());
+        store.open(null);
+
+        assertEquals(2, store.size());
+        assertTrue(store.find(first.id()).isPresent());
+        assertTrue(store.find(second.id()).isEmpty());
+    }
+}
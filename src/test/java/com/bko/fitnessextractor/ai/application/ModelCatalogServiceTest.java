@@ -0,0 +1,133 @@
+package com.bko.fitnessextractor.ai.application;
+
+import com.bko.fitnessextractor.ai.infrastructure.gemini.GeminiProperties;
+import com.bko.fitnessextractor.shared.MutableClock;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Field;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelCatalogServiceTest {
+
+    @Test
+    void followsPaginationAndCachesCatalog() throws Exception {
+        MutableClock clock = new MutableClock(Instant.parse("2025-01-13T12:00:00Z"));
+        List<String> requests = new ArrayList<>();
+        Queue<ClientResponse> responses = new ConcurrentLinkedQueue<>(List.of(
+                json("{\"models\":[{\"name\":\"models/gemini-a\",\"displayName\":\"Gemini A\",\"supportedGenerationMethods\":[\"generateContent\"]},"
+                        + "{\"name\":\"models/embedding\",\"supportedGenerationMethods\":[\"embedContent\"]}],\"nextPageToken\":\"p2\"}"),
+                json("{\"models\":[{\"name\":\"models/gemini-b\",\"supportedGenerationMethods\":[\"generateContent\"]}]}")
+        ));
+        ModelCatalogService service = service(clock, requests, responses);
+
+        List<ModelCatalogService.ModelOption> models = service.listChatModels();
+        List<ModelCatalogService.ModelOption> cached = service.listChatModels();
+
+        assertEquals(List.of("gemini-a", "gemini-b"), models.stream().map(ModelCatalogService.ModelOption::name).toList());
+        assertEquals(models, cached);
+        assertEquals(2, requests.size());
+        assertTrue(requests.get(1).contains("pageToken=p2"));
+    }
+
+    @Test
+    void servesStaleCatalogWhenRefreshFails() throws Exception {
+        MutableClock clock = new MutableClock(Instant.parse("2025-01-13T12:00:00Z"));
+        List<String> requests = new ArrayList<>();
+        Queue<ClientResponse> responses = new ConcurrentLinkedQueue<>(List.of(
+                json("{\"models\":[{\"name\":\"models/gemini-a\",\"supportedGenerationMethods\":[\"generateContent\"]}]}"),
+                ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build()
+        ));
+        ModelCatalogService service = service(clock, requests, responses);
+        service.listChatModels();
+
+        clock.advance(Duration.ofHours(2));
+        List<ModelCatalogService.ModelOption> stale = service.listChatModels();
+
+        assertEquals("gemini-a", stale.getFirst().name());
+        for (int i = 0; i < 50 && requests.size() < 2; i++) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(50);
+        assertEquals(2, requests.size());
+        assertEquals("gemini-a", service.listChatModels().getFirst().name());
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    void encodesThePageToken() throws Exception {
+        MutableClock clock = new MutableClock(Instant.parse("2025-01-13T12:00:00Z"));
+        List<String> requests = new ArrayList<>();
+        Queue<ClientResponse> responses = new ConcurrentLinkedQueue<>(List.of(
+                json("{\"models\":[],\"nextPageToken\":\"a+b/c=&d\"}"),
+                json("{\"models\":[]}")
+        ));
+        ModelCatalogService service = service(clock, requests, responses);
+
+        service.listChatModels();
+
+        assertTrue(requests.get(1).endsWith("pageToken=a%2Bb%2Fc%3D%26d"), requests.get(1));
+    }
+
+    @Test
+    void backsOffAfterAFailedFirstLoad() throws Exception {
+        MutableClock clock = new MutableClock(Instant.parse("2025-01-13T12:00:00Z"));
+        List<String> requests = new ArrayList<>();
+        Queue<ClientResponse> responses = new ConcurrentLinkedQueue<>(List.of(
+                ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build(),
+                json("{\"models\":[{\"name\":\"models/gemini-a\",\"supportedGenerationMethods\":[\"generateContent\"]}]}")
+        ));
+        ModelCatalogService service = service(clock, requests, responses);
+
+        assertTrue(service.listChatModels().isEmpty());
+        assertTrue(service.listChatModels().isEmpty());
+        assertEquals(1, requests.size());
+
+        clock.advance(Duration.ofMinutes(2));
+        service.listChatModels();
+        for (int i = 0; i < 50 && service.listChatModels().isEmpty(); i++) {
+            Thread.sleep(20);
+        }
+        assertEquals("gemini-a", service.listChatModels().getFirst().name());
+        assertEquals(2, requests.size());
+    }
+
+    private ModelCatalogService service(Clock clock, List<String> requests, Queue<ClientResponse> responses) throws Exception {
+        GeminiProperties properties = new GeminiProperties("key", "gemini-a", "http://localhost");
+        ModelCatalogService service = new ModelCatalogService(properties, clock, Duration.ofHours(1));
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost")
+                .exchangeFunction(request -> {
+                    synchronized (requests) {
+                        requests.add(request.url().toString());
+                    }
+                    return Mono.just(responses.remove());
+                })
+                .build();
+        Field field = ModelCatalogService.class.getDeclaredField("webClient");
+        field.setAccessible(true);
+        field.set(service, webClient);
+        return service;
+    }
+
+    private static ClientResponse json(String body) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build();
+    }
+}
@@ -0,0 +1,71 @@
+package com.bko.fitnessextractor.ai.application;
+
+import com.bko.fitnessextractor.ai.domain.FitnessContext;
+import com.bko.fitnessextractor.visualization.app.GarminSummary;
+import com.bko.fitnessextractor.visualization.app.StravaSummary;
+import com.bko.fitnessextractor.visualization.app.TrainingLoadSummary;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptContextBuilderTest {
+
+    @Test
+    void keepsTheMostRelevantSectionsWithinBudget() {
+        PromptContextBuilder builder = new PromptContextBuilder(600);
+        FitnessContext context = context(0, 42);
+
+        String sleepOnly = builder.build(context, "How did I sleep last night?", 40);
+        assertTrue(sleepOnly.startsWith("[garmin] "), sleepOnly);
+        assertFalse(sleepOnly.contains("[strava]"), sleepOnly);
+        assertTrue(PromptContextBuilder.estimateTokens(sleepOnly) <= 40);
+
+        String loadFirst = builder.build(context, "Is my training load too high? check ctl and tsb", 600);
+        assertTrue(loadFirst.startsWith("[load] date=2025-01-13 ctl=40.0 atl=50.0 tsb=-10.0"), loadFirst);
+        assertTrue(loadFirst.contains("[strava] activities=42"), loadFirst);
+        assertTrue(loadFirst.contains("[strava_daily_km] date|km\n2025-01-12|5.0\n2025-01-13|10.0"), loadFirst);
+    }
+
+    @Test
+    void reusesSerializedSectionsForTheSameVersion() {
+        PromptContextBuilder builder = new PromptContextBuilder(600);
+
+        String first = builder.build(context(7, 42), "runs");
+        String sameVersion = builder.build(context(7, 43), "runs");
+        String newVersion = builder.build(context(8, 43), "runs");
+
+        assertEquals(first, sameVersion);
+        assertTrue(newVersion.contains("activities=43"), newVersion);
+    }
+
+    @Test
+    void questionsMayRepeatWords() {
+        PromptContextBuilder builder = new PromptContextBuilder(600);
+
+        String block = builder.build(context(0, 42), "my run and my ride", 600);
+
+        assertTrue(block.contains("[strava] activities=42"), block);
+    }
+
+    @Test
+    void emptyContextProducesNoBlock() {
+        PromptContextBuilder builder = new PromptContextBuilder(600);
+
+        assertEquals("", builder.build(FitnessContext.fromSnapshot(null), "anything"));
+    }
+
+    private static FitnessContext context(long version, int activityCount) {
+        StravaSummary strava = new StravaSummary(activityCount, 120.5, 11.2, 2.9, "Morning Run (2025-01-13)",
+                List.of("2025-01-12", "2025-01-13"), List.of(5.0, 10.0), Map.of("Run", activityCount));
+        GarminSummary garmin = new GarminSummary("2025-01-13", 90, 20, 72.5, 51.0, 48, 82, 7.5,
+                List.of("2025-01-13"), List.of(90), List.of(82), List.of(48));
+        TrainingLoadSummary trainingLoad = new TrainingLoadSummary("2025-01-13", 40.0, 50.0, -10.0, "Neutral",
+                List.of(), List.of(), List.of(), List.of());
+        return new FitnessContext(List.of(), strava, garmin, null, trainingLoad, null, null, null, version);
+    }
+}
@@ -0,0 +1,34 @@
+package com.bko.fitnessextractor.ai.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatPortTest {
+    private static final ChatPort.ChatCommand COMMAND = new ChatPort.ChatCommand("gemini", "hi");
+
+    @Test
+    void streamingFallsBackToOneFragmentWithTheFullAnswer() {
+        ChatPort port = command -> new ChatPort.ChatResult(command.model(), "Take a rest day.");
+        List<String> fragments = new ArrayList<>();
+
+        ChatPort.ChatResult result = port.chatStream(COMMAND, fragments::add);
+
+        assertEquals(List.of("Take a rest day."), fragments);
+        assertEquals(new ChatPort.ChatResult("gemini", "Take a rest day."), result);
+    }
+
+    @Test
+    void streamingAnEmptyAnswerSendsNoFragment() {
+        ChatPort port = command -> new ChatPort.ChatResult(command.model(), "");
+        List<String> fragments = new ArrayList<>();
+
+        port.chatStream(COMMAND, fragments::add);
+
+        assertTrue(fragments.isEmpty());
+    }
+}
@@ -0,0 +1,49 @@
+package com.bko.fitnessextractor.ai.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatSessionTest {
+
+    @Test
+    void conversationIncludesHistoryBeforeNewMessages() {
+        ChatSession session = new ChatSession("s1", 1000, 4);
+        session.record(List.of(user("How was my sleep?")), "You slept 7.5 hours.");
+
+        List<ChatMessage> conversation = session.conversationWith(List.of(user("And yesterday?")));
+
+        assertEquals(List.of(
+                user("How was my sleep?"),
+                new ChatMessage(ChatMessage.Role.ASSISTANT, "You slept 7.5 hours."),
+                user("And yesterday?")
+        ), conversation);
+    }
+
+    @Test
+    void oldTurnsAreFoldedIntoABoundedSummary() {
+        ChatSession session = new ChatSession("s1", 400, 2);
+        for (int turn = 1; turn <= 20; turn++) {
+            session.record(List.of(user("question " + turn + " " + "x".repeat(80))), "answer " + turn + " " + "y".repeat(80));
+        }
+
+        List<ChatMessage> recent = session.recentMessages();
+        assertTrue(recent.size() >= 2 && recent.size() <= 4, "recent=" + recent.size());
+        assertTrue(recent.getLast().content().startsWith("answer 20"));
+
+        List<String> summary = session.summary();
+        assertTrue(summary.getLast().startsWith("user: question") || summary.getLast().startsWith("assistant: answer"));
+        assertTrue(String.join("\n", summary).length() <= 200, "summary should be capped");
+
+        ChatMessage first = session.conversationWith(List.of(user("next"))).getFirst();
+        assertEquals(ChatMessage.Role.SYSTEM, first.role());
+        assertTrue(first.content().startsWith("Summary of the earlier conversation:"));
+    }
+
+    private static ChatMessage user(String content) {
+        return new ChatMessage(ChatMessage.Role.USER, content);
+    }
+}
@@ -0,0 +1,140 @@
+package com.bko.fitnessextractor.ai.infrastructure.context;
+
+import com.bko.fitnessextractor.ai.domain.FitnessContext;
+import com.bko.fitnessextractor.shared.MutableClock;
+import com.bko.fitnessextractor.sync.StravaActivitiesSynced;
+import com.bko.fitnessextractor.visualization.VisualizationService;
+import com.bko.fitnessextractor.visualization.app.TrainingLoadSummary;
+import com.bko.fitnessextractor.visualization.app.VisualizationSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SheetsFitnessContextProviderTest {
+
+    @Test
+    void cachesUntilTtlExpiresOrSyncInvalidates() {
+        MutableClock clock = new MutableClock(Instant.parse("2025-01-13T12:00:00Z"));
+        AtomicInteger loads = new AtomicInteger();
+        VisualizationService visualizationService = () -> {
+            loads.incrementAndGet();
+            return snapshot();
+        };
+        SheetsFitnessContextProvider provider =
+                new SheetsFitnessContextProvider(visualizationService, clock, Duration.ofMinutes(5), new SimpleMeterRegistry());
+
+        FitnessContext first = provider.loadContext();
+        assertSame(first, provider.loadContext());
+        assertEquals(1, loads.get());
+
+        clock.advance(Duration.ofMinutes(6));
+        provider.loadContext();
+        assertEquals(2, loads.get());
+
+        provider.onStravaActivitiesSynced(new StravaActivitiesSynced(List.of()));
+        provider.loadContext();
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void versionMovesOnlyWhenTheDataMayHaveChanged() {
+        MutableClock clock = new MutableClock(Instant.parse("2025-01-13T12:00:00Z"));
+        SheetsFitnessContextProvider provider = new SheetsFitnessContextProvider(
+                SheetsFitnessContextProviderTest::snapshot, clock, Duration.ofMinutes(5), new SimpleMeterRegistry());
+
+        long first = provider.loadContext().version();
+        clock.advance(Duration.ofMinutes(6));
+        assertEquals(first, provider.loadContext().version());
+
+        provider.onStravaActivitiesSynced(new StravaActivitiesSynced(List.of()));
+        assertNotEquals(first, provider.loadContext().version());
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        VisualizationService visualizationService = () -> {
+            loads.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return snapshot();
+        };
+        SheetsFitnessContextProvider provider = new SheetsFitnessContextProvider(visualizationService,
+                Clock.fixed(Instant.parse("2025-01-13T12:00:00Z"), ZoneOffset.UTC), Duration.ofMinutes(5), new SimpleMeterRegistry());
+
+        List<CompletableFuture<FitnessContext>> callers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            callers.add(CompletableFuture.supplyAsync(provider::loadContext));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        FitnessContext context = callers.getFirst().get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<FitnessContext> caller : callers) {
+            assertSame(context, caller.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void aLoadDyingOfAnErrorReleasesItsWaitersAndTheNextCallerLoadsAgain() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        VisualizationService visualizationService = () -> {
+            if (loads.incrementAndGet() == 1) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new StackOverflowError();
+            }
+            return snapshot();
+        };
+        SheetsFitnessContextProvider provider = new SheetsFitnessContextProvider(visualizationService,
+                Clock.fixed(Instant.parse("2025-01-13T12:00:00Z"), ZoneOffset.UTC), Duration.ofMinutes(5), new SimpleMeterRegistry());
+
+        CompletableFuture<FitnessContext> loader = CompletableFuture.supplyAsync(provider::loadContext);
+        while (loads.get() == 0) {
+            Thread.sleep(10);
+        }
+        CompletableFuture<FitnessContext> waiter = CompletableFuture.supplyAsync(provider::loadContext);
+        Thread.sleep(100);
+        release.countDown();
+
+        ExecutionException loaderFailure = assertThrows(ExecutionException.class, () -> loader.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(StackOverflowError.class, loaderFailure.getCause());
+        ExecutionException waiterFailure = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(StackOverflowError.class, waiterFailure.getCause());
+        assertTrue(provider.loadContext().hasData());
+        assertEquals(2, loads.get());
+    }
+
+    private static VisualizationSnapshot snapshot() {
+        TrainingLoadSummary trainingLoad = new TrainingLoadSummary("2025-01-13", 40.0, 50.0, -10.0, "Neutral",
+                List.of(), List.of(), List.of(), List.of());
+        return new VisualizationSnapshot(List.of(), null, null, null, trainingLoad, null, null, null);
+    }
+}
@@ -0,0 +1,78 @@
+package com.bko.fitnessextractor.ai.infrastructure.gemini;
+
+import com.bko.fitnessextractor.ai.domain.ChatPort;
+import com.bko.fitnessextractor.ai.domain.ChatRejectedException;
+import com.bko.fitnessextractor.ai.domain.ChatTimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedChatPortTest {
+    private static final ChatPort.ChatCommand COMMAND = new ChatPort.ChatCommand("gemini", "hi");
+
+    @Test
+    void limitsConcurrencyAndRejectsBeyondQueueDepth() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ChatPort slow = command -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return new ChatPort.ChatResult(command.model(), "ok");
+        };
+        BoundedChatPort port = new BoundedChatPort(slow, 2, 1, Duration.ofSeconds(10));
+
+        List<CompletableFuture<ChatPort.ChatResult>> accepted = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            accepted.add(port.chatAsync(COMMAND));
+        }
+        CompletableFuture<ChatPort.ChatResult> rejected = port.chatAsync(COMMAND);
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(ChatRejectedException.class, failure.getCause());
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        for (CompletableFuture<ChatPort.ChatResult> future : accepted) {
+            assertEquals("ok", future.get(5, TimeUnit.SECONDS).text());
+        }
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    void failsAndInterruptsCallsPastTheDeadline() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ChatPort hanging = command -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+            }
+            return new ChatPort.ChatResult(command.model(), "late");
+        };
+        BoundedChatPort port = new BoundedChatPort(hanging, 1, 0, Duration.ofMillis(100));
+
+        assertThrows(ChatTimeoutException.class, () -> port.chat(COMMAND));
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS));
+    }
+}
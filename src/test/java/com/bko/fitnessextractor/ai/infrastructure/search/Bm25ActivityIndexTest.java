@@ -0,0 +1,180 @@
+package com.bko.fitnessextractor.ai.infrastructure.search;
+
+import com.bko.fitnessextractor.ai.domain.ActivityHit;
+import com.bko.fitnessextractor.ai.domain.ResultPage;
+import com.bko.fitnessextractor.integrations.sheets.SpreadsheetPort;
+import com.bko.fitnessextractor.integrations.strava.StravaActivity;
+import com.bko.fitnessextractor.shared.AppSettings;
+import com.bko.fitnessextractor.shared.GarminSettings;
+import com.bko.fitnessextractor.shared.GoogleSettings;
+import com.bko.fitnessextractor.shared.MutableClock;
+import com.bko.fitnessextractor.shared.StravaSettings;
+import com.bko.fitnessextractor.sync.StravaActivitiesSynced;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class Bm25ActivityIndexTest {
+    private static final String RANGE = "Strava Activities!A:P";
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-04-14T12:00:00Z"));
+
+    @Test
+    void ranksActivitiesByNameTypeDateAndDerivedTerms() throws Exception {
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        when(spreadsheetPort.getExistingValues(RANGE)).thenReturn(List.of(
+                header(),
+                row("4", "Sunday Long Run", "Run", "21100", "7200", "2025-04-13T07:00:00Z", "150", "Felt strong"),
+                row("3", "Easy shakeout", "Run", "4000", "1500", "2025-04-02T07:00:00Z", "10", ""),
+                row("2", "Long run by the river", "Run", "18000", "6300", "2025-03-16T07:00:00Z", "40", ""),
+                row("1", "Hill repeats", "Ride", "25000", "3000", "2025-03-10T17:00:00Z", "800", "Legs were heavy")
+        ));
+        Bm25ActivityIndex index = new Bm25ActivityIndex(spreadsheetPort, settings(), clock);
+
+        List<ActivityHit> march = index.search("How did my long runs in March go?", 3);
+        assertEquals("2", march.getFirst().id());
+        assertEquals(LocalDate.parse("2025-03-16"), march.getFirst().date());
+        assertEquals(18.0, march.getFirst().distanceKm());
+        assertEquals(105, march.getFirst().movingMinutes());
+        assertEquals(Set.of("2", "4"), index.search("long runs", 2).stream().map(ActivityHit::id).collect(Collectors.toSet()));
+
+        assertEquals("1", index.search("hilly rides", 5).getFirst().id());
+        assertEquals("1", index.search("heavy legs", 5).getFirst().id());
+        assertTrue(index.search("swimming", 5).isEmpty());
+        verify(spreadsheetPort, times(1)).getExistingValues(RANGE);
+    }
+
+    @Test
+    void queryFiltersByTypeAndDateRangeWithPaging() throws Exception {
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        when(spreadsheetPort.getExistingValues(RANGE)).thenReturn(List.of(
+                header(),
+                row("4", "Sunday Long Run", "Run", "21100", "7200", "2025-04-13T07:00:00Z", "150", ""),
+                row("3", "Easy shakeout", "Run", "4000", "1500", "2025-04-02T07:00:00Z", "10", ""),
+                row("2", "Long run by the river", "Run", "18000", "6300", "2025-03-16T07:00:00Z", "40", ""),
+                row("1", "Hill repeats", "Ride", "25000", "3000", "2025-03-10T17:00:00Z", "800", "")
+        ));
+        Bm25ActivityIndex index = new Bm25ActivityIndex(spreadsheetPort, settings(), clock);
+
+        ResultPage<ActivityHit> runs = index.query("run", LocalDate.parse("2025-03-01"), null, 0, 2);
+        assertEquals(List.of("4", "3"), runs.items().stream().map(ActivityHit::id).toList());
+        assertEquals(3, runs.total());
+        assertEquals(2, runs.nextOffset());
+
+        ResultPage<ActivityHit> march = index.query(null, LocalDate.parse("2025-03-01"), LocalDate.parse("2025-03-31"), 0, 10);
+        assertEquals(List.of("2", "1"), march.items().stream().map(ActivityHit::id).toList());
+        assertNull(march.nextOffset());
+    }
+
+    @Test
+    void syncedActivitiesAreAddedAndReplaceEarlierVersions() throws Exception {
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        when(spreadsheetPort.getExistingValues(RANGE)).thenReturn(List.of(
+                header(),
+                row("1", "Morning Run", "Run", "5000", "1500", "2025-01-10T07:00:00Z", "", "")
+        ));
+        Bm25ActivityIndex index = new Bm25ActivityIndex(spreadsheetPort, settings(), clock);
+        assertEquals(1, index.search("morning", 5).size());
+
+        index.onStravaActivitiesSynced(new StravaActivitiesSynced(List.of(
+                activity(1L, "Track intervals", "Run", "2025-01-10T07:00:00Z"),
+                activity(2L, "Evening Swim", "Swim", "2025-01-11T18:00:00Z")
+        )));
+
+        assertEquals(2, index.size());
+        assertTrue(index.search("morning", 5).isEmpty());
+        assertEquals("1", index.search("track intervals", 5).getFirst().id());
+        assertEquals("2", index.search("swim in january", 5).getFirst().id());
+    }
+
+    @Test
+    void resyncingAnActivityReusesItsDocumentInsteadOfGrowingTheIndex() {
+        Bm25ActivityIndex index = new Bm25ActivityIndex(mock(SpreadsheetPort.class), settings(), clock);
+
+        for (int edit = 1; edit <= 50; edit++) {
+            index.onStravaActivitiesSynced(new StravaActivitiesSynced(List.of(
+                    activity(1L, "Tempo run take " + edit, "Run", "2025-01-10T07:00:00Z"))));
+        }
+
+        assertEquals(1, index.size());
+        assertEquals("Tempo run take 50", index.search("tempo", 5).getFirst().name());
+        assertEquals(1, index.query("Run", null, null, 0, 10).items().size());
+    }
+
+    @Test
+    void aFailedSheetReadIsNotRetriedUntilTheBackOffEnds() throws Exception {
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        when(spreadsheetPort.getExistingValues(RANGE))
+                .thenThrow(new IOException("HTTP 503"))
+                .thenReturn(List.of(header(), row("1", "Morning Run", "Run", "5000", "1500", "2025-01-10T07:00:00Z", "", "")));
+        Bm25ActivityIndex index = new Bm25ActivityIndex(spreadsheetPort, settings(), clock);
+
+        assertTrue(index.search("morning", 5).isEmpty());
+        assertTrue(index.search("morning", 5).isEmpty());
+        verify(spreadsheetPort, times(1)).getExistingValues(RANGE);
+
+        clock.advance(Bm25ActivityIndex.RETRY_AFTER_FAILURE);
+        assertEquals("1", index.search("morning", 5).getFirst().id());
+        verify(spreadsheetPort, times(2)).getExistingValues(RANGE);
+    }
+
+    @Test
+    void skipsSheetWhenGoogleIsNotConfigured() {
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        AppSettings settings = new AppSettings(
+                new StravaSettings("id", "secret", "token"),
+                new GarminSettings("user", "pass", null, null, null, null),
+                new GoogleSettings(null, null)
+        );
+        Bm25ActivityIndex index = new Bm25ActivityIndex(spreadsheetPort, settings, clock);
+
+        index.onStravaActivitiesSynced(new StravaActivitiesSynced(List.of(
+                activity(7L, "Lunch Ride", "Ride", "2025-02-01T12:00:00Z"))));
+
+        assertEquals("7", index.search("ride", 3).getFirst().id());
+    }
+
+    private static AppSettings settings() {
+        return new AppSettings(
+                new StravaSettings("id", "secret", "token"),
+                new GarminSettings("user", "pass", null, null, null, null),
+                new GoogleSettings("sheet", "key.json")
+        );
+    }
+
+    private static List<Object> header() {
+        return List.of("Activity ID", "Name", "Type", "Distance (m)", "Moving Time (s)", "Elapsed Time (s)",
+                "Start Date", "Avg Speed (m/s)", "Max Speed (m/s)", "Elevation Gain (m)", "Avg Heart Rate",
+                "Max Heart Rate", "Avg Watts", "Kilojoules", "Suffer Score", "Description");
+    }
+
+    private static List<Object> row(String id, String name, String type, String distance, String movingTime,
+                                    String startDate, String elevation, String description) {
+        return List.of(id, name, type, distance, movingTime, movingTime, startDate, "", "", elevation, "145", "",
+                "", "", "", description);
+    }
+
+    private static StravaActivity activity(Long id, String name, String type, String startDate) {
+        StravaActivity activity = new StravaActivity();
+        activity.setId(id);
+        activity.setName(name);
+        activity.setType(type);
+        activity.setStartDate(startDate);
+        activity.setDistance(3000.0);
+        activity.setMovingTime(1200);
+        return activity;
+    }
+}
@@ -0,0 +1,122 @@
+package com.bko.fitnessextractor.ai.infrastructure.search;
+
+import com.bko.fitnessextractor.ai.domain.DailyMetrics;
+import com.bko.fitnessextractor.ai.domain.ResultPage;
+import com.bko.fitnessextractor.ai.domain.StressSample;
+import com.bko.fitnessextractor.integrations.garmin.GarminMetrics;
+import com.bko.fitnessextractor.integrations.garmin.GarminWellnessSample;
+import com.bko.fitnessextractor.integrations.sheets.SpreadsheetPort;
+import com.bko.fitnessextractor.shared.AppSettings;
+import com.bko.fitnessextractor.shared.GarminSettings;
+import com.bko.fitnessextractor.shared.GoogleSettings;
+import com.bko.fitnessextractor.shared.MutableClock;
+import com.bko.fitnessextractor.shared.StravaSettings;
+import com.bko.fitnessextractor.sync.GarminMetricsSynced;
+import com.bko.fitnessextractor.sync.GarminWellnessSynced;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GarminDataIndexTest {
+    private static final String METRICS_RANGE = "Garmin Metrics!A:I";
+    private static final String STRESS_RANGE = "Garmin Stress HR!A:D";
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-01-14T12:00:00Z"));
+
+    @Test
+    void dailyMetricsArePagedNewestFirstAndUpdatedBySync() throws Exception {
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        when(spreadsheetPort.getExistingValues(METRICS_RANGE)).thenReturn(List.of(
+                List.of("Date", "Body Battery Max", "Body Battery Min", "Weight (kg)", "VO2 Max", "Resting HR",
+                        "Sleep Score", "Sleep Duration (h)", "HRV (ms)"),
+                List.of("2025-01-14", "80", "20", "", "", "50", "75", "7.5", "55"),
+                List.of("2025-01-13", "85", "25", "", "", "48", "80", "8", "60"),
+                List.of("2025-01-12", "90", "30", "", "", "47", "85", "8.5", "62")
+        ));
+        GarminDataIndex index = new GarminDataIndex(spreadsheetPort, settings(), clock);
+
+        ResultPage<DailyMetrics> first = index.dailyMetrics(LocalDate.parse("2025-01-01"), LocalDate.parse("2025-01-31"), 0, 2);
+        assertEquals(List.of(LocalDate.parse("2025-01-14"), LocalDate.parse("2025-01-13")),
+                first.items().stream().map(DailyMetrics::date).toList());
+        assertEquals(3, first.total());
+        assertEquals(2, first.nextOffset());
+
+        ResultPage<DailyMetrics> second = index.dailyMetrics(LocalDate.parse("2025-01-01"), LocalDate.parse("2025-01-31"), 2, 2);
+        assertEquals(47, second.items().getFirst().restingHeartRate());
+        assertNull(second.nextOffset());
+
+        GarminMetrics refreshed = new GarminMetrics();
+        refreshed.setDate("2025-01-14");
+        refreshed.setRestingHeartRate(52);
+        index.onGarminMetricsSynced(new GarminMetricsSynced(List.of(refreshed)));
+
+        ResultPage<DailyMetrics> day = index.dailyMetrics(LocalDate.parse("2025-01-14"), LocalDate.parse("2025-01-14"), 0, 10);
+        assertEquals(52, day.items().getFirst().restingHeartRate());
+        verify(spreadsheetPort, times(1)).getExistingValues(METRICS_RANGE);
+    }
+
+    @Test
+    void stressWindowReturnsSamplesInRangeAndSyncReplacesWholeDays() throws Exception {
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        when(spreadsheetPort.getExistingValues(STRESS_RANGE)).thenReturn(List.of(
+                List.of("Date", "Timestamp", "Stress", "Heart Rate"),
+                List.of("2025-01-14", "2025-01-14T10:30:00", "60", "95"),
+                List.of("2025-01-14", "2025-01-14T10:15:00", "40", "80"),
+                List.of("2025-01-14", "2025-01-14T10:00:00", "20", "70"),
+                List.of("2025-01-14", "2025-01-14T09:45:00", "10", "60")
+        ));
+        GarminDataIndex index = new GarminDataIndex(spreadsheetPort, settings(), clock);
+
+        ResultPage<StressSample> window = index.stressWindow(LocalDateTime.parse("2025-01-14T10:00:00"), 30, 0, 10);
+        assertEquals(List.of(20, 40), window.items().stream().map(StressSample::stress).toList());
+
+        GarminWellnessSample sample = new GarminWellnessSample();
+        sample.setDate("2025-01-14");
+        sample.setTimestamp("2025-01-14T10:05:00");
+        sample.setStress(33);
+        sample.setHeartRate(77);
+        index.onGarminWellnessSynced(new GarminWellnessSynced(List.of(sample)));
+
+        window = index.stressWindow(LocalDateTime.parse("2025-01-14T09:00:00"), 120, 0, 10);
+        assertEquals(List.of(33), window.items().stream().map(StressSample::stress).toList());
+    }
+
+    @Test
+    void aFailedSheetReadIsAnErrorAndIsNotRetriedUntilTheBackOffEnds() throws Exception {
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        when(spreadsheetPort.getExistingValues(METRICS_RANGE))
+                .thenThrow(new IOException("HTTP 503"))
+                .thenReturn(List.of(List.of("2025-01-14", "80", "20", "", "", "50", "75", "7.5", "55")));
+        GarminDataIndex index = new GarminDataIndex(spreadsheetPort, settings(), clock);
+        LocalDate day = LocalDate.parse("2025-01-14");
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> index.dailyMetrics(day, day, 0, 10));
+        assertEquals("Could not read Garmin Metrics!A:I: HTTP 503", failure.getMessage());
+        assertThrows(IllegalStateException.class, () -> index.dailyMetrics(day, day, 0, 10));
+        verify(spreadsheetPort, times(1)).getExistingValues(METRICS_RANGE);
+
+        clock.advance(GarminDataIndex.RETRY_AFTER_FAILURE);
+        assertEquals(1, index.dailyMetrics(day, day, 0, 10).total());
+        verify(spreadsheetPort, times(2)).getExistingValues(METRICS_RANGE);
+    }
+
+    private static AppSettings settings() {
+        return new AppSettings(
+                new StravaSettings("id", "secret", "token"),
+                new GarminSettings("user", "pass", null, null, null, null),
+                new GoogleSettings("sheet", "key.json")
+        );
+    }
+}
@@ -0,0 +1,67 @@
+package com.bko.fitnessextractor.ai.web;
+
+import com.bko.fitnessextractor.ai.application.ChatResponseCache;
+import com.bko.fitnessextractor.ai.application.ChatService;
+import com.bko.fitnessextractor.ai.application.ChatSessionStore;
+import com.bko.fitnessextractor.ai.application.ModelCatalogService;
+import com.bko.fitnessextractor.ai.domain.ChatResponse;
+import com.bko.fitnessextractor.ai.domain.FitnessContextPort;
+import com.bko.fitnessextractor.ai.web.dto.ChatChunkDto;
+import com.bko.fitnessextractor.ai.web.dto.ChatErrorDto;
+import com.bko.fitnessextractor.ai.web.dto.ChatMessageDto;
+import com.bko.fitnessextractor.ai.web.dto.ChatRequestDto;
+import com.bko.fitnessextractor.ai.web.dto.ChatResponseDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AiControllerTest {
+    private final ChatService chatService = mock(ChatService.class);
+    private final AiController controller = new AiController(chatService, mock(FitnessContextPort.class),
+            mock(ModelCatalogService.class), mock(ChatResponseCache.class), mock(ChatSessionStore.class));
+
+    @Test
+    void streamSendsEachChunkThenTheFullResponse() {
+        when(chatService.chatStream(any(), any())).thenAnswer(invocation -> {
+            Consumer<String> onText = invocation.getArgument(1);
+            onText.accept("Easy ");
+            onText.accept("run today.");
+            return new ChatResponse("gemini-test", "Easy run today.", true);
+        });
+
+        List<ServerSentEvent<Object>> events = stream();
+
+        assertEquals(List.of("chunk", "chunk", "done"), events.stream().map(ServerSentEvent::event).toList());
+        assertEquals(new ChatChunkDto("Easy "), events.get(0).data());
+        assertEquals(new ChatChunkDto("run today."), events.get(1).data());
+        assertEquals(new ChatResponseDto("gemini-test", "Easy run today.", true, null), events.get(2).data());
+    }
+
+    @Test
+    void aFailingStreamEndsWithAnErrorEventAfterTheChunksSentSoFar() {
+        when(chatService.chatStream(any(), any())).thenAnswer(invocation -> {
+            Consumer<String> onText = invocation.getArgument(1);
+            onText.accept("Easy ");
+            throw new IllegalStateException("Gemini quota exceeded");
+        });
+
+        List<ServerSentEvent<Object>> events = stream();
+
+        assertEquals(List.of("chunk", "error"), events.stream().map(ServerSentEvent::event).toList());
+        assertEquals(new ChatErrorDto("Gemini quota exceeded"), events.get(1).data());
+    }
+
+    private List<ServerSentEvent<Object>> stream() {
+        ChatRequestDto request = new ChatRequestDto(List.of(new ChatMessageDto("user", "What should I do today?")),
+                true, null, null, null);
+        return controller.chatStream(request).collectList().block(Duration.ofSeconds(5));
+    }
+}
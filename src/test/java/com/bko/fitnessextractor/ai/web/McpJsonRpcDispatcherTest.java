@@ -0,0 +1,117 @@
+package com.bko.fitnessextractor.ai.web;
+
+import com.bko.fitnessextractor.ai.application.ChatService;
+import com.bko.fitnessextractor.ai.application.FitnessQueryService;
+import com.bko.fitnessextractor.ai.application.McpToolService;
+import com.bko.fitnessextractor.ai.domain.ActivityHit;
+import com.bko.fitnessextractor.ai.domain.FitnessContextPort;
+import com.bko.fitnessextractor.ai.domain.ResultPage;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class McpJsonRpcDispatcherTest {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final FitnessQueryService fitnessQueryService = mock(FitnessQueryService.class);
+    private final McpJsonRpcDispatcher dispatcher = new McpJsonRpcDispatcher(
+            new McpToolService(mock(FitnessContextPort.class), mock(ChatService.class), fitnessQueryService),
+            objectMapper);
+
+    @Test
+    void batchAnswersRequestsAndSkipsNotifications() {
+        McpJsonRpcDispatcher.Messages messages = dispatcher.parse("""
+                [
+                  {"jsonrpc": "2.0", "id": 1, "method": "initialize", "params": {"protocolVersion": "2024-11-05"}},
+                  {"jsonrpc": "2.0", "method": "notifications/initialized"},
+                  {"jsonrpc": "2.0", "id": "b", "method": "tools/list"},
+                  {"jsonrpc": "2.0", "id": 3, "method": "resources/list"},
+                  42
+                ]
+                """);
+
+        assertTrue(messages.batch());
+        List<ObjectNode> responses = messages.messages().stream().map(dispatcher::handle).filter(Objects::nonNull).toList();
+        assertEquals(4, responses.size());
+
+        assertEquals("2024-11-05", responses.get(0).at("/result/protocolVersion").asText());
+        assertTrue(responses.get(0).at("/result/capabilities/tools").isObject());
+
+        JsonNode tools = responses.get(1).at("/result/tools");
+        assertEquals("b", responses.get(1).get("id").asText());
+        assertEquals("fitness_summary", tools.get(0).get("name").asText());
+        assertEquals("object", tools.get(0).at("/inputSchema/type").asText());
+
+        assertEquals(McpJsonRpcDispatcher.METHOD_NOT_FOUND, responses.get(2).at("/error/code").asInt());
+        assertEquals(McpJsonRpcDispatcher.INVALID_REQUEST, responses.get(3).at("/error/code").asInt());
+        assertTrue(responses.get(3).get("id").isNull());
+    }
+
+    @Test
+    void toolCallReturnsTextAndStructuredContent() {
+        ActivityHit hit = new ActivityHit("7", LocalDate.parse("2025-01-14"), "Run", "Easy", 8.0, 45, 140.0, 50.0, 0);
+        when(fitnessQueryService.queryActivities(eq("Run"), any(), any(), any(), eq(10)))
+                .thenReturn(new ResultPage<>(List.of(hit), 0, 1, null));
+
+        ObjectNode response = dispatcher.handle(dispatcher.parse("""
+                {"jsonrpc": "2.0", "id": 5, "method": "tools/call",
+                 "params": {"name": "query_activities", "arguments": {"type": "Run", "limit": 10}}}
+                """).messages().getFirst());
+
+        assertNotNull(response);
+        assertFalse(response.at("/result/isError").asBoolean());
+        assertEquals("2025-01-14", response.at("/result/structuredContent/items/0/date").asText());
+        assertTrue(response.at("/result/content/0/text").asText().contains("\"total\":1"));
+    }
+
+    @Test
+    void toolFailuresAreResultsAndUnknownToolsAreErrors() {
+        ObjectNode badArguments = dispatcher.handle(dispatcher.parse("""
+                {"jsonrpc": "2.0", "id": 1, "method": "tools/call",
+                 "params": {"name": "get_daily_metrics", "arguments": {"from": "last week"}}}
+                """).messages().getFirst());
+        assertTrue(badArguments.at("/result/isError").asBoolean());
+        assertTrue(badArguments.at("/result/content/0/text").asText().startsWith("from must be a date"));
+
+        ObjectNode unknown = dispatcher.handle(dispatcher.parse("""
+                {"jsonrpc": "2.0", "id": 2, "method": "tools/call", "params": {"name": "nope"}}
+                """).messages().getFirst());
+        assertEquals(McpJsonRpcDispatcher.INVALID_PARAMS, unknown.at("/error/code").asInt());
+    }
+
+    @Test
+    void unreadableBodiesAreParseErrors() {
+        McpJsonRpcDispatcher.Messages messages = dispatcher.parse("{\"jsonrpc\": ");
+
+        assertNotNull(messages.error());
+        assertEquals(McpJsonRpcDispatcher.PARSE_ERROR, messages.error().at("/error/code").asInt());
+        assertNull(dispatcher.handle(objectMapper.createObjectNode().put("jsonrpc", "2.0").put("method", "ping")));
+    }
+
+    @Test
+    void streamsOnlyWhenClientAcceptsEventStream() {
+        assertFalse(McpJsonRpcController.streams("application/json, text/event-stream", 1));
+        assertTrue(McpJsonRpcController.streams("application/json, text/event-stream", 3));
+        assertTrue(McpJsonRpcController.streams("text/event-stream", 1));
+        assertFalse(McpJsonRpcController.streams("*/*", 3));
+        assertFalse(McpJsonRpcController.streams(null, 3));
+    }
+}
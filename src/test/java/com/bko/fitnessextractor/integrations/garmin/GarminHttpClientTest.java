@@ -4,12 +4,15 @@ import com.bko.fitnessextractor.shared.AppSettings;
 import com.bko.fitnessextractor.shared.GarminSettings;
 import com.bko.fitnessextractor.shared.GoogleSettings;
 import com.bko.fitnessextractor.shared.StravaSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.hc.client5.http.fluent.Content;
 import org.apache.hc.client5.http.fluent.Executor;
 import org.apache.hc.client5.http.fluent.Response;
+import org.apache.hc.core5.http.ContentType;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.List;
@@ -40,7 +43,7 @@ class GarminHttpClientTest {
                 new GoogleSettings(null, null)
         );
 
-        GarminHttpClient client = new GarminHttpClient(settings);
+        GarminHttpClient client = new GarminHttpClient(settings, new SimpleMeterRegistry());
         setField(client, "executor", executor);
         setField(client, "displayName", "test-user");
 
@@ -75,7 +78,7 @@ class GarminHttpClientTest {
                 new GoogleSettings(null, null)
         );
 
-        GarminHttpClient client = new GarminHttpClient(settings);
+        GarminHttpClient client = new GarminHttpClient(settings, new SimpleMeterRegistry());
         setField(client, "executor", executor);
         setField(client, "displayName", "test-user");
 
@@ -96,9 +99,8 @@ class GarminHttpClientTest {
 
     private Response responseWith(String body) throws Exception {
         Response response = mock(Response.class);
-        Content content = mock(Content.class);
-        when(response.returnContent()).thenReturn(content);
-        when(content.asString()).thenReturn(body);
+        when(response.returnContent())
+                .thenReturn(new Content(body.getBytes(StandardCharsets.UTF_8), ContentType.APPLICATION_JSON));
         return response;
     }
 
@@ -6,10 +6,12 @@ import com.bko.fitnessextractor.shared.GoogleSettings;
 import com.bko.fitnessextractor.shared.StravaSettings;
 import com.google.api.services.sheets.v4.Sheets;
 import com.google.api.services.sheets.v4.model.BatchUpdateSpreadsheetRequest;
+import com.google.api.services.sheets.v4.model.DimensionRange;
 import com.google.api.services.sheets.v4.model.Sheet;
 import com.google.api.services.sheets.v4.model.SheetProperties;
 import com.google.api.services.sheets.v4.model.Spreadsheet;
 import com.google.api.services.sheets.v4.model.ValueRange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
@@ -41,17 +43,22 @@ class GoogleSheetsAdapterTest {
         ValueRange range = new ValueRange().setValues(List.of(List.of("A", "B")));
         when(get.execute()).thenReturn(range);
 
-        GoogleSheetsAdapter adapter = new GoogleSheetsAdapter(settings());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        GoogleSheetsAdapter adapter = new GoogleSheetsAdapter(settings(), meterRegistry);
         setField(adapter, "sheetsService", sheets);
 
         List<List<Object>> result = adapter.getExistingValues("Sheet1!A:A");
         assertEquals("A", result.get(0).get(0));
         assertEquals("B", result.get(0).get(1));
+        assertEquals(1, meterRegistry.get("fitness.upstream.requests")
+                .tags("upstream", "sheets", "endpoint", "values.get", "status", "2xx").timer().count());
+        assertEquals(1, meterRegistry.get("fitness.sheets.rows")
+                .tags("sheet", "Sheet1", "operation", "read").summary().totalAmount());
     }
 
     @Test
     void insertRowsAtTopNoValuesDoesNothing() throws Exception {
-        GoogleSheetsAdapter adapter = new GoogleSheetsAdapter(settings());
+        GoogleSheetsAdapter adapter = new GoogleSheetsAdapter(settings(), new SimpleMeterRegistry());
         setField(adapter, "sheetsService", mock(Sheets.class));
 
         adapter.insertRowsAtTop("Sheet1", Collections.emptyList());
@@ -82,7 +89,7 @@ class GoogleSheetsAdapterTest {
         when(spreadsheets.get(eq("sheet-id"))).thenReturn(getSpreadsheet);
         when(getSpreadsheet.execute()).thenReturn(spreadsheet);
 
-        GoogleSheetsAdapter adapter = new GoogleSheetsAdapter(settings());
+        GoogleSheetsAdapter adapter = new GoogleSheetsAdapter(settings(), new SimpleMeterRegistry());
         setField(adapter, "sheetsService", sheets);
 
         adapter.insertRowsAtTop("Sheet1", List.of(List.of("a"), List.of("b")));
@@ -95,6 +102,41 @@ class GoogleSheetsAdapterTest {
         verify(values).update(eq("sheet-id"), eq("Sheet1!A2"), any(ValueRange.class));
     }
 
+    @Test
+    void insertRowsWritesBelowTheGivenNumberOfDataRows() throws Exception {
+        Sheets sheets = mock(Sheets.class);
+        Sheets.Spreadsheets spreadsheets = mock(Sheets.Spreadsheets.class);
+        Sheets.Spreadsheets.Values values = mock(Sheets.Spreadsheets.Values.class);
+        Sheets.Spreadsheets.Values.Update update = mock(Sheets.Spreadsheets.Values.Update.class);
+        Sheets.Spreadsheets.BatchUpdate batchUpdate = mock(Sheets.Spreadsheets.BatchUpdate.class);
+        Sheets.Spreadsheets.Get getSpreadsheet = mock(Sheets.Spreadsheets.Get.class);
+
+        when(sheets.spreadsheets()).thenReturn(spreadsheets);
+        when(spreadsheets.values()).thenReturn(values);
+        when(values.update(eq("sheet-id"), eq("Sheet1!A5"), any(ValueRange.class))).thenReturn(update);
+        when(update.setValueInputOption(anyString())).thenReturn(update);
+        when(spreadsheets.batchUpdate(eq("sheet-id"), any(BatchUpdateSpreadsheetRequest.class))).thenReturn(batchUpdate);
+
+        Spreadsheet spreadsheet = new Spreadsheet().setSheets(List.of(
+                new Sheet().setProperties(new SheetProperties().setTitle("Sheet1").setSheetId(123))
+        ));
+        when(spreadsheets.get(eq("sheet-id"))).thenReturn(getSpreadsheet);
+        when(getSpreadsheet.execute()).thenReturn(spreadsheet);
+
+        GoogleSheetsAdapter adapter = new GoogleSheetsAdapter(settings(), new SimpleMeterRegistry());
+        setField(adapter, "sheetsService", sheets);
+
+        adapter.insertRows("Sheet1", 3, List.of(List.of("a"), List.of("b")));
+
+        ArgumentCaptor<BatchUpdateSpreadsheetRequest> batchCaptor =
+                ArgumentCaptor.forClass(BatchUpdateSpreadsheetRequest.class);
+        verify(spreadsheets).batchUpdate(eq("sheet-id"), batchCaptor.capture());
+        DimensionRange range = batchCaptor.getValue().getRequests().getFirst().getInsertDimension().getRange();
+        assertEquals(4, range.getStartIndex());
+        assertEquals(6, range.getEndIndex());
+        verify(values).update(eq("sheet-id"), eq("Sheet1!A5"), any(ValueRange.class));
+    }
+
     @Test
     void ensureHeadersUpdatesWhenMismatch() throws Exception {
         Sheets sheets = mock(Sheets.class);
@@ -112,7 +154,7 @@ class GoogleSheetsAdapterTest {
         when(update.setValueInputOption(anyString())).thenReturn(update);
         when(update.execute()).thenReturn(null);
 
-        GoogleSheetsAdapter adapter = new GoogleSheetsAdapter(settings());
+        GoogleSheetsAdapter adapter = new GoogleSheetsAdapter(settings(), new SimpleMeterRegistry());
         setField(adapter, "sheetsService", sheets);
 
         adapter.ensureHeaders("Sheet1", List.of("New", "Extra"));
@@ -4,6 +4,7 @@ import com.bko.fitnessextractor.shared.AppSettings;
 import com.bko.fitnessextractor.shared.GarminSettings;
 import com.bko.fitnessextractor.shared.GoogleSettings;
 import com.bko.fitnessextractor.shared.StravaSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.hc.client5.http.fluent.Content;
 import org.apache.hc.client5.http.fluent.Request;
 import org.apache.hc.client5.http.fluent.Response;
@@ -49,7 +50,7 @@ class StravaHttpClientTest {
                     new GarminSettings(null, null, null, null, null, null),
                     new GoogleSettings(null, null)
             );
-            StravaHttpClient client = new StravaHttpClient(settings);
+            StravaHttpClient client = new StravaHttpClient(settings, new SimpleMeterRegistry());
             List<StravaActivity> activities = client.getActivities(1, 1);
 
             assertEquals(1, activities.size());
@@ -76,7 +77,7 @@ class StravaHttpClientTest {
                     new GarminSettings(null, null, null, null, null, null),
                     new GoogleSettings(null, null)
             );
-            StravaHttpClient client = new StravaHttpClient(settings);
+            StravaHttpClient client = new StravaHttpClient(settings, new SimpleMeterRegistry());
             setAccessToken(client, "token");
 
             StravaActivity activity = client.getActivity(42L);
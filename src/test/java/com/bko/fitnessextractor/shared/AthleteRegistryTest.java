@@ -0,0 +1,64 @@
+package com.bko.fitnessextractor.shared;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AthleteRegistryTest {
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void loadsAthletesAndSkipsInvalidOrDuplicateIds() throws Exception {
+        Path file = dataDir.resolve("athletes.json");
+        Files.writeString(file, """
+                {"athletes": [
+                  {"id": "alice", "name": "Alice", "strava": {"clientId": "1", "clientSecret": "s", "refreshToken": "r"},
+                   "garmin": {"username": "a", "password": "p", "tokenScript": "refresh.py", "pythonPath": "python"},
+                   "google": {"spreadsheetId": "sheet", "serviceAccountKeyPath": "key.json"}},
+                  {"id": "../escape"},
+                  {"id": "alice"},
+                  {"id": "bob"}
+                ]}
+                """);
+        AthleteRegistry registry = new AthleteRegistry(file);
+
+        assertEquals(List.of("alice", "bob"), registry.athletes().stream().map(Athlete::id).toList());
+        Athlete alice = registry.find("alice").orElseThrow();
+        assertTrue(alice.settings().isStravaConfigured());
+        assertTrue(alice.settings().isGarminConfigured());
+        assertNull(alice.settings().garmin().tokenScript());
+        Athlete bob = registry.find("bob").orElseThrow();
+        assertEquals("bob", bob.displayName());
+        assertFalse(bob.settings().isGoogleConfigured());
+    }
+
+    @Test
+    void reloadsWhenTheFileChanges() throws Exception {
+        Path file = dataDir.resolve("athletes.json");
+        AthleteRegistry registry = new AthleteRegistry(file);
+        assertEquals(List.of(), registry.athletes());
+
+        Files.writeString(file, "{\"athletes\": [{\"id\": \"alice\"}]}");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2025-01-01T00:00:00Z")));
+        assertEquals(1, registry.athletes().size());
+
+        Files.writeString(file, "{\"athletes\": [{\"id\": \"alice\"}, {\"id\": \"bob\"}]}");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2025-01-02T00:00:00Z")));
+        assertEquals(2, registry.athletes().size());
+
+        Files.writeString(file, "not json");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2025-01-03T00:00:00Z")));
+        assertEquals(2, registry.athletes().size());
+    }
+}
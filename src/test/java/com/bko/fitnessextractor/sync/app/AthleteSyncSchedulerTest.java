@@ -0,0 +1,100 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.shared.AthleteRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class AthleteSyncSchedulerTest {
+    private static final Instant NOW = Instant.parse("2025-01-13T12:00:00Z");
+    private static final Duration HOUR = Duration.ofHours(1);
+
+    @TempDir
+    Path dataDir;
+
+    private final AthleteSyncs athleteSyncs = mock(AthleteSyncs.class);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AthleteSyncScheduler scheduler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path file = dataDir.resolve("athletes.json");
+        Files.writeString(file, "{\"athletes\": [{\"id\": \"alice\"}, {\"id\": \"bob\"}]}");
+        scheduler = new AthleteSyncScheduler(new AthleteRegistry(file), athleteSyncs,
+                Clock.fixed(NOW, ZoneOffset.UTC), false, 2, HOUR);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new SyncReport();
+        }).when(athleteSyncs).sync(any(), any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void spreadsAthletesOverTheIntervalInStableSlots() {
+        Instant alice = AthleteSyncScheduler.nextSlot("alice", NOW, HOUR);
+        Instant bob = AthleteSyncScheduler.nextSlot("bob", NOW, HOUR);
+
+        assertFalse(alice.isBefore(NOW));
+        assertTrue(alice.isBefore(NOW.plus(HOUR)));
+        assertNotEquals(alice, bob);
+        assertEquals(alice.plus(HOUR), AthleteSyncScheduler.nextSlot("alice", alice.plusMillis(1), HOUR));
+        assertEquals(alice.minus(Duration.ofHours(3)),
+                AthleteSyncScheduler.nextSlot("alice", alice.minus(Duration.ofMinutes(210)), HOUR));
+    }
+
+    @Test
+    void keepsAtMostOneSyncPerAthleteQueuedOrRunning() {
+        assertTrue(scheduler.request("alice"));
+        assertTrue(scheduler.request("alice"));
+        assertTrue(scheduler.request("bob"));
+
+        verify(athleteSyncs, timeout(2000)).sync(argThat(athlete -> athlete.id().equals("alice")), any());
+        verify(athleteSyncs, timeout(2000)).sync(argThat(athlete -> athlete.id().equals("bob")), any());
+        assertEquals("running", scheduler.statuses().getFirst().state());
+        assertTrue(scheduler.request("alice"));
+
+        release.countDown();
+        verify(athleteSyncs, times(2)).sync(any(), any());
+    }
+
+    @Test
+    void rejectsUnknownAthletes() {
+        assertFalse(scheduler.request("carol"));
+    }
+
+    @Test
+    void waitsForEachAthletesSlot() {
+        scheduler.dispatch();
+
+        verify(athleteSyncs, times(0)).sync(any(), any());
+        assertEquals("idle", scheduler.statuses().getFirst().state());
+        assertEquals(AthleteSyncScheduler.nextSlot("alice", NOW, HOUR), scheduler.statuses().getFirst().nextRunAt());
+    }
+}
@@ -50,14 +50,20 @@ class CsvExportServiceTest {
         when(spreadsheetPort.getExistingValues("Strava Activities")).thenReturn(stravaRows);
         when(spreadsheetPort.getExistingValues("Garmin Metrics")).thenReturn(garminRows);
         when(spreadsheetPort.getExistingValues("Garmin Stress HR")).thenReturn(stressRows);
+        when(spreadsheetPort.getExistingValues("Weekly Rollup")).thenReturn(List.of(
+                List.of("Period", "Activities"),
+                List.of("2024-W01", "3")
+        ));
 
         byte[] zip = service.exportAllCsvZip();
         Map<String, String> entries = readZipEntries(zip);
 
-        assertEquals(3, entries.size());
+        assertEquals(5, entries.size());
         assertEquals("Activity ID,Name\r\n1,Morning Run", entries.get("strava_activities.csv"));
         assertEquals("Date,Note\r\n2024-01-01,\"a,b\"\r\n2024-01-02,\"quote\"\"me\"", entries.get("garmin_metrics.csv"));
         assertEquals("Date,Stress\r\n2024-01-01,25", entries.get("garmin_stress_hr.csv"));
+        assertEquals("Period,Activities\r\n2024-W01,3", entries.get("weekly_rollup.csv"));
+        assertEquals("", entries.get("monthly_rollup.csv"));
     }
 
     private Map<String, String> readZipEntries(byte[] zip) throws IOException {
@@ -0,0 +1,56 @@
+package com.bko.fitnessextractor.sync.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RateBudgetTest {
+    private final AtomicLong now = new AtomicLong();
+    private final List<Long> sleeps = new ArrayList<>();
+    private final RateBudget budget = new RateBudget("Strava", 2, Duration.ofSeconds(10), now::get, sleeps::add);
+
+    @Test
+    void spendsTheBurstWithoutWaiting() throws Exception {
+        budget.acquire();
+        budget.acquire();
+
+        assertEquals(List.of(), sleeps);
+    }
+
+    @Test
+    void waitingCallersQueueBehindEachOther() throws Exception {
+        budget.acquire();
+        budget.acquire();
+        budget.acquire();
+        budget.acquire();
+
+        assertEquals(List.of(Duration.ofSeconds(5).toNanos(), Duration.ofSeconds(10).toNanos()), sleeps);
+    }
+
+    @Test
+    void refillsOverTimeUpToTheCapacity() throws Exception {
+        budget.acquire();
+        budget.acquire();
+        now.addAndGet(Duration.ofMinutes(5).toNanos());
+
+        budget.acquire();
+        budget.acquire();
+        budget.acquire();
+
+        assertEquals(List.of(Duration.ofSeconds(5).toNanos()), sleeps);
+    }
+
+    @Test
+    void parsesRequestsPerPeriod() {
+        RateBudget.parse("Garmin", "60/PT1M");
+
+        assertThrows(IllegalArgumentException.class, () -> RateBudget.parse("Garmin", "60 per minute"));
+        assertThrows(IllegalArgumentException.class, () -> RateBudget.parse("Garmin", "0/PT1M"));
+    }
+}
@@ -0,0 +1,168 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.integrations.sheets.SpreadsheetPort;
+import com.bko.fitnessextractor.sync.PeriodTotals;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RollupServiceTest {
+    private static final List<Object> ROLLUP_HEADERS = List.of(
+            "Period", "Start", "End", "Activities", "Distance (m)", "Moving Time (s)", "Avg Resting HR", "Avg Sleep (h)"
+    );
+
+    @Test
+    void emptyRollupIsRebuiltFromRawSheets() throws Exception {
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        when(spreadsheetPort.getExistingValues("Weekly Rollup!A:H")).thenReturn(List.of(ROLLUP_HEADERS));
+        when(spreadsheetPort.getExistingValues("Monthly Rollup!A:H")).thenReturn(List.of(ROLLUP_HEADERS));
+        when(spreadsheetPort.getExistingValues("Strava Activities!A:G")).thenReturn(List.of(
+                List.of("Activity ID", "Name", "Type", "Distance (m)", "Moving Time (s)", "Elapsed Time (s)", "Start Date"),
+                List.of("2", "Run", "Run", "5000", "1500", "1600", "2025-01-14T07:00:00Z"),
+                List.of("1", "Ride", "Ride", "20000", "3600", "3700", "2025-01-06T07:00:00Z")
+        ));
+        when(spreadsheetPort.getExistingValues("Garmin Metrics!A:H")).thenReturn(List.of(
+                List.of("Date", "Body Battery Max", "Body Battery Min", "Weight (kg)", "VO2 Max", "Resting HR", "Sleep Score", "Sleep Duration (h)"),
+                List.of("2025-01-14", "80", "20", "", "", "50", "", "8"),
+                List.of("2025-01-13", "80", "20", "", "", "48", "", "7")
+        ));
+        RollupService service = new RollupService(spreadsheetPort);
+
+        assertTrue(service.refreshActivities(List.of(LocalDate.parse("2025-01-14")), new SyncReport()));
+
+        verify(spreadsheetPort).insertRowsAtTop("Weekly Rollup", List.of(
+                List.of("2025-W03", "2025-01-13", "2025-01-19", 1, 5000.0, 1500L, 49.0, 7.5),
+                List.of("2025-W02", "2025-01-06", "2025-01-12", 1, 20000.0, 3600L, "", "")
+        ));
+        verify(spreadsheetPort).insertRowsAtTop("Monthly Rollup", List.of(
+                List.of("2025-01", "2025-01-01", "2025-01-31", 2, 25000.0, 5100L, 49.0, 7.5)
+        ));
+        verify(spreadsheetPort, never()).updateRows(eq("Weekly Rollup"), anyMap());
+    }
+
+    @Test
+    void touchedPeriodsAreRecomputedFromTheRawSheetsSoARefreshCanBeRepeated() throws Exception {
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        when(spreadsheetPort.getExistingValues("Weekly Rollup!A:H")).thenReturn(List.of(
+                ROLLUP_HEADERS,
+                List.of("2025-W03", "2025-01-13", "2025-01-19", "1", "5000", "1500", "49", "7.5")
+        ));
+        when(spreadsheetPort.getExistingValues("Monthly Rollup!A:H")).thenReturn(List.of(
+                ROLLUP_HEADERS,
+                List.of("2025-01", "2025-01-01", "2025-01-31", "2", "25000", "5100", "49", "7.5")
+        ));
+        when(spreadsheetPort.getExistingValues("Strava Activities!A:G")).thenReturn(List.of(
+                List.of("3", "Run", "Run", "10000", "3000", "3100", "2025-01-15T18:00:00Z"),
+                List.of("2", "Run", "Run", "5000", "1500", "1600", "2025-01-14T07:00:00Z"),
+                List.of("1", "Ride", "Ride", "20000", "3600", "3700", "2025-01-06T07:00:00Z")
+        ));
+        when(spreadsheetPort.getExistingValues("Garmin Metrics!A:H")).thenReturn(List.of(
+                List.of("2025-01-14", "80", "20", "", "", "50", "", "8"),
+                List.of("2025-01-13", "80", "20", "", "", "48", "", "7")
+        ));
+        RollupService service = new RollupService(spreadsheetPort);
+
+        assertTrue(service.refreshActivities(List.of(LocalDate.parse("2025-01-15")), new SyncReport()));
+        assertTrue(service.refreshActivities(List.of(LocalDate.parse("2025-01-15")), new SyncReport()));
+
+        verify(spreadsheetPort, times(2)).updateRows("Weekly Rollup", Map.of(2,
+                List.of("2025-W03", "2025-01-13", "2025-01-19", 2, 15000.0, 4500L, 49.0, 7.5)));
+        verify(spreadsheetPort, times(2)).updateRows("Monthly Rollup", Map.of(2,
+                List.of("2025-01", "2025-01-01", "2025-01-31", 3, 35000.0, 8100L, 49.0, 7.5)));
+        verify(spreadsheetPort, never()).insertRowsAtTop(eq("Weekly Rollup"), any());
+    }
+
+    @Test
+    void aFailedTabUpdateIsReportedSoTheDaysStayStale() throws Exception {
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        when(spreadsheetPort.getExistingValues("Weekly Rollup!A:H")).thenThrow(new IOException("HTTP 429"));
+        when(spreadsheetPort.getExistingValues("Monthly Rollup!A:H")).thenReturn(List.of(
+                ROLLUP_HEADERS,
+                List.of("2025-01", "2025-01-01", "2025-01-31", "2", "25000", "5100", "49", "7.5")
+        ));
+        SyncReport report = new SyncReport();
+
+        assertFalse(new RollupService(spreadsheetPort).refreshActivities(List.of(LocalDate.parse("2025-01-15")), report));
+        assertTrue(report.getMessages().stream().anyMatch(message -> message.contains("Weekly Rollup")));
+    }
+
+    @Test
+    void anOlderPeriodIsInsertedInDateOrder() throws Exception {
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        when(spreadsheetPort.getExistingValues("Weekly Rollup!A:H")).thenReturn(List.of(
+                ROLLUP_HEADERS,
+                List.of("2025-W05", "2025-01-27", "2025-02-02", "1", "5000", "1500", "", ""),
+                List.of("2025-W02", "2025-01-06", "2025-01-12", "1", "5000", "1500", "", "")
+        ));
+        when(spreadsheetPort.getExistingValues("Monthly Rollup!A:H")).thenReturn(List.of(
+                ROLLUP_HEADERS,
+                List.of("2025-01", "2025-01-01", "2025-01-31", "2", "10000", "3000", "", "")
+        ));
+        when(spreadsheetPort.getExistingValues("Strava Activities!A:G")).thenReturn(List.of(
+                List.of("3", "Run", "Run", "10000", "3000", "3100", "2025-01-15T18:00:00Z")
+        ));
+        RollupService service = new RollupService(spreadsheetPort);
+
+        service.refreshActivities(List.of(LocalDate.parse("2025-01-15")), new SyncReport());
+
+        verify(spreadsheetPort).insertRows("Weekly Rollup", 1, List.of(
+                List.of("2025-W03", "2025-01-13", "2025-01-19", 1, 10000.0, 3000L, "", "")));
+        verify(spreadsheetPort, never()).insertRowsAtTop(eq("Weekly Rollup"), any());
+    }
+
+    @Test
+    void weeklyTotalsAreReadFromTheRollupTabNewestFirst() throws Exception {
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        when(spreadsheetPort.getExistingValues("Weekly Rollup!A:H")).thenReturn(List.of(
+                ROLLUP_HEADERS,
+                List.of("2025-W03", "2025-01-13", "2025-01-19", "2", "15000", "4500", "49", ""),
+                List.of("2025-W02", "2025-01-06", "2025-01-12", "1", "20000", "3600", "", "7.5")
+        ));
+
+        List<PeriodTotals> weeks = new RollupService(spreadsheetPort).weeklyTotals(1);
+
+        assertEquals(List.of(new PeriodTotals("2025-W03", LocalDate.parse("2025-01-13"), LocalDate.parse("2025-01-19"),
+                2, 15000.0, 4500, 49.0, null)), weeks);
+        verify(spreadsheetPort, never()).getExistingValues("Strava Activities!A:G");
+    }
+
+    @Test
+    void garminRefreshRecomputesTouchedPeriodAverages() throws Exception {
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        when(spreadsheetPort.getExistingValues("Weekly Rollup!A:H")).thenReturn(List.of(
+                ROLLUP_HEADERS,
+                List.of("2025-W03", "2025-01-13", "2025-01-19", "1", "5000", "1500", "49", "7.5")
+        ));
+        when(spreadsheetPort.getExistingValues("Monthly Rollup!A:H")).thenReturn(List.of(
+                ROLLUP_HEADERS,
+                List.of("2025-01", "2025-01-01", "2025-01-31", "1", "5000", "1500", "49", "7.5")
+        ));
+        when(spreadsheetPort.getExistingValues("Garmin Metrics!A:H")).thenReturn(List.of(
+                List.of("2025-01-15", "80", "20", "", "", "46", "", "6"),
+                List.of("2025-01-14", "80", "20", "", "", "50", "", "8"),
+                List.of("2025-01-13", "80", "20", "", "", "48", "", "7")
+        ));
+        RollupService service = new RollupService(spreadsheetPort);
+
+        service.refreshDailyMetrics(List.of(LocalDate.parse("2025-01-15")), new SyncReport());
+
+        verify(spreadsheetPort).updateRows("Weekly Rollup", Map.of(2,
+                List.of("2025-W03", "2025-01-13", "2025-01-19", 1, 5000.0, 1500L, 48.0, 7.0)));
+        verify(spreadsheetPort, never()).getExistingValues("Strava Activities!A:G");
+    }
+}
@@ -0,0 +1,72 @@
+package com.bko.fitnessextractor.sync.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyncAllServiceTest {
+
+    @Test
+    void sourcesRunConcurrentlyAndMergeInOrder() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        SyncAllService service = new SyncAllService(
+                progress -> {
+                    SyncReport report = awaitOther(bothStarted);
+                    report.info("strava done");
+                    report.addStravaAdded(3);
+                    return report;
+                },
+                progress -> {
+                    SyncReport report = awaitOther(bothStarted);
+                    report.info("garmin done");
+                    report.addGarminInserted(2);
+                    return report;
+                });
+
+        SyncReport report = service.syncAll();
+
+        assertEquals(List.of("strava done", "garmin done"), report.getMessages());
+        assertEquals(3, report.getStravaAdded());
+        assertEquals(2, report.getGarminInserted());
+        assertTrue(report.isSuccess());
+    }
+
+    @Test
+    void failingSourceDoesNotStopTheOther() {
+        SyncAllService service = new SyncAllService(
+                progress -> {
+                    throw new IllegalStateException("token expired");
+                },
+                progress -> {
+                    SyncReport report = new SyncReport();
+                    report.addGarminUpdated(4);
+                    return report;
+                });
+
+        SyncReport report = service.syncAll();
+
+        assertFalse(report.isSuccess());
+        assertEquals("ERROR: Strava sync failed: token expired", report.getMessages().getFirst());
+        assertEquals(4, report.getGarminUpdated());
+    }
+
+    private static SyncReport awaitOther(CountDownLatch bothStarted) {
+        bothStarted.countDown();
+        SyncReport report = new SyncReport();
+        try {
+            if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                report.error("sources did not run concurrently");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.error("interrupted");
+        }
+        return report;
+    }
+}
@@ -5,28 +5,43 @@ import com.bko.fitnessextractor.integrations.garmin.GarminMetrics;
 import com.bko.fitnessextractor.integrations.garmin.GarminWellnessSample;
 import com.bko.fitnessextractor.integrations.sheets.SpreadsheetPort;
 import com.bko.fitnessextractor.shared.AppSettings;
+import com.bko.fitnessextractor.shared.DataDirectory;
 import com.bko.fitnessextractor.shared.GarminSettings;
 import com.bko.fitnessextractor.shared.GoogleSettings;
 import com.bko.fitnessextractor.shared.StravaSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InOrder;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class SyncGarminServiceTest {
+    @TempDir
+    Path dataDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @Test
     void syncGarminUpdatesTodayAndInsertsNew() throws Exception {
@@ -49,9 +64,10 @@ class SyncGarminServiceTest {
         GarminMetrics olderMetrics = new GarminMetrics();
         olderMetrics.setDate(today.minusDays(1).toString());
 
-        when(garminClientPort.getMetricsForLastDays(1)).thenReturn(List.of(todayMetrics, olderMetrics));
+        streamMetrics(garminClientPort, List.of(todayMetrics, olderMetrics));
 
-        SyncGarminService service = new SyncGarminService(spreadsheetPort, garminClientPort, settings, clock);
+        SyncGarminService service = new SyncGarminService(spreadsheetPort, garminClientPort, settings, clock, event -> { },
+                mock(RollupService.class), stateStore(), pipeline(), journal(), metrics());
 
         SyncReport report = service.syncGarmin();
 
@@ -60,7 +76,8 @@ class SyncGarminServiceTest {
         verify(spreadsheetPort).createSheet("Garmin Metrics");
         verify(spreadsheetPort).ensureHeaders(eq("Garmin Metrics"), any());
         verify(spreadsheetPort).updateRow(eq("Garmin Metrics!A1"), any());
-        verify(spreadsheetPort).insertRowsAtTop(eq("Garmin Metrics"), any());
+        verify(spreadsheetPort).insertRows(eq("Garmin Metrics"), eq(0), any());
+        verify(garminClientPort).streamMetricsForDays(eq(today), eq(1), any());
         verify(garminClientPort).login();
     }
 
@@ -78,7 +95,7 @@ class SyncGarminServiceTest {
         GarminClientPort garminClientPort = mock(GarminClientPort.class);
 
         when(spreadsheetPort.getExistingValues("Garmin Metrics!A:I")).thenReturn(List.of());
-        when(garminClientPort.getMetricsForLastDays(anyInt())).thenReturn(List.of());
+        streamMetrics(garminClientPort, List.of());
 
         List<List<Object>> existingWellness = List.of(
                 List.of("Date", "Timestamp", "Stress", "Heart Rate"),
@@ -98,14 +115,113 @@ class SyncGarminServiceTest {
         newer.setStress(20);
         newer.setHeartRate(70);
 
-        when(garminClientPort.getWellnessSamplesForLastDays(anyInt()))
-                .thenReturn(List.of(existing, newer));
+        doAnswer(invocation -> {
+            invocation.<Consumer<List<GarminWellnessSample>>>getArgument(2).accept(List.of(existing, newer));
+            return null;
+        }).when(garminClientPort).streamWellnessSamplesForDays(any(), anyInt(), any());
 
-        SyncGarminService service = new SyncGarminService(spreadsheetPort, garminClientPort, settings, clock);
+        SyncGarminService service = new SyncGarminService(spreadsheetPort, garminClientPort, settings, clock, event -> { },
+                mock(RollupService.class), stateStore(), pipeline(), journal(), metrics());
         service.syncGarmin();
 
         InOrder order = inOrder(spreadsheetPort);
         order.verify(spreadsheetPort).updateRows(eq("Garmin Stress HR"), any());
-        order.verify(spreadsheetPort).insertRowsAtTop(eq("Garmin Stress HR"), any());
+        order.verify(spreadsheetPort).insertRows(eq("Garmin Stress HR"), eq(0), any());
+    }
+
+    @Test
+    void aFetchFailingHalfWayIsBackfilledByTheNextSync() throws Exception {
+        LocalDate today = LocalDate.of(2024, 1, 5);
+        Clock clock = Clock.fixed(Instant.parse("2024-01-05T10:00:00Z"), ZoneOffset.UTC);
+        AppSettings settings = new AppSettings(
+                new StravaSettings(null, null, null),
+                new GarminSettings("user", "pass", null, null, null, null),
+                new GoogleSettings("sheet", "key.json")
+        );
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        GarminClientPort garminClientPort = mock(GarminClientPort.class);
+
+        List<Object> header = List.of("Date");
+        when(spreadsheetPort.getExistingValues("Garmin Metrics!A:I"))
+                .thenReturn(List.of(header))
+                .thenReturn(List.of(header, List.of(today.toString()), List.of(today.minusDays(1).toString()),
+                        List.of(today.minusDays(2).toString())));
+        doAnswer(invocation -> {
+            Consumer<GarminMetrics> onDay = invocation.getArgument(2);
+            for (int i = 0; i < 3; i++) {
+                GarminMetrics day = new GarminMetrics();
+                day.setDate(today.minusDays(i).toString());
+                onDay.accept(day);
+            }
+            throw new IOException("Garmin API error: HTTP 429");
+        }).doAnswer(invocation -> null)
+                .when(garminClientPort).streamMetricsForDays(any(), anyInt(), any());
+
+        SyncReport failed = new SyncGarminService(spreadsheetPort, garminClientPort, settings, clock, event -> { },
+                mock(RollupService.class), stateStore(), pipeline(), journal(), metrics()).syncGarmin();
+        assertFalse(failed.isSuccess());
+        assertEquals(3, failed.getGarminInserted());
+
+        SyncReport resumed = new SyncGarminService(spreadsheetPort, garminClientPort, settings, clock, event -> { },
+                mock(RollupService.class), stateStore(), pipeline(), journal(), metrics()).syncGarmin();
+
+        assertTrue(resumed.isSuccess(), resumed.getMessages().toString());
+        InOrder order = inOrder(garminClientPort);
+        order.verify(garminClientPort).streamMetricsForDays(eq(today), eq(180), any());
+        order.verify(garminClientPort).streamMetricsForDays(eq(today.minusDays(3)), eq(177), any());
+        order.verify(garminClientPort).streamMetricsForDays(eq(today), eq(1), any());
+        assertNull(stateStore().backfill("Garmin Metrics"));
+    }
+
+    @Test
+    void backfilledRowsGoBelowTheRowsAlreadyWritten() throws Exception {
+        LocalDate today = LocalDate.of(2024, 1, 5);
+        Clock clock = Clock.fixed(Instant.parse("2024-01-05T10:00:00Z"), ZoneOffset.UTC);
+        AppSettings settings = new AppSettings(
+                new StravaSettings(null, null, null),
+                new GarminSettings("user", "pass", null, null, null, null),
+                new GoogleSettings("sheet", "key.json")
+        );
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        GarminClientPort garminClientPort = mock(GarminClientPort.class);
+        when(spreadsheetPort.getExistingValues("Garmin Metrics!A:I"))
+                .thenReturn(List.of(List.of("Date"), List.of(today.toString()), List.of(today.minusDays(1).toString())));
+        stateStore().backfill("Garmin Metrics", new Backfill(today.minusDays(1).toString(),
+                today.minusDays(2).toString(), today.minusDays(3).toString()));
+
+        GarminMetrics missing = new GarminMetrics();
+        missing.setDate(today.minusDays(2).toString());
+        doAnswer(invocation -> {
+            invocation.<Consumer<GarminMetrics>>getArgument(2).accept(missing);
+            return null;
+        }).when(garminClientPort).streamMetricsForDays(eq(today.minusDays(2)), eq(2), any());
+
+        new SyncGarminService(spreadsheetPort, garminClientPort, settings, clock, event -> { },
+                mock(RollupService.class), stateStore(), pipeline(), journal(), metrics()).syncGarmin();
+
+        verify(spreadsheetPort).insertRows(eq("Garmin Metrics"), eq(2), eq(List.of(missing.toRow())));
+    }
+
+    private static void streamMetrics(GarminClientPort garminClientPort, List<GarminMetrics> metrics) throws Exception {
+        doAnswer(invocation -> {
+            metrics.forEach(invocation.<Consumer<GarminMetrics>>getArgument(2));
+            return null;
+        }).when(garminClientPort).streamMetricsForDays(any(), anyInt(), any());
+    }
+
+    private SyncMetrics metrics() {
+        return new SyncMetrics(meterRegistry);
+    }
+
+    private static SyncPipeline pipeline() {
+        return new SyncPipeline(50, 100, Duration.ofSeconds(10));
+    }
+
+    private SyncJournal journal() {
+        return new SyncJournal(new DataDirectory(dataDir), stateStore());
+    }
+
+    private SyncStateStore stateStore() {
+        return new SyncStateStore(new DataDirectory(dataDir), Clock.systemUTC(), Duration.ofHours(24));
     }
 }
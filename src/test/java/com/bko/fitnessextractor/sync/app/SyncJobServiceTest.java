@@ -0,0 +1,176 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.shared.MutableClock;
+import com.bko.fitnessextractor.sync.SyncProgress;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyncJobServiceTest {
+
+    @Test
+    void jobRunsInBackgroundAndStreamsProgressToLateSubscribers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SyncJobService service = new SyncJobService(
+                progress -> new SyncReport(),
+                progress -> {
+                    SyncReport report = new SyncReport(progress);
+                    report.progress("strava", "pages_fetched", 1);
+                    await(release);
+                    report.progress("strava", "rows_written", 12);
+                    report.addStravaAdded(12);
+                    return report;
+                },
+                progress -> new SyncReport(),
+                Clock.systemUTC(), 1, Duration.ofHours(1), 10);
+
+        SyncJob job = service.start(SyncJob.Source.STRAVA);
+        assertSame(job, service.find(job.getId()).orElseThrow());
+
+        List<SyncProgress> received = new CopyOnWriteArrayList<>();
+        CountDownLatch finished = new CountDownLatch(1);
+        waitFor(() -> !job.getProgress().isEmpty());
+        job.subscribe(new SyncJob.Listener() {
+            @Override
+            public void onProgress(SyncProgress progress) {
+                received.add(progress);
+            }
+
+            @Override
+            public void onFinished(SyncJob done) {
+                finished.countDown();
+            }
+        });
+        assertEquals(SyncJob.Status.RUNNING, job.getStatus());
+
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(new SyncProgress("strava", "pages_fetched", 1), new SyncProgress("strava", "rows_written", 12)),
+                received);
+        assertEquals(SyncJob.Status.COMPLETED, job.getStatus());
+        assertEquals(12, job.getReport().getStravaAdded());
+        service.shutdown();
+    }
+
+    @Test
+    void failedJobsKeepAReportAndExpireAfterRetention() throws Exception {
+        MutableClock clock = new MutableClock(Instant.parse("2025-01-13T12:00:00Z"));
+        SyncJobService service = new SyncJobService(
+                progress -> {
+                    throw new IllegalStateException("boom");
+                },
+                progress -> new SyncReport(),
+                progress -> new SyncReport(),
+                clock, 1, Duration.ofMinutes(30), 10);
+
+        SyncJob job = service.start(SyncJob.Source.ALL);
+        waitFor(job::isFinished);
+
+        assertEquals(SyncJob.Status.FAILED, job.getStatus());
+        assertEquals(List.of("ERROR: Sync failed: boom"), job.getReport().getMessages());
+        assertTrue(service.find(job.getId()).isPresent());
+
+        clock.advance(Duration.ofMinutes(31));
+        assertTrue(service.find(job.getId()).isEmpty());
+        service.shutdown();
+    }
+
+    @Test
+    void aJobDyingOfAnErrorIsFinishedAsFailed() throws Exception {
+        SyncJobService service = new SyncJobService(
+                progress -> new SyncReport(),
+                progress -> new SyncReport(),
+                progress -> {
+                    throw new StackOverflowError("deep");
+                },
+                Clock.systemUTC(), 1, Duration.ofHours(1), 10);
+
+        SyncJob job = service.start(SyncJob.Source.GARMIN);
+        CountDownLatch finished = new CountDownLatch(1);
+        job.subscribe(new SyncJob.Listener() {
+            @Override
+            public void onProgress(SyncProgress progress) {
+            }
+
+            @Override
+            public void onFinished(SyncJob done) {
+                finished.countDown();
+            }
+        });
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(SyncJob.Status.FAILED, job.getStatus());
+        assertEquals(List.of("ERROR: Sync failed: deep"), job.getReport().getMessages());
+        service.shutdown();
+    }
+
+    @Test
+    void aStalledSubscriberHoldsUpNeitherTheJobNorOtherSubscribers() throws Exception {
+        SyncJob job = new SyncJob("job-1", SyncJob.Source.STRAVA, Instant.now());
+        CountDownLatch unblock = new CountDownLatch(1);
+        List<String> stalled = new CopyOnWriteArrayList<>();
+        CountDownLatch stalledDone = new CountDownLatch(1);
+        job.subscribe(new SyncJob.Listener() {
+            @Override
+            public void onProgress(SyncProgress progress) {
+                await(unblock);
+                stalled.add(progress.step());
+            }
+
+            @Override
+            public void onFinished(SyncJob done) {
+                stalledDone.countDown();
+            }
+        });
+        CountDownLatch otherDone = new CountDownLatch(1);
+        job.subscribe(new SyncJob.Listener() {
+            @Override
+            public void onProgress(SyncProgress progress) {
+            }
+
+            @Override
+            public void onFinished(SyncJob done) {
+                otherDone.countDown();
+            }
+        });
+
+        job.started(Instant.now());
+        job.progressed(new SyncProgress("strava", "pages_fetched", 1));
+        job.progressed(new SyncProgress("strava", "rows_written", 12));
+        job.finished(new SyncReport(), false, Instant.now());
+
+        assertEquals(SyncJob.Status.COMPLETED, job.getStatus());
+        assertTrue(otherDone.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(), stalled);
+        unblock.countDown();
+        assertTrue(stalledDone.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("pages_fetched", "rows_written"), stalled);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,104 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.shared.DataDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyncJournalTest {
+    private static final String SHEET = "Strava Activities";
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void replaysOnlyBatchesThatNeverCompleted() throws Exception {
+        SyncJournal journal = journal();
+        journal.write(SHEET, new Batch(0, List.of("a")), () -> { });
+        assertThrows(IOException.class, () -> journal.write(SHEET, new Batch(1, List.of("b", "c")), () -> {
+            throw new IOException("quota exceeded");
+        }));
+        journal.release(SHEET);
+
+        List<Batch> replayed = new ArrayList<>();
+        int count = journal().recover(SHEET, Batch.class, replayed::add);
+
+        assertEquals(1, count);
+        assertEquals(List.of(new Batch(1, List.of("b", "c"))), replayed);
+        assertEquals(0, journal().recover(SHEET, Batch.class, replayed::add));
+    }
+
+    @Test
+    void finishedSyncsLeaveNothingToReplay() throws Exception {
+        SyncJournal journal = journal();
+        journal.write(SHEET, new Batch(0, List.of("a")), () -> { });
+        journal.finish(SHEET);
+
+        assertEquals(0, journal().recover(SHEET, Batch.class, batch -> { throw new AssertionError(); }));
+    }
+
+    @Test
+    void doesNotReplayTheSyncStillRunningInThisProcess() throws Exception {
+        SyncJournal journal = journal();
+
+        journal.write(SHEET, new Batch(0, List.of("a")), () ->
+                assertEquals(0, journal.recover(SHEET, Batch.class, batch -> { throw new AssertionError(); })));
+    }
+
+    @Test
+    void dropsTheStoredIndexOfARecoveredSheet() throws Exception {
+        SyncStateStore store = stateStore();
+        store.save(SHEET, store.reconcile(List.of(List.of("1")), 0, "Activity ID"));
+        SyncJournal journal = new SyncJournal(new DataDirectory(dataDir), store);
+        journal.write(SHEET, new Batch(0, List.of("2")), () -> { });
+        journal.release(SHEET);
+        assertNotNull(store.find(SHEET));
+
+        journal.recover(SHEET, Batch.class, batch -> { });
+
+        assertNull(store.find(SHEET));
+    }
+
+    @Test
+    void skipsATornLastEntry() throws Exception {
+        SyncJournal journal = journal();
+        assertThrows(IllegalStateException.class, () -> journal.write(SHEET, new Batch(0, List.of("a")), () -> {
+            throw new IllegalStateException("killed");
+        }));
+        Path file = dataDir.resolve("sync-journal").resolve("strava-activities.jsonl");
+        Files.writeString(file, "{\"id\":\"x\",\"status\":\"PEND", StandardOpenOption.APPEND);
+
+        List<Batch> replayed = new ArrayList<>();
+        journal().recover(SHEET, Batch.class, replayed::add);
+
+        assertEquals(List.of(new Batch(0, List.of("a"))), replayed);
+        assertFalse(Files.exists(file));
+        assertTrue(Files.isDirectory(file.getParent()));
+    }
+
+    private SyncJournal journal() {
+        return new SyncJournal(new DataDirectory(dataDir), stateStore());
+    }
+
+    private SyncStateStore stateStore() {
+        return new SyncStateStore(new DataDirectory(dataDir), Clock.systemUTC(), Duration.ofHours(24));
+    }
+
+    record Batch(int offset, List<String> keys) {
+    }
+}
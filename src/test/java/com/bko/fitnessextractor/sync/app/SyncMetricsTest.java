@@ -0,0 +1,47 @@
+package com.bko.fitnessextractor.sync.app;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SyncMetricsTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void phasesAreTimedAndRecordedAsFlightRecorderEvents() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SyncMetrics metrics = new SyncMetrics(meterRegistry);
+        Path file = dir.resolve("sync.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("fitnessextractor.SyncPhase");
+            recording.start();
+            metrics.run("strava", "fetch", () -> { });
+            assertThrows(IOException.class, () -> metrics.run("strava", "write", () -> {
+                throw new IOException("quota exceeded");
+            }));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertEquals(2, events.size());
+        assertEquals("fetch", events.getFirst().getString("phase"));
+        assertEquals("strava", events.getFirst().getString("source"));
+        assertFalse(events.getLast().getBoolean("success"));
+        assertEquals(1, meterRegistry.get("fitness.sync.phase")
+                .tags("source", "strava", "phase", "write", "outcome", "error").timer().count());
+    }
+}
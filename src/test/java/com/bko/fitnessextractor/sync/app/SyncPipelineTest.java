@@ -0,0 +1,103 @@
+package com.bko.fitnessextractor.sync.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyncPipelineTest {
+
+    @Test
+    void writesInOrderedBatchesOfTheConfiguredSize() throws Exception {
+        SyncPipeline pipeline = new SyncPipeline(3, 2, Duration.ofMinutes(1));
+        List<List<Integer>> batches = new ArrayList<>();
+
+        pipeline.<Integer>run(sink -> {
+            for (int i = 1; i <= 7; i++) {
+                sink.accept(i);
+            }
+        }, batch -> batches.add(List.copyOf(batch)));
+
+        assertEquals(List.of(List.of(1, 2, 3), List.of(4, 5, 6), List.of(7)), batches);
+    }
+
+    @Test
+    void sizesBatchesByRows() throws Exception {
+        SyncPipeline pipeline = new SyncPipeline(4, 10, Duration.ofMinutes(1));
+        List<List<List<String>>> batches = new ArrayList<>();
+
+        pipeline.<List<String>>run(sink -> {
+            sink.accept(List.of("a", "b", "c"));
+            sink.accept(List.of("d", "e"));
+            sink.accept(List.of("f"));
+        }, List::size, batch -> batches.add(List.copyOf(batch)));
+
+        assertEquals(2, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertEquals(List.of(List.of("f")), batches.get(1));
+    }
+
+    @Test
+    void writesWhatArrivedOnceTheOldestRecordWaitedLongEnough() throws Exception {
+        SyncPipeline pipeline = new SyncPipeline(100, 10, Duration.ofMillis(50));
+        CountDownLatch firstWritten = new CountDownLatch(1);
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+        pipeline.<String>run(sink -> {
+            sink.accept("first");
+            assertTrue(firstWritten.await(5, TimeUnit.SECONDS), "first record was not written while fetching");
+            sink.accept("second");
+        }, batch -> {
+            batches.add(List.copyOf(batch));
+            firstWritten.countDown();
+        });
+
+        assertEquals(List.of(List.of("first"), List.of("second")), batches);
+    }
+
+    @Test
+    void writesFetchedRecordsBeforeReportingAFetchFailure() {
+        SyncPipeline pipeline = new SyncPipeline(10, 10, Duration.ofMinutes(1));
+        IOException failure = new IOException("rate limited");
+        List<String> written = new ArrayList<>();
+
+        IOException thrown = assertThrows(IOException.class, () -> pipeline.<String>run(sink -> {
+            sink.accept("a");
+            sink.accept("b");
+            throw failure;
+        }, written::addAll));
+
+        assertSame(failure, thrown);
+        assertEquals(List.of("a", "b"), written);
+    }
+
+    @Test
+    void stopsFetchingWhenAWriteFails() {
+        SyncPipeline pipeline = new SyncPipeline(1, 1, Duration.ofMinutes(1));
+        AtomicBoolean fetchedEverything = new AtomicBoolean();
+
+        IOException thrown = assertThrows(IOException.class, () -> pipeline.<Integer>run(sink -> {
+            for (int i = 0; i < 1_000; i++) {
+                sink.accept(i);
+            }
+            fetchedEverything.set(true);
+        }, batch -> {
+            throw new IOException("quota exceeded");
+        }));
+
+        assertEquals("quota exceeded", thrown.getMessage());
+        assertFalse(fetchedEverything.get());
+    }
+}
@@ -0,0 +1,74 @@
+package com.bko.fitnessextractor.sync.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SyncSchedulePolicyTest {
+    private static final ZonedDateTime NOON = ZonedDateTime.of(2024, 5, 10, 12, 0, 0, 0, ZoneOffset.UTC);
+
+    @Test
+    void runsSoonAfterNewData() {
+        SyncSchedulePolicy policy = adaptive("", 0.5);
+
+        assertEquals(NOON.plusMinutes(20), policy.next(NOON, true, 0));
+    }
+
+    @Test
+    void backsOffWhileNothingChangesUpToTheMaximum() {
+        SyncSchedulePolicy policy = adaptive("", 0.5);
+
+        assertEquals(NOON.plusHours(1), policy.next(NOON, false, 0));
+        assertEquals(NOON.plusHours(2), policy.next(NOON, false, 1));
+        assertEquals(NOON.plusHours(4), policy.next(NOON, false, 2));
+        assertEquals(NOON.plusHours(6), policy.next(NOON, false, 3));
+        assertEquals(NOON.plusHours(6), policy.next(NOON, false, 40));
+    }
+
+    @Test
+    void jitterMovesTheRunEitherWay() {
+        assertEquals(NOON.plusMinutes(55), adaptive("", 0.0).next(NOON, false, 0));
+        assertEquals(NOON.plusMinutes(64), adaptive("", 0.9).next(NOON, false, 0));
+    }
+
+    @Test
+    void pushesRunsPastQuietHours() {
+        SyncSchedulePolicy policy = adaptive("23-6", 0.0);
+        ZonedDateTime evening = NOON.withHour(22).withMinute(30);
+
+        assertEquals(NOON.plusDays(1).withHour(6), policy.next(evening, false, 0));
+        assertEquals(NOON.withHour(6), policy.next(NOON.withHour(2), false, 0));
+        assertEquals(NOON.withHour(22).withMinute(10), policy.next(NOON.withHour(21).withMinute(15), false, 0));
+    }
+
+    @Test
+    void supportsQuietHoursWithinTheDay() {
+        SyncSchedulePolicy policy = adaptive("13-15", 0.0);
+
+        assertEquals(NOON.withHour(15), policy.next(NOON, false, 1));
+    }
+
+    @Test
+    void followsCronWithForwardJitterOnly() {
+        SyncSchedulePolicy policy = new SyncSchedulePolicy("0 0 */3 * * *", Duration.ofHours(1),
+                Duration.ofMinutes(20), Duration.ofHours(6), Duration.ofMinutes(10), "0-23", () -> 0.5);
+
+        assertEquals(NOON.plusHours(3).plusMinutes(5), policy.next(NOON, true, 0));
+        assertEquals(NOON.plusHours(3).plusMinutes(5), policy.next(NOON, false, 5));
+    }
+
+    @Test
+    void rejectsMalformedQuietHours() {
+        assertThrows(IllegalArgumentException.class, () -> adaptive("23", 0.0));
+    }
+
+    private static SyncSchedulePolicy adaptive(String quietHours, double random) {
+        return new SyncSchedulePolicy("", Duration.ofHours(1), Duration.ofMinutes(20), Duration.ofHours(6),
+                Duration.ofMinutes(5), quietHours, () -> random);
+    }
+}
@@ -0,0 +1,104 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.shared.MutableClock;
+import com.bko.fitnessextractor.sync.SyncProgress;
+import com.bko.fitnessextractor.sync.SyncProgressListener;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyncSingleFlightTest {
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-01-13T12:00:00Z"));
+    private final SyncSingleFlight flight = new SyncSingleFlight("Strava", clock, Duration.ofSeconds(15));
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Test
+    void requestsJoiningShortlyAfterStartShareTheRunAndItsProgress() throws Exception {
+        CompletableFuture<SyncReport> first = CompletableFuture.supplyAsync(() -> flight.run(null, this::blockingSync));
+        waitFor(() -> flight.callers() == 1);
+
+        clock.advance(Duration.ofSeconds(5));
+        List<SyncProgress> joinedProgress = new CopyOnWriteArrayList<>();
+        CompletableFuture<SyncReport> second = CompletableFuture.supplyAsync(() -> flight.run(joinedProgress::add, this::blockingSync));
+        waitFor(() -> flight.callers() == 2);
+        release.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+        assertEquals(List.of(new SyncProgress("strava", "rows_written", 1)), joinedProgress);
+    }
+
+    @Test
+    void laterRequestsCoalesceIntoOneFollowUpRun() throws Exception {
+        CompletableFuture<SyncReport> first = CompletableFuture.supplyAsync(() -> flight.run(null, this::blockingSync));
+        waitFor(() -> flight.callers() == 1);
+
+        clock.advance(Duration.ofSeconds(30));
+        CompletableFuture<SyncReport> second = CompletableFuture.supplyAsync(() -> flight.run(null, this::blockingSync));
+        waitFor(() -> flight.callers() == 2);
+        CompletableFuture<SyncReport> third = CompletableFuture.supplyAsync(() -> flight.run(null, this::blockingSync));
+        waitFor(() -> flight.callers() == 3);
+        release.countDown();
+
+        SyncReport followUp = second.get(5, TimeUnit.SECONDS);
+        assertNotSame(first.get(5, TimeUnit.SECONDS), followUp);
+        assertSame(followUp, third.get(5, TimeUnit.SECONDS));
+        assertEquals(2, runs.get());
+        assertEquals(0, flight.callers());
+    }
+
+    @Test
+    void aRunDyingOfAnErrorReleasesTheCallersAttachedToIt() throws Exception {
+        CompletableFuture<SyncReport> first = CompletableFuture.supplyAsync(() -> flight.run(null, listener -> {
+            blockingSync(listener);
+            throw new OutOfMemoryError("Java heap space");
+        }));
+        waitFor(() -> flight.callers() == 1);
+        CompletableFuture<SyncReport> joined = CompletableFuture.supplyAsync(() -> flight.run(null, this::blockingSync));
+        waitFor(() -> flight.callers() == 2);
+        release.countDown();
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> joined.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(OutOfMemoryError.class, failure.getCause());
+        assertInstanceOf(OutOfMemoryError.class,
+                assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS)).getCause());
+        assertEquals(0, flight.callers());
+    }
+
+    private SyncReport blockingSync(SyncProgressListener listener) {
+        runs.incrementAndGet();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        SyncReport report = new SyncReport(listener);
+        report.progress("strava", "rows_written", 1);
+        return report;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
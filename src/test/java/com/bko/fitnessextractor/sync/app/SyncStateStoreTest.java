@@ -0,0 +1,100 @@
+package com.bko.fitnessextractor.sync.app;
+
+import com.bko.fitnessextractor.shared.DataDirectory;
+import com.bko.fitnessextractor.shared.MutableClock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyncStateStoreTest {
+    @TempDir
+    Path dataDir;
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-05-10T08:00:00Z"));
+
+    @Test
+    void indexesRowsAndTracksInsertsAtTheTop() {
+        SyncStateStore store = store();
+        SheetIndex index = store.reconcile(List.of(
+                List.of("Date", "Steps"),
+                List.of("2024-05-09", 100),
+                List.of(),
+                List.of("2024-05-08", 90)), 0, "Date");
+
+        assertEquals(2, index.size());
+        assertEquals(2, index.rowOf("2024-05-09"));
+        assertEquals(4, index.rowOf("2024-05-08"));
+
+        index.insertedAtTop(List.of("2024-05-11", "2024-05-10"));
+
+        assertEquals(2, index.rowOf("2024-05-11"));
+        assertEquals(3, index.rowOf("2024-05-10"));
+        assertEquals(4, index.rowOf("2024-05-09"));
+        assertEquals(6, index.rowOf("2024-05-08"));
+    }
+
+    @Test
+    void survivesRestartsUntilReconciliationIsDue() {
+        SyncStateStore store = store();
+        SheetIndex index = store.reconcile(List.of(List.of("Activity ID"), List.of("42")), 0, "Activity ID");
+        index.highWaterMark("2024-05-09");
+        store.save("Strava Activities", index);
+        assertTrue(Files.exists(dataDir.resolve("sync-state.json")));
+
+        SheetIndex restored = store().find("Strava Activities");
+        assertNotNull(restored);
+        assertTrue(restored.contains("42"));
+        assertEquals("2024-05-09", restored.highWaterMark());
+
+        clock.advance(Duration.ofHours(24));
+        assertNull(store().find("Strava Activities"));
+    }
+
+    @Test
+    void changesToAFoundIndexStayLocalUntilSaved() {
+        SyncStateStore store = store();
+        store.save("Garmin Metrics", store.reconcile(List.of(List.of("2024-05-09")), 0, "Date"));
+
+        store.find("Garmin Metrics").insertedAtTop(List.of("2024-05-10"));
+
+        assertFalse(store.find("Garmin Metrics").contains("2024-05-10"));
+    }
+
+    @Test
+    void invalidatedSheetsAreReconciledAgain() {
+        SyncStateStore store = store();
+        store.save("Garmin Stress HR", store.reconcile(List.of(), 1, "Timestamp"));
+
+        store.invalidate("Garmin Stress HR");
+
+        assertNull(store.find("Garmin Stress HR"));
+        assertNull(store().find("Garmin Stress HR"));
+    }
+
+    @Test
+    void retainFromDropsKeysSortingBeforeTheBound() {
+        SheetIndex index = store().reconcile(List.of(
+                List.of("2024-05-08", "2024-05-08T23:57:00"),
+                List.of("2024-05-09", "2024-05-09T00:00:00")), 1, "Timestamp");
+
+        index.retainFrom("2024-05-09");
+
+        assertFalse(index.contains("2024-05-08T23:57:00"));
+        assertTrue(index.contains("2024-05-09T00:00:00"));
+    }
+
+    private SyncStateStore store() {
+        return new SyncStateStore(new DataDirectory(dataDir), clock, Duration.ofHours(24));
+    }
+}
@@ -4,24 +4,43 @@ import com.bko.fitnessextractor.integrations.sheets.SpreadsheetPort;
 import com.bko.fitnessextractor.integrations.strava.StravaActivity;
 import com.bko.fitnessextractor.integrations.strava.StravaClientPort;
 import com.bko.fitnessextractor.shared.AppSettings;
+import com.bko.fitnessextractor.shared.DataDirectory;
 import com.bko.fitnessextractor.shared.GarminSettings;
 import com.bko.fitnessextractor.shared.GoogleSettings;
 import com.bko.fitnessextractor.shared.StravaSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class SyncStravaServiceTest {
+    @TempDir
+    Path dataDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @Test
     void syncStravaSkipsWhenMissingConfig() {
@@ -33,7 +52,8 @@ class SyncStravaServiceTest {
         SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
         StravaClientPort stravaClientPort = mock(StravaClientPort.class);
 
-        SyncStravaService service = new SyncStravaService(spreadsheetPort, stravaClientPort, settings);
+        SyncStravaService service = new SyncStravaService(spreadsheetPort, stravaClientPort, settings, event -> { },
+                mock(RollupService.class), stateStore(), pipeline(), journal(), metrics());
 
         SyncReport report = service.syncStrava();
 
@@ -67,13 +87,245 @@ class SyncStravaServiceTest {
         when(spreadsheetPort.getExistingValues("Strava Activities!A:A"))
                 .thenReturn(Collections.singletonList(List.of("Activity ID")));
 
-        SyncStravaService service = new SyncStravaService(spreadsheetPort, stravaClientPort, settings);
+        SyncStravaService service = new SyncStravaService(spreadsheetPort, stravaClientPort, settings, event -> { },
+                mock(RollupService.class), stateStore(), pipeline(), journal(), metrics());
 
         SyncReport report = service.syncStrava();
 
         assertEquals(1, report.getStravaAdded());
         verify(spreadsheetPort).createSheet("Strava Activities");
         verify(spreadsheetPort).ensureHeaders(eq("Strava Activities"), any());
-        verify(spreadsheetPort).insertRowsAtTop(eq("Strava Activities"), any());
+        verify(spreadsheetPort).insertRows(eq("Strava Activities"), eq(0), any());
+    }
+
+    @Test
+    void steadyStateSyncUsesStoredIndexInsteadOfReadingTheSheet() throws Exception {
+        AppSettings settings = new AppSettings(
+                new StravaSettings("id", "secret", "token"),
+                new GarminSettings(null, null, null, null, null, null),
+                new GoogleSettings("sheet", "key.json")
+        );
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        StravaClientPort stravaClientPort = mock(StravaClientPort.class);
+
+        StravaActivity known = new StravaActivity();
+        known.setId(1L);
+        StravaActivity added = new StravaActivity();
+        added.setId(2L);
+
+        when(spreadsheetPort.getExistingValues("Strava Activities!A:A"))
+                .thenReturn(List.of(List.of("Activity ID"), List.of("1")));
+        when(stravaClientPort.getActivities(1, 100)).thenReturn(List.of(added, known));
+        when(stravaClientPort.getActivity(2L)).thenReturn(added);
+
+        SyncStravaService first = new SyncStravaService(spreadsheetPort, stravaClientPort, settings, event -> { },
+                mock(RollupService.class), stateStore(), pipeline(), journal(), metrics());
+        assertEquals(1, first.syncStrava().getStravaAdded());
+
+        SyncStravaService afterRestart = new SyncStravaService(spreadsheetPort, stravaClientPort, settings,
+                event -> { }, mock(RollupService.class), stateStore(), pipeline(), journal(), metrics());
+        SyncReport report = afterRestart.syncStrava();
+
+        assertEquals(0, report.getStravaAdded());
+        verify(spreadsheetPort, times(1)).getExistingValues(any());
+        verify(spreadsheetPort, times(1)).ensureHeaders(eq("Strava Activities"), any());
+        verify(spreadsheetPort, times(1)).insertRows(eq("Strava Activities"), eq(0), any());
+        assertEquals(1, meterRegistry.get("fitness.cache.requests").tags("cache", "sync-index", "result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("fitness.cache.requests").tags("cache", "sync-index", "result", "miss").counter().count());
+        assertEquals(2, meterRegistry.get("fitness.sync.phase").tags("source", "strava", "phase", "total", "outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("fitness.sync.phase").tags("source", "strava", "phase", "write").timer().count());
+    }
+
+    @Test
+    void replaysAJournaledBatchWithoutFetchingAgain() throws Exception {
+        AppSettings settings = new AppSettings(
+                new StravaSettings("id", "secret", "token"),
+                new GarminSettings(null, null, null, null, null, null),
+                new GoogleSettings("sheet", "key.json")
+        );
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        StravaClientPort stravaClientPort = mock(StravaClientPort.class);
+
+        StravaActivity activity = new StravaActivity();
+        activity.setId(7L);
+        activity.setName("Run");
+        when(stravaClientPort.getActivities(1, 100)).thenReturn(List.of(activity));
+        when(stravaClientPort.getActivity(7L)).thenReturn(activity);
+        when(spreadsheetPort.getExistingValues("Strava Activities!A:A"))
+                .thenReturn(Collections.singletonList(List.of("Activity ID")));
+        doThrow(new IOException("connection reset"))
+                .doNothing()
+                .when(spreadsheetPort).insertRows(eq("Strava Activities"), eq(0), any());
+
+        SyncStravaService failed = new SyncStravaService(spreadsheetPort, stravaClientPort, settings, event -> { },
+                mock(RollupService.class), stateStore(), pipeline(), journal(), metrics());
+        assertFalse(failed.syncStrava().isSuccess());
+
+        SyncStravaService restarted = new SyncStravaService(spreadsheetPort, stravaClientPort, settings,
+                event -> { }, mock(RollupService.class), stateStore(), pipeline(), journal(), metrics());
+        SyncReport report = new SyncReport();
+
+        assertEquals(1, restarted.recoverJournal(report));
+        assertEquals(1, report.getStravaAdded());
+        verify(spreadsheetPort, times(2)).insertRows(eq("Strava Activities"), eq(0), any());
+        verify(stravaClientPort, times(1)).getActivity(7L);
+    }
+
+    @Test
+    void replayFillsTheRowsAnInterruptedInsertLeftBlank() throws Exception {
+        AppSettings settings = new AppSettings(
+                new StravaSettings("id", "secret", "token"),
+                new GarminSettings(null, null, null, null, null, null),
+                new GoogleSettings("sheet", "key.json")
+        );
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        StravaClientPort stravaClientPort = mock(StravaClientPort.class);
+
+        StravaActivity activity = activity(7L, Instant.parse("2025-01-31T07:00:00Z"));
+        when(stravaClientPort.getActivities(1, 100)).thenReturn(List.of(activity));
+        when(stravaClientPort.getActivity(7L)).thenReturn(activity);
+        // The rows were inserted above the older activity, but the process died before their values landed.
+        when(spreadsheetPort.getExistingValues("Strava Activities!A:A"))
+                .thenReturn(List.of(List.of("Activity ID"), List.of("5")))
+                .thenReturn(List.of(List.of("Activity ID"), List.of(), List.of("5")));
+        doThrow(new IOException("connection reset"))
+                .when(spreadsheetPort).insertRows(eq("Strava Activities"), eq(0), any());
+
+        SyncStravaService failed = new SyncStravaService(spreadsheetPort, stravaClientPort, settings, event -> { },
+                mock(RollupService.class), stateStore(), pipeline(), journal(), metrics());
+        assertFalse(failed.syncStrava().isSuccess());
+
+        SyncStravaService restarted = new SyncStravaService(spreadsheetPort, stravaClientPort, settings,
+                event -> { }, mock(RollupService.class), stateStore(), pipeline(), journal(), metrics());
+        SyncReport report = new SyncReport();
+
+        assertEquals(1, restarted.recoverJournal(report));
+        assertEquals(1, report.getStravaAdded());
+        verify(spreadsheetPort).writeRows(eq("Strava Activities"), eq(0), any());
+        verify(spreadsheetPort, times(1)).insertRows(eq("Strava Activities"), eq(0), any());
+    }
+
+    @Test
+    void aRollupUpdateThatFailedIsRedoneByTheNextSync() throws Exception {
+        AppSettings settings = new AppSettings(
+                new StravaSettings("id", "secret", "token"),
+                new GarminSettings(null, null, null, null, null, null),
+                new GoogleSettings("sheet", "key.json")
+        );
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        StravaClientPort stravaClientPort = mock(StravaClientPort.class);
+        RollupService rollupService = mock(RollupService.class);
+        StravaActivity activity = activity(7L, Instant.parse("2025-01-15T18:00:00Z"));
+        when(stravaClientPort.getActivities(1, 100)).thenReturn(List.of(activity)).thenReturn(List.of());
+        when(stravaClientPort.getActivity(7L)).thenReturn(activity);
+        when(spreadsheetPort.getExistingValues("Strava Activities!A:A"))
+                .thenReturn(Collections.singletonList(List.of("Activity ID")));
+        when(rollupService.refreshActivities(any(), any())).thenReturn(false).thenReturn(true);
+
+        new SyncStravaService(spreadsheetPort, stravaClientPort, settings, event -> { }, rollupService,
+                stateStore(), pipeline(), journal(), metrics()).syncStrava();
+        new SyncStravaService(spreadsheetPort, stravaClientPort, settings, event -> { }, rollupService,
+                stateStore(), pipeline(), journal(), metrics()).syncStrava();
+
+        verify(rollupService, times(2)).refreshActivities(eq(Set.of(LocalDate.parse("2025-01-15"))), any());
+        assertTrue(stateStore().staleRollups("Strava Activities").isEmpty());
+    }
+
+    @Test
+    void rollupsAreRefreshedOnceAfterAllBatchesAreWritten() throws Exception {
+        AppSettings settings = new AppSettings(
+                new StravaSettings("id", "secret", "token"),
+                new GarminSettings(null, null, null, null, null, null),
+                new GoogleSettings("sheet", "key.json")
+        );
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        StravaClientPort stravaClientPort = mock(StravaClientPort.class);
+        RollupService rollupService = mock(RollupService.class);
+        List<StravaActivity> page = List.of(
+                activity(3L, Instant.parse("2025-02-03T07:00:00Z")),
+                activity(2L, Instant.parse("2025-01-15T07:00:00Z")),
+                activity(1L, Instant.parse("2024-12-30T07:00:00Z")));
+        when(stravaClientPort.getActivities(1, 100)).thenReturn(page);
+        when(stravaClientPort.getActivity(any())).thenAnswer(invocation -> page.get((int) (3L - (long) invocation.getArgument(0))));
+        when(spreadsheetPort.getExistingValues("Strava Activities!A:A"))
+                .thenReturn(Collections.singletonList(List.of("Activity ID")));
+        when(rollupService.refreshActivities(any(), any())).thenReturn(true);
+
+        new SyncStravaService(spreadsheetPort, stravaClientPort, settings, event -> { }, rollupService,
+                stateStore(), new SyncPipeline(1, 100, Duration.ofSeconds(10)), journal(), metrics()).syncStrava();
+
+        verify(spreadsheetPort, times(3)).insertRows(eq("Strava Activities"), any(Integer.class), any());
+        verify(rollupService).refreshActivities(eq(Set.of(LocalDate.parse("2025-02-03"), LocalDate.parse("2025-01-15"),
+                LocalDate.parse("2024-12-30"))), any());
+    }
+
+    @Test
+    void aFetchFailingHalfWayIsBackfilledByTheNextSync() throws Exception {
+        AppSettings settings = new AppSettings(
+                new StravaSettings("id", "secret", "token"),
+                new GarminSettings(null, null, null, null, null, null),
+                new GoogleSettings("sheet", "key.json")
+        );
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+        StravaClientPort stravaClientPort = mock(StravaClientPort.class);
+
+        Instant newest = Instant.parse("2025-01-31T07:00:00Z");
+        List<StravaActivity> firstPage = new ArrayList<>();
+        List<List<Object>> written = new ArrayList<>(List.of(List.of("Activity ID")));
+        for (int i = 0; i < 100; i++) {
+            StravaActivity activity = activity(1000L - i, newest.minus(Duration.ofHours(i)));
+            firstPage.add(activity);
+            written.add(List.of(String.valueOf(activity.getId())));
+        }
+        StravaActivity older = activity(42L, newest.minus(Duration.ofDays(30)));
+        Instant oldestWritten = newest.minus(Duration.ofHours(99));
+
+        when(spreadsheetPort.getExistingValues("Strava Activities!A:A"))
+                .thenReturn(Collections.singletonList(List.of("Activity ID")))
+                .thenReturn(written);
+        when(stravaClientPort.getActivities(1, 100)).thenReturn(firstPage);
+        when(stravaClientPort.getActivities(2, 100)).thenThrow(new IOException("Strava API error: HTTP 429"));
+        when(stravaClientPort.getActivities(1, 100, null, oldestWritten)).thenReturn(List.of(older));
+        when(stravaClientPort.getActivity(any())).thenAnswer(invocation -> {
+            long id = invocation.getArgument(0);
+            return id == older.getId() ? older : firstPage.get((int) (1000L - id));
+        });
+
+        SyncStravaService failed = new SyncStravaService(spreadsheetPort, stravaClientPort, settings, event -> { },
+                mock(RollupService.class), stateStore(), pipeline(), journal(), metrics());
+        assertFalse(failed.syncStrava().isSuccess());
+
+        SyncStravaService resumed = new SyncStravaService(spreadsheetPort, stravaClientPort, settings, event -> { },
+                mock(RollupService.class), stateStore(), pipeline(), journal(), metrics());
+        SyncReport report = resumed.syncStrava();
+
+        assertTrue(report.isSuccess(), report.getMessages().toString());
+        assertEquals(1, report.getStravaAdded());
+        verify(spreadsheetPort).insertRows(eq("Strava Activities"), eq(100), any());
+        assertNull(stateStore().backfill("Strava Activities"));
+    }
+
+    private static StravaActivity activity(long id, Instant startDate) {
+        StravaActivity activity = new StravaActivity();
+        activity.setId(id);
+        activity.setName("Run " + id);
+        activity.setStartDate(startDate.toString());
+        return activity;
+    }
+
+    private SyncMetrics metrics() {
+        return new SyncMetrics(meterRegistry);
+    }
+
+    private static SyncPipeline pipeline() {
+        return new SyncPipeline(50, 100, Duration.ofSeconds(10));
+    }
+
+    private SyncJournal journal() {
+        return new SyncJournal(new DataDirectory(dataDir), stateStore());
+    }
+
+    private SyncStateStore stateStore() {
+        return new SyncStateStore(new DataDirectory(dataDir), Clock.systemUTC(), Duration.ofHours(24));
     }
 }
@@ -0,0 +1,78 @@
+package com.bko.fitnessextractor.visualization.analytics;
+
+import com.bko.fitnessextractor.visualization.app.DistributionSummary;
+import com.bko.fitnessextractor.visualization.app.HistogramSummary;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DailyHistogramsTest {
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-04-30T12:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    void histogramPercentilesAndZones() {
+        Histogram histogram = new Histogram(DailyHistograms.MAX_STRESS);
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-1);
+
+        assertEquals(100, histogram.count());
+        assertEquals(50, histogram.percentile(50));
+        assertEquals(90, histogram.percentile(90));
+        assertEquals(25, histogram.countBetween(0, 26));
+        assertEquals(50.5, histogram.mean());
+    }
+
+    @Test
+    void rangeSummaryMergesDays() {
+        DailyHistograms histograms = new DailyHistograms(CLOCK, new int[] {100, 60, 80});
+        List<WellnessSample> samples = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            samples.add(new WellnessSample(LocalDate.parse("2025-04-29"), 10, 55));
+            samples.add(new WellnessSample(LocalDate.parse("2025-04-10"), 80, 110));
+        }
+        samples.add(new WellnessSample(LocalDate.parse("2025-04-29"), -2, null));
+        histograms.bootstrap(samples);
+
+        List<DistributionSummary> summaries = histograms.summaries();
+
+        HistogramSummary week = summaries.get(0).stress();
+        assertEquals(10, week.samples());
+        assertEquals(10, week.p90());
+        assertEquals(100.0, week.zones().get(0).percent());
+
+        DistributionSummary month = summaries.get(1);
+        assertEquals(2, month.days());
+        assertEquals(55, month.heartRate().p50());
+        assertEquals(110, month.heartRate().p90());
+        assertEquals(List.of("<60", "60-79", "80-99", "100+"),
+                month.heartRate().zones().stream().map(zone -> zone.zone()).toList());
+        assertEquals(50.0, month.heartRate().zones().get(3).percent());
+    }
+
+    @Test
+    void syncedDaysReplaceExistingHistograms() {
+        DailyHistograms histograms = new DailyHistograms(CLOCK, new int[] {60, 80, 100, 120});
+        histograms.recordDays(List.of(new WellnessSample(LocalDate.parse("2025-04-30"), 40, 70)));
+        assertNull(histograms.summaries());
+
+        histograms.bootstrap(List.of(new WellnessSample(LocalDate.parse("2025-04-30"), 40, 70)));
+        histograms.recordDays(List.of(
+                new WellnessSample(LocalDate.parse("2025-04-30"), 60, 90),
+                new WellnessSample(LocalDate.parse("2025-04-30"), 70, 95)
+        ));
+
+        HistogramSummary stress = histograms.summaries().get(0).stress();
+        assertEquals(2, stress.samples());
+        assertEquals(60, stress.p50());
+    }
+}
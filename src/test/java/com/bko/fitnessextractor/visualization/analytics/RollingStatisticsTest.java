@@ -0,0 +1,84 @@
+package com.bko.fitnessextractor.visualization.analytics;
+
+import com.bko.fitnessextractor.visualization.app.MetricTrend;
+import com.bko.fitnessextractor.visualization.app.TrendSummary;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RollingStatisticsTest {
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-03-28T12:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    void summaryIsEmptyUntilBootstrapped() {
+        RollingStatistics statistics = new RollingStatistics(new int[] {7, 28}, CLOCK);
+
+        statistics.recordDailyMetrics(List.of(new DailyMetricsSample(LocalDate.parse("2025-03-27"), 50, 8.0, 60.0)));
+
+        assertNull(statistics.summary());
+    }
+
+    @Test
+    void comparesShortAndLongWindows() {
+        RollingStatistics statistics = new RollingStatistics(new int[] {28, 7}, CLOCK);
+        List<DailyMetricsSample> days = new ArrayList<>();
+        for (int i = 0; i < 28; i++) {
+            LocalDate date = LocalDate.parse("2025-03-01").plusDays(i);
+            days.add(new DailyMetricsSample(date, i < 21 ? 50 : 57, 7.0, null));
+        }
+        statistics.bootstrap(List.of(), days);
+
+        TrendSummary summary = statistics.summary();
+
+        assertEquals(7, summary.shortWindowDays());
+        assertEquals(28, summary.longWindowDays());
+        MetricTrend restingHr = trend(summary, "Resting HR");
+        assertEquals(57.0, restingHr.windows().get(0).mean());
+        assertEquals(51.8, restingHr.windows().get(1).mean());
+        assertEquals(5.2, restingHr.delta());
+        assertNull(trend(summary, "HRV (ms)").delta());
+    }
+
+    @Test
+    void distanceCountsRestDaysAndSyncedActivities() {
+        RollingStatistics statistics = new RollingStatistics(new int[] {7, 28}, CLOCK);
+        statistics.bootstrap(List.of(activity("1", "2025-03-25", 14000.0)), List.of());
+
+        statistics.recordActivities(List.of(activity("3", "2025-03-28", 7000.0), activity("2", "2025-03-25", 7000.0)));
+
+        MetricTrend distance = trend(statistics.summary(), "Distance (km/day)");
+        assertEquals(28.0, distance.windows().get(0).sum());
+        assertEquals(4.0, distance.windows().get(0).mean());
+        assertEquals(21.0, distance.windows().get(0).max());
+        assertEquals(28, distance.windows().get(1).samples());
+    }
+
+    @Test
+    void anActivityTheBootstrapReadIsNotAddedAgainByItsSyncEvent() {
+        RollingStatistics statistics = new RollingStatistics(new int[] {7, 28}, CLOCK);
+        statistics.bootstrap(List.of(activity("1", "2025-03-25", 14000.0)), List.of());
+
+        statistics.recordActivities(List.of(activity("1", "2025-03-25", 14000.0), activity("2", "2025-03-27", 7000.0)));
+
+        assertEquals(21.0, trend(statistics.summary(), "Distance (km/day)").windows().get(0).sum());
+    }
+
+    private MetricTrend trend(TrendSummary summary, String metric) {
+        return summary.metrics().stream()
+                .filter(trend -> trend.metric().equals(metric))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private ActivitySample activity(String id, String date, double distanceMeters) {
+        return new ActivitySample(id, LocalDate.parse(date), distanceMeters, 3600, null, null, null, null);
+    }
+}
@@ -0,0 +1,99 @@
+package com.bko.fitnessextractor.visualization.analytics;
+
+import com.bko.fitnessextractor.visualization.app.WindowStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RollingWindowTest {
+
+    @Test
+    void appendsEvictOldestDay() {
+        RollingWindow window = new RollingWindow(3, Double.NaN);
+        window.put(1, 10);
+        window.put(2, 20);
+        window.put(3, 30);
+        window.put(4, 40);
+
+        WindowStats stats = window.stats(4);
+
+        assertEquals(3, stats.samples());
+        assertEquals(90.0, stats.sum());
+        assertEquals(30.0, stats.mean());
+        assertEquals(20.0, stats.min());
+        assertEquals(40.0, stats.max());
+    }
+
+    @Test
+    void missingDaysAreSkippedOrFilled() {
+        RollingWindow sparse = new RollingWindow(7, Double.NaN);
+        sparse.put(1, 50);
+        sparse.put(4, 60);
+        assertEquals(2, sparse.stats(5).samples());
+        assertEquals(55.0, sparse.stats(5).mean());
+
+        RollingWindow filled = new RollingWindow(7, 0.0);
+        filled.add(1, 10);
+        filled.add(4, 4);
+        filled.add(4, 6);
+        WindowStats stats = filled.stats(5);
+        assertEquals(5, stats.samples());
+        assertEquals(20.0, stats.sum());
+        assertEquals(0.0, stats.min());
+        assertEquals(10.0, stats.max());
+    }
+
+    @Test
+    void longGapClearsWindow() {
+        RollingWindow window = new RollingWindow(7, Double.NaN);
+        window.put(1, 50);
+
+        WindowStats stats = window.stats(20);
+
+        assertEquals(0, stats.samples());
+        assertNull(stats.mean());
+        assertNull(stats.max());
+    }
+
+    @Test
+    void matchesRecomputedStatisticsWithRewrites() {
+        Random random = new Random(42);
+        int capacity = 7;
+        double[] days = new double[200];
+        Arrays.fill(days, Double.NaN);
+        RollingWindow window = new RollingWindow(capacity, Double.NaN);
+        int head = 0;
+        for (int step = 0; step < 500; step++) {
+            int day = random.nextInt(4) == 0 && head > 0 ? Math.max(1, head - random.nextInt(capacity)) : head + 1 + random.nextInt(2);
+            if (day >= days.length) {
+                break;
+            }
+            double value = random.nextInt(100);
+            window.put(day, value);
+            days[day] = value;
+            head = Math.max(head, day);
+
+            WindowStats stats = window.stats(head);
+            double sum = 0;
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            int samples = 0;
+            for (int d = head - capacity + 1; d <= head; d++) {
+                if (d > 0 && !Double.isNaN(days[d])) {
+                    samples++;
+                    sum += days[d];
+                    min = Math.min(min, days[d]);
+                    max = Math.max(max, days[d]);
+                }
+            }
+            assertEquals(samples, stats.samples());
+            assertEquals(sum, stats.sum(), 1e-9);
+            assertEquals(min, stats.min());
+            assertEquals(max, stats.max());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.bko.fitnessextractor.visualization.analytics;
+
+import com.bko.fitnessextractor.shared.DataDirectory;
+import com.bko.fitnessextractor.visualization.app.TrainingLoadSummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrainingLoadEngineTest {
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-03-10T12:00:00Z"), ZoneOffset.UTC);
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void summaryIsEmptyUntilBootstrapped() {
+        TrainingLoadEngine engine = new TrainingLoadEngine(new DataDirectory(dataDir), CLOCK);
+
+        engine.recordActivities(List.of(activity("1", "2025-03-09", 100)));
+
+        assertFalse(engine.isInitialized());
+        assertNull(engine.summary());
+    }
+
+    @Test
+    void lateActivityMatchesFullReplay() {
+        TrainingLoadEngine incremental = new TrainingLoadEngine(new DataDirectory(dataDir.resolve("a")), CLOCK);
+        incremental.bootstrap(List.of(activity("1", "2025-03-01", 80)), Map.of());
+        incremental.summary();
+        incremental.recordActivities(List.of(activity("2", "2025-03-05", 120)));
+
+        TrainingLoadEngine replayed = new TrainingLoadEngine(new DataDirectory(dataDir.resolve("b")), CLOCK);
+        replayed.bootstrap(List.of(activity("1", "2025-03-01", 80), activity("2", "2025-03-05", 120)), Map.of());
+
+        TrainingLoadSummary expected = replayed.summary();
+        TrainingLoadSummary actual = incremental.summary();
+        assertEquals(expected.ctl(), actual.ctl());
+        assertEquals(expected.atl(), actual.atl());
+        assertEquals(expected.tsb(), actual.tsb());
+        assertEquals(expected.ctlSeries(), actual.ctlSeries());
+    }
+
+    @Test
+    void stateSurvivesRestart() {
+        TrainingLoadEngine engine = new TrainingLoadEngine(new DataDirectory(dataDir), CLOCK);
+        engine.bootstrap(List.of(activity("1", "2025-03-08", 150)), Map.of(LocalDate.parse("2025-03-08"), 48));
+        TrainingLoadSummary before = engine.summary();
+
+        TrainingLoadEngine restarted = new TrainingLoadEngine(new DataDirectory(dataDir), CLOCK);
+
+        assertTrue(restarted.isInitialized());
+        TrainingLoadSummary after = restarted.summary();
+        assertEquals(before.ctl(), after.ctl());
+        assertEquals(before.atl(), after.atl());
+        assertEquals("2025-03-10", after.asOf());
+    }
+
+    @Test
+    void anActivityAlreadyFoldedInIsNotCountedAgainEvenAfterARestart() {
+        TrainingLoadEngine engine = new TrainingLoadEngine(new DataDirectory(dataDir), CLOCK);
+        engine.bootstrap(List.of(activity("1", "2025-03-01", 80), activity("2", "2025-03-05", 120)), Map.of());
+        TrainingLoadSummary expected = engine.summary();
+
+        // The sync event for a batch the bootstrap already read from the sheet.
+        engine.recordActivities(List.of(activity("2", "2025-03-05", 120)));
+        new TrainingLoadEngine(new DataDirectory(dataDir), CLOCK)
+                .recordActivities(List.of(activity("1", "2025-03-01", 80)));
+
+        TrainingLoadSummary actual = new TrainingLoadEngine(new DataDirectory(dataDir), CLOCK).summary();
+        assertEquals(expected.ctl(), actual.ctl());
+        assertEquals(expected.atl(), actual.atl());
+        assertEquals(expected.ctlSeries(), actual.ctlSeries());
+    }
+
+    @Test
+    void heartRateLoadUsesRestingHeartRateWhenSufferScoreMissing() {
+        TrainingLoadEngine engine = new TrainingLoadEngine(new DataDirectory(dataDir), CLOCK);
+        ActivitySample run = new ActivitySample("1", LocalDate.parse("2025-03-10"), 10000.0, 3600, 150.0, 180.0, null, null);
+
+        engine.bootstrap(List.of(run), Map.of(LocalDate.parse("2025-03-09"), 50));
+
+        assertTrue(engine.summary().atl() > 0);
+    }
+
+    private ActivitySample activity(String id, String date, int sufferScore) {
+        return new ActivitySample(id, LocalDate.parse(date), null, null, null, null, null, sufferScore);
+    }
+}
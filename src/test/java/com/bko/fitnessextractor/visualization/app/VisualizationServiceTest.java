@@ -2,21 +2,42 @@ package com.bko.fitnessextractor.visualization.app;
 
 import com.bko.fitnessextractor.integrations.sheets.SpreadsheetPort;
 import com.bko.fitnessextractor.shared.AppSettings;
+import com.bko.fitnessextractor.shared.DataDirectory;
 import com.bko.fitnessextractor.shared.GarminSettings;
 import com.bko.fitnessextractor.shared.GoogleSettings;
 import com.bko.fitnessextractor.shared.StravaSettings;
+import com.bko.fitnessextractor.sync.PeriodTotals;
+import com.bko.fitnessextractor.sync.RollupQueryUseCase;
+import com.bko.fitnessextractor.visualization.analytics.DailyHistograms;
+import com.bko.fitnessextractor.visualization.analytics.RollingStatistics;
+import com.bko.fitnessextractor.visualization.analytics.TrainingLoadEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
-
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class VisualizationServiceTest {
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-01-13T12:00:00Z"), ZoneOffset.UTC);
+
+    @TempDir
+    Path dataDir;
+
+    private final RollupQueryUseCase rollupQuery = mock(RollupQueryUseCase.class);
 
     @Test
     void loadVisualizationSkipsWhenGoogleMissing() {
@@ -27,7 +48,8 @@ class VisualizationServiceTest {
         );
         SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
 
-        VisualizationService service = new VisualizationService(spreadsheetPort, settings);
+        VisualizationService service = new VisualizationService(spreadsheetPort, settings, trainingLoadEngine(), new RollingStatistics(new int[] {7, 28}, CLOCK),
+                new DailyHistograms(CLOCK, new int[] {60, 80, 100, 120}), rollupQuery, new SimpleMeterRegistry());
 
         VisualizationSnapshot snapshot = service.loadVisualization();
 
@@ -63,8 +85,12 @@ class VisualizationServiceTest {
         when(spreadsheetPort.getExistingValues("Strava Activities!A:P")).thenReturn(stravaRows);
         when(spreadsheetPort.getExistingValues("Garmin Metrics!A:I")).thenReturn(garminRows);
         when(spreadsheetPort.getExistingValues("Garmin Stress HR!A:D")).thenReturn(stressRows);
+        PeriodTotals week = new PeriodTotals("2025-W02", LocalDate.parse("2025-01-06"), LocalDate.parse("2025-01-12"),
+                2, 15000.0, 3300, 47.5, 7.75);
+        when(rollupQuery.weeklyTotals(8)).thenReturn(List.of(week));
 
-        VisualizationService service = new VisualizationService(spreadsheetPort, settings);
+        VisualizationService service = new VisualizationService(spreadsheetPort, settings, trainingLoadEngine(), new RollingStatistics(new int[] {7, 28}, CLOCK),
+                new DailyHistograms(CLOCK, new int[] {60, 80, 100, 120}), rollupQuery, new SimpleMeterRegistry());
 
         VisualizationSnapshot snapshot = service.loadVisualization();
 
@@ -87,5 +113,52 @@ class VisualizationServiceTest {
         assertEquals("2025-01-12 - Evening Run", snapshot.recovery().workoutLabel());
         assertEquals(8, snapshot.recovery().minutesToRecovery());
         assertEquals("Recovered", snapshot.recovery().status());
+
+        assertNotNull(snapshot.trainingLoad());
+        assertEquals("2025-01-13", snapshot.trainingLoad().asOf());
+
+        assertNotNull(snapshot.trends());
+        assertEquals(47.5, snapshot.trends().metrics().get(1).windows().get(0).mean());
+
+        assertEquals(2, snapshot.distributions().size());
+        assertEquals(2, snapshot.distributions().get(0).heartRate().samples());
+        assertEquals(35, snapshot.distributions().get(0).stress().p90());
+
+        assertEquals(List.of(week), snapshot.rollups().weeks());
+        assertTrue(snapshot.rollups().months().isEmpty());
+    }
+
+    @Test
+    void loadVisualizationReportsEachFailingSourceInOrder() throws Exception {
+        AppSettings settings = new AppSettings(
+                new StravaSettings("id", "secret", "token"),
+                new GarminSettings("user", "pass", null, null, null, null),
+                new GoogleSettings("sheet", "key.json")
+        );
+        SpreadsheetPort spreadsheetPort = mock(SpreadsheetPort.class);
+
+        when(spreadsheetPort.getExistingValues("Strava Activities!A:P")).thenThrow(new IOException("strava down"));
+        when(spreadsheetPort.getExistingValues("Garmin Metrics!A:I")).thenReturn(List.of());
+        when(spreadsheetPort.getExistingValues("Garmin Stress HR!A:D")).thenThrow(new IOException("stress down"));
+        when(rollupQuery.weeklyTotals(8)).thenThrow(new IOException("rollups down"));
+
+        VisualizationService service = new VisualizationService(spreadsheetPort, settings, trainingLoadEngine(), new RollingStatistics(new int[] {7, 28}, CLOCK),
+                new DailyHistograms(CLOCK, new int[] {60, 80, 100, 120}), rollupQuery, new SimpleMeterRegistry());
+
+        VisualizationSnapshot snapshot = service.loadVisualization();
+
+        assertEquals(List.of(
+                "Could not load Strava data: strava down",
+                "No Garmin data found in the spreadsheet.",
+                "Could not load Garmin stress data: stress down",
+                "Could not load weekly and monthly totals: rollups down"
+        ), snapshot.messages());
+        assertNull(snapshot.strava());
+        assertNull(snapshot.garmin());
+        assertEquals("No workout", snapshot.recovery().status());
+    }
+
+    private TrainingLoadEngine trainingLoadEngine() {
+        return new TrainingLoadEngine(new DataDirectory(dataDir), CLOCK);
     }
 }